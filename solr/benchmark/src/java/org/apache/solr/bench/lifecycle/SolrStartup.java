@@ -23,8 +23,10 @@ import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.file.PathUtils;
 import org.apache.lucene.util.IOUtils;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
 import org.apache.solr.client.solrj.request.CoreAdminRequest;
 import org.apache.solr.client.solrj.response.CoreAdminResponse;
+import org.apache.solr.cloud.MiniSolrCloudCluster;
 import org.apache.solr.embedded.JettyConfig;
 import org.apache.solr.embedded.JettySolrRunner;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -34,6 +36,7 @@ import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -42,7 +45,11 @@ import org.openjdk.jmh.annotations.Threads;
 
 /**
  * A simple JMH benchmark that attempts to measure approximate Solr startup behavior by measuring
- * {@link JettySolrRunner#start()}
+ * {@link JettySolrRunner#start()}, for a standalone node with a number of cores, and for a
+ * SolrCloud node hosting a number of replicas until all of them are active again.
+ *
+ * <p>Both run with 10 cores by default, larger nodes can be measured by passing e.g. <code>
+ * -p numCores=400 -p numReplicas=400</code>.
  */
 @BenchmarkMode(Mode.Throughput)
 @OutputTimeUnit(TimeUnit.SECONDS)
@@ -57,10 +64,23 @@ public class SolrStartup {
     threadState.solrRunner.start(false);
   }
 
+  @Benchmark
+  @Threads(1)
+  public void restartCloudNode(CloudState cloudState) throws Exception {
+    cloudState.cluster.startJettySolrRunner(cloudState.restartedNode);
+    cloudState.cluster.waitForActiveCollection(
+        CloudState.COLLECTION,
+        10,
+        TimeUnit.MINUTES,
+        cloudState.numReplicas,
+        cloudState.numReplicas);
+  }
+
   @State(Scope.Thread)
   public static class PerThreadState {
 
-    private static final int NUM_CORES = 10;
+    @Param("10")
+    public int numCores;
 
     public Path tmpSolrHome;
     public JettySolrRunner solrRunner;
@@ -79,7 +99,7 @@ public class SolrStartup {
       solrRunner = new JettySolrRunner(tmpSolrHome.toString(), buildJettyConfig("/solr"));
       solrRunner.start(false);
       try (SolrClient client = solrRunner.newClient()) {
-        for (int i = 0; i < NUM_CORES; i++) {
+        for (int i = 0; i < numCores; i++) {
           createCore(client, "core-prefix-" + i);
         }
       }
@@ -117,4 +137,50 @@ public class SolrStartup {
       return JettyConfig.builder().setContext(context).stopAtShutdown(true).build();
     }
   }
+
+  /**
+   * A two node cluster, where all the replicas of a collection with one replica per shard are on
+   * the node that is restarted. The other node is started first, so that it is the Overseer.
+   */
+  @State(Scope.Benchmark)
+  public static class CloudState {
+
+    static final String COLLECTION = "startup";
+
+    @Param("10")
+    public int numReplicas;
+
+    public Path clusterDir;
+    public MiniSolrCloudCluster cluster;
+    public JettySolrRunner restartedNode;
+
+    @Setup(Level.Trial)
+    public void startCluster() throws Exception {
+      clusterDir = Files.createTempDirectory("solrstartup-cloudstate").toAbsolutePath();
+      cluster =
+          new MiniSolrCloudCluster.Builder(2, clusterDir)
+              .addConfig("conf", Path.of("src/resources/configs/cloud-minimal/conf"))
+              .configure();
+      restartedNode = cluster.getJettySolrRunner(1);
+
+      CollectionAdminRequest.createCollection(COLLECTION, "conf", numReplicas, 1)
+          .setCreateNodeSet(restartedNode.getNodeName())
+          .process(cluster.getSolrClient());
+      cluster.waitForActiveCollection(COLLECTION, 10, TimeUnit.MINUTES, numReplicas, numReplicas);
+    }
+
+    @Setup(Level.Invocation)
+    public void stopNode() throws Exception {
+      if (restartedNode.isRunning()) {
+        cluster.stopJettySolrRunner(restartedNode);
+        cluster.waitForJettyToStop(restartedNode);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdownCluster() throws Exception {
+      cluster.shutdown();
+      IOUtils.rm(clusterDir);
+    }
+  }
 }
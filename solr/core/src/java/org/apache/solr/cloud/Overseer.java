@@ -23,6 +23,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -31,6 +32,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import org.apache.lucene.util.Version;
@@ -48,6 +50,7 @@ import org.apache.solr.cloud.overseer.NodeMutator;
 import org.apache.solr.cloud.overseer.OverseerAction;
 import org.apache.solr.cloud.overseer.ReplicaMutator;
 import org.apache.solr.cloud.overseer.SliceMutator;
+import org.apache.solr.cloud.overseer.StateUpdateCoalescer;
 import org.apache.solr.cloud.overseer.ZkStateWriter;
 import org.apache.solr.cloud.overseer.ZkWriteCommand;
 import org.apache.solr.common.AlreadyClosedException;
@@ -63,10 +66,12 @@ import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.params.CollectionAdminParams;
 import org.apache.solr.common.params.CollectionParams;
 import org.apache.solr.common.util.Compressor;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.IOUtils;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.ObjectReleaseTracker;
 import org.apache.solr.common.util.Pair;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.common.util.StrUtils;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.common.util.ZLibCompressor;
@@ -158,6 +163,9 @@ public class Overseer implements SolrCloseable {
       Integer.getInteger("solr.OverseerStateUpdateBatchSize", 10000);
   public static final int STATE_UPDATE_MAX_QUEUE =
       Integer.getInteger("solr.OverseerStateUpdateMaxQueueSize", 20000);
+  // number of threads writing the state of different collections in parallel
+  public static final int STATE_UPDATE_WRITE_THREADS =
+      Integer.getInteger("solr.OverseerStateUpdateWriteThreads", 8);
 
   public static final int NUM_RESPONSES_TO_STORE = 10000;
   public static final String OVERSEER_ELECT = "/overseer_elect";
@@ -179,7 +187,10 @@ public class Overseer implements SolrCloseable {
    * <code>/overseer/queue</code> and executing the requested cluster change (essentially writing or
    * updating <code>state.json</code> for a collection).
    *
-   * <p>The cluster state updater is a single thread dequeueing and executing requests.
+   * <p>The cluster state updater is a single thread dequeueing and executing requests. Replica
+   * state updates that are superseded by a later one in the same batch are skipped (see {@link
+   * StateUpdateCoalescer}), and the state of the collections modified by a batch is written to ZK
+   * in parallel.
    */
   private class ClusterStateUpdater implements Runnable, Closeable {
 
@@ -207,6 +218,9 @@ public class Overseer implements SolrCloseable {
 
     private final Compressor compressor;
 
+    // writes the updates of different collections in parallel, null if there's a single thread
+    private final ExecutorService stateWriteExecutor;
+
     private boolean isClosed = false;
 
     public ClusterStateUpdater(
@@ -226,6 +240,11 @@ public class Overseer implements SolrCloseable {
       this.reader = reader;
       this.minStateByteLenForCompression = minStateByteLenForCompression;
       this.compressor = compressor;
+      this.stateWriteExecutor =
+          STATE_UPDATE_WRITE_THREADS > 1
+              ? ExecutorUtil.newMDCAwareFixedThreadPool(
+                  STATE_UPDATE_WRITE_THREADS, new SolrNamedThreadFactory("overseerStateWriter"))
+              : null;
 
       clusterStateUpdaterMetricContext = solrMetricsContext.getChildContext(this);
       clusterStateUpdaterMetricContext.gauge(
@@ -279,7 +298,12 @@ public class Overseer implements SolrCloseable {
               reader.forciblyRefreshAllClusterStateSlow();
               clusterState = reader.getClusterState();
               zkStateWriter =
-                  new ZkStateWriter(reader, stats, minStateByteLenForCompression, compressor);
+                  new ZkStateWriter(
+                      reader,
+                      stats,
+                      minStateByteLenForCompression,
+                      compressor,
+                      stateWriteExecutor);
               refreshClusterState = false;
 
               // if there were any errors while processing
@@ -350,9 +374,24 @@ public class Overseer implements SolrCloseable {
           try {
             Set<String> processedNodes = new HashSet<>();
             while (queue != null && !queue.isEmpty()) {
+              List<ZkNodeProps> messages = new ArrayList<>(queue.size());
               for (Pair<String, byte[]> head : queue) {
-                byte[] data = head.second();
-                final ZkNodeProps message = ZkNodeProps.load(data);
+                messages.add(ZkNodeProps.load(head.second()));
+              }
+              Set<Integer> superseded = StateUpdateCoalescer.findSuperseded(messages);
+              int i = 0;
+              for (Pair<String, byte[]> head : queue) {
+                final ZkNodeProps message = messages.get(i);
+                if (superseded.contains(i++)) {
+                  // a later message in this batch sets the state of the same replica
+                  if (log.isDebugEnabled()) {
+                    log.debug("skipping superseded message = {}", message);
+                  }
+                  stats.success("coalesced_" + OverseerAction.STATE.toLower());
+                  processedNodes.add(head.first());
+                  fallbackQueueSize = processedNodes.size();
+                  continue;
+                }
                 if (log.isDebugEnabled()) {
                   log.debug(
                       "processMessage: queueSize: {}, message = {}",
@@ -413,6 +452,9 @@ public class Overseer implements SolrCloseable {
         if (log.isInfoEnabled()) {
           log.info("Overseer Loop exiting : {}", LeaderElector.getNodeName(myId));
         }
+        if (stateWriteExecutor != null) {
+          ExecutorUtil.shutdownAndAwaitTermination(stateWriteExecutor);
+        }
         // do this in a separate thread because any wait is interrupted in this main thread
         new Thread(this::checkIfIamStillLeader, "OverseerExitThread").start();
       }
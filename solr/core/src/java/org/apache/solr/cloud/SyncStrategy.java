@@ -27,6 +27,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.http.client.HttpClient;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.cloud.ShardTerms;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.request.CoreAdminRequest.RequestRecovery;
 import org.apache.solr.common.cloud.ZkCoreNodeProps;
@@ -51,6 +52,9 @@ public class SyncStrategy {
 
   private final boolean SKIP_AUTO_RECOVERY = Boolean.getBoolean("solrcloud.skip.autorecovery");
 
+  // skip the check whether all replicas are already in sync before syncing them
+  private final boolean SKIP_IN_SYNC_CHECK = Boolean.getBoolean("solrcloud.skip.insynccheck");
+
   private final ShardHandler shardHandler;
 
   private volatile boolean isClosed;
@@ -129,6 +133,17 @@ public class SyncStrategy {
     String collection = cloudDesc.getCollectionName();
     String shardId = cloudDesc.getShardId();
 
+    // if the replicas are provably in sync already, there is nothing to sync in either direction
+    try {
+      if (!SKIP_IN_SYNC_CHECK
+          && replicasInSync(zkController, core, collection, shardId, peerSyncOnlyWithActive)) {
+        log.info("All replicas have the same term and index fingerprint, skipping sync");
+        return PeerSync.PeerSyncResult.success();
+      }
+    } catch (Exception e) {
+      log.warn("Could not check whether the replicas are in sync, continuing with sync", e);
+    }
+
     // first sync ourselves - we are the potential leader after all
     try {
       result =
@@ -167,6 +182,47 @@ public class SyncStrategy {
     return result == null ? PeerSync.PeerSyncResult.failure() : result;
   }
 
+  /**
+   * Checks whether all the replicas of the shard are known to be in sync with us: all of them have
+   * the same term in ZooKeeper and none of them is recovering, and each live replica returns the
+   * same index fingerprint as ours. This is the common case of a leader going away during a
+   * rolling restart, and lets the election skip both the sync with the replicas and the sync of
+   * the replicas back to the new leader.
+   */
+  private boolean replicasInSync(
+      ZkController zkController,
+      SolrCore core,
+      String collection,
+      String shardId,
+      boolean peerSyncOnlyWithActive)
+      throws IOException {
+    String coreNodeName = core.getCoreDescriptor().getCloudDescriptor().getCoreNodeName();
+    ShardTerms terms = zkController.getShardTerms(collection, shardId).getShardTerms();
+    if (terms.getTerm(coreNodeName) == null || !terms.haveAllEqualTerms()) {
+      return false;
+    }
+
+    List<ZkCoreNodeProps> nodes =
+        zkController.getZkStateReader().getReplicaProps(collection, shardId, coreNodeName);
+    if (nodes == null || isClosed) {
+      return false;
+    }
+    List<String> syncWith = new ArrayList<>(nodes.size());
+    for (ZkCoreNodeProps node : nodes) {
+      syncWith.add(node.getCoreUrl());
+    }
+    try (PeerSync peerSync =
+        new PeerSync(
+            core,
+            syncWith,
+            core.getUpdateHandler().getUpdateLog().getNumRecordsToKeep(),
+            false,
+            peerSyncOnlyWithActive,
+            true)) {
+      return peerSync.isInSyncWithAll();
+    }
+  }
+
   private PeerSync.PeerSyncResult syncWithReplicas(
       ZkController zkController,
       SolrCore core,
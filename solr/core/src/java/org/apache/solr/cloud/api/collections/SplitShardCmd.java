@@ -120,7 +120,7 @@ public class SplitShardCmd implements CollApiCmds.CollectionApiCommand {
    *   <li>4. Create sub-shards in CONSTRUCTION state.
    *   <li>5. Add an initial replica to each sub-shard.
    *   <li>6. Request that parent shard wait for children to become ACTIVE.
-   *   <li>7. Execute split: either LINK or REWRITE.
+   *   <li>7. Execute split: LINK, ONLINE or REWRITE.
    *   <li>8. Apply buffered updates to the sub-shards so they are up-to-date with parent.
    *   <li>9. Determine node placement for additional replicas (but do not create yet).
    *   <li>10. If replicationFactor is more than 1, set shard state for sub-shards to RECOVERY; else
@@ -904,7 +904,7 @@ public class SplitShardCmd implements CollApiCmds.CollectionApiCommand {
       return;
     }
 
-    // 100% more for REWRITE, 5% more for LINK
+    // 100% more for REWRITE, 5% more for LINK and ONLINE
     double neededSpace =
         method == SolrIndexSplitter.SplitMethod.REWRITE ? 2.0 * indexSize : 1.05 * indexSize;
     if (freeSize.doubleValue() < neededSpace) {
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud.overseer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.solr.cloud.Overseer;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.ZkNodeProps;
+import org.apache.solr.common.cloud.ZkStateReader;
+
+/**
+ * Finds the replica state updates in a batch of Overseer messages that are made redundant by a
+ * later update of the same replica in the same batch, so that the Overseer can skip them. When
+ * many replicas are restarted or recover at the same time, each of them typically goes through
+ * several states (down, recovering, active) in quick succession, and every message that is applied
+ * copies the whole collection state.
+ *
+ * <p>{@link ReplicaMutator#setState} replaces all the properties of a replica except its leader
+ * flag, type and custom properties, which it keeps from the existing replica. Applying only the
+ * later of two such messages therefore leads to the same state, as long as nothing else happened
+ * to the collection in between and the earlier message has no effects that the later one lacks:
+ * it may not create the collection or the replica unless the later one would, and it may not make
+ * a replica active, which can complete a shard split.
+ */
+public class StateUpdateCoalescer {
+
+  private StateUpdateCoalescer() {}
+
+  /**
+   * @param messages a batch of Overseer state update messages, in the order they were queued
+   * @return the indexes of the messages that don't need to be applied
+   */
+  public static Set<Integer> findSuperseded(List<ZkNodeProps> messages) {
+    Set<Integer> superseded = new HashSet<>();
+    // collection -> core node name -> the next state message for that replica
+    Map<String, Map<String, ZkNodeProps>> later = new HashMap<>();
+    for (int i = messages.size() - 1; i >= 0; i--) {
+      ZkNodeProps message = messages.get(i);
+      String collection = message.getStr(ZkStateReader.COLLECTION_PROP);
+      if (!OverseerAction.STATE.toLower().equals(message.getStr(Overseer.QUEUE_OPERATION))) {
+        // anything else may change the collection (or, without a collection, several of them)
+        if (collection == null) {
+          later.clear();
+        } else {
+          later.remove(collection);
+        }
+        continue;
+      }
+
+      String coreNodeName = message.getStr(ZkStateReader.CORE_NODE_NAME_PROP);
+      if (collection == null
+          || coreNodeName == null
+          || message.getStr(ZkStateReader.SHARD_ID_PROP) == null) {
+        // may create a replica, or assign it to a shard
+        later.remove(collection);
+        continue;
+      }
+      Map<String, ZkNodeProps> replicas = later.computeIfAbsent(collection, k -> new HashMap<>());
+      ZkNodeProps next = replicas.get(coreNodeName);
+      if (next != null && supersedes(next, message)) {
+        superseded.add(i);
+      } else {
+        replicas.put(coreNodeName, message);
+      }
+    }
+    return superseded;
+  }
+
+  private static boolean supersedes(ZkNodeProps next, ZkNodeProps message) {
+    if (!next.getStr(ZkStateReader.SHARD_ID_PROP)
+        .equals(message.getStr(ZkStateReader.SHARD_ID_PROP))) {
+      return false;
+    }
+    if (Replica.State.ACTIVE.toString().equals(message.getStr(ZkStateReader.STATE_PROP))) {
+      return false;
+    }
+    if (message.containsKey(ZkStateReader.SHARD_RANGE_PROP)
+        || message.containsKey(ZkStateReader.SHARD_STATE_PROP)
+        || message.containsKey(ZkStateReader.SHARD_PARENT_PROP)) {
+      return false;
+    }
+    if (message.containsKey(ZkStateReader.NUM_SHARDS_PROP)
+        && !next.containsKey(ZkStateReader.NUM_SHARDS_PROP)) {
+      return false;
+    }
+    // a forced update may create the replica, which a non-forced one requires to exist
+    return next.getBool(ZkStateReader.FORCE_SET_STATE_PROP, true)
+        || !message.getBool(ZkStateReader.FORCE_SET_STATE_PROP, true);
+  }
+}
@@ -20,22 +20,31 @@ import static java.util.Collections.singletonMap;
 
 import com.codahale.metrics.Timer;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import org.apache.solr.cloud.Overseer;
 import org.apache.solr.cloud.Stats;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.CollectionStateDelta;
 import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.PerReplicaStatesFetcher;
+import org.apache.solr.common.cloud.SolrZkClient;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.util.Compressor;
-import org.apache.solr.common.util.Utils;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -84,11 +93,36 @@ public class ZkStateWriter {
 
   protected Compressor compressor;
 
+  /** Whether to write a {@link CollectionStateDelta} along with each state.json update */
+  protected final boolean writeDeltas = CollectionStateDelta.isEnabled();
+
+  /**
+   * The collection states this instance last wrote to ZK, to compute deltas against. Only
+   * maintained if {@link #writeDeltas} is set.
+   */
+  private final Map<String, DocCollection> lastWritten = new ConcurrentHashMap<>();
+
+  /** Used to write the updates of several collections in parallel, if not null */
+  protected final ExecutorService writeExecutor;
+
   public ZkStateWriter(
       ZkStateReader zkStateReader,
       Stats stats,
       int minStateByteLenForCompression,
       Compressor compressor) {
+    this(zkStateReader, stats, minStateByteLenForCompression, compressor, null);
+  }
+
+  /**
+   * @param writeExecutor if not null, used to write the pending updates of different collections
+   *     in parallel. It is not shut down by this class.
+   */
+  public ZkStateWriter(
+      ZkStateReader zkStateReader,
+      Stats stats,
+      int minStateByteLenForCompression,
+      Compressor compressor,
+      ExecutorService writeExecutor) {
     assert zkStateReader != null;
 
     this.reader = zkStateReader;
@@ -96,6 +130,7 @@ public class ZkStateWriter {
     this.clusterState = zkStateReader.getClusterState();
     this.minStateByteLenForCompression = minStateByteLenForCompression;
     this.compressor = compressor;
+    this.writeExecutor = writeExecutor;
   }
 
   /**
@@ -259,79 +294,7 @@ public class ZkStateWriter {
     boolean success = false;
     try {
       if (!updates.isEmpty()) {
-        for (Map.Entry<String, ZkWriteCommand> entry : updates.entrySet()) {
-          String name = entry.getKey();
-          String path = DocCollection.getCollectionPath(name);
-          ZkWriteCommand cmd = entry.getValue();
-          DocCollection c = cmd.collection;
-
-          // Update the Per Replica State znodes if needed
-          if (cmd.ops != null) {
-            cmd.ops.persist(path, reader.getZkClient());
-
-            clusterState =
-                clusterState.copyWith(
-                    name,
-                    cmd.collection.setPerReplicaStates(
-                        PerReplicaStatesFetcher.fetch(
-                            cmd.collection.getZNode(), reader.getZkClient(), null)));
-          }
-
-          // Update the state.json file if needed
-          if (!cmd.persistJsonState) continue;
-          if (c == null) {
-            // let's clean up the state.json of this collection only, the rest should be cleaned by
-            // delete collection cmd
-            log.debug("going to delete state.json {}", path);
-            reader.getZkClient().clean(path);
-          } else {
-            byte[] data = Utils.toJSON(singletonMap(c.getName(), c));
-            if (minStateByteLenForCompression > -1 && data.length > minStateByteLenForCompression) {
-              // When compressing state.json, we expect at least a 10:1 compression ratio.
-              data = compressor.compressBytes(data, data.length / 10);
-            }
-            if (reader.getZkClient().exists(path, true)) {
-              if (log.isDebugEnabled()) {
-                log.debug("going to update_collection {} version: {}", path, c.getZNodeVersion());
-              }
-              Stat stat = reader.getZkClient().setData(path, data, c.getZNodeVersion(), true);
-              DocCollection newCollection =
-                  DocCollection.create(
-                      name,
-                      c.getSlicesMap(),
-                      c.getProperties(),
-                      c.getRouter(),
-                      stat.getVersion(),
-                      PerReplicaStatesFetcher.getZkClientPrsSupplier(reader.getZkClient(), path));
-              clusterState = clusterState.copyWith(name, newCollection);
-            } else {
-              log.debug("going to create_collection {}", path);
-              reader.getZkClient().create(path, data, CreateMode.PERSISTENT, true);
-              DocCollection newCollection =
-                  DocCollection.create(
-                      name,
-                      c.getSlicesMap(),
-                      c.getProperties(),
-                      c.getRouter(),
-                      0,
-                      PerReplicaStatesFetcher.getZkClientPrsSupplier(reader.getZkClient(), path));
-              clusterState = clusterState.copyWith(name, newCollection);
-            }
-          }
-
-          if (cmd.ops == null && cmd.isPerReplicaStateCollection) {
-            DocCollection currentCollState = clusterState.getCollection(cmd.name);
-            if (currentCollState != null) {
-              clusterState =
-                  clusterState.copyWith(
-                      name,
-                      currentCollState.setPerReplicaStates(
-                          PerReplicaStatesFetcher.fetch(
-                              currentCollState.getZNode(), reader.getZkClient(), null)));
-            }
-          }
-        }
-
+        writeCollections(updates);
         updates.clear();
       }
 
@@ -356,6 +319,166 @@ public class ZkStateWriter {
     return clusterState;
   }
 
+  /**
+   * Writes the given updates to ZK and applies them to {@link #clusterState}. Updates of different
+   * collections are independent of each other, so if a {@link #writeExecutor} was given they are
+   * written in parallel. If any of them fails, the others are still waited for, and the first
+   * failure is rethrown once the successful ones have been applied.
+   */
+  private void writeCollections(Map<String, ZkWriteCommand> updates)
+      throws KeeperException, InterruptedException {
+    if (writeExecutor == null || updates.size() == 1) {
+      for (Map.Entry<String, ZkWriteCommand> entry : updates.entrySet()) {
+        DocCollection written = writeCollection(entry.getKey(), entry.getValue());
+        if (written != null) {
+          clusterState = clusterState.copyWith(entry.getKey(), written);
+        }
+      }
+      return;
+    }
+
+    Map<String, Future<DocCollection>> futures = new HashMap<>();
+    for (Map.Entry<String, ZkWriteCommand> entry : updates.entrySet()) {
+      futures.put(
+          entry.getKey(),
+          writeExecutor.submit(() -> writeCollection(entry.getKey(), entry.getValue())));
+    }
+    Throwable failure = null;
+    for (Map.Entry<String, Future<DocCollection>> entry : futures.entrySet()) {
+      try {
+        DocCollection written = entry.getValue().get();
+        if (written != null) {
+          clusterState = clusterState.copyWith(entry.getKey(), written);
+        }
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        } else {
+          failure.addSuppressed(e.getCause());
+        }
+      } catch (InterruptedException e) {
+        futures.values().forEach(f -> f.cancel(true));
+        throw e;
+      }
+    }
+    if (failure instanceof KeeperException) {
+      throw (KeeperException) failure;
+    } else if (failure instanceof InterruptedException) {
+      throw (InterruptedException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR, "Failed to write cluster state", failure);
+    }
+  }
+
+  /**
+   * Writes the update of a single collection to ZK. This doesn't touch {@link #clusterState}, so
+   * that it can be called for several collections concurrently.
+   *
+   * @return the collection state to put in the cluster state, or null if it isn't modified
+   */
+  private DocCollection writeCollection(String name, ZkWriteCommand cmd)
+      throws KeeperException, InterruptedException {
+    String path = DocCollection.getCollectionPath(name);
+    DocCollection c = cmd.collection;
+    DocCollection result = null;
+
+    // Update the Per Replica State znodes if needed
+    if (cmd.ops != null) {
+      cmd.ops.persist(path, reader.getZkClient());
+
+      result =
+          cmd.collection.setPerReplicaStates(
+              PerReplicaStatesFetcher.fetch(cmd.collection.getZNode(), reader.getZkClient(), null));
+    }
+
+    // Update the state.json file if needed
+    if (!cmd.persistJsonState) return result;
+    if (c == null) {
+      // let's clean up the state.json of this collection only, the rest should be cleaned by
+      // delete collection cmd
+      log.debug("going to delete state.json {}", path);
+      reader.getZkClient().clean(path);
+      lastWritten.remove(name);
+    } else {
+      byte[] data = ClusterState.toStateBytes(singletonMap(c.getName(), c));
+      if (minStateByteLenForCompression > -1 && data.length > minStateByteLenForCompression) {
+        // When compressing state.json, we expect at least a 10:1 compression ratio.
+        data = compressor.compressBytes(data, data.length / 10);
+      }
+      if (reader.getZkClient().exists(path, true)) {
+        if (log.isDebugEnabled()) {
+          log.debug("going to update_collection {} version: {}", path, c.getZNodeVersion());
+        }
+        byte[] delta = writeDeltas ? CollectionStateDelta.toBytes(lastWritten.get(name), c) : null;
+        Stat stat =
+            delta == null
+                ? reader.getZkClient().setData(path, data, c.getZNodeVersion(), true)
+                : setDataWithDelta(name, path, data, c.getZNodeVersion(), delta);
+        result =
+            DocCollection.create(
+                name,
+                c.getSlicesMap(),
+                c.getProperties(),
+                c.getRouter(),
+                stat.getVersion(),
+                PerReplicaStatesFetcher.getZkClientPrsSupplier(reader.getZkClient(), path));
+      } else {
+        log.debug("going to create_collection {}", path);
+        reader.getZkClient().create(path, data, CreateMode.PERSISTENT, true);
+        result =
+            DocCollection.create(
+                name,
+                c.getSlicesMap(),
+                c.getProperties(),
+                c.getRouter(),
+                0,
+                PerReplicaStatesFetcher.getZkClientPrsSupplier(reader.getZkClient(), path));
+      }
+      if (writeDeltas) lastWritten.put(name, result);
+    }
+
+    if (cmd.ops == null && cmd.isPerReplicaStateCollection) {
+      DocCollection currentCollState = result != null ? result : c;
+      if (currentCollState != null) {
+        result =
+            currentCollState.setPerReplicaStates(
+                PerReplicaStatesFetcher.fetch(
+                    currentCollState.getZNode(), reader.getZkClient(), null));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Updates a collection's state.json and its delta node in a single transaction, creating the
+   * delta node if needed.
+   */
+  private Stat setDataWithDelta(
+      String collection, String path, byte[] data, int version, byte[] delta)
+      throws KeeperException, InterruptedException {
+    SolrZkClient zkClient = reader.getZkClient();
+    String deltaPath = DocCollection.getCollectionDeltaPath(collection);
+    List<Op> ops = new ArrayList<>(2);
+    ops.add(Op.setData(path, data, version));
+    if (zkClient.exists(deltaPath, true)) {
+      ops.add(Op.setData(deltaPath, delta, -1));
+    } else {
+      ops.add(
+          Op.create(
+              deltaPath,
+              delta,
+              zkClient.getZkACLProvider().getACLsToAdd(deltaPath),
+              CreateMode.PERSISTENT));
+    }
+    List<OpResult> results = zkClient.multi(ops, true);
+    return ((OpResult.SetDataResult) results.get(0)).getStat();
+  }
+
   public void resetPendingUpdateCounters() {
     lastUpdatedTime = System.nanoTime();
     numUpdates = 0;
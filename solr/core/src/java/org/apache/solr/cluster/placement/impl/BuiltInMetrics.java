@@ -76,4 +76,10 @@ public class BuiltInMetrics {
   /** 1-min update rate of the /update handler. */
   public static final ReplicaMetricImpl<Double> REPLICA_UPDATE_RATE_1MIN =
       new ReplicaMetricImpl<>("updateRate", "UPDATE./update.requestTimes:1minRate");
+  /** 95th percentile of the /select handler's request times, in milliseconds. */
+  public static final ReplicaMetricImpl<Double> REPLICA_QUERY_TIME_P95_MS =
+      new ReplicaMetricImpl<>("queryTimeP95", "QUERY./select.requestTimes:p95_ms");
+  /** 95th percentile of the /update handler's request times, in milliseconds. */
+  public static final ReplicaMetricImpl<Double> REPLICA_UPDATE_TIME_P95_MS =
+      new ReplicaMetricImpl<>("updateTimeP95", "UPDATE./update.requestTimes:p95_ms");
 }
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.cluster.placement.plugins;
+
+import org.apache.solr.cluster.placement.PlacementPluginConfig;
+import org.apache.solr.common.annotation.JsonProperty;
+
+/** Configuration bean for {@link LoadAwarePlacementFactory}. */
+public class LoadAwarePlacementConfig implements PlacementPluginConfig {
+
+  public static final long DEFAULT_MINIMAL_FREE_DISK_GB = 20L;
+  public static final double DEFAULT_REBALANCE_THRESHOLD = 0.1;
+  public static final int DEFAULT_MAX_REBALANCE_MOVES = 10;
+
+  public static final LoadAwarePlacementConfig DEFAULT = new LoadAwarePlacementConfig();
+
+  /**
+   * If a node would have strictly less GB of free disk than this value after placing a replica on
+   * it, the node is not considered for that replica. Set to 0 or less to disable.
+   */
+  @JsonProperty public long minimalFreeDiskGB = DEFAULT_MINIMAL_FREE_DISK_GB;
+
+  /**
+   * The rebalance planner stops proposing moves once the load of the most loaded node, as a
+   * fraction of its processors, exceeds the load of the least loaded node by less than this value.
+   */
+  @JsonProperty public double rebalanceThreshold = DEFAULT_REBALANCE_THRESHOLD;
+
+  /** Maximum number of replica moves proposed by one run of the rebalance planner. */
+  @JsonProperty public int maxRebalanceMoves = DEFAULT_MAX_REBALANCE_MOVES;
+
+  /** Zero-arguments public constructor required for deserialization - don't use. */
+  public LoadAwarePlacementConfig() {}
+
+  /**
+   * Configuration for the {@link LoadAwarePlacementFactory}.
+   *
+   * @param minimalFreeDiskGB minimal free disk GB.
+   * @param rebalanceThreshold load difference between nodes below which no moves are proposed.
+   * @param maxRebalanceMoves maximum number of moves proposed at once.
+   */
+  public LoadAwarePlacementConfig(
+      long minimalFreeDiskGB, double rebalanceThreshold, int maxRebalanceMoves) {
+    this.minimalFreeDiskGB = minimalFreeDiskGB;
+    this.rebalanceThreshold = rebalanceThreshold;
+    this.maxRebalanceMoves = maxRebalanceMoves;
+  }
+}
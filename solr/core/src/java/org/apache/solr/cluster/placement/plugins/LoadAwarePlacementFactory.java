@@ -0,0 +1,537 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.cluster.placement.plugins;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import org.apache.solr.cluster.Node;
+import org.apache.solr.cluster.Replica;
+import org.apache.solr.cluster.Shard;
+import org.apache.solr.cluster.SolrCollection;
+import org.apache.solr.cluster.placement.AttributeFetcher;
+import org.apache.solr.cluster.placement.AttributeValues;
+import org.apache.solr.cluster.placement.PlacementContext;
+import org.apache.solr.cluster.placement.PlacementException;
+import org.apache.solr.cluster.placement.PlacementPlan;
+import org.apache.solr.cluster.placement.PlacementPlugin;
+import org.apache.solr.cluster.placement.PlacementPluginFactory;
+import org.apache.solr.cluster.placement.PlacementRequest;
+import org.apache.solr.cluster.placement.ReplicaMetric;
+import org.apache.solr.cluster.placement.ReplicaMetrics;
+import org.apache.solr.cluster.placement.ReplicaPlacement;
+import org.apache.solr.cluster.placement.ShardMetrics;
+import org.apache.solr.cluster.placement.impl.BuiltInMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Factory for creating {@link LoadAwarePlacementPlugin}, a placement plugin that places replicas
+ * based on the load the nodes are under rather than on the number of cores they host.
+ *
+ * <p>It is configured like other placement plugins, for example:
+ *
+ * <pre>
+ *
+ * curl -X POST -H 'Content-type:application/json' -d '{
+ * "add": {
+ *   "name": ".placement-plugin",
+ *   "class": "org.apache.solr.cluster.placement.plugins.LoadAwarePlacementFactory",
+ *   "config": {
+ *     "minimalFreeDiskGB": 20,
+ *     "rebalanceThreshold": 0.1,
+ *     "maxRebalanceMoves": 10
+ *   }
+ * }
+ * }' http://localhost:8983/api/cluster/plugin
+ * </pre>
+ *
+ * <p>The load of a replica is estimated from the metrics of its request handlers as the number of
+ * CPU cores it keeps busy at peak: the 1-minute rate of <code>/select</code> and <code>/update
+ * </code> requests multiplied by the 95th percentile of their request times. The load of a node
+ * is the sum of the loads of its replicas, or its system load average if that is higher (the
+ * difference being load the replica metrics don't account for), divided by its number of
+ * processors.
+ *
+ * <p>Each new replica is placed on the node where the projected load, i.e. the current load plus
+ * the expected load of the new replica, is the lowest. A new replica of an existing shard is
+ * expected to add as much load as the average existing replica of that shard; replicas of new
+ * shards have no load history, so the number of cores and the free disk space are used to break
+ * the tie. As with the other plugins, at most one replica of a shard is placed on any node, and
+ * nodes that would be left with less than {@link LoadAwarePlacementConfig#minimalFreeDiskGB} are
+ * skipped.
+ *
+ * <p>{@link LoadAwarePlacementPlugin#computeRebalance(PlacementContext)} proposes replica moves
+ * from the most loaded nodes to the least loaded ones, for the cluster to stay balanced as the
+ * traffic patterns change.
+ */
+public class LoadAwarePlacementFactory
+    implements PlacementPluginFactory<LoadAwarePlacementConfig> {
+
+  private LoadAwarePlacementConfig config = LoadAwarePlacementConfig.DEFAULT;
+
+  @Override
+  public PlacementPlugin createPluginInstance() {
+    return new LoadAwarePlacementPlugin(
+        config.minimalFreeDiskGB, config.rebalanceThreshold, config.maxRebalanceMoves);
+  }
+
+  @Override
+  public void configure(LoadAwarePlacementConfig cfg) {
+    Objects.requireNonNull(cfg, "configuration must never be null");
+    this.config = cfg;
+  }
+
+  @Override
+  public LoadAwarePlacementConfig getConfig() {
+    return config;
+  }
+
+  /** A replica move proposed by {@link LoadAwarePlacementPlugin#computeRebalance}. */
+  public static class ReplicaMove {
+    private final Replica replica;
+    private final Node targetNode;
+    private final double load;
+
+    ReplicaMove(Replica replica, Node targetNode, double load) {
+      this.replica = replica;
+      this.targetNode = targetNode;
+      this.load = load;
+    }
+
+    /** The replica to move. Its current node is {@link Replica#getNode()}. */
+    public Replica getReplica() {
+      return replica;
+    }
+
+    public Node getTargetNode() {
+      return targetNode;
+    }
+
+    /** The estimated load of the replica, in busy CPU cores. */
+    public double getLoad() {
+      return load;
+    }
+
+    @Override
+    public String toString() {
+      return "ReplicaMove{"
+          + replica.getShard().getCollection().getName()
+          + "/"
+          + replica.getShard().getShardName()
+          + "/"
+          + replica.getReplicaName()
+          + ": "
+          + replica.getNode().getName()
+          + " -> "
+          + targetNode.getName()
+          + ", load="
+          + load
+          + "}";
+    }
+  }
+
+  /**
+   * See {@link LoadAwarePlacementFactory} for instructions on how to configure a cluster to use
+   * this plugin and details on what the plugin does.
+   */
+  public static class LoadAwarePlacementPlugin implements PlacementPlugin {
+    private static final Logger log =
+        LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final Set<ReplicaMetric<?>> REPLICA_METRICS =
+        Set.of(
+            BuiltInMetrics.REPLICA_INDEX_SIZE_GB,
+            BuiltInMetrics.REPLICA_QUERY_RATE_1MIN,
+            BuiltInMetrics.REPLICA_QUERY_TIME_P95_MS,
+            BuiltInMetrics.REPLICA_UPDATE_RATE_1MIN,
+            BuiltInMetrics.REPLICA_UPDATE_TIME_P95_MS);
+
+    private final long minimalFreeDiskGB;
+    private final double rebalanceThreshold;
+    private final int maxRebalanceMoves;
+
+    private LoadAwarePlacementPlugin(
+        long minimalFreeDiskGB, double rebalanceThreshold, int maxRebalanceMoves) {
+      this.minimalFreeDiskGB = minimalFreeDiskGB;
+      this.rebalanceThreshold = rebalanceThreshold;
+      this.maxRebalanceMoves = maxRebalanceMoves;
+    }
+
+    @Override
+    public List<PlacementPlan> computePlacements(
+        Collection<PlacementRequest> requests, PlacementContext placementContext)
+        throws PlacementException {
+      Set<Node> allNodes = new HashSet<>();
+      for (PlacementRequest request : requests) {
+        allNodes.addAll(request.getTargetNodes());
+      }
+      ClusterLoad clusterLoad = fetchClusterLoad(placementContext, allNodes);
+
+      List<PlacementPlan> placementPlans = new ArrayList<>(requests.size());
+      // nodes of the replicas of each shard, including those placed by previous requests
+      Map<String, Map<String, Set<Node>>> allNodesWithReplicas = new HashMap<>();
+      for (PlacementRequest request : requests) {
+        SolrCollection collection = request.getCollection();
+        Set<ReplicaPlacement> replicaPlacements = new HashSet<>();
+        for (String shardName : request.getShardNames()) {
+          Shard shard = collection.getShard(shardName);
+          Set<Node> nodesWithReplicas =
+              allNodesWithReplicas
+                  .computeIfAbsent(collection.getName(), c -> new HashMap<>())
+                  .computeIfAbsent(
+                      shardName,
+                      s -> {
+                        Set<Node> nodes = new HashSet<>();
+                        if (shard != null) {
+                          for (Replica replica : shard.replicas()) {
+                            nodes.add(replica.getNode());
+                          }
+                        }
+                        return nodes;
+                      });
+          ReplicaLoad expected = clusterLoad.expectedReplicaLoad(collection.getName(), shardName);
+
+          for (Replica.ReplicaType replicaType : Replica.ReplicaType.values()) {
+            for (int i = 0; i < request.getCountReplicasToCreate(replicaType); i++) {
+              NodeLoad target = null;
+              for (Node node : request.getTargetNodes()) {
+                NodeLoad candidate = clusterLoad.nodes.get(node);
+                if (candidate == null
+                    || nodesWithReplicas.contains(node)
+                    || !candidate.hasRoomFor(expected.sizeGB, minimalFreeDiskGB)) {
+                  continue;
+                }
+                if (target == null
+                    || PROJECTED_LOAD.compare(candidate.plus(expected), target.plus(expected))
+                        < 0) {
+                  target = candidate;
+                }
+              }
+              if (target == null) {
+                throw new PlacementException(
+                    "Not enough eligible nodes to place "
+                        + replicaType
+                        + " replica(s) of "
+                        + collection.getName()
+                        + "/"
+                        + shardName
+                        + ", nodes: "
+                        + request.getTargetNodes());
+              }
+              target.add(expected);
+              nodesWithReplicas.add(target.node);
+              replicaPlacements.add(
+                  placementContext
+                      .getPlacementPlanFactory()
+                      .createReplicaPlacement(collection, shardName, target.node, replicaType));
+            }
+          }
+        }
+        placementPlans.add(
+            placementContext
+                .getPlacementPlanFactory()
+                .createPlacementPlan(request, replicaPlacements));
+      }
+      return placementPlans;
+    }
+
+    /**
+     * Proposes replica moves that reduce the load of the most loaded live nodes. Moves are chosen
+     * greedily: the replica of the most loaded node whose move to the least loaded node that can
+     * take it lowers the higher of the two nodes' loads the most. Planning stops when the load
+     * difference between the most and the least loaded node is below {@link
+     * LoadAwarePlacementConfig#rebalanceThreshold}, when no move improves the balance, or after
+     * {@link LoadAwarePlacementConfig#maxRebalanceMoves} moves. The moves are only proposed, it is
+     * up to the caller to carry them out, for example with the MOVEREPLICA command.
+     *
+     * @return the proposed moves, in the order they should be carried out
+     */
+    public List<ReplicaMove> computeRebalance(PlacementContext placementContext)
+        throws PlacementException {
+      ClusterLoad clusterLoad =
+          fetchClusterLoad(placementContext, placementContext.getCluster().getLiveDataNodes());
+      List<ReplicaMove> moves = new ArrayList<>();
+      while (moves.size() < maxRebalanceMoves && clusterLoad.nodes.size() > 1) {
+        List<NodeLoad> byLoad = new ArrayList<>(clusterLoad.nodes.values());
+        byLoad.sort(PROJECTED_LOAD);
+        NodeLoad hottest = byLoad.get(byLoad.size() - 1);
+        if (hottest.utilization() - byLoad.get(0).utilization() < rebalanceThreshold) {
+          break;
+        }
+
+        ReplicaMove best = null;
+        double bestPeak = hottest.utilization();
+        for (Map.Entry<Replica, ReplicaLoad> entry : hottest.replicas.entrySet()) {
+          Replica replica = entry.getKey();
+          ReplicaLoad load = entry.getValue();
+          for (NodeLoad target : byLoad) {
+            if (target == hottest
+                || clusterLoad.hostsShard(target.node, replica.getShard())
+                || !target.hasRoomFor(load.sizeGB, minimalFreeDiskGB)) {
+              continue;
+            }
+            double peak =
+                Math.max(hottest.minus(load).utilization(), target.plus(load).utilization());
+            if (peak < bestPeak) {
+              bestPeak = peak;
+              best = new ReplicaMove(replica, target.node, load.load);
+            }
+          }
+        }
+        if (best == null) {
+          break;
+        }
+        ReplicaLoad load = hottest.replicas.remove(best.getReplica());
+        hottest.subtract(load);
+        NodeLoad target = clusterLoad.nodes.get(best.getTargetNode());
+        target.add(load);
+        target.replicas.put(best.getReplica(), load);
+        clusterLoad.moveShardReplica(best.getReplica().getShard(), hottest.node, target.node);
+        moves.add(best);
+      }
+      if (log.isInfoEnabled()) {
+        log.info("Proposed {} replica moves: {}", moves.size(), moves);
+      }
+      return moves;
+    }
+
+    private ClusterLoad fetchClusterLoad(PlacementContext placementContext, Set<Node> nodes)
+        throws PlacementException {
+      AttributeFetcher attributeFetcher = placementContext.getAttributeFetcher();
+      attributeFetcher
+          .requestNodeMetric(BuiltInMetrics.NODE_NUM_CORES)
+          .requestNodeMetric(BuiltInMetrics.NODE_FREE_DISK_GB)
+          .requestNodeMetric(BuiltInMetrics.NODE_SYSLOAD_AVG)
+          .requestNodeMetric(BuiltInMetrics.NODE_AVAILABLE_PROCESSORS);
+      // the load of a node depends on all the replicas it hosts, not only those of the collections
+      // being placed
+      for (SolrCollection collection : placementContext.getCluster().collections()) {
+        attributeFetcher.requestCollectionMetrics(collection, REPLICA_METRICS);
+      }
+      attributeFetcher.fetchFrom(nodes);
+      AttributeValues attrValues = attributeFetcher.fetchAttributes();
+
+      ClusterLoad clusterLoad = new ClusterLoad(attrValues);
+      for (Node node : nodes) {
+        Optional<Integer> cores = attrValues.getNodeMetric(node, BuiltInMetrics.NODE_NUM_CORES);
+        if (cores.isEmpty()) {
+          // can't make meaningful decisions about this node
+          log.warn("Number of cores not available for node {}, skipping it", node);
+          continue;
+        }
+        clusterLoad.nodes.put(
+            node,
+            new NodeLoad(
+                node,
+                cores.get(),
+                attrValues.getNodeMetric(node, BuiltInMetrics.NODE_AVAILABLE_PROCESSORS).orElse(1),
+                attrValues.getNodeMetric(node, BuiltInMetrics.NODE_FREE_DISK_GB).orElse(0.0)));
+      }
+      for (SolrCollection collection : placementContext.getCluster().collections()) {
+        for (Shard shard : collection.shards()) {
+          for (Replica replica : shard.replicas()) {
+            clusterLoad.addShardReplica(shard, replica.getNode());
+            NodeLoad nodeLoad = clusterLoad.nodes.get(replica.getNode());
+            if (nodeLoad != null) {
+              ReplicaLoad load = clusterLoad.replicaLoad(replica);
+              nodeLoad.replicas.put(replica, load);
+              // the node's core count and free disk already include its existing replicas
+              nodeLoad.load += load.load;
+            }
+          }
+        }
+      }
+      for (NodeLoad nodeLoad : clusterLoad.nodes.values()) {
+        // whatever the system load exceeds the replicas' load by is not ours to move
+        double sysLoad =
+            attrValues.getNodeMetric(nodeLoad.node, BuiltInMetrics.NODE_SYSLOAD_AVG).orElse(0.0);
+        nodeLoad.baseLoad = Math.max(0.0, sysLoad - nodeLoad.load);
+      }
+      return clusterLoad;
+    }
+
+    private static double metricValue(ReplicaMetrics metrics, ReplicaMetric<?> metric) {
+      // metric values are passed through as returned by the nodes, not necessarily as doubles
+      Object value = metrics.getReplicaMetric(metric).orElse(null);
+      return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    private static final Comparator<NodeLoad> PROJECTED_LOAD =
+        Comparator.comparingDouble(NodeLoad::utilization)
+            .thenComparingInt(n -> n.numCores)
+            .thenComparingDouble(n -> -n.freeDiskGB);
+
+    /** The load and index size of a replica. */
+    private static class ReplicaLoad {
+      static final ReplicaLoad NONE = new ReplicaLoad(0.0, 0.0);
+
+      final double load;
+      final double sizeGB;
+
+      ReplicaLoad(double load, double sizeGB) {
+        this.load = load;
+        this.sizeGB = sizeGB;
+      }
+
+      static ReplicaLoad of(ReplicaMetrics metrics) {
+        double queryLoad =
+            metricValue(metrics, BuiltInMetrics.REPLICA_QUERY_RATE_1MIN)
+                * metricValue(metrics, BuiltInMetrics.REPLICA_QUERY_TIME_P95_MS);
+        double updateLoad =
+            metricValue(metrics, BuiltInMetrics.REPLICA_UPDATE_RATE_1MIN)
+                * metricValue(metrics, BuiltInMetrics.REPLICA_UPDATE_TIME_P95_MS);
+        return new ReplicaLoad(
+            (queryLoad + updateLoad) / 1000.0,
+            metricValue(metrics, BuiltInMetrics.REPLICA_INDEX_SIZE_GB));
+      }
+    }
+
+    /** The projected state of a node, updated as replicas are placed on it or moved away. */
+    private static class NodeLoad {
+      final Node node;
+      final int processors;
+      final Map<Replica, ReplicaLoad> replicas = new HashMap<>();
+      int numCores;
+      double freeDiskGB;
+      // load of the replicas, in busy cores
+      double load;
+      // load the replica metrics don't account for
+      double baseLoad;
+
+      NodeLoad(Node node, int numCores, int processors, double freeDiskGB) {
+        this.node = node;
+        this.numCores = numCores;
+        this.processors = Math.max(1, processors);
+        this.freeDiskGB = freeDiskGB;
+      }
+
+      double utilization() {
+        return (baseLoad + load) / processors;
+      }
+
+      boolean hasRoomFor(double sizeGB, long minimalFreeDiskGB) {
+        return minimalFreeDiskGB <= 0 || freeDiskGB - sizeGB >= minimalFreeDiskGB;
+      }
+
+      void add(ReplicaLoad replicaLoad) {
+        load += replicaLoad.load;
+        freeDiskGB -= replicaLoad.sizeGB;
+        numCores++;
+      }
+
+      void subtract(ReplicaLoad replicaLoad) {
+        load -= replicaLoad.load;
+        freeDiskGB += replicaLoad.sizeGB;
+        numCores--;
+      }
+
+      NodeLoad plus(ReplicaLoad replicaLoad) {
+        NodeLoad copy = copy();
+        copy.add(replicaLoad);
+        return copy;
+      }
+
+      NodeLoad minus(ReplicaLoad replicaLoad) {
+        NodeLoad copy = copy();
+        copy.subtract(replicaLoad);
+        return copy;
+      }
+
+      private NodeLoad copy() {
+        NodeLoad copy = new NodeLoad(node, numCores, processors, freeDiskGB);
+        copy.load = load;
+        copy.baseLoad = baseLoad;
+        return copy;
+      }
+    }
+
+    /** Loads of the nodes and replicas of the cluster. */
+    private static class ClusterLoad {
+      final AttributeValues attrValues;
+      final Map<Node, NodeLoad> nodes = new HashMap<>();
+      // collection -> shard -> nodes hosting a replica of the shard
+      final Map<String, Map<String, Set<Node>>> shardNodes = new HashMap<>();
+
+      ClusterLoad(AttributeValues attrValues) {
+        this.attrValues = attrValues;
+      }
+
+      ReplicaLoad replicaLoad(Replica replica) {
+        return attrValues
+            .getCollectionMetrics(replica.getShard().getCollection().getName())
+            .flatMap(m -> m.getShardMetrics(replica.getShard().getShardName()))
+            .flatMap(m -> m.getReplicaMetrics(replica.getReplicaName()))
+            .map(ReplicaLoad::of)
+            .orElse(ReplicaLoad.NONE);
+      }
+
+      /**
+       * The load a new replica of the shard is expected to add: that of the average existing
+       * replica, with the size of the largest one.
+       */
+      ReplicaLoad expectedReplicaLoad(String collection, String shard) {
+        Optional<ShardMetrics> shardMetrics =
+            attrValues.getCollectionMetrics(collection).flatMap(m -> m.getShardMetrics(shard));
+        if (shardMetrics.isEmpty()) {
+          return ReplicaLoad.NONE;
+        }
+        double load = 0.0;
+        double sizeGB = 0.0;
+        int count = 0;
+        for (Iterator<ReplicaMetrics> it = shardMetrics.get().iterator(); it.hasNext(); ) {
+          ReplicaLoad replicaLoad = ReplicaLoad.of(it.next());
+          load += replicaLoad.load;
+          sizeGB = Math.max(sizeGB, replicaLoad.sizeGB);
+          count++;
+        }
+        return count == 0 ? ReplicaLoad.NONE : new ReplicaLoad(load / count, sizeGB);
+      }
+
+      void addShardReplica(Shard shard, Node node) {
+        shardNodes
+            .computeIfAbsent(shard.getCollection().getName(), c -> new HashMap<>())
+            .computeIfAbsent(shard.getShardName(), s -> new HashSet<>())
+            .add(node);
+      }
+
+      void moveShardReplica(Shard shard, Node from, Node to) {
+        Set<Node> nodes =
+            shardNodes.get(shard.getCollection().getName()).get(shard.getShardName());
+        nodes.remove(from);
+        nodes.add(to);
+      }
+
+      boolean hostsShard(Node node, Shard shard) {
+        return shardNodes
+            .getOrDefault(shard.getCollection().getName(), Map.of())
+            .getOrDefault(shard.getShardName(), Set.of())
+            .contains(node);
+      }
+    }
+  }
+}
@@ -2527,6 +2527,7 @@ public class CoreContainer {
             }
           }
         });
+    ClusterState.setStrInterner(interner::intern);
   }
 }
 
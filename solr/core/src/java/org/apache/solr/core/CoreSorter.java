@@ -23,6 +23,7 @@ import static java.util.stream.Collectors.toList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -36,7 +37,9 @@ import org.apache.solr.common.cloud.Slice;
 /**
  * This is a utility class that sorts cores in such a way as to minimize other cores waiting for
  * replicas in the current node. This helps in avoiding leaderVote timeouts happening in other nodes
- * of the cluster
+ * of the cluster. Among otherwise equal cores, those that were the leader of their shard in the
+ * last known cluster state come first, as they are the most likely to be up-to-date and become
+ * leader again.
  */
 public final class CoreSorter implements Comparator<CoreDescriptor> {
 
@@ -92,6 +95,7 @@ public final class CoreSorter implements Comparator<CoreDescriptor> {
   }
 
   private final Map<String, CountsForEachShard> shardsVsReplicaCounts = new HashMap<>();
+  private final Set<String> leaderCores = new HashSet<>();
 
   CoreSorter init(CoreContainer cc, Collection<CoreDescriptor> coreDescriptors) {
     String myNodeName = cc.getNodeConfig().getNodeName();
@@ -100,6 +104,13 @@ public final class CoreSorter implements Comparator<CoreDescriptor> {
       CloudDescriptor cloudDescriptor = coreDescriptor.getCloudDescriptor();
       String coll = cloudDescriptor.getCollectionName();
       String sliceName = getShardName(cloudDescriptor);
+      for (Replica replica : getReplicas(state, coll, cloudDescriptor.getShardId())) {
+        if (replica.isLeader()
+            && replica.getName().equals(cloudDescriptor.getCoreNodeName())
+            && replica.getNodeName().equals(myNodeName)) {
+          leaderCores.add(coreDescriptor.getName());
+        }
+      }
       if (shardsVsReplicaCounts.containsKey(sliceName)) continue;
       CountsForEachShard c = new CountsForEachShard(0, 0, 0);
       for (Replica replica : getReplicas(state, coll, cloudDescriptor.getShardId())) {
@@ -128,7 +139,11 @@ public final class CoreSorter implements Comparator<CoreDescriptor> {
     CountsForEachShard c1 = shardsVsReplicaCounts.get(s1);
     CountsForEachShard c2 = shardsVsReplicaCounts.get(s2);
     int result = countsComparator.compare(c1, c2);
-    return result == 0 ? s1.compareTo(s2) : result;
+    if (result != 0) return result;
+    boolean leader1 = leaderCores.contains(cd1.getName());
+    boolean leader2 = leaderCores.contains(cd2.getName());
+    if (leader1 != leader2) return leader1 ? -1 : 1;
+    return s1.compareTo(s2);
   }
 
   static class CountsForEachShard {
@@ -29,7 +29,10 @@ import static org.apache.solr.handler.ReplicationHandler.COMPRESSION;
 import static org.apache.solr.handler.ReplicationHandler.CONF_FILES;
 import static org.apache.solr.handler.ReplicationHandler.CONF_FILE_SHORT;
 import static org.apache.solr.handler.ReplicationHandler.EXTERNAL;
+import static org.apache.solr.handler.ReplicationHandler.FETCH_CHUNK_SIZE_MB;
 import static org.apache.solr.handler.ReplicationHandler.FETCH_FROM_LEADER;
+import static org.apache.solr.handler.ReplicationHandler.FETCH_FROM_PEERS;
+import static org.apache.solr.handler.ReplicationHandler.FETCH_PARALLELISM;
 import static org.apache.solr.handler.ReplicationHandler.FILE;
 import static org.apache.solr.handler.ReplicationHandler.FILE_STREAM;
 import static org.apache.solr.handler.ReplicationHandler.FileInfo;
@@ -38,6 +41,8 @@ import static org.apache.solr.handler.ReplicationHandler.INTERNAL;
 import static org.apache.solr.handler.ReplicationHandler.LEADER_URL;
 import static org.apache.solr.handler.ReplicationHandler.LEGACY_LEADER_URL;
 import static org.apache.solr.handler.ReplicationHandler.LEGACY_SKIP_COMMIT_ON_LEADER_VERSION_ZERO;
+import static org.apache.solr.handler.ReplicationHandler.LEN;
+import static org.apache.solr.handler.ReplicationHandler.MAX_FETCH_PER_SECOND;
 import static org.apache.solr.handler.ReplicationHandler.OFFSET;
 import static org.apache.solr.handler.ReplicationHandler.SIZE;
 import static org.apache.solr.handler.ReplicationHandler.SKIP_COMMIT_ON_LEADER_VERSION_ZERO;
@@ -61,11 +66,13 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -79,6 +86,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -96,6 +104,7 @@ import org.apache.lucene.store.FilterDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RateLimiter;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpClientUtil;
@@ -107,7 +116,9 @@ import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.ExecutorUtil;
@@ -192,6 +203,16 @@ public class IndexFetcher {
 
   private boolean clearLocalIndexFirst = false;
 
+  private final int fetchParallelism;
+
+  private final long fetchChunkSize;
+
+  private final RateLimiter fetchRateLimiter;
+
+  private final boolean fetchFromPeers;
+
+  private volatile boolean parallelFetchAborted = false;
+
   private static final String INTERRUPT_RESPONSE_MESSAGE =
       "Interrupted while waiting for modify lock";
 
@@ -311,6 +332,39 @@ public class IndexFetcher {
       soTimeout = getParameter(initArgs, HttpClientUtil.PROP_SO_TIMEOUT, 120000, null);
     }
 
+    // recovery passes its own params rather than the follower config, hence the system properties
+    fetchParallelism =
+        (int)
+            Math.max(
+                1,
+                getNumericArg(
+                    initArgs,
+                    FETCH_PARALLELISM,
+                    Integer.getInteger("solr.indexfetcher.parallelism", 1)));
+    long chunkSizeMB =
+        (long)
+            getNumericArg(
+                initArgs,
+                FETCH_CHUNK_SIZE_MB,
+                Integer.getInteger("solr.indexfetcher.chunkSizeMB", 64));
+    // a whole number of packets, so that a range never ends in the middle of one. The length of a
+    // range is sent as an int.
+    fetchChunkSize =
+        Math.min(chunkSizeMB, Integer.MAX_VALUE / ReplicationHandler.PACKET_SZ)
+            * ReplicationHandler.PACKET_SZ;
+    double maxFetchMBPerSec =
+        getNumericArg(
+            initArgs,
+            MAX_FETCH_PER_SECOND,
+            Double.parseDouble(System.getProperty("solr.indexfetcher.maxMBPerSec", "0")));
+    fetchRateLimiter =
+        maxFetchMBPerSec > 0 ? new RateLimiter.SimpleRateLimiter(maxFetchMBPerSec) : null;
+    Object fetchFromPeers = initArgs.get(FETCH_FROM_PEERS);
+    this.fetchFromPeers =
+        fetchFromPeers != null
+            ? Boolean.parseBoolean(fetchFromPeers.toString())
+            : Boolean.parseBoolean(System.getProperty("solr.indexfetcher.fetchFromPeers", "true"));
+
     String httpBasicAuthUser = (String) initArgs.get(HttpClientUtil.PROP_BASIC_AUTH_USER);
     String httpBasicAuthPassword = (String) initArgs.get(HttpClientUtil.PROP_BASIC_AUTH_PASS);
     myHttpClient =
@@ -348,6 +402,16 @@ public class IndexFetcher {
     this.leaderUrl = leaderUrl;
   }
 
+  private static double getNumericArg(NamedList<?> initArgs, String name, double defaultValue) {
+    Object value = initArgs == null ? null : initArgs.get(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    return value instanceof Number
+        ? ((Number) value).doubleValue()
+        : Double.parseDouble(value.toString());
+  }
+
   protected <T> T getParameter(
       NamedList<?> initArgs, String configKey, T defaultValue, StringBuilder sb) {
     T toReturn = defaultValue;
@@ -1161,6 +1225,7 @@ public class IndexFetcher {
       deleteFilesInAdvance(indexDir, indexDirPath, totalSpaceRequired, usableSpace);
     }
 
+    List<Map<String, Object>> parallelDownloads = new ArrayList<>();
     for (Map<String, Object> file : filesToDownload) {
       String filename = (String) file.get(NAME);
       long size = (Long) file.get(SIZE);
@@ -1192,6 +1257,9 @@ public class IndexFetcher {
           // efficient as compared to a file copy. TODO: Maybe we could do a move safely here?
           Files.createLink(Path.of(tmpIndexDirPath, filename), localFile.toPath());
           bytesSkippedCopying += localFile.length();
+        } else if (fetchParallelism > 1) {
+          parallelDownloads.add(file);
+          continue; // added to filesDownloaded once it is complete
         } else {
           dirFileFetcher =
               new DirectoryFileFetcher(
@@ -1207,6 +1275,9 @@ public class IndexFetcher {
         }
       }
     }
+    if (!parallelDownloads.isEmpty()) {
+      bytesDownloaded += downloadFilesInParallel(tmpIndexDir, parallelDownloads, latestGeneration);
+    }
     log.info(
         "Bytes downloaded: {}, Bytes skipped downloading: {}",
         bytesDownloaded,
@@ -1214,6 +1285,262 @@ public class IndexFetcher {
     return bytesDownloaded;
   }
 
+  /**
+   * Downloads the given files over up to {@link #fetchParallelism} concurrent streams. When the
+   * temporary index directory is on the local file system, files larger than {@link
+   * #fetchChunkSize} are also split into ranges which are fetched concurrently and written in
+   * place. Each packet's checksum is verified just like when downloading sequentially.
+   *
+   * <p>In SolrCloud, the files and ranges are spread over the leader and all other active replicas
+   * of the shard that have an identical file (same name, size and checksum) in their latest commit
+   * point, so that the leader isn't the bottleneck. A download that fails on another replica is
+   * retried from the leader.
+   *
+   * @return number of bytes downloaded
+   */
+  private long downloadFilesInParallel(
+      Directory tmpIndexDir, List<Map<String, Object>> files, long latestGeneration)
+      throws Exception {
+    Directory unwrapped = FilterDirectory.unwrap(tmpIndexDir);
+    Path rangedFilesDir =
+        fetchChunkSize > 0 && unwrapped instanceof FSDirectory
+            ? ((FSDirectory) unwrapped).getDirectory()
+            : null;
+    // biggest first, so that we don't end up fetching a big file on its own at the end
+    files = new ArrayList<>(files);
+    files.sort(
+        Comparator.comparingLong((Map<String, Object> file) -> (Long) file.get(SIZE)).reversed());
+
+    final FileSource leaderSource = new FileSource(leaderUrl, latestGeneration, null);
+    final List<FileSource> peerSources =
+        fetchFromPeers && solrCore.getCoreContainer().isZooKeeperAware()
+            ? getPeerSources()
+            : Collections.emptyList();
+    int nextSource = 0;
+
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(
+            fetchParallelism, new SolrNamedThreadFactory("indexFetcherDownload"));
+    List<Future<Long>> futures = new ArrayList<>();
+    List<RangedFile> rangedFiles = new ArrayList<>();
+    boolean success = false;
+    try {
+      for (Map<String, Object> file : files) {
+        String fileName = (String) file.get(NAME);
+        long size = (Long) file.get(SIZE);
+        List<FileSource> sources = new ArrayList<>();
+        sources.add(leaderSource);
+        for (FileSource peer : peerSources) {
+          if (peer.hasIdenticalFile(file)) {
+            sources.add(peer);
+          }
+        }
+
+        if (rangedFilesDir != null && size > fetchChunkSize) {
+          RangedFile rangedFile = new RangedFile(rangedFilesDir, file, size);
+          rangedFiles.add(rangedFile);
+          for (long offset = 0; offset < size; offset += fetchChunkSize) {
+            long rangeOffset = offset;
+            long rangeLength = Math.min(fetchChunkSize, size - offset);
+            FileSource source = sources.get(nextSource++ % sources.size());
+            futures.add(
+                executor.submit(
+                    () -> {
+                      long bytes =
+                          fetchWithFallback(
+                              source,
+                              leaderSource,
+                              fileName,
+                              src ->
+                                  new FileFetcher(
+                                      new FileRange(rangedFile.channel, rangeOffset),
+                                      file,
+                                      fileName,
+                                      FILE,
+                                      src.generation,
+                                      rangeOffset,
+                                      rangeLength,
+                                      src.url));
+                      rangedFile.rangeDone();
+                      return bytes;
+                    }));
+          }
+        } else {
+          FileSource source = sources.get(nextSource++ % sources.size());
+          futures.add(
+              executor.submit(
+                  () -> {
+                    long bytes =
+                        fetchWithFallback(
+                            source,
+                            leaderSource,
+                            fileName,
+                            src ->
+                                new FileFetcher(
+                                    new DirectoryFile(tmpIndexDir, fileName),
+                                    file,
+                                    fileName,
+                                    FILE,
+                                    src.generation,
+                                    0,
+                                    size,
+                                    src.url));
+                    filesDownloaded.add(new HashMap<>(file));
+                    return bytes;
+                  }));
+        }
+      }
+
+      long bytesDownloaded = 0;
+      for (Future<Long> future : futures) {
+        try {
+          bytesDownloaded += future.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        }
+      }
+      success = true;
+      return bytesDownloaded;
+    } finally {
+      if (!success) {
+        // the fetch has failed as a whole; make the downloads that are still running stop
+        parallelFetchAborted = true;
+      }
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+      parallelFetchAborted = false;
+      for (RangedFile rangedFile : rangedFiles) {
+        IOUtils.closeQuietly(rangedFile.channel);
+      }
+    }
+  }
+
+  private interface FileFetcherFactory {
+    FileFetcher create(FileSource source) throws IOException;
+  }
+
+  /**
+   * Fetches using the given source, and retries from the leader if that is another replica and it
+   * fails.
+   *
+   * @return number of bytes downloaded
+   */
+  private long fetchWithFallback(
+      FileSource source, FileSource leaderSource, String fileName, FileFetcherFactory factory)
+      throws Exception {
+    if (source != leaderSource) {
+      try {
+        FileFetcher fetcher = factory.create(source);
+        fetcher.fetchFile();
+        return fetcher.getBytesDownloaded();
+      } catch (ReplicationHandlerException e) {
+        throw e;
+      } catch (Exception e) {
+        if (parallelFetchAborted) {
+          throw e;
+        }
+        log.warn(
+            "Could not fetch {} from {}, fetching it from the leader instead",
+            fileName,
+            source.url,
+            e);
+      }
+    }
+    FileFetcher fetcher = factory.create(leaderSource);
+    fetcher.fetchFile();
+    return fetcher.getBytesDownloaded();
+  }
+
+  /** A replica the files of an index commit point can be fetched from. */
+  private static class FileSource {
+    final String url;
+    final long generation;
+    // null for the leader, which has all files we need
+    final Map<String, Map<String, Object>> filesByName;
+
+    FileSource(String url, long generation, Map<String, Map<String, Object>> filesByName) {
+      this.url = url;
+      this.generation = generation;
+      this.filesByName = filesByName;
+    }
+
+    boolean hasIdenticalFile(Map<String, Object> file) {
+      if (filesByName == null) {
+        return true;
+      }
+      Map<String, Object> mine = filesByName.get((String) file.get(NAME));
+      return mine != null
+          && file.get(CHECKSUM) != null
+          && file.get(CHECKSUM).equals(mine.get(CHECKSUM))
+          && file.get(SIZE).equals(mine.get(SIZE));
+    }
+  }
+
+  /**
+   * Returns the other active replicas of our shard besides the leader, along with the files of
+   * their latest commit point. Replicas that can't tell us are skipped.
+   */
+  @SuppressWarnings({"unchecked"})
+  private List<FileSource> getPeerSources() {
+    ZkController zkController = solrCore.getCoreContainer().getZkController();
+    CloudDescriptor cd = solrCore.getCoreDescriptor().getCloudDescriptor();
+    ClusterState clusterState = zkController.getClusterState();
+    DocCollection collection = clusterState.getCollectionOrNull(cd.getCollectionName());
+    Slice slice = collection == null ? null : collection.getSlice(cd.getShardId());
+    if (slice == null) {
+      return Collections.emptyList();
+    }
+
+    List<FileSource> sources = new ArrayList<>();
+    for (Replica replica : slice.getReplicas()) {
+      String url = replica.getCoreUrl();
+      if (replica.getName().equals(cd.getCoreNodeName())
+          || url.equals(leaderUrl)
+          || replica.getState() != Replica.State.ACTIVE
+          || !clusterState.liveNodesContain(replica.getNodeName())) {
+        continue;
+      }
+      try (SolrClient client =
+          new HttpSolrClient.Builder(url)
+              .withHttpClient(myHttpClient)
+              .withConnectionTimeout(connTimeout, TimeUnit.MILLISECONDS)
+              .withSocketTimeout(soTimeout, TimeUnit.MILLISECONDS)
+              .build()) {
+        ModifiableSolrParams params = new ModifiableSolrParams();
+        params.set(COMMAND, CMD_INDEX_VERSION);
+        params.set(CommonParams.WT, JAVABIN);
+        params.set(CommonParams.QT, ReplicationHandler.PATH);
+        long generation = (Long) client.request(new QueryRequest(params)).get(GENERATION);
+        if (generation == 0L) {
+          continue;
+        }
+
+        params = new ModifiableSolrParams();
+        params.set(COMMAND, CMD_GET_FILE_LIST);
+        params.set(GENERATION, String.valueOf(generation));
+        params.set(CommonParams.WT, JAVABIN);
+        params.set(CommonParams.QT, ReplicationHandler.PATH);
+        List<Map<String, Object>> files =
+            (List<Map<String, Object>>)
+                client.request(new QueryRequest(params)).get(CMD_GET_FILE_LIST);
+        if (files == null) {
+          continue;
+        }
+        Map<String, Map<String, Object>> filesByName = new HashMap<>();
+        for (Map<String, Object> file : files) {
+          filesByName.put((String) file.get(NAME), file);
+        }
+        sources.add(new FileSource(url, generation, filesByName));
+      } catch (Exception e) {
+        log.warn("Not fetching any files from replica {}", url, e);
+      }
+    }
+    log.info("Fetching index files from the leader and {} other replicas", sources.size());
+    return sources;
+  }
+
   // only for testing purposes. do not use this anywhere else
   // -----------START----------------------
   static BooleanSupplier testWait = () -> true;
@@ -1741,7 +2068,11 @@ public class IndexFetcher {
     private final Long indexGen;
 
     private final long size;
+    private final long rangeOffset;
+    private final boolean isRange;
+    private final String sourceUrl;
     private long bytesDownloaded = 0;
+    private long bytesSincePause = 0;
     private byte[] buf;
     private final Checksum checksum;
     private int errorCount = 0;
@@ -1754,9 +2085,37 @@ public class IndexFetcher {
         String solrParamOutput,
         long latestGen)
         throws IOException {
+      this(
+          file,
+          fileDetails,
+          saveAs,
+          solrParamOutput,
+          latestGen,
+          0,
+          (Long) fileDetails.get(SIZE),
+          leaderUrl);
+    }
+
+    /**
+     * Fetches <code>rangeLength</code> bytes of the file, starting at <code>rangeOffset</code>,
+     * from the replica at <code>sourceUrl</code>.
+     */
+    FileFetcher(
+        FileInterface file,
+        Map<String, Object> fileDetails,
+        String saveAs,
+        String solrParamOutput,
+        long latestGen,
+        long rangeOffset,
+        long rangeLength,
+        String sourceUrl)
+        throws IOException {
       this.file = file;
+      this.sourceUrl = sourceUrl;
       this.fileName = (String) fileDetails.get(NAME);
-      this.size = (Long) fileDetails.get(SIZE);
+      this.size = rangeLength;
+      this.rangeOffset = rangeOffset;
+      this.isRange = rangeOffset != 0 || rangeLength != (Long) fileDetails.get(SIZE);
       buf = new byte[(int) Math.min(this.size, ReplicationHandler.PACKET_SZ)];
       this.solrParamOutput = solrParamOutput;
       this.saveAs = saveAs;
@@ -1825,6 +2184,10 @@ public class IndexFetcher {
             aborted = true;
             throw new ReplicationHandlerException("User aborted replication");
           }
+          if (parallelFetchAborted) {
+            aborted = true;
+            throw new ReplicationHandlerException("Replication failed while fetching in parallel");
+          }
           long checkSumServer = -1;
           fis.readFully(intbytes);
           // read the size of the packet
@@ -1863,6 +2226,13 @@ public class IndexFetcher {
           file.write(buf, packetSize);
           bytesDownloaded += packetSize;
           log.debug("Fetched and wrote {} bytes of file: {}", bytesDownloaded, fileName);
+          if (fetchRateLimiter != null) {
+            bytesSincePause += packetSize;
+            if (bytesSincePause >= fetchRateLimiter.getMinPauseCheckBytes()) {
+              fetchRateLimiter.pause(bytesSincePause);
+              bytesSincePause = 0;
+            }
+          }
           // errorCount is always set to zero after a successful packet
           errorCount = 0;
           if (bytesDownloaded >= size) return 0;
@@ -1971,8 +2341,11 @@ public class IndexFetcher {
       params.set(CommonParams.WT, FILE_STREAM);
       // This happen if there is a failure there is a retry. the offset=<sizedownloaded> ensures
       // that the server starts from the offset
-      if (bytesDownloaded > 0) {
-        params.set(OFFSET, Long.toString(bytesDownloaded));
+      if (rangeOffset + bytesDownloaded > 0) {
+        params.set(OFFSET, Long.toString(rangeOffset + bytesDownloaded));
+      }
+      if (isRange) {
+        params.set(LEN, Long.toString(size - bytesDownloaded));
       }
 
       NamedList<?> response;
@@ -1980,7 +2353,7 @@ public class IndexFetcher {
 
       // TODO use shardhandler
       try (SolrClient client =
-          new Builder(leaderUrl)
+          new Builder(sourceUrl)
               .withHttpClient(myHttpClient)
               .withResponseParser(null)
               .withConnectionTimeout(connTimeout, TimeUnit.MILLISECONDS)
@@ -2033,6 +2406,71 @@ public class IndexFetcher {
     }
   }
 
+  /** A file that is fetched in several ranges concurrently, each written in place. */
+  private class RangedFile {
+    private final Map<String, Object> fileDetails;
+    private final File file;
+    private final FileChannel channel;
+    private final AtomicInteger remainingRanges;
+
+    RangedFile(Path dir, Map<String, Object> fileDetails, long size) throws IOException {
+      this.fileDetails = fileDetails;
+      this.file = dir.resolve((String) fileDetails.get(NAME)).toFile();
+      this.channel =
+          FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+      this.remainingRanges = new AtomicInteger((int) ((size - 1) / fetchChunkSize + 1));
+    }
+
+    void rangeDone() throws IOException {
+      if (remainingRanges.decrementAndGet() == 0) {
+        channel.close();
+        fsyncService.submit(
+            () -> {
+              try {
+                FileUtils.sync(file);
+              } catch (IOException e) {
+                fsyncException = e;
+              }
+            });
+        filesDownloaded.add(new HashMap<>(fileDetails));
+      }
+    }
+  }
+
+  /** One range of a {@link RangedFile}. */
+  private static class FileRange implements FileInterface {
+    private final FileChannel channel;
+    private long position;
+
+    FileRange(FileChannel channel, long position) {
+      this.channel = channel;
+      this.position = position;
+    }
+
+    @Override
+    public void sync() throws IOException {
+      // the whole file is synced once all of its ranges are complete
+    }
+
+    @Override
+    public void write(byte[] buf, int packetSize) throws IOException {
+      ByteBuffer bb = ByteBuffer.wrap(buf, 0, packetSize);
+      while (bb.hasRemaining()) {
+        position += channel.write(bb, position);
+      }
+    }
+
+    @Override
+    public void close() throws Exception {
+      // the channel is shared by all ranges of the file
+    }
+
+    @Override
+    public void delete() throws Exception {
+      // a failed range fails the whole fetch, and the temporary index directory goes with it
+    }
+  }
+
   private class DirectoryFileFetcher extends FileFetcher {
     DirectoryFileFetcher(
         Directory tmpIndexDir,
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.search.SyntaxError;
+import org.apache.solr.search.join.JoinKeyHashes;
+import org.apache.solr.security.AuthorizationContext;
+
+/**
+ * Returns the {@link JoinKeyHashes} of a field, over the documents of this core that match the
+ * <code>q</code> and <code>fq</code> parameters. Requested by the semi-join mode of the cross
+ * collection join, from every shard of the collection it joins from.
+ */
+public class JoinKeysHandler extends RequestHandlerBase {
+
+  /** The join key field */
+  public static final String FIELD = "f";
+
+  public static final String NUMERIC = "numeric";
+  public static final String COUNT = "count";
+  public static final String HASHES = "hashes";
+
+  @Override
+  public void handleRequestBody(SolrQueryRequest req, SolrQueryResponse rsp) throws Exception {
+    SolrParams params = req.getParams();
+    SchemaField field = req.getSchema().getField(params.required().get(FIELD));
+    boolean numeric = JoinKeyHashes.isNumeric(field);
+
+    List<Query> queries = new ArrayList<>();
+    try {
+      queries.add(QParser.getParser(params.get(CommonParams.Q, "*:*"), req).getQuery());
+      String[] fqs = params.getParams(CommonParams.FQ);
+      if (fqs != null) {
+        for (String fq : fqs) {
+          if (fq != null && !fq.isBlank()) {
+            queries.add(QParser.getParser(fq, req).getQuery());
+          }
+        }
+      }
+    } catch (SyntaxError e) {
+      throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, e);
+    }
+
+    SolrIndexSearcher searcher = req.getSearcher();
+    DocSet docs = searcher.getDocSet(queries);
+    JoinKeyHashes hashes = JoinKeyHashes.collect(searcher, field, docs);
+
+    rsp.add(NUMERIC, numeric);
+    rsp.add(COUNT, hashes.size());
+    rsp.add(HASHES, hashes.toBytes());
+  }
+
+  @Override
+  public String getDescription() {
+    return "Hashed join keys of the matching documents";
+  }
+
+  @Override
+  public Name getPermissionName(AuthorizationContext request) {
+    return Name.READ_PERM;
+  }
+}
@@ -1715,6 +1715,10 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
         if (offset != -1) in.seek(offset);
 
         long filelen = dir.fileLength(fileName);
+        if (len != -1) {
+          // only send the requested range of the file
+          filelen = Math.min(filelen, Math.max(offset, 0) + len);
+        }
         long maxBytesBeforePause = 0;
 
         while (true) {
@@ -1949,6 +1953,21 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
 
   public static final String MAX_WRITE_PER_SECOND = "maxWriteMBPerSec";
 
+  /** Number of files, or ranges of files, a follower downloads concurrently. */
+  public static final String FETCH_PARALLELISM = "fetchParallelism";
+
+  /** Files larger than this are downloaded in ranges of this size, when fetching in parallel. */
+  public static final String FETCH_CHUNK_SIZE_MB = "fetchChunkSizeMB";
+
+  /** Overall download bandwidth budget of a follower, across all of its concurrent streams. */
+  public static final String MAX_FETCH_PER_SECOND = "maxFetchMBPerSec";
+
+  /**
+   * Whether a replica fetching in parallel from its shard leader may also fetch identical files
+   * from the other active replicas of the shard.
+   */
+  public static final String FETCH_FROM_PEERS = "fetchFromPeers";
+
   public static final String CONF_FILE_SHORT = "cf";
 
   public static final String TLOG_FILE = "tlogFile";
@@ -22,20 +22,26 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.cloud.Aliases;
 import org.apache.solr.common.cloud.ClusterState;
 import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.DocCollectionWatcher;
 import org.apache.solr.common.cloud.DocRouter;
+import org.apache.solr.common.cloud.LiveNodesListener;
 import org.apache.solr.common.cloud.PerReplicaStates;
 import org.apache.solr.common.cloud.Replica;
 import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.cloud.ZkNodeProps;
 import org.apache.solr.common.cloud.ZkStateReader;
+import org.apache.solr.common.params.CollectionAdminParams;
 import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
@@ -89,6 +95,13 @@ public class ClusterStatus {
     }
   }
 
+  /**
+   * Upper bound of {@link CollectionAdminParams#WAIT_FOR_CHANGE}. A waiting request holds a
+   * container thread until it responds, so this is kept low; clients renew their requests with
+   * some jitter so that they don't all come back at once after a change.
+   */
+  public static final int MAX_WAIT_FOR_CHANGE_SECS = 30;
+
   public ClusterStatus(ZkStateReader zkStateReader, ZkNodeProps props) {
     this.zkStateReader = zkStateReader;
     this.message = props;
@@ -97,6 +110,21 @@ public class ClusterStatus {
 
   public void getClusterStatus(NamedList<Object> results)
       throws KeeperException, InterruptedException {
+    // the collections the caller already knows of, and their versions
+    Map<String, int[]> knownVersions =
+        collection == null
+            ? parseStateVersions(message.getStr(CollectionAdminParams.STATE_VERSIONS))
+            : null;
+    Map<String, DocCollection> latestStates = Collections.emptyMap();
+    if (knownVersions != null) {
+      int waitSecs =
+          Math.min(
+              message.getInt(CollectionAdminParams.WAIT_FOR_CHANGE, 0), MAX_WAIT_FOR_CHANGE_SECS);
+      if (waitSecs > 0) {
+        latestStates = waitForChange(knownVersions, waitSecs);
+      }
+    }
+
     // read aliases
     Aliases aliases = zkStateReader.getAliases();
     Map<String, List<String>> collectionVsAliases = new HashMap<>();
@@ -126,7 +154,27 @@ public class ClusterStatus {
     String shard = message.getStr(ZkStateReader.SHARD_ID_PROP);
 
     Map<String, DocCollection> collectionsMap = null;
-    if (collection == null) {
+    List<String> unchanged = null;
+    if (knownVersions != null) {
+      collectionsMap = new LinkedHashMap<>();
+      unchanged = new ArrayList<>();
+      for (Map.Entry<String, int[]> entry : knownVersions.entrySet()) {
+        String name = entry.getKey();
+        DocCollection coll =
+            latestStates.containsKey(name)
+                ? latestStates.get(name)
+                : clusterState.getCollectionOrNull(name);
+        if (coll == null) {
+          // deleted, neither returned nor listed as unchanged
+          continue;
+        }
+        if (isUnchanged(coll, entry.getValue())) {
+          unchanged.add(name);
+        } else {
+          collectionsMap.put(name, coll);
+        }
+      }
+    } else if (collection == null) {
       collectionsMap = clusterState.getCollectionsMap();
     } else {
       collectionsMap =
@@ -204,6 +252,9 @@ public class ClusterStatus {
 
     NamedList<Object> clusterStatus = new SimpleOrderedMap<>();
     clusterStatus.add("collections", collectionProps);
+    if (unchanged != null) {
+      clusterStatus.add("unchanged", unchanged);
+    }
 
     // read cluster properties
     Map<String, Object> clusterProps = zkStateReader.getClusterProperties();
@@ -228,6 +279,86 @@ public class ClusterStatus {
     results.add("cluster", clusterStatus);
   }
 
+  /**
+   * @param stateVersions the value of {@link CollectionAdminParams#STATE_VERSIONS}
+   * @return the known znode version and child nodes version of each collection, or null if the
+   *     parameter is not set
+   */
+  static Map<String, int[]> parseStateVersions(String stateVersions) {
+    if (stateVersions == null) {
+      return null;
+    }
+    Map<String, int[]> versions = new LinkedHashMap<>();
+    for (String entry : stateVersions.split(",")) {
+      if (entry.isEmpty()) {
+        continue;
+      }
+      String[] parts = entry.split(":");
+      try {
+        versions.put(
+            parts[0],
+            new int[] {
+              Integer.parseInt(parts[1]), parts.length > 2 ? Integer.parseInt(parts[2]) : 0
+            });
+      } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+        throw new SolrException(
+            SolrException.ErrorCode.BAD_REQUEST,
+            "Invalid " + CollectionAdminParams.STATE_VERSIONS + " entry: " + entry);
+      }
+    }
+    return versions;
+  }
+
+  private static boolean isUnchanged(DocCollection coll, int[] knownVersion) {
+    return coll.getZNodeVersion() == knownVersion[0]
+        && coll.getChildNodesVersion() == knownVersion[1];
+  }
+
+  /**
+   * Waits until the state of one of the given collections differs from its known version, or the
+   * set of live nodes changes, or the timeout expires. This lets clients keep their cluster state
+   * current by always having one such request pending, instead of polling.
+   *
+   * @return the latest state seen of each of the collections, null if it doesn't exist
+   */
+  private Map<String, DocCollection> waitForChange(Map<String, int[]> knownVersions, int waitSecs)
+      throws InterruptedException {
+    Map<String, DocCollection> latestStates = Collections.synchronizedMap(new HashMap<>());
+    CountDownLatch changed = new CountDownLatch(1);
+    LiveNodesListener liveNodesListener =
+        (oldLiveNodes, newLiveNodes) -> {
+          if (!oldLiveNodes.equals(newLiveNodes)) {
+            changed.countDown();
+          }
+          return false;
+        };
+    Map<String, DocCollectionWatcher> watchers = new HashMap<>();
+    zkStateReader.registerLiveNodesListener(liveNodesListener);
+    try {
+      for (Map.Entry<String, int[]> entry : knownVersions.entrySet()) {
+        String name = entry.getKey();
+        DocCollectionWatcher watcher =
+            coll -> {
+              // called once with the current state on registration, then on every change
+              latestStates.put(name, coll);
+              if (coll == null || !isUnchanged(coll, entry.getValue())) {
+                changed.countDown();
+              }
+              return false;
+            };
+        watchers.put(name, watcher);
+        zkStateReader.registerDocCollectionWatcher(name, watcher);
+      }
+      changed.await(waitSecs, TimeUnit.SECONDS);
+    } finally {
+      zkStateReader.removeLiveNodesListener(liveNodesListener);
+      watchers.forEach(zkStateReader::removeDocCollectionWatcher);
+    }
+    synchronized (latestStates) {
+      return new HashMap<>(latestStates);
+    }
+  }
+
   /**
    * Get collection status from cluster state. Can return collection status by given shard name.
    *
@@ -1056,7 +1056,15 @@ public class CollectionsHandler extends RequestHandlerBase implements Permission
         CLUSTERSTATUS,
         (req, rsp, h) -> {
           Map<String, Object> all =
-              copy(req.getParams(), null, COLLECTION_PROP, SHARD_ID_PROP, _ROUTE_, "prs");
+              copy(
+                  req.getParams(),
+                  null,
+                  COLLECTION_PROP,
+                  SHARD_ID_PROP,
+                  _ROUTE_,
+                  "prs",
+                  CollectionAdminParams.STATE_VERSIONS,
+                  CollectionAdminParams.WAIT_FOR_CHANGE);
           new ClusterStatus(
                   h.coreContainer.getZkController().getZkStateReader(), new ZkNodeProps(all))
               .getClusterStatus(rsp.getValues());
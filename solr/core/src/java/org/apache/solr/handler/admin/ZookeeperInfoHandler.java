@@ -709,6 +709,11 @@ public final class ZookeeperInfoHandler extends RequestHandlerBase {
       json.write(v);
     }
 
+    private boolean isCollectionState(String path) {
+      return path.startsWith(ZkStateReader.COLLECTIONS_ZKNODE)
+          && (path.endsWith("/state.json") || path.endsWith("/state_delta.json"));
+    }
+
     boolean printZnode(JSONWriter json, String path) throws IOException {
       try {
         String dataStr = null;
@@ -718,6 +723,10 @@ public final class ZookeeperInfoHandler extends RequestHandlerBase {
         byte[] data = zkClient.getData(path, null, stat, true);
         if (null != data) {
           try {
+            if (data.length > 0 && data[0] != '{' && isCollectionState(path)) {
+              // written in the javabin format, see ClusterState.JAVABIN_STATE_PROP
+              data = Utils.toJSON(ClusterState.parseStateBytes(data));
+            }
             dataStr = (new BytesRef(data)).utf8ToString();
           } catch (Exception e) {
             dataStrErr = "data is not parsable as a utf8 String: " + e.toString();
@@ -36,6 +36,7 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiDocValues;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
@@ -78,6 +79,7 @@ import org.apache.solr.search.CollapsingQParserPlugin;
 import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocList;
 import org.apache.solr.search.DocSlice;
+import org.apache.solr.search.PostFilter;
 import org.apache.solr.search.QParser;
 import org.apache.solr.search.QueryUtils;
 import org.apache.solr.search.ReturnFields;
@@ -104,6 +106,10 @@ import org.apache.solr.util.plugin.PluginInfoInitialized;
  * expand.fq=type:child (optional, overrides the main filter queries)<br>
  * expand.field=field (mandatory, if the not used with the CollapsingQParserPlugin. This is given
  * higher priority when both are present)<br>
+ *
+ * <p>When the groups are collapsed on score and none of the optional parameters above change what
+ * is expanded, the group members recorded by the CollapsingPostFilter during the main query are
+ * used instead of executing the query a second time.
  */
 public class ExpandComponent extends SearchComponent implements PluginInfoInitialized {
   public static final String COMPONENT_NAME = "expand";
@@ -162,6 +168,13 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
       throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "missing expand field");
     }
 
+    CollapsingQParserPlugin.GroupMembers groupMembers = getRecordedGroupMembers(rb, field);
+    if (groupMembers != null) {
+      // the collapse filter already gathered the groups, no need to run the query again
+      rb.rsp.add("expanded", getRecordedGroups(rb, field, groupMembers));
+      return;
+    }
+
     String sortParam = params.get(ExpandParams.EXPAND_SORT);
     String[] fqs = params.getParams(ExpandParams.EXPAND_FQ);
     String qs = params.get(ExpandParams.EXPAND_Q);
@@ -445,6 +458,67 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
     rb.rsp.add("expanded", groupExpandCollector.getGroups(searcher, rb.rsp.getReturnFields()));
   }
 
+  /**
+   * Returns the group members recorded by the collapse filter while executing the main query, if
+   * there are any and they can be used to expand the groups of the current page.
+   */
+  private static CollapsingQParserPlugin.GroupMembers getRecordedGroupMembers(
+      ResponseBuilder rb, String field) {
+    Object recorded = rb.req.getContext().get(CollapsingQParserPlugin.GROUP_MEMBERS);
+    if (!(recorded instanceof CollapsingQParserPlugin.GroupMembers)
+        || !((CollapsingQParserPlugin.GroupMembers) recorded).getField().equals(field)
+        || rb.getRankQuery() != null) {
+      return null;
+    }
+    // the members must match all filters, so the collapse filter has to be the only post filter
+    int postFilters = 0;
+    List<Query> filters = rb.getFilters();
+    if (filters != null) {
+      for (Query q : filters) {
+        if (q instanceof PostFilter
+            && !((PostFilter) q).getCache()
+            && ((PostFilter) q).getCost() >= 100) {
+          postFilters++;
+        }
+      }
+    }
+    return postFilters == 1 ? (CollapsingQParserPlugin.GroupMembers) recorded : null;
+  }
+
+  private static SimpleOrderedMap<DocSlice> getRecordedGroups(
+      ResponseBuilder rb, String field, CollapsingQParserPlugin.GroupMembers groupMembers)
+      throws IOException {
+    SolrIndexSearcher searcher = rb.req.getSearcher();
+    FieldType fieldType = searcher.getSchema().getField(field).getType();
+    List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+
+    final SimpleOrderedMap<DocSlice> outMap = new SimpleOrderedMap<>();
+    final CharsRefBuilder charsRef = new CharsRefBuilder();
+    DocIterator idit = rb.getResults().docList.iterator();
+    while (idit.hasNext()) {
+      int globalDoc = idit.nextDoc();
+      DocSlice members = groupMembers.getMembers(globalDoc);
+      if (members == null) {
+        continue;
+      }
+      LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(globalDoc, leaves));
+      int contextDoc = globalDoc - leaf.docBase;
+      if (fieldType instanceof StrField) {
+        SortedDocValues values = DocValues.getSorted(leaf.reader(), field);
+        if (values.advanceExact(contextDoc)) {
+          fieldType.indexedToReadable(values.lookupOrd(values.ordValue()), charsRef);
+          outMap.add(charsRef.toString(), members);
+        }
+      } else {
+        NumericDocValues values = DocValues.getNumeric(leaf.reader(), field);
+        if (values.advanceExact(contextDoc)) {
+          outMap.add(numericToString(fieldType, values.longValue()), members);
+        }
+      }
+    }
+    return outMap;
+  }
+
   @Override
   public int distributedProcess(ResponseBuilder rb) throws IOException {
     if (rb.doExpand && rb.stage < finishingStage) {
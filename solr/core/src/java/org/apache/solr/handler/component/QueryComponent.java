@@ -96,11 +96,14 @@ import org.apache.solr.search.SortSpecParsing;
 import org.apache.solr.search.SyntaxError;
 import org.apache.solr.search.grouping.CommandHandler;
 import org.apache.solr.search.grouping.GroupingSpecification;
+import org.apache.solr.search.grouping.collector.OrdGroupingCollector;
 import org.apache.solr.search.grouping.distributed.ShardRequestFactory;
 import org.apache.solr.search.grouping.distributed.ShardResponseProcessor;
+import org.apache.solr.search.grouping.distributed.command.OrdTopGroupsFieldCommand;
 import org.apache.solr.search.grouping.distributed.command.QueryCommand.Builder;
 import org.apache.solr.search.grouping.distributed.command.SearchGroupsFieldCommand;
 import org.apache.solr.search.grouping.distributed.command.TopGroupsFieldCommand;
+import org.apache.solr.search.grouping.distributed.requestfactory.OrdTopGroupsShardRequestFactory;
 import org.apache.solr.search.grouping.distributed.requestfactory.SearchGroupsRequestFactory;
 import org.apache.solr.search.grouping.distributed.requestfactory.StoredFieldsShardRequestFactory;
 import org.apache.solr.search.grouping.distributed.requestfactory.TopGroupsShardRequestFactory;
@@ -287,6 +290,15 @@ public class QueryComponent extends SearchComponent {
     }
     groupingSpec.setResponseFormat(responseFormat);
 
+    String methodStr = params.get(GroupParams.GROUP_METHOD, Grouping.Method.twopass.name());
+    try {
+      groupingSpec.setMethod(Grouping.Method.valueOf(methodStr));
+    } catch (IllegalArgumentException e) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          String.format(Locale.ROOT, "Illegal %s parameter", GroupParams.GROUP_METHOD));
+    }
+
     // See SOLR-12249. Disallow grouping on text fields that are not SortableText in cloud mode
     if (req.getCoreContainer().isZooKeeperAware()) {
       IndexSchema schema = rb.req.getSchema();
@@ -408,6 +420,9 @@ public class QueryComponent extends SearchComponent {
         } else if (params.getBool(GroupParams.GROUP_DISTRIBUTED_SECOND, false)) {
           doProcessGroupedDistributedSearchSecondPhase(rb, cmd, result);
           return;
+        } else if (params.getBool(GroupParams.GROUP_DISTRIBUTED_SINGLE, false)) {
+          doProcessGroupedDistributedSearchSinglePhase(rb, cmd, result);
+          return;
         }
 
         doProcessGroupedSearch(rb, cmd, result);
@@ -574,6 +589,10 @@ public class QueryComponent extends SearchComponent {
       nextStage = ResponseBuilder.STAGE_TOP_GROUPS;
     } else if (rb.stage < ResponseBuilder.STAGE_TOP_GROUPS) {
       nextStage = ResponseBuilder.STAGE_TOP_GROUPS;
+    } else if (rb.stage == ResponseBuilder.STAGE_TOP_GROUPS && isOrdsGrouping(rb)) {
+      // the top groups come with their documents, so there is no second request
+      shardRequestFactory = new OrdTopGroupsShardRequestFactory();
+      nextStage = ResponseBuilder.STAGE_GET_FIELDS;
     } else if (rb.stage == ResponseBuilder.STAGE_TOP_GROUPS) {
       shardRequestFactory = new SearchGroupsRequestFactory();
       nextStage = ResponseBuilder.STAGE_EXECUTE_QUERY;
@@ -597,6 +616,30 @@ public class QueryComponent extends SearchComponent {
     return nextStage;
   }
 
+  /**
+   * Returns true if the groups can be retrieved from the shards in a single request, that is if
+   * the {@link Grouping.Method#ords} method is requested and all the group commands are on fields
+   * it supports.
+   */
+  protected boolean isOrdsGrouping(ResponseBuilder rb) {
+    GroupingSpecification groupingSpec = rb.getGroupingSpec();
+    if (groupingSpec.getMethod() != Grouping.Method.ords
+        || groupingSpec.getFields().length == 0
+        || groupingSpec.getQueries().length > 0) {
+      return false;
+    }
+    IndexSchema schema = rb.req.getSchema();
+    for (String field : groupingSpec.getFields()) {
+      if (!OrdGroupingCollector.supports(
+          schema.getField(field),
+          groupingSpec.getGroupSortSpec().getSort(),
+          groupingSpec.getWithinGroupSortSpec().getSort())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   protected int regularDistributedProcess(ResponseBuilder rb) {
     if (rb.stage < ResponseBuilder.STAGE_PARSE_QUERY) return ResponseBuilder.STAGE_PARSE_QUERY;
     if (rb.stage == ResponseBuilder.STAGE_PARSE_QUERY) {
@@ -627,7 +670,9 @@ public class QueryComponent extends SearchComponent {
 
   protected void handleGroupedResponses(ResponseBuilder rb, ShardRequest sreq) {
     ShardResponseProcessor responseProcessor = null;
-    if ((sreq.purpose & ShardRequest.PURPOSE_GET_TOP_GROUPS) != 0) {
+    if (sreq.params.getBool(GroupParams.GROUP_DISTRIBUTED_SINGLE, false)) {
+      responseProcessor = new TopGroupsShardResponseProcessor();
+    } else if ((sreq.purpose & ShardRequest.PURPOSE_GET_TOP_GROUPS) != 0) {
       responseProcessor = new SearchGroupShardResponseProcessor();
     } else if ((sreq.purpose & ShardRequest.PURPOSE_GET_TOP_IDS) != 0) {
       responseProcessor = new TopGroupsShardResponseProcessor();
@@ -1561,6 +1606,50 @@ public class QueryComponent extends SearchComponent {
     rb.setResult(result);
   }
 
+  private void doProcessGroupedDistributedSearchSinglePhase(
+      ResponseBuilder rb, QueryCommand cmd, QueryResult result) throws IOException {
+
+    GroupingSpecification groupingSpec = rb.getGroupingSpec();
+    assert null != groupingSpec : "GroupingSpecification is null";
+
+    SolrQueryRequest req = rb.req;
+    SolrQueryResponse rsp = rb.rsp;
+
+    SolrIndexSearcher searcher = req.getSearcher();
+    IndexSchema schema = searcher.getSchema();
+
+    CommandHandler.Builder singlePhaseBuilder =
+        new CommandHandler.Builder()
+            .setQueryCommand(cmd)
+            .setTruncateGroups(groupingSpec.isTruncateGroups())
+            .setSearcher(searcher);
+
+    SortSpec withinGroupSortSpec = groupingSpec.getWithinGroupSortSpec();
+    int docsToCollect =
+        Grouping.getMax(
+            withinGroupSortSpec.getOffset(), withinGroupSortSpec.getCount(), searcher.maxDoc());
+    docsToCollect = Math.max(docsToCollect, 1);
+
+    for (String field : groupingSpec.getFields()) {
+      singlePhaseBuilder.addCommandField(
+          new OrdTopGroupsFieldCommand.Builder()
+              .setSearcher(searcher)
+              .setField(schema.getField(field))
+              .setGroupSort(groupingSpec.getGroupSortSpec().getSort())
+              .setSortWithinGroup(withinGroupSortSpec.getSort())
+              .setTopNGroups(cmd.getOffset() + cmd.getLen())
+              .setMaxDocPerGroup(docsToCollect)
+              .setIncludeGroupCount(groupingSpec.isIncludeGroupCount())
+              .build());
+    }
+
+    CommandHandler commandHandler = singlePhaseBuilder.build();
+    commandHandler.execute();
+    TopGroupsResultTransformer serializer = new TopGroupsResultTransformer(rb);
+    rsp.add("secondPhase", commandHandler.processResult(result, serializer));
+    rb.setResult(result);
+  }
+
   private void doProcessGroupedSearch(ResponseBuilder rb, QueryCommand cmd, QueryResult result)
       throws IOException, SyntaxError {
 
@@ -1596,6 +1685,7 @@ public class QueryComponent extends SearchComponent {
         .setGroupSort(groupingSpec.getGroupSortSpec().getSort())
         .setWithinGroupSort(withinGroupSortSpec.getSort())
         .setDefaultFormat(groupingSpec.getResponseFormat())
+        .setDefaultMethod(groupingSpec.getMethod())
         .setLimitDefault(limitDefault)
         .setDefaultTotalCount(defaultTotalCount)
         .setDocsPerGroupDefault(withinGroupSortSpec.getCount())
@@ -24,6 +24,7 @@ import static org.apache.solr.search.QueryUtils.makeQueryable;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -42,13 +43,16 @@ import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.solr.client.solrj.SolrResponse;
@@ -806,6 +810,75 @@ public class RealTimeGetComponent extends SearchComponent {
     return sid;
   }
 
+  /**
+   * Fetches the latest indexed version of many root documents (with their children) from the given
+   * searcher in one pass. The ids are looked up in sorted order with a single {@link TermsEnum} per
+   * segment, and the stored fields are then read in docid order, which is far cheaper than a
+   * random lookup per id when there are many of them. The update log is <em>not</em> consulted;
+   * callers are expected to only pass ids that have no entry in it. Copy-field targets are
+   * excluded.
+   *
+   * @param rootIds IDs of root documents; never child docs.
+   * @return the documents found, keyed by id. Ids that are not found, or that don't refer to a
+   *     root document, are absent.
+   * @see #getInputDocument(SolrCore, BytesRef, BytesRef, AtomicLong, Set, Resolution)
+   */
+  public static Map<BytesRef, SolrInputDocument> getInputDocumentsFromIndex(
+      SolrCore core, SolrIndexSearcher searcher, Collection<BytesRef> rootIds)
+      throws IOException {
+    final IndexSchema schema = core.getLatestSchema();
+    final BytesRef[] ids = rootIds.toArray(new BytesRef[0]);
+    Arrays.sort(ids);
+
+    final int[] docIds = new int[ids.length];
+    Arrays.fill(docIds, -1);
+    final String idField = schema.getUniqueKeyField().getName();
+    PostingsEnum postings = null;
+    for (LeafReaderContext leaf : searcher.getTopReaderContext().leaves()) {
+      final Terms terms = leaf.reader().terms(idField);
+      if (terms == null) continue;
+      final TermsEnum te = terms.iterator();
+      final Bits liveDocs = leaf.reader().getLiveDocs();
+      for (int i = 0; i < ids.length; i++) {
+        if (docIds[i] >= 0 || !te.seekExact(ids[i])) continue;
+        postings = te.postings(postings, PostingsEnum.NONE);
+        for (int doc = postings.nextDoc();
+            doc != DocIdSetIterator.NO_MORE_DOCS;
+            doc = postings.nextDoc()) {
+          if (liveDocs == null || liveDocs.get(doc)) {
+            docIds[i] = leaf.docBase + doc;
+            break;
+          }
+        }
+      }
+    }
+
+    // (docId << 32 | index into ids), so that sorting gives us index order
+    final long[] order = new long[ids.length];
+    int numFound = 0;
+    for (int i = 0; i < ids.length; i++) {
+      if (docIds[i] >= 0) {
+        order[numFound++] = (((long) docIds[i]) << 32) | i;
+      }
+    }
+    Arrays.sort(order, 0, numFound);
+
+    final boolean checkRoot = schema.isUsableForChildDocs();
+    final SolrReturnFields returnFields =
+        makeReturnFields(core, null, Resolution.ROOT_WITH_CHILDREN);
+    final Map<BytesRef, SolrInputDocument> result = CollectionUtil.newHashMap(numFound);
+    for (int j = 0; j < numFound; j++) {
+      final int docId = (int) (order[j] >>> 32);
+      final BytesRef id = ids[(int) order[j]];
+      if (checkRoot && !hasRootTerm(searcher, id)) {
+        continue; // let the caller's single-doc lookup deal with it
+      }
+      final SolrDocument solrDoc = fetchSolrDoc(searcher, docId, returnFields);
+      result.put(id, toSolrInputDocument(solrDoc, schema)); // filters copy-field targets
+    }
+    return result;
+  }
+
   private static boolean hasRootTerm(SolrIndexSearcher searcher, BytesRef rootIdBytes)
       throws IOException {
     final String fieldName = IndexSchema.ROOT_FIELD_NAME;
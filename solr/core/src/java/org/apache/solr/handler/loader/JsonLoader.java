@@ -171,7 +171,11 @@ public class JsonLoader extends ContentStreamLoader {
           || "false".equals(req.getParams().get("json.command"))) {
         String split = req.getParams().get("split");
         String[] f = req.getParams().getParams("f");
-        handleSplitMode(split, f, reader);
+        if (isDefaultDocsMode(split, f)) {
+          handleDefaultDocsMode(reader);
+        } else {
+          handleSplitMode(split, f, reader);
+        }
         return;
       }
       parser = new JSONParser(reader);
@@ -244,6 +248,109 @@ public class JsonLoader extends ContentStreamLoader {
       }
     }
 
+    /**
+     * Whether the request uses the default split ("/") and field mapping ("$FQN:/**") without any
+     * of the options that need the intermediate record map.
+     */
+    private boolean isDefaultDocsMode(String split, String[] fields) {
+      SolrParams params = req.getParams();
+      return (split == null || "/".equals(split))
+          && (fields == null || fields.length == 0)
+          && params.get("srcField") == null
+          && !"true".equals(params.get("echo"))
+          && !params.getBool("mapUniqueKeyOnly", false);
+    }
+
+    /**
+     * Builds the documents for the default mapping directly from the parser events, without the
+     * per-record maps and copies of {@link JsonRecordReader}. Each top level object (or object in a
+     * top level array) is one document. Nested objects are flattened into fully qualified field
+     * names such as "a.b", and null values and empty arrays are dropped, exactly like "$FQN:/**".
+     */
+    private void handleDefaultDocsMode(Reader reader) throws IOException {
+      parser = new JSONParser(reader);
+      for (; ; ) {
+        int ev = parser.nextEvent();
+        if (ev == JSONParser.EOF) {
+          return;
+        }
+        if (ev == JSONParser.OBJECT_START) {
+          processFlattenedDoc();
+        } else if (ev == JSONParser.ARRAY_START) {
+          for (; ; ) {
+            ev = parser.nextEvent();
+            if (ev == JSONParser.ARRAY_END) break;
+            if (ev == JSONParser.OBJECT_START) {
+              processFlattenedDoc();
+            } else if (ev == JSONParser.ARRAY_START) {
+              JsonRecordReader.consumeTillMatchingEnd(parser, 0, 1);
+            }
+          }
+        }
+      }
+    }
+
+    private void processFlattenedDoc() throws IOException {
+      AddUpdateCommand cmd = new AddUpdateCommand(req);
+      cmd.commitWithin = commitWithin;
+      cmd.overwrite = overwrite;
+      SolrInputDocument sdoc = new SolrInputDocument();
+      parseFlattenedObject(sdoc, null);
+      cmd.solrDoc = sdoc;
+      processor.processAdd(cmd);
+    }
+
+    private void parseFlattenedObject(SolrInputDocument sdoc, String prefix) throws IOException {
+      for (; ; ) {
+        int ev = parser.nextEvent();
+        if (ev == JSONParser.OBJECT_END) {
+          return;
+        }
+        assertEvent(ev, JSONParser.STRING);
+        String name = parser.getString();
+        String fieldName = prefix == null ? name : prefix + JsonRecordReader.DELIM + name;
+        Object val = parseFlattenedValue(parser.nextEvent(), sdoc, fieldName);
+        if (val != null) {
+          SolrInputField existing = sdoc.getField(fieldName);
+          if (existing == null) {
+            sdoc.setField(fieldName, val);
+          } else {
+            existing.addValue(val);
+          }
+        }
+      }
+    }
+
+    /**
+     * Returns the value of a primitive or an array of primitives. Objects (also inside arrays) are
+     * added to the document under their own fully qualified names, and null is returned for them.
+     */
+    private Object parseFlattenedValue(int ev, SolrInputDocument sdoc, String fieldName)
+        throws IOException {
+      switch (ev) {
+        case JSONParser.ARRAY_START:
+          List<Object> lst = null;
+          for (; ; ) {
+            ev = parser.nextEvent();
+            if (ev == JSONParser.ARRAY_END) {
+              return lst;
+            }
+            Object val = parseFlattenedValue(ev, sdoc, fieldName);
+            if (val != null) {
+              if (lst == null) {
+                lst = new ArrayList<>(2);
+              }
+              lst.add(val);
+            }
+          }
+        case JSONParser.OBJECT_START:
+          parseFlattenedObject(sdoc, fieldName);
+          return null;
+        default:
+          return parseFieldValue(ev, fieldName);
+      }
+    }
+
     private void handleSplitMode(String split, String[] fields, final Reader reader)
         throws IOException {
       if (split == null) split = "/";
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.KnnByteVectorField;
 import org.apache.lucene.document.KnnFloatVectorField;
 import org.apache.lucene.document.StoredField;
@@ -43,6 +44,7 @@ import org.apache.solr.uninverting.UninvertingReader;
 import org.apache.solr.util.vector.ByteDenseVectorParser;
 import org.apache.solr.util.vector.DenseVectorParser;
 import org.apache.solr.util.vector.FloatDenseVectorParser;
+import org.apache.solr.util.vector.VectorQuantization;
 
 /**
  * Provides a field type to support Lucene's {@link org.apache.lucene.document.KnnVectorField}. See
@@ -50,7 +52,10 @@ import org.apache.solr.util.vector.FloatDenseVectorParser;
  * dimension for the vector and a fixed similarity function. The default similarity is
  * EUCLIDEAN_HNSW (L2). The default algorithm is HNSW. For Lucene 9.1 e.g. See {@link
  * org.apache.lucene.util.hnsw.HnswGraph} for more details about the implementation. <br>
- * Only {@code Indexed} and {@code Stored} attributes are supported.
+ * Only {@code Indexed} and {@code Stored} attributes are supported. <br>
+ * FLOAT32 vectors can be quantized at index time, see {@link VectorQuantization}. The full
+ * precision vectors are then indexed as binary doc values in the {@link #FULL_PRECISION_SUFFIX}
+ * field.
  */
 public class DenseVectorField extends FloatPointField {
   public static final String HNSW_ALGORITHM = "hnsw";
@@ -63,6 +68,10 @@ public class DenseVectorField extends FloatPointField {
   static final VectorEncoding DEFAULT_VECTOR_ENCODING = VectorEncoding.FLOAT32;
   static final String KNN_SIMILARITY_FUNCTION = "similarityFunction";
   static final VectorSimilarityFunction DEFAULT_SIMILARITY = VectorSimilarityFunction.EUCLIDEAN;
+  static final String VECTOR_QUANTIZATION = "vectorQuantization";
+  static final String QUANTIZATION_RANGE = "quantizationRange";
+  static final float DEFAULT_QUANTIZATION_RANGE = 1.0f;
+  public static final String FULL_PRECISION_SUFFIX = "__full_precision";
   private int dimension;
   private VectorSimilarityFunction similarityFunction;
   private String knnAlgorithm;
@@ -83,6 +92,15 @@ public class DenseVectorField extends FloatPointField {
    */
   private VectorEncoding vectorEncoding;
 
+  /**
+   * Server side quantization of FLOAT32 vectors. The possible values are NONE, INT8 or BINARY. The
+   * default quantization is NONE
+   */
+  private VectorQuantization vectorQuantization = VectorQuantization.NONE;
+
+  /** The INT8 quantization scales the values from [-quantizationRange, quantizationRange]. */
+  private float quantizationRange = DEFAULT_QUANTIZATION_RANGE;
+
   public DenseVectorField() {
     super();
   }
@@ -130,6 +148,28 @@ public class DenseVectorField extends FloatPointField {
             .orElse(DEFAULT_VECTOR_ENCODING);
     args.remove(VECTOR_ENCODING);
 
+    this.vectorQuantization =
+        ofNullable(args.get(VECTOR_QUANTIZATION))
+            .map(value -> VectorQuantization.valueOf(value.toUpperCase(Locale.ROOT)))
+            .orElse(VectorQuantization.NONE);
+    args.remove(VECTOR_QUANTIZATION);
+    if (vectorQuantization != VectorQuantization.NONE
+        && vectorEncoding != VectorEncoding.FLOAT32) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR,
+          "the vector quantization requires the FLOAT32 vector encoding");
+    }
+
+    this.quantizationRange =
+        ofNullable(args.get(QUANTIZATION_RANGE))
+            .map(Float::parseFloat)
+            .orElse(DEFAULT_QUANTIZATION_RANGE);
+    args.remove(QUANTIZATION_RANGE);
+    if (!(quantizationRange > 0)) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR, "the quantization range must be positive");
+    }
+
     this.hnswMaxConn =
         ofNullable(args.get(HNSW_MAX_CONNECTIONS)).map(Integer::parseInt).orElse(DEFAULT_MAX_CONN);
     args.remove(HNSW_MAX_CONNECTIONS);
@@ -168,6 +208,14 @@ public class DenseVectorField extends FloatPointField {
     return vectorEncoding;
   }
 
+  public VectorQuantization getVectorQuantization() {
+    return vectorQuantization;
+  }
+
+  public float getQuantizationRange() {
+    return quantizationRange;
+  }
+
   @Override
   public void checkSchemaField(final SchemaField field) throws SolrException {
     super.checkSchemaField(field);
@@ -193,6 +241,12 @@ public class DenseVectorField extends FloatPointField {
 
       if (field.indexed()) {
         fields.add(createField(field, vectorBuilder));
+        if (vectorQuantization != VectorQuantization.NONE) {
+          fields.add(
+              new BinaryDocValuesField(
+                  field.getName() + FULL_PRECISION_SUFFIX,
+                  new BytesRef(VectorQuantization.encode(vectorBuilder.getFloatVector()))));
+        }
       }
       if (field.stored()) {
         switch (vectorEncoding) {
@@ -225,8 +279,20 @@ public class DenseVectorField extends FloatPointField {
         return new KnnByteVectorField(
             field.getName(), vectorBuilder.getByteVector(), similarityFunction);
       case FLOAT32:
-        return new KnnFloatVectorField(
-            field.getName(), vectorBuilder.getFloatVector(), similarityFunction);
+        switch (vectorQuantization) {
+          case INT8:
+            return new KnnByteVectorField(
+                field.getName(),
+                VectorQuantization.toInt8(vectorBuilder.getFloatVector(), quantizationRange),
+                similarityFunction);
+          case BINARY:
+            return new BinaryDocValuesField(
+                field.getName(),
+                new BytesRef(VectorQuantization.toBinary(vectorBuilder.getFloatVector())));
+          default:
+            return new KnnFloatVectorField(
+                field.getName(), vectorBuilder.getFloatVector(), similarityFunction);
+        }
       default:
         throw new SolrException(
             SolrException.ErrorCode.SERVER_ERROR,
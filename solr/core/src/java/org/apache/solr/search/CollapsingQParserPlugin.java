@@ -22,8 +22,10 @@ import com.carrotsearch.hppc.FloatArrayList;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntIntHashMap;
 import com.carrotsearch.hppc.IntLongHashMap;
+import com.carrotsearch.hppc.IntObjectHashMap;
 import com.carrotsearch.hppc.cursors.IntIntCursor;
 import com.carrotsearch.hppc.cursors.IntLongCursor;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
 import com.carrotsearch.hppc.procedures.IntProcedure;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
@@ -35,6 +37,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntUnaryOperator;
 import org.apache.lucene.codecs.DocValuesProducer;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.DocValuesType;
@@ -61,12 +64,15 @@ import org.apache.lucene.search.Scorable;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.LongValues;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.ExpandParams;
 import org.apache.solr.common.params.GroupParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.SolrParams;
@@ -138,6 +144,22 @@ public class CollapsingQParserPlugin extends QParserPlugin {
    */
   public static final String HINT_BLOCK = "block";
 
+  /**
+   * Indicates that the query is expected to match few documents relative to the number of unique
+   * values in the (String) collapse field. Values are collapsed per segment, and group heads are
+   * keyed by the terms actually seen instead of by global ordinals, so no top level {@link
+   * OrdinalMap} is built and the size of the collapse data structures depends on the number of
+   * matched groups (see the <code>size</code> local param) rather than on the cardinality of the
+   * field. This hint is ignored when collapsing on numeric fields or when block collapse is used.
+   */
+  public static final String HINT_SPARSE = "sparse";
+
+  /**
+   * Request context key of the {@link GroupMembers} recorded while collapsing, which are used by
+   * the {@link org.apache.solr.handler.component.ExpandComponent} when available.
+   */
+  public static final String GROUP_MEMBERS = "collapse.groupMembers";
+
   /**
    * If elevation is used in combination with the collapse query parser, we can define that we only
    * want to return the representative and not all elevated docs by setting this parameter to false
@@ -409,7 +431,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
               : null;
 
       this.hint = localParams.get("hint");
-      this.size = localParams.getInt("size", 100000); // Only used for collapsing on int fields.
+      // Only used for collapsing on int fields, or on String fields with the sparse hint.
+      this.size = localParams.getInt("size", 100000);
 
       {
         final SolrRequestInfo info = SolrRequestInfo.getRequestInfo();
@@ -467,17 +490,31 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         }
 
         boostDocsMap = QueryElevationComponent.getBoostDocs(searcher, this.boosted, context);
-        return collectorFactory.getCollector(
-            this.collapseField,
-            this.groupHeadSelector,
-            this.sortSpec,
-            this.nullPolicy.getCode(),
-            this.hint,
-            this.needsScores4Collapsing,
-            this.needsScores,
-            this.size,
-            boostDocsMap,
-            searcher);
+        DelegatingCollector collector =
+            collectorFactory.getCollector(
+                this.collapseField,
+                this.groupHeadSelector,
+                this.sortSpec,
+                this.nullPolicy.getCode(),
+                this.hint,
+                this.needsScores4Collapsing,
+                this.needsScores,
+                this.size,
+                boostDocsMap,
+                searcher);
+
+        // Elevated docs are never group members, so leave those requests to the ExpandComponent
+        if (info != null && (boostDocsMap == null || boostDocsMap.isEmpty())) {
+          GroupMembers groupMembers = GroupMembers.forRequest(this.collapseField, info.getReq());
+          if (groupMembers != null) {
+            if (collector instanceof OrdScoreCollector) {
+              ((OrdScoreCollector) collector).setGroupMembers(groupMembers);
+            } else if (collector instanceof IntScoreCollector) {
+              ((IntScoreCollector) collector).setGroupMembers(groupMembers);
+            }
+          }
+        }
+        return collector;
 
       } catch (IOException e) {
         throw new RuntimeException(e);
@@ -601,6 +638,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     private SortedDocValues segmentValues;
     private LongValues segmentOrdinalMap;
     private MultiDocValues.MultiSortedDocValues multiSortedDocValues;
+    private final SegmentGroupKeys groupKeys;
     private IntIntDynamicMap ords;
     private IntFloatDynamicMap scores;
     private int maxDoc;
@@ -609,13 +647,21 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     private int nullDoc = -1;
     private boolean collectElevatedDocsWhenCollapsing;
     private FloatArrayList nullScores;
+    private GroupMembers groupMembers;
 
     private final BoostedDocsCollector boostedDocsCollector;
 
+    /**
+     * @param groupKeys if not null, collapse on the group keys it computes per segment instead of on
+     *     the ordinals of {@code collapseValuesProducer}, which may then be null
+     * @param size the initial size of the collapse data structures when {@code groupKeys} is used
+     */
     public OrdScoreCollector(
         int maxDoc,
         int segments,
         DocValuesProducer collapseValuesProducer,
+        SegmentGroupKeys groupKeys,
+        int size,
         int nullPolicy,
         IntIntHashMap boostDocsMap,
         IndexSearcher searcher,
@@ -631,12 +677,18 @@ public class CollapsingQParserPlugin extends QParserPlugin {
 
       this.collapsedSet = new FixedBitSet(maxDoc);
       this.collapseValuesProducer = collapseValuesProducer;
-      this.collapseValues = collapseValuesProducer.getSorted(null);
+      this.groupKeys = groupKeys;
 
-      int valueCount = collapseValues.getValueCount();
-      if (collapseValues instanceof MultiDocValues.MultiSortedDocValues) {
-        this.multiSortedDocValues = (MultiDocValues.MultiSortedDocValues) collapseValues;
-        this.ordinalMap = multiSortedDocValues.mapping;
+      final int valueCount;
+      if (groupKeys != null) {
+        valueCount = size;
+      } else {
+        this.collapseValues = collapseValuesProducer.getSorted(null);
+        valueCount = collapseValues.getValueCount();
+        if (collapseValues instanceof MultiDocValues.MultiSortedDocValues) {
+          this.multiSortedDocValues = (MultiDocValues.MultiSortedDocValues) collapseValues;
+          this.ordinalMap = multiSortedDocValues.mapping;
+        }
       }
       this.ords = new IntIntDynamicMap(valueCount, -1);
       this.scores = new IntFloatDynamicMap(valueCount, -Float.MAX_VALUE);
@@ -647,6 +699,11 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       this.boostedDocsCollector = BoostedDocsCollector.build(boostDocsMap);
     }
 
+    /** Records the top members of each group while collapsing. */
+    public void setGroupMembers(GroupMembers groupMembers) {
+      this.groupMembers = groupMembers;
+    }
+
     @Override
     public ScoreMode scoreMode() {
       return ScoreMode.COMPLETE;
@@ -656,7 +713,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     protected void doSetNextReader(LeafReaderContext context) throws IOException {
       this.contexts[context.ord] = context;
       this.docBase = context.docBase;
-      if (ordinalMap != null) {
+      if (groupKeys != null) {
+        groupKeys.setNextReader(context);
+      } else if (ordinalMap != null) {
         this.segmentValues = this.multiSortedDocValues.values[context.ord];
         this.segmentOrdinalMap = ordinalMap.getGlobalOrds(context.ord);
       } else {
@@ -668,7 +727,10 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     public void collect(int contextDoc) throws IOException {
       int globalDoc = contextDoc + this.docBase;
       int ord = -1;
-      if (this.ordinalMap != null) {
+      if (this.groupKeys != null) {
+        // Handle per segment group keys case
+        ord = groupKeys.groupKey(contextDoc);
+      } else if (this.ordinalMap != null) {
         // Handle ordinalMapping case
         if (segmentValues.advanceExact(contextDoc)) {
           ord = (int) segmentOrdinalMap.get(segmentValues.ordValue());
@@ -695,6 +757,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
 
       if (ord > -1) {
         float score = scorer.score();
+        if (groupMembers != null) {
+          groupMembers.collect(ord, globalDoc, score);
+        }
         if (score > scores.get(ord)) {
           ords.put(ord, globalDoc);
           scores.put(ord, score);
@@ -727,6 +792,10 @@ public class CollapsingQParserPlugin extends QParserPlugin {
             nullDoc = -1;
           });
 
+      if (groupMembers != null) {
+        groupMembers.finish(ords::get);
+      }
+
       // Build the sorted DocSet of group heads.
       if (nullDoc > -1) {
         collapsedSet.set(nullDoc);
@@ -736,18 +805,22 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       int currentContext = 0;
       int currentDocBase = 0;
 
-      collapseValues = collapseValuesProducer.getSorted(null);
+      if (groupKeys != null) {
+        groupKeys.setNextReader(contexts[currentContext]);
+      } else {
+        collapseValues = collapseValuesProducer.getSorted(null);
 
-      if (collapseValues instanceof MultiDocValues.MultiSortedDocValues) {
-        this.multiSortedDocValues = (MultiDocValues.MultiSortedDocValues) collapseValues;
-        this.ordinalMap = multiSortedDocValues.mapping;
-      }
+        if (collapseValues instanceof MultiDocValues.MultiSortedDocValues) {
+          this.multiSortedDocValues = (MultiDocValues.MultiSortedDocValues) collapseValues;
+          this.ordinalMap = multiSortedDocValues.mapping;
+        }
 
-      if (ordinalMap != null) {
-        this.segmentValues = this.multiSortedDocValues.values[currentContext];
-        this.segmentOrdinalMap = this.ordinalMap.getGlobalOrds(currentContext);
-      } else {
-        this.segmentValues = collapseValues;
+        if (ordinalMap != null) {
+          this.segmentValues = this.multiSortedDocValues.values[currentContext];
+          this.segmentOrdinalMap = this.ordinalMap.getGlobalOrds(currentContext);
+        } else {
+          this.segmentValues = collapseValues;
+        }
       }
 
       int nextDocBase =
@@ -767,7 +840,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
               currentContext + 1 < contexts.length ? contexts[currentContext + 1].docBase : maxDoc;
           leafDelegate = delegate.getLeafCollector(contexts[currentContext]);
           leafDelegate.setScorer(dummy);
-          if (ordinalMap != null) {
+          if (groupKeys != null) {
+            groupKeys.setNextReader(contexts[currentContext]);
+          } else if (ordinalMap != null) {
             this.segmentValues = this.multiSortedDocValues.values[currentContext];
             this.segmentOrdinalMap = this.ordinalMap.getGlobalOrds(currentContext);
           }
@@ -776,7 +851,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         int contextDoc = docId - currentDocBase;
 
         int ord = -1;
-        if (this.ordinalMap != null) {
+        if (this.groupKeys != null) {
+          ord = groupKeys.groupKey(contextDoc);
+        } else if (this.ordinalMap != null) {
           // Handle ordinalMapping case
           if (segmentValues.advanceExact(contextDoc)) {
             ord = (int) segmentOrdinalMap.get(segmentValues.ordValue());
@@ -826,6 +903,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     private FloatArrayList nullScores;
     private String field;
     private boolean collectElevatedDocsWhenCollapsing;
+    private GroupMembers groupMembers;
 
     private final BoostedDocsCollector boostedDocsCollector;
 
@@ -857,6 +935,11 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       this.boostedDocsCollector = BoostedDocsCollector.build(boostDocsMap);
     }
 
+    /** Records the top members of each group while collapsing. */
+    public void setGroupMembers(GroupMembers groupMembers) {
+      this.groupMembers = groupMembers;
+    }
+
     @Override
     public ScoreMode scoreMode() {
       return ScoreMode.COMPLETE;
@@ -882,6 +965,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         }
 
         float score = scorer.score();
+        if (groupMembers != null) {
+          groupMembers.collect(collapseValue, globalDoc, score);
+        }
         final int idx;
         if ((idx = cmap.indexOf(collapseValue)) >= 0) {
           long scoreDoc = cmap.indexGet(idx);
@@ -934,6 +1020,10 @@ public class CollapsingQParserPlugin extends QParserPlugin {
             nullDoc = -1;
           });
 
+      if (groupMembers != null) {
+        groupMembers.finish(key -> cmap.containsKey(key) ? (int) cmap.get(key) : -1);
+      }
+
       // Build the sorted DocSet of group heads.
       if (nullDoc > -1) {
         collapsedSet.set(nullDoc);
@@ -1012,6 +1102,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     protected SortedDocValues segmentValues;
     protected LongValues segmentOrdinalMap;
     protected MultiDocValues.MultiSortedDocValues multiSortedDocValues;
+    private final SegmentGroupKeys groupKeys;
 
     private int maxDoc;
     private int nullPolicy;
@@ -1024,10 +1115,17 @@ public class CollapsingQParserPlugin extends QParserPlugin {
 
     private final BoostedDocsCollector boostedDocsCollector;
 
+    /**
+     * @param groupKeys if not null, collapse on the group keys it computes per segment instead of on
+     *     the ordinals of {@code collapseValuesProducer}, which may then be null
+     * @param size the initial size of the collapse data structures when {@code groupKeys} is used
+     */
     public OrdFieldValueCollector(
         int maxDoc,
         int segments,
         DocValuesProducer collapseValuesProducer,
+        SegmentGroupKeys groupKeys,
+        int size,
         int nullPolicy,
         GroupHeadSelector groupHeadSelector,
         SortSpec sortSpec,
@@ -1050,15 +1148,21 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         contexts[i] = con.get(i);
       }
       this.collapseValuesProducer = collapseValuesProducer;
-      this.collapseValues = collapseValuesProducer.getSorted(null);
-      if (collapseValues instanceof MultiDocValues.MultiSortedDocValues) {
-        this.multiSortedDocValues = (MultiDocValues.MultiSortedDocValues) collapseValues;
-        this.ordinalMap = multiSortedDocValues.mapping;
-      }
+      this.groupKeys = groupKeys;
 
       this.boostedDocsCollector = BoostedDocsCollector.build(boostDocsMap);
 
-      int valueCount = collapseValues.getValueCount();
+      final int valueCount;
+      if (groupKeys != null) {
+        valueCount = size;
+      } else {
+        this.collapseValues = collapseValuesProducer.getSorted(null);
+        valueCount = collapseValues.getValueCount();
+        if (collapseValues instanceof MultiDocValues.MultiSortedDocValues) {
+          this.multiSortedDocValues = (MultiDocValues.MultiSortedDocValues) collapseValues;
+          this.ordinalMap = multiSortedDocValues.mapping;
+        }
+      }
       this.nullPolicy = nullPolicy;
       this.needsScores4Collapsing = needsScores4Collapsing;
       this.needsScores = needsScores;
@@ -1160,7 +1264,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       this.contexts[context.ord] = context;
       this.docBase = context.docBase;
       this.collapseStrategy.setNextReader(context);
-      if (ordinalMap != null) {
+      if (groupKeys != null) {
+        groupKeys.setNextReader(context);
+      } else if (ordinalMap != null) {
         this.segmentValues = this.multiSortedDocValues.values[context.ord];
         this.segmentOrdinalMap = ordinalMap.getGlobalOrds(context.ord);
       } else {
@@ -1172,7 +1278,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     public void collect(int contextDoc) throws IOException {
       int globalDoc = contextDoc + this.docBase;
       int ord = -1;
-      if (this.ordinalMap != null) {
+      if (this.groupKeys != null) {
+        ord = groupKeys.groupKey(contextDoc);
+      } else if (this.ordinalMap != null) {
         if (segmentValues.advanceExact(contextDoc)) {
           ord = (int) segmentOrdinalMap.get(segmentValues.ordValue());
         }
@@ -1204,16 +1312,20 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       int currentContext = 0;
       int currentDocBase = 0;
 
-      this.collapseValues = collapseValuesProducer.getSorted(null);
-      if (collapseValues instanceof MultiDocValues.MultiSortedDocValues) {
-        this.multiSortedDocValues = (MultiDocValues.MultiSortedDocValues) collapseValues;
-        this.ordinalMap = multiSortedDocValues.mapping;
-      }
-      if (ordinalMap != null) {
-        this.segmentValues = this.multiSortedDocValues.values[currentContext];
-        this.segmentOrdinalMap = this.ordinalMap.getGlobalOrds(currentContext);
+      if (groupKeys != null) {
+        groupKeys.setNextReader(contexts[currentContext]);
       } else {
-        this.segmentValues = collapseValues;
+        this.collapseValues = collapseValuesProducer.getSorted(null);
+        if (collapseValues instanceof MultiDocValues.MultiSortedDocValues) {
+          this.multiSortedDocValues = (MultiDocValues.MultiSortedDocValues) collapseValues;
+          this.ordinalMap = multiSortedDocValues.mapping;
+        }
+        if (ordinalMap != null) {
+          this.segmentValues = this.multiSortedDocValues.values[currentContext];
+          this.segmentOrdinalMap = this.ordinalMap.getGlobalOrds(currentContext);
+        } else {
+          this.segmentValues = collapseValues;
+        }
       }
 
       int nextDocBase =
@@ -1239,7 +1351,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
               currentContext + 1 < contexts.length ? contexts[currentContext + 1].docBase : maxDoc;
           leafDelegate = delegate.getLeafCollector(contexts[currentContext]);
           leafDelegate.setScorer(dummy);
-          if (ordinalMap != null) {
+          if (groupKeys != null) {
+            groupKeys.setNextReader(contexts[currentContext]);
+          } else if (ordinalMap != null) {
             this.segmentValues = this.multiSortedDocValues.values[currentContext];
             this.segmentOrdinalMap = this.ordinalMap.getGlobalOrds(currentContext);
           }
@@ -1249,7 +1363,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
 
         if (this.needsScores) {
           int ord = -1;
-          if (this.ordinalMap != null) {
+          if (this.groupKeys != null) {
+            ord = groupKeys.groupKey(contextDoc);
+          } else if (this.ordinalMap != null) {
             // Handle ordinalMapping case
             if (segmentValues.advanceExact(contextDoc)) {
               ord = (int) segmentOrdinalMap.get(segmentValues.ordValue());
@@ -2038,6 +2154,52 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     }
   }
 
+  /**
+   * Maps the per-segment ordinals of a String collapse field to dense group keys, assigned in the
+   * order the values are first seen. Only values of collected docs are ever looked up, so unlike
+   * global ordinals this needs no top level {@link OrdinalMap} and its size depends on the number of
+   * matched groups rather than on the number of values in the field.
+   *
+   * @see #HINT_SPARSE
+   */
+  static class SegmentGroupKeys {
+    private final String field;
+    private final BytesRefHash terms = new BytesRefHash();
+    // segment ord -> group key, for the current segment
+    private final IntIntHashMap segmentKeys = new IntIntHashMap();
+    private SortedDocValues segmentValues;
+
+    SegmentGroupKeys(String field) {
+      this.field = field;
+    }
+
+    public void setNextReader(LeafReaderContext context) throws IOException {
+      this.segmentValues = DocValues.getSorted(context.reader(), field);
+      this.segmentKeys.clear();
+    }
+
+    /**
+     * Returns the group key for the value of the given doc of the current segment, or -1 if the doc
+     * has no value. Docs must be passed in increasing order.
+     */
+    public int groupKey(int contextDoc) throws IOException {
+      if (!segmentValues.advanceExact(contextDoc)) {
+        return -1;
+      }
+      int segmentOrd = segmentValues.ordValue();
+      int key = segmentKeys.getOrDefault(segmentOrd, -1);
+      if (key == -1) {
+        key = terms.add(segmentValues.lookupOrd(segmentOrd));
+        if (key < 0) {
+          // already seen in an earlier segment
+          key = -key - 1;
+        }
+        segmentKeys.put(segmentOrd, key);
+      }
+      return key;
+    }
+  }
+
   private static class CollectorFactory {
     /**
      * @see #isNumericCollapsible
@@ -2063,6 +2225,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         throws IOException {
 
       DocValuesProducer docValuesProducer = null;
+      SegmentGroupKeys groupKeys = null;
       FunctionQuery funcQuery = null;
 
       // block collapsing logic is much simpler and uses less memory, but is only viable in specific
@@ -2101,6 +2264,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
                   }
                 }
               };
+        } else if (HINT_SPARSE.equals(hint) && !blockCollapse) {
+          // no top level doc values, and so no OrdinalMap, are needed
+          groupKeys = new SegmentGroupKeys(collapseField);
         } else {
           docValuesProducer =
               new EmptyDocValuesProducer() {
@@ -2152,6 +2318,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
               maxDoc,
               leafCount,
               docValuesProducer,
+              groupKeys,
+              size,
               nullPolicy,
               boostDocs,
               searcher,
@@ -2197,6 +2365,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
               maxDoc,
               leafCount,
               docValuesProducer,
+              groupKeys,
+              size,
               nullPolicy,
               groupHeadSelector,
               sortSpec,
@@ -2279,6 +2449,155 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     public float score;
   }
 
+  /**
+   * The top scoring members of the groups, recorded by the score based collapse collectors while
+   * they visit every matching doc, so that the {@link
+   * org.apache.solr.handler.component.ExpandComponent} doesn't need to run the query again. Only
+   * used when the expanded groups are the same as the collapsed ones: no <code>expand.q</code>,
+   * <code>expand.fq</code>, <code>expand.sort</code> or <code>expand.nullGroup</code>. Once the
+   * group heads are known, the instance is put in the request context under {@link
+   * #GROUP_MEMBERS}.
+   */
+  public static final class GroupMembers {
+    private final String field;
+    private final int limit;
+    private final Map<Object, Object> context;
+    // group key -> members, while collecting
+    private IntObjectHashMap<MemberQueue> groups = new IntObjectHashMap<>();
+    // head doc -> members other than the head, once finished
+    private IntObjectHashMap<MemberQueue> groupsByHead;
+
+    private GroupMembers(String field, int limit, Map<Object, Object> context) {
+      this.field = field;
+      this.limit = limit;
+      this.context = context;
+    }
+
+    /**
+     * Returns a new instance if the request expands the groups of the given collapse field in a way
+     * that can be answered from the collapse pass, otherwise null.
+     */
+    static GroupMembers forRequest(String collapseField, SolrQueryRequest req) {
+      SolrParams params = req.getParams();
+      if (!params.getBool(ExpandParams.EXPAND, false)
+          || params.get(ExpandParams.EXPAND_Q) != null
+          || params.get(ExpandParams.EXPAND_FQ) != null
+          || params.get(ExpandParams.EXPAND_SORT) != null
+          || params.getBool(ExpandParams.EXPAND_NULL, false)) {
+        return null;
+      }
+      String expandField = params.get(ExpandParams.EXPAND_FIELD);
+      if (expandField != null && !expandField.equals(collapseField)) {
+        return null;
+      }
+      int limit = params.getInt(ExpandParams.EXPAND_ROWS, 5);
+      return limit < 0 ? null : new GroupMembers(collapseField, limit, req.getContext());
+    }
+
+    void collect(int groupKey, int globalDoc, float score) {
+      MemberQueue members = groups.get(groupKey);
+      if (members == null) {
+        members = new MemberQueue();
+        groups.put(groupKey, members);
+      }
+      // one extra slot since the group head is still among the members
+      members.add(globalDoc, score, limit == 0 ? 0 : limit + 1);
+    }
+
+    /**
+     * Drops the group heads from the members, and publishes this instance in the request context.
+     *
+     * @param heads maps a group key to the doc of its head, or -1 if the group has no head
+     */
+    void finish(IntUnaryOperator heads) {
+      groupsByHead = new IntObjectHashMap<>(groups.size());
+      for (IntObjectCursor<MemberQueue> group : groups) {
+        int head = heads.applyAsInt(group.key);
+        if (head > -1) {
+          group.value.remove(head, limit);
+          groupsByHead.put(head, group.value);
+        }
+      }
+      groups = null;
+      context.put(GROUP_MEMBERS, this);
+    }
+
+    public String getField() {
+      return field;
+    }
+
+    /**
+     * Returns the members of the group headed by the given doc, excluding the head itself, or null
+     * if there are none. The slice holds at most <code>expand.rows</code> docs ordered by score,
+     * and the total number of members.
+     */
+    public DocSlice getMembers(int headDoc) {
+      MemberQueue members = groupsByHead.get(headDoc);
+      if (members == null || members.count == 0) {
+        return null;
+      }
+      if (members.size == 0) {
+        return new DocSlice(0, 0, null, null, members.count, 0, TotalHits.Relation.EQUAL_TO);
+      }
+      return new DocSlice(
+          0,
+          members.size,
+          members.docs,
+          members.scores,
+          members.count,
+          Float.NaN,
+          TotalHits.Relation.EQUAL_TO);
+    }
+
+    /**
+     * The best members of a group ordered by descending score, then by doc, like a {@link
+     * org.apache.lucene.search.TopScoreDocCollector}, plus the count of all members.
+     */
+    private static final class MemberQueue {
+      private int[] docs;
+      private float[] scores;
+      private int size;
+      private int count;
+
+      void add(int doc, float score, int maxSize) {
+        count++;
+        // docs are collected in order, so an equal score doesn't move ahead of earlier docs
+        int pos = size;
+        while (pos > 0 && scores[pos - 1] < score) {
+          pos--;
+        }
+        if (pos >= maxSize) {
+          return;
+        }
+        if (size == maxSize) {
+          size--; // drop the last one
+        } else if (docs == null || size == docs.length) {
+          int newLength = Math.min(maxSize, Math.max(2, size * 2));
+          docs = docs == null ? new int[newLength] : ArrayUtil.growExact(docs, newLength);
+          scores = scores == null ? new float[newLength] : ArrayUtil.growExact(scores, newLength);
+        }
+        System.arraycopy(docs, pos, docs, pos + 1, size - pos);
+        System.arraycopy(scores, pos, scores, pos + 1, size - pos);
+        docs[pos] = doc;
+        scores[pos] = score;
+        size++;
+      }
+
+      void remove(int doc, int maxSize) {
+        count--;
+        for (int i = 0; i < size; i++) {
+          if (docs[i] == doc) {
+            System.arraycopy(docs, i + 1, docs, i, size - i - 1);
+            System.arraycopy(scores, i + 1, scores, i, size - i - 1);
+            size--;
+            break;
+          }
+        }
+        size = Math.min(size, maxSize);
+      }
+    }
+  }
+
   /*
    * Collapse Strategies
    */
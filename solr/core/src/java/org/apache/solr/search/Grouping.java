@@ -65,6 +65,7 @@ import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.schema.StrFieldSource;
 import org.apache.solr.search.grouping.collector.FilterCollector;
+import org.apache.solr.search.grouping.collector.OrdGroupingCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -92,6 +93,7 @@ public class Grouping {
   private int groupOffsetDefault;
   private Format defaultFormat;
   private TotalCount defaultTotalCount;
+  private Method defaultMethod = Method.twopass;
 
   private int maxDoc;
   private boolean needScores;
@@ -155,7 +157,13 @@ public class Grouping {
       return;
     }
 
-    Grouping.CommandField gc = new CommandField();
+    Grouping.CommandField gc;
+    if (defaultMethod == Method.ords
+        && OrdGroupingCollector.supports(schemaField, groupSort, withinGroupSort)) {
+      gc = new CommandOrdField();
+    } else {
+      gc = new CommandField();
+    }
     gc.withinGroupSort = withinGroupSort;
     gc.groupBy = field;
     gc.key = field;
@@ -288,6 +296,11 @@ public class Grouping {
     return this;
   }
 
+  public Grouping setDefaultMethod(Method defaultMethod) {
+    this.defaultMethod = defaultMethod;
+    return this;
+  }
+
   public Grouping setGetGroupedDocSet(boolean getGroupedDocSet) {
     this.getGroupedDocSet = getGroupedDocSet;
     return this;
@@ -502,6 +515,18 @@ public class Grouping {
     simple
   }
 
+  public static enum Method {
+    /** Finds the top groups in a first search, then their documents in a second search. */
+    twopass,
+
+    /**
+     * Finds the top groups, their documents and the group count in a single search over the
+     * ordinals of the field. Only applies to single valued string fields with docValues, with the
+     * groups and the documents sorted by score; other commands use {@link #twopass}.
+     */
+    ords
+  }
+
   public static enum TotalCount {
     /** Computations should be based on groups. */
     grouped,
@@ -884,6 +909,52 @@ public class Grouping {
     }
   }
 
+  /**
+   * A group command for grouping on a field in a single pass over its ordinals, see {@link
+   * Method#ords}.
+   */
+  public class CommandOrdField extends CommandField {
+
+    OrdGroupingCollector ordCollector;
+
+    @Override
+    protected Collector createFirstPassCollector() throws IOException {
+      int groupedDocsToCollect = getMax(groupOffset, docsPerGroup, maxDoc);
+      ordCollector = new OrdGroupingCollector(searcher, groupBy, groupedDocsToCollect);
+      return ordCollector;
+    }
+
+    @Override
+    protected Collector createSecondPassCollector() throws IOException {
+      return null;
+    }
+
+    @Override
+    protected void finish() throws IOException {
+      if (actualGroupsToFind > 0) {
+        result =
+            ordCollector.getTopGroups(
+                format == Format.grouped ? offset : 0,
+                actualGroupsToFind,
+                groupSort,
+                withinGroupSort,
+                needScores,
+                null);
+      }
+      super.finish();
+    }
+
+    @Override
+    public int getMatches() {
+      return ordCollector.getMatches();
+    }
+
+    @Override
+    protected Integer getNumberOfGroups() {
+      return ordCollector.getGroupCount();
+    }
+  }
+
   /** A group command for grouping on a query. */
   // NOTE: doesn't need to be generic. Maybe Command interface --> First / Second pass abstract
   // impl.
@@ -40,6 +40,7 @@ import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.StringHelper;
 import org.apache.solr.common.SolrException;
@@ -51,6 +52,7 @@ import org.apache.solr.request.SolrRequestInfo;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.schema.TrieField;
 import org.apache.solr.search.join.GraphPointsCollector;
+import org.apache.solr.search.join.SegmentJoinIndex;
 import org.apache.solr.util.RTimer;
 import org.apache.solr.util.RefCounted;
 
@@ -230,6 +232,15 @@ class JoinQuery extends Query {
       }
 
       if (!usePoints) {
+        @SuppressWarnings("unchecked")
+        SolrCache<Object, SegmentJoinIndex> fromIndexCache =
+            fromSearcher.getCache(SegmentJoinIndex.CACHE_NAME_PREFIX + fromField);
+        @SuppressWarnings("unchecked")
+        SolrCache<Object, SegmentJoinIndex> toIndexCache =
+            toSearcher.getCache(SegmentJoinIndex.CACHE_NAME_PREFIX + toField);
+        if (fromIndexCache != null && toIndexCache != null) {
+          return getDocSetFromJoinIndex(fromIndexCache, toIndexCache);
+        }
         return getDocSetEnumerate();
       }
 
@@ -243,6 +254,60 @@ class JoinQuery extends Query {
       return result;
     }
 
+    /**
+     * Joins with the {@link SegmentJoinIndex} of both fields: collects the from terms of each
+     * segment that have a doc in the from set, then unions the docs of the same terms in each
+     * segment of the to side.
+     */
+    public DocSet getDocSetFromJoinIndex(
+        SolrCache<Object, SegmentJoinIndex> fromIndexCache,
+        SolrCache<Object, SegmentJoinIndex> toIndexCache)
+        throws IOException {
+      DocSet fromSet = fromSearcher.getDocSet(q);
+      fromSetSize = fromSet.size();
+      if (fromSetSize == 0) {
+        return DocSet.empty();
+      }
+      Bits fromBits = fromSet.getBits();
+
+      BytesRefHash fromTerms = new BytesRefHash();
+      BytesRef prefix = getMainValuePrefix(fromSearcher, fromField);
+      BytesRef term = new BytesRef();
+      for (LeafReaderContext context : fromSearcher.getTopReaderContext().leaves()) {
+        SegmentJoinIndex index = SegmentJoinIndex.get(fromIndexCache, context, fromField, prefix);
+        for (int ord = 0; ord < index.size(); ord++) {
+          fromTermCount++;
+          if (index.intersects(ord, fromBits, context.docBase)) {
+            fromTermHits++;
+            fromTerms.add(index.term(ord, term));
+          }
+        }
+      }
+      if (fromTerms.size() == 0) {
+        return DocSet.empty();
+      }
+
+      FixedBitSet resultBits = new FixedBitSet(toSearcher.maxDoc());
+      prefix = getMainValuePrefix(toSearcher, toField);
+      for (LeafReaderContext context : toSearcher.getTopReaderContext().leaves()) {
+        SegmentJoinIndex index = SegmentJoinIndex.get(toIndexCache, context, toField, prefix);
+        Bits liveDocs = context.reader().getLiveDocs();
+        for (int i = 0; i < fromTerms.size(); i++) {
+          int ord = index.ord(fromTerms.get(i, term));
+          if (ord >= 0) {
+            toTermHits++;
+            resultListDocs += index.addDocs(ord, liveDocs, resultBits, context.docBase);
+          }
+        }
+      }
+      return new BitDocSet(resultBits);
+    }
+
+    private BytesRef getMainValuePrefix(SolrIndexSearcher searcher, String field) {
+      String prefixStr = TrieField.getMainValuePrefix(searcher.getSchema().getFieldType(field));
+      return prefixStr == null ? null : new BytesRef(prefixStr);
+    }
+
     public DocSet getDocSetEnumerate() throws IOException {
       FixedBitSet resultBits = null;
 
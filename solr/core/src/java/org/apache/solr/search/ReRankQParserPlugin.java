@@ -17,17 +17,34 @@
 package org.apache.solr.search;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryRescorer;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.ScorerSupplier;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.StrUtils;
 import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.util.ParallelTasks;
 
 /*
  *
- *  Syntax: q=*:*&rq={!rerank reRankQuery=$rqq reRankDocs=300 reRankWeight=3}
+ *  Syntax: q=*:*&rq={!rerank reRankQuery=$rqq reRankDocs=300 reRankWeight=3 reRankThreads=4}
  *
  */
 
@@ -47,6 +64,9 @@ public class ReRankQParserPlugin extends QParserPlugin {
   public static final String RERANK_OPERATOR = "reRankOperator";
   public static final String RERANK_OPERATOR_DEFAULT = "add";
 
+  public static final String RERANK_THREADS = "reRankThreads";
+  public static final int RERANK_THREADS_DEFAULT = 0;
+
   @Override
   public QParser createParser(
       String query, SolrParams localParams, SolrParams params, SolrQueryRequest req) {
@@ -78,12 +98,24 @@ public class ReRankQParserPlugin extends QParserPlugin {
       ReRankOperator reRankOperator =
           ReRankOperator.get(localParams.get(RERANK_OPERATOR, RERANK_OPERATOR_DEFAULT));
 
-      return new ReRankQuery(reRankQuery, reRankDocs, reRankWeight, reRankOperator);
+      int reRankThreads = localParams.getInt(RERANK_THREADS, RERANK_THREADS_DEFAULT);
+
+      return new ReRankQuery(
+          reRankQuery, reRankDocs, reRankWeight, reRankOperator, reRankThreads);
     }
   }
 
+  /**
+   * Rescores the top documents in batches: the documents are sorted by docid and grouped by
+   * segment, and each segment is scored in a single forward pass over the re-rank query's scorer.
+   * The segments are scored on up to <code>threads</code> threads of the shared update executor,
+   * the same way <code>facet.threads</code> works. A threads value of zero scores the segments on
+   * the calling thread, and a negative value does not limit the number of threads.
+   */
   private static final class ReRankQueryRescorer extends QueryRescorer {
 
+    final Query reRankQuery;
+    final int threads;
     final BiFloatFunction scoreCombiner;
 
     @FunctionalInterface
@@ -92,8 +124,10 @@ public class ReRankQParserPlugin extends QParserPlugin {
     }
 
     public ReRankQueryRescorer(
-        Query reRankQuery, double reRankWeight, ReRankOperator reRankOperator) {
+        Query reRankQuery, double reRankWeight, ReRankOperator reRankOperator, int threads) {
       super(reRankQuery);
+      this.reRankQuery = reRankQuery;
+      this.threads = threads;
       switch (reRankOperator) {
         case ADD:
           scoreCombiner = (score, second) -> (float) (score + reRankWeight * second);
@@ -119,12 +153,87 @@ public class ReRankQParserPlugin extends QParserPlugin {
       }
       return score;
     }
+
+    @Override
+    public TopDocs rescore(IndexSearcher searcher, TopDocs firstPassTopDocs, int topN)
+        throws IOException {
+      ScoreDoc[] hits = firstPassTopDocs.scoreDocs.clone();
+      Arrays.sort(hits, (a, b) -> a.doc - b.doc);
+
+      Weight weight =
+          searcher.createWeight(searcher.rewrite(reRankQuery), ScoreMode.COMPLETE, 1);
+      List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+      List<Callable<Void>> tasks = new ArrayList<>();
+      int start = 0;
+      while (start < hits.length) {
+        LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(hits[start].doc, leaves));
+        int endDoc = leaf.docBase + leaf.reader().maxDoc();
+        int end = start + 1;
+        while (end < hits.length && hits[end].doc < endDoc) {
+          end++;
+        }
+        final int from = start;
+        final int to = end;
+        tasks.add(
+            () -> {
+              rescoreLeaf(weight, leaf, hits, from, to);
+              return null;
+            });
+        start = end;
+      }
+      execute(searcher, tasks);
+
+      Arrays.sort(
+          hits,
+          (a, b) -> {
+            int cmp = Float.compare(b.score, a.score);
+            return cmp != 0 ? cmp : a.doc - b.doc;
+          });
+      ScoreDoc[] topHits = topN < hits.length ? ArrayUtil.copyOfSubArray(hits, 0, topN) : hits;
+      return new TopDocs(firstPassTopDocs.totalHits, topHits);
+    }
+
+    /** Scores the hits of a segment, which are sorted by docid, in a single forward pass. */
+    private void rescoreLeaf(
+        Weight weight, LeafReaderContext leaf, ScoreDoc[] hits, int from, int to)
+        throws IOException {
+      ScorerSupplier supplier = weight.scorerSupplier(leaf);
+      // only the hits are visited, which lets the scorer choose a cheaper way to iterate
+      Scorer scorer = supplier == null ? null : supplier.get(to - from);
+      DocIdSetIterator iterator = scorer == null ? null : scorer.iterator();
+      for (int i = from; i < to; i++) {
+        ScoreDoc hit = hits[i];
+        int target = hit.doc - leaf.docBase;
+        boolean matches = false;
+        if (iterator != null) {
+          int doc = iterator.docID();
+          if (doc < target) {
+            doc = iterator.advance(target);
+          }
+          matches = doc == target;
+        }
+        hit.score = combine(hit.score, matches, matches ? scorer.score() : 0.0f);
+      }
+    }
+
+    private void execute(IndexSearcher searcher, List<Callable<Void>> tasks) throws IOException {
+      Executor executor =
+          searcher instanceof SolrIndexSearcher
+              ? ((SolrIndexSearcher) searcher)
+                  .getCore()
+                  .getCoreContainer()
+                  .getUpdateShardHandler()
+                  .getUpdateExecutor()
+              : null;
+      ParallelTasks.run(executor, threads, tasks, "Error while re-ranking");
+    }
   }
 
   private static final class ReRankQuery extends AbstractReRankQuery {
     private final Query reRankQuery;
     private final double reRankWeight;
     private final ReRankOperator reRankOperator;
+    private final int reRankThreads;
 
     @Override
     public int hashCode() {
@@ -150,14 +259,19 @@ public class ReRankQParserPlugin extends QParserPlugin {
     }
 
     public ReRankQuery(
-        Query reRankQuery, int reRankDocs, double reRankWeight, ReRankOperator reRankOperator) {
+        Query reRankQuery,
+        int reRankDocs,
+        double reRankWeight,
+        ReRankOperator reRankOperator,
+        int reRankThreads) {
       super(
           defaultQuery,
           reRankDocs,
-          new ReRankQueryRescorer(reRankQuery, reRankWeight, reRankOperator));
+          new ReRankQueryRescorer(reRankQuery, reRankWeight, reRankOperator, reRankThreads));
       this.reRankQuery = reRankQuery;
       this.reRankWeight = reRankWeight;
       this.reRankOperator = reRankOperator;
+      this.reRankThreads = reRankThreads;
     }
 
     @Override
@@ -169,13 +283,14 @@ public class ReRankQParserPlugin extends QParserPlugin {
       sb.append(RERANK_QUERY).append("='").append(reRankQuery.toString()).append("' ");
       sb.append(RERANK_DOCS).append('=').append(reRankDocs).append(' ');
       sb.append(RERANK_WEIGHT).append('=').append(reRankWeight).append(' ');
-      sb.append(RERANK_OPERATOR).append('=').append(reRankOperator.toLower()).append('}');
+      sb.append(RERANK_OPERATOR).append('=').append(reRankOperator.toLower()).append(' ');
+      sb.append(RERANK_THREADS).append('=').append(reRankThreads).append('}');
       return sb.toString();
     }
 
     @Override
     protected Query rewrite(Query rewrittenMainQuery) throws IOException {
-      return new ReRankQuery(reRankQuery, reRankDocs, reRankWeight, reRankOperator)
+      return new ReRankQuery(reRankQuery, reRankDocs, reRankWeight, reRankOperator, reRankThreads)
           .wrap(rewrittenMainQuery);
     }
   }
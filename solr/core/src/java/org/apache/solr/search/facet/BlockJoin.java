@@ -17,10 +17,11 @@
 package org.apache.solr.search.facet;
 
 import java.io.IOException;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.DocIdSetIterator;
-import org.apache.lucene.util.FixedBitSet;
-import org.apache.solr.search.BitDocSet;
-import org.apache.solr.search.DocIterator;
+import org.apache.lucene.search.join.BitSetProducer;
+import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.Bits;
 import org.apache.solr.search.DocSet;
 import org.apache.solr.search.DocSetCollector;
 import org.apache.solr.search.QueryContext;
@@ -34,24 +35,39 @@ public class BlockJoin {
    * acceptDocs will normally be used to avoid deleted documents from being generated as part of the
    * answer DocSet (just use *:*) although it can be used to further constrain the generated
    * documents.
+   *
+   * <p>The parents are read from the per segment bit sets of parentList, which are cached across
+   * requests when it comes from {@link
+   * org.apache.solr.search.join.BlockJoinParentQParser#getCachedBitSetProducer}.
    */
   public static DocSet toChildren(
-      DocSet parentInput, BitDocSet parentList, DocSet acceptDocs, QueryContext qcontext)
+      DocSet parentInput, BitSetProducer parentList, DocSet acceptDocs, QueryContext qcontext)
       throws IOException {
-    FixedBitSet parentBits = parentList.getBits();
     DocSetCollector collector = new DocSetCollector(qcontext.searcher().maxDoc());
-    DocIterator iter = parentInput.iterator();
-    while (iter.hasNext()) {
-      int parentDoc = iter.nextDoc();
-      // test for parentDoc==0 here to avoid passing -1 to prevSetBit later on not a parent, or
-      // parent has no children
-      if (!parentList.exists(parentDoc) || parentDoc == 0) {
+    for (LeafReaderContext context : qcontext.searcher().getTopReaderContext().leaves()) {
+      DocIdSetIterator parents = parentInput.iterator(context);
+      if (parents == null) {
         continue;
       }
-      int prevParent = parentBits.prevSetBit(parentDoc - 1);
-      for (int childDoc = prevParent + 1; childDoc < parentDoc; childDoc++) {
-        if (acceptDocs != null && !acceptDocs.exists(childDoc)) continue; // only select live docs
-        collector.collect(childDoc);
+      BitSet parentBits = parentList.getBitSet(context);
+      if (parentBits == null) {
+        continue;
+      }
+      int docBase = context.docBase;
+      for (int parentDoc = parents.nextDoc();
+          parentDoc != DocIdSetIterator.NO_MORE_DOCS;
+          parentDoc = parents.nextDoc()) {
+        // test for parentDoc==0 here to avoid passing -1 to prevSetBit later on not a parent, or
+        // parent has no children
+        if (parentDoc == 0 || !parentBits.get(parentDoc)) {
+          continue;
+        }
+        int prevParent = parentBits.prevSetBit(parentDoc - 1);
+        for (int childDoc = prevParent + 1; childDoc < parentDoc; childDoc++) {
+          // only select live docs
+          if (acceptDocs != null && !acceptDocs.exists(docBase + childDoc)) continue;
+          collector.collect(docBase + childDoc);
+        }
       }
     }
     return collector.getDocSet();
@@ -60,22 +76,36 @@ public class BlockJoin {
   /**
    * childInput may also contain parents (i.e. a parent or below will all roll up to that parent)
    */
-  public static DocSet toParents(DocSet childInput, BitDocSet parentList, QueryContext qcontext)
-      throws IOException {
-    FixedBitSet parentBits = parentList.getBits();
+  public static DocSet toParents(
+      DocSet childInput, BitSetProducer parentList, QueryContext qcontext) throws IOException {
     DocSetCollector collector = new DocSetCollector(qcontext.searcher().maxDoc());
-    DocIterator iter = childInput.iterator();
-    int currentParent = -1;
-    while (iter.hasNext()) {
-      int childDoc = iter.nextDoc(); // TODO: skipping
-      if (childDoc <= currentParent) { // use <= since we also allow parents in the input
-        // we already visited this parent
+    for (LeafReaderContext context : qcontext.searcher().getTopReaderContext().leaves()) {
+      DocIdSetIterator children = childInput.iterator(context);
+      if (children == null) {
+        continue;
+      }
+      BitSet parentBits = parentList.getBitSet(context);
+      if (parentBits == null) {
         continue;
       }
-      currentParent = parentBits.nextSetBit(childDoc);
-      if (currentParent != DocIdSetIterator.NO_MORE_DOCS) {
+      // the cached parents include deleted docs
+      Bits liveDocs = context.reader().getLiveDocs();
+      int currentParent = -1;
+      for (int childDoc = children.nextDoc();
+          childDoc != DocIdSetIterator.NO_MORE_DOCS;
+          childDoc = children.nextDoc()) {
+        if (childDoc <= currentParent) { // use <= since we also allow parents in the input
+          // we already visited this parent
+          continue;
+        }
+        currentParent = parentBits.nextSetBit(childDoc);
+        if (currentParent == DocIdSetIterator.NO_MORE_DOCS) {
+          break;
+        }
         // only collect the parent the first time we skip to it
-        collector.collect(currentParent);
+        if (liveDocs == null || liveDocs.get(currentParent)) {
+          collector.collect(context.docBase + currentParent);
+        }
       }
     }
     return collector.getDocSet();
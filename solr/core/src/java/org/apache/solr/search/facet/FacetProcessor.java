@@ -28,13 +28,13 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.join.BitSetProducer;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.handler.component.ResponseBuilder;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.SolrRequestInfo;
 import org.apache.solr.schema.SchemaField;
-import org.apache.solr.search.BitDocSet;
 import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocSet;
 import org.apache.solr.search.QParser;
@@ -42,6 +42,7 @@ import org.apache.solr.search.QueryUtils;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SyntaxError;
 import org.apache.solr.search.facet.SlotAcc.SlotContext;
+import org.apache.solr.search.join.BlockJoinParentQParser;
 
 /** Base abstraction for a class that computes facets. This is fairly internal to the module. */
 public abstract class FacetProcessor<T extends FacetRequest> {
@@ -267,7 +268,9 @@ public abstract class FacetProcessor<T extends FacetRequest> {
           "Error parsing block join parent specification: " + parentStr);
     }
 
-    BitDocSet parents = fcontext.searcher.getDocSetBits(parentQuery);
+    // the per segment parents are shared with the block join queries, and built once per segment
+    BitSetProducer parents =
+        BlockJoinParentQParser.getCachedBitSetProducer(fcontext.req, parentQuery);
     DocSet input = fcontext.base;
     DocSet result;
 
@@ -17,10 +17,48 @@
 package org.apache.solr.search.facet;
 
 import java.io.IOException;
+import java.util.function.IntFunction;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.join.BlockJoinParentQParser;
+import org.apache.solr.search.join.RootBlockBitSetProducer;
 
 public class UniqueBlockFieldAgg extends UniqueBlockAgg {
 
+  /**
+   * Counts the blocks by the root of each collected doc, from the blocks of the {@value
+   * IndexSchema#ROOT_FIELD_NAME} field that are cached per segment, instead of reading its values.
+   */
+  private static final class UniqueRootBlockSlotAcc extends UniqueBlockSlotAcc {
+
+    private final RootBlockBitSetProducer rootBlocks;
+    private RootBlockBitSetProducer.Blocks blocks;
+    private int docBase;
+
+    private UniqueRootBlockSlotAcc(FacetContext fcontext, int numSlots) throws IOException {
+      super(fcontext, null, numSlots);
+      this.rootBlocks = BlockJoinParentQParser.getCachedRootBlockProducer(fcontext.req);
+    }
+
+    @Override
+    public void setNextReader(LeafReaderContext readerContext) throws IOException {
+      this.blocks = rootBlocks.getBlocks(readerContext);
+      this.docBase = readerContext.docBase;
+    }
+
+    @Override
+    public void collect(int doc, int slotNum, IntFunction<SlotContext> slotContext) {
+      if (blocks != null) {
+        int root = blocks.rootOf(doc);
+        if (root != DocIdSetIterator.NO_MORE_DOCS) {
+          collectOrdToSlot(slotNum, docBase + root);
+        }
+      }
+    }
+  }
+
   public UniqueBlockFieldAgg(String field) {
     super(field);
   }
@@ -37,6 +75,8 @@ public class UniqueBlockFieldAgg extends UniqueBlockAgg {
       if (sf.getType().getNumberType() != null) {
         throw new IllegalArgumentException(
             name + "(" + fieldName + ") not yet support numbers " + sf);
+      } else if (IndexSchema.ROOT_FIELD_NAME.equals(fieldName)) {
+        return new UniqueRootBlockSlotAcc(fcontext, numSlots);
       } else {
         return new UniqueBlockSlotAcc(fcontext, sf, numSlots);
       }
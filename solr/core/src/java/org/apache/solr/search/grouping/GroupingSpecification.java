@@ -34,6 +34,7 @@ public class GroupingSpecification {
   private boolean includeGroupCount;
   private boolean main;
   private Grouping.Format responseFormat;
+  private Grouping.Method method = Grouping.Method.twopass;
   private boolean needScore;
   private boolean truncateGroups;
 
@@ -97,6 +98,14 @@ public class GroupingSpecification {
     this.responseFormat = responseFormat;
   }
 
+  public Grouping.Method getMethod() {
+    return method;
+  }
+
+  public void setMethod(Grouping.Method method) {
+    this.method = method;
+  }
+
   public boolean isNeedScore() {
     return needScore;
   }
@@ -0,0 +1,352 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.grouping.collector;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.grouping.GroupDocs;
+import org.apache.lucene.search.grouping.TopGroups;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntroSorter;
+import org.apache.lucene.util.LongValues;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.StrField;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.IntIntDynamicMap;
+
+/**
+ * Groups the documents by the global ordinal of a single valued string field with docValues, in a
+ * single pass. Each group that has a match gets a slot, with its hit count, its best document and
+ * a bounded heap of its top documents kept in primitive arrays. The top groups, their documents and
+ * the number of groups are then all known after the search, without the second search of the
+ * {@link org.apache.lucene.search.grouping.FirstPassGroupingCollector} and {@link
+ * org.apache.lucene.search.grouping.TopGroupsCollector}, nor the {@link
+ * org.apache.lucene.search.grouping.AllGroupsCollector}.
+ *
+ * <p>Only groups and documents sorted by score are supported, see {@link #supports}.
+ *
+ * @lucene.experimental
+ */
+public class OrdGroupingCollector extends SimpleCollector {
+
+  private static final int INITIAL_HEAP_SIZE = 4;
+
+  private final String field;
+  private final int maxDocsPerGroup;
+  private final SortedDocValues topLevelValues; // for the group values
+  private final OrdinalMap ordinalMap;
+  private final IntIntDynamicMap ordSlots; // global ord + 1 (0 is the null group) -> slot
+
+  private int docBase;
+  private SortedDocValues segmentValues;
+  private LongValues segmentOrdinalMap;
+  private Scorable scorer;
+
+  private int matches;
+  private int numSlots;
+  private int[] slotOrds = new int[16]; // -1 is the null group
+  private int[] slotHits = new int[16];
+  private float[] slotMaxScores = new float[16];
+  private int[] slotTopDocs = new int[16];
+  // min heaps of the top documents of each slot, the worst document first
+  private float[][] heapScores = new float[16][];
+  private int[][] heapDocs = new int[16][];
+
+  /**
+   * @param maxDocsPerGroup the number of documents to keep for each group
+   */
+  public OrdGroupingCollector(SolrIndexSearcher searcher, String field, int maxDocsPerGroup)
+      throws IOException {
+    this.field = field;
+    this.maxDocsPerGroup = Math.max(1, maxDocsPerGroup);
+    this.topLevelValues = DocValues.getSorted(searcher.getSlowAtomicReader(), field);
+    this.ordinalMap =
+        topLevelValues instanceof MultiDocValues.MultiSortedDocValues
+            ? ((MultiDocValues.MultiSortedDocValues) topLevelValues).mapping
+            : null;
+    this.ordSlots = new IntIntDynamicMap(topLevelValues.getValueCount() + 1, -1);
+  }
+
+  /**
+   * Returns true if the groups of the given field can be collected by ords, that is if the field is
+   * a single valued string field with docValues and both the groups and the documents within the
+   * groups are sorted by score.
+   *
+   * @param groupSort the sort of the groups, null meaning by score
+   * @param withinGroupSort the sort of the documents within each group, null meaning by score
+   */
+  public static boolean supports(SchemaField field, Sort groupSort, Sort withinGroupSort) {
+    return field.getType() instanceof StrField
+        && field.hasDocValues()
+        && !field.multiValued()
+        && (groupSort == null || groupSort.equals(Sort.RELEVANCE))
+        && (withinGroupSort == null || withinGroupSort.equals(Sort.RELEVANCE));
+  }
+
+  @Override
+  public ScoreMode scoreMode() {
+    return ScoreMode.COMPLETE;
+  }
+
+  @Override
+  public void setScorer(Scorable scorer) throws IOException {
+    this.scorer = scorer;
+  }
+
+  @Override
+  protected void doSetNextReader(LeafReaderContext context) throws IOException {
+    docBase = context.docBase;
+    segmentValues = DocValues.getSorted(context.reader(), field);
+    segmentOrdinalMap = ordinalMap == null ? null : ordinalMap.getGlobalOrds(context.ord);
+  }
+
+  @Override
+  public void collect(int doc) throws IOException {
+    int ord = -1;
+    if (segmentValues.advanceExact(doc)) {
+      ord = segmentValues.ordValue();
+      if (segmentOrdinalMap != null) {
+        ord = (int) segmentOrdinalMap.get(ord);
+      }
+    }
+    int slot = ordSlots.get(ord + 1);
+    if (slot == -1) {
+      slot = newSlot(ord);
+      ordSlots.put(ord + 1, slot);
+    }
+
+    matches++;
+    int globalDoc = docBase + doc;
+    float score = scorer.score();
+    if (slotHits[slot]++ == 0 || score > slotMaxScores[slot]) {
+      // documents come in order, so an equal score doesn't replace the best document
+      slotMaxScores[slot] = score;
+      slotTopDocs[slot] = globalDoc;
+    }
+    offer(slot, score, globalDoc);
+  }
+
+  private int newSlot(int ord) {
+    int slot = numSlots++;
+    if (slot == slotOrds.length) {
+      int size = ArrayUtil.oversize(slot + 1, Integer.BYTES);
+      slotOrds = ArrayUtil.growExact(slotOrds, size);
+      slotHits = ArrayUtil.growExact(slotHits, size);
+      slotMaxScores = ArrayUtil.growExact(slotMaxScores, size);
+      slotTopDocs = ArrayUtil.growExact(slotTopDocs, size);
+      heapScores = ArrayUtil.growExact(heapScores, size);
+      heapDocs = ArrayUtil.growExact(heapDocs, size);
+    }
+    slotOrds[slot] = ord;
+    int heapSize = Math.min(INITIAL_HEAP_SIZE, maxDocsPerGroup);
+    heapScores[slot] = new float[heapSize];
+    heapDocs[slot] = new int[heapSize];
+    return slot;
+  }
+
+  /** Adds the document to the top documents of the slot, if it is competitive. */
+  private void offer(int slot, float score, int doc) {
+    int size = Math.min(slotHits[slot] - 1, maxDocsPerGroup); // before this document
+    float[] scores = heapScores[slot];
+    int[] docs = heapDocs[slot];
+    if (size < maxDocsPerGroup) {
+      if (size == scores.length) {
+        int newLength = Math.min(ArrayUtil.oversize(size + 1, Integer.BYTES), maxDocsPerGroup);
+        heapScores[slot] = scores = ArrayUtil.growExact(scores, newLength);
+        heapDocs[slot] = docs = ArrayUtil.growExact(docs, newLength);
+      }
+      scores[size] = score;
+      docs[size] = doc;
+      upHeap(scores, docs, size);
+    } else if (score > scores[0]) {
+      scores[0] = score;
+      docs[0] = doc;
+      downHeap(scores, docs, size);
+    }
+  }
+
+  private static boolean lessThan(float scoreA, int docA, float scoreB, int docB) {
+    return scoreA < scoreB || (scoreA == scoreB && docA > docB);
+  }
+
+  private static void upHeap(float[] scores, int[] docs, int i) {
+    float score = scores[i];
+    int doc = docs[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!lessThan(score, doc, scores[parent], docs[parent])) {
+        break;
+      }
+      scores[i] = scores[parent];
+      docs[i] = docs[parent];
+      i = parent;
+    }
+    scores[i] = score;
+    docs[i] = doc;
+  }
+
+  private static void downHeap(float[] scores, int[] docs, int size) {
+    int i = 0;
+    float score = scores[0];
+    int doc = docs[0];
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size
+          && lessThan(scores[child + 1], docs[child + 1], scores[child], docs[child])) {
+        child++;
+      }
+      if (!lessThan(scores[child], docs[child], score, doc)) {
+        break;
+      }
+      scores[i] = scores[child];
+      docs[i] = docs[child];
+      i = child;
+    }
+    scores[i] = score;
+    docs[i] = doc;
+  }
+
+  /** Returns the number of collected documents. */
+  public int getMatches() {
+    return matches;
+  }
+
+  /** Returns the number of groups with at least one match, including the null group. */
+  public int getGroupCount() {
+    return numSlots;
+  }
+
+  /**
+   * Returns the top groups, sorted by their best score, with their top documents sorted by score.
+   *
+   * @param groupOffset the number of top groups to skip
+   * @param topNGroups the number of top groups, including the skipped ones
+   * @param needMaxScore whether to set the max score of the groups
+   * @param totalGroupCount the number of groups to report, or null
+   */
+  @SuppressWarnings("unchecked")
+  public TopGroups<BytesRef> getTopGroups(
+      int groupOffset,
+      int topNGroups,
+      Sort groupSort,
+      Sort withinGroupSort,
+      boolean needMaxScore,
+      Integer totalGroupCount)
+      throws IOException {
+    int[] slots = new int[numSlots];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = i;
+    }
+    new IntroSorter() {
+      int pivot;
+
+      @Override
+      protected void swap(int i, int j) {
+        int tmp = slots[i];
+        slots[i] = slots[j];
+        slots[j] = tmp;
+      }
+
+      @Override
+      protected void setPivot(int i) {
+        pivot = slots[i];
+      }
+
+      @Override
+      protected int comparePivot(int j) {
+        return compareSlots(pivot, slots[j]);
+      }
+
+      @Override
+      protected int compare(int i, int j) {
+        return compareSlots(slots[i], slots[j]);
+      }
+    }.sort(0, slots.length);
+
+    int end = Math.min(topNGroups, slots.length);
+    int start = Math.min(groupOffset, end);
+    GroupDocs<BytesRef>[] groups =
+        (GroupDocs<BytesRef>[]) Array.newInstance(GroupDocs.class, end - start);
+    int totalGroupedHitCount = 0;
+    float maxScore = Float.NaN;
+    for (int i = start; i < end; i++) {
+      int slot = slots[i];
+      totalGroupedHitCount += slotHits[slot];
+      float groupMaxScore = needMaxScore ? slotMaxScores[slot] : Float.NaN;
+      if (needMaxScore && (Float.isNaN(maxScore) || groupMaxScore > maxScore)) {
+        maxScore = groupMaxScore;
+      }
+      int ord = slotOrds[slot];
+      BytesRef groupValue =
+          ord == -1 ? null : BytesRef.deepCopyOf(topLevelValues.lookupOrd(ord));
+      groups[i - start] =
+          new GroupDocs<>(
+              Float.NaN,
+              groupMaxScore,
+              new TotalHits(slotHits[slot], TotalHits.Relation.EQUAL_TO),
+              topDocs(slot),
+              groupValue,
+              new Object[] {slotMaxScores[slot]});
+    }
+
+    TopGroups<BytesRef> topGroups =
+        new TopGroups<>(
+            groupSort == null ? Sort.RELEVANCE.getSort() : groupSort.getSort(),
+            withinGroupSort == null ? Sort.RELEVANCE.getSort() : withinGroupSort.getSort(),
+            matches,
+            totalGroupedHitCount,
+            groups,
+            maxScore);
+    return totalGroupCount == null ? topGroups : new TopGroups<>(topGroups, totalGroupCount);
+  }
+
+  /** Sorts the groups by their best score, then by their best document. */
+  private int compareSlots(int slotA, int slotB) {
+    int cmp = Float.compare(slotMaxScores[slotB], slotMaxScores[slotA]);
+    return cmp != 0 ? cmp : Integer.compare(slotTopDocs[slotA], slotTopDocs[slotB]);
+  }
+
+  /** Returns the top documents of the slot, best first. */
+  private ScoreDoc[] topDocs(int slot) {
+    int size = Math.min(slotHits[slot], maxDocsPerGroup);
+    float[] scores = ArrayUtil.copyOfSubArray(heapScores[slot], 0, size);
+    int[] docs = ArrayUtil.copyOfSubArray(heapDocs[slot], 0, size);
+    ScoreDoc[] scoreDocs = new ScoreDoc[size];
+    for (int i = size - 1; i >= 0; i--) {
+      scoreDocs[i] = new ScoreDoc(docs[0], scores[0]);
+      scores[0] = scores[i];
+      docs[0] = docs[i];
+      downHeap(scores, docs, i);
+    }
+    return scoreDocs;
+  }
+}
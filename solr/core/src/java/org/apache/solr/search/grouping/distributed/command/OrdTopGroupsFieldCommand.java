@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.grouping.distributed.command;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.grouping.TopGroups;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.search.grouping.Command;
+import org.apache.solr.search.grouping.collector.OrdGroupingCollector;
+
+/**
+ * Retrieves the top groups of a shard with their documents in a single pass, see {@link
+ * OrdGroupingCollector}. It replaces both the {@link SearchGroupsFieldCommand} and the {@link
+ * TopGroupsFieldCommand}, so the shards are only queried once.
+ */
+public class OrdTopGroupsFieldCommand implements Command<TopGroups<BytesRef>> {
+
+  public static class Builder {
+
+    private SolrIndexSearcher searcher;
+    private SchemaField field;
+    private Sort groupSort;
+    private Sort withinGroupSort;
+    private Integer topNGroups;
+    private Integer maxDocPerGroup;
+    private boolean includeGroupCount = false;
+
+    public Builder setSearcher(SolrIndexSearcher searcher) {
+      this.searcher = searcher;
+      return this;
+    }
+
+    public Builder setField(SchemaField field) {
+      this.field = field;
+      return this;
+    }
+
+    public Builder setGroupSort(Sort groupSort) {
+      this.groupSort = groupSort;
+      return this;
+    }
+
+    public Builder setSortWithinGroup(Sort withinGroupSort) {
+      this.withinGroupSort = withinGroupSort;
+      return this;
+    }
+
+    public Builder setTopNGroups(int topNGroups) {
+      this.topNGroups = topNGroups;
+      return this;
+    }
+
+    public Builder setMaxDocPerGroup(int maxDocPerGroup) {
+      this.maxDocPerGroup = maxDocPerGroup;
+      return this;
+    }
+
+    public Builder setIncludeGroupCount(boolean includeGroupCount) {
+      this.includeGroupCount = includeGroupCount;
+      return this;
+    }
+
+    public OrdTopGroupsFieldCommand build() {
+      if (searcher == null
+          || field == null
+          || groupSort == null
+          || withinGroupSort == null
+          || topNGroups == null
+          || maxDocPerGroup == null) {
+        throw new IllegalStateException("All required fields must be set");
+      }
+
+      return new OrdTopGroupsFieldCommand(
+          searcher,
+          field,
+          groupSort,
+          withinGroupSort,
+          topNGroups,
+          maxDocPerGroup,
+          includeGroupCount);
+    }
+  }
+
+  private final SolrIndexSearcher searcher;
+  private final SchemaField field;
+  private final Sort groupSort;
+  private final Sort withinGroupSort;
+  private final int topNGroups;
+  private final int maxDocPerGroup;
+  private final boolean includeGroupCount;
+  private OrdGroupingCollector collector;
+  private TopGroups<BytesRef> topGroups;
+
+  private OrdTopGroupsFieldCommand(
+      SolrIndexSearcher searcher,
+      SchemaField field,
+      Sort groupSort,
+      Sort withinGroupSort,
+      int topNGroups,
+      int maxDocPerGroup,
+      boolean includeGroupCount) {
+    this.searcher = searcher;
+    this.field = field;
+    this.groupSort = groupSort;
+    this.withinGroupSort = withinGroupSort;
+    this.topNGroups = topNGroups;
+    this.maxDocPerGroup = maxDocPerGroup;
+    this.includeGroupCount = includeGroupCount;
+  }
+
+  @Override
+  public List<Collector> create() throws IOException {
+    collector = new OrdGroupingCollector(searcher, field.getName(), maxDocPerGroup);
+    return Collections.singletonList(collector);
+  }
+
+  @Override
+  public void postCollect(IndexSearcher searcher) throws IOException {
+    // the group max score is always needed to merge the groups of the shards
+    topGroups =
+        collector.getTopGroups(
+            0,
+            topNGroups,
+            groupSort,
+            withinGroupSort,
+            true,
+            includeGroupCount ? collector.getGroupCount() : null);
+  }
+
+  @Override
+  public TopGroups<BytesRef> result() throws IOException {
+    return topGroups;
+  }
+
+  @Override
+  public String getKey() {
+    return field.getName();
+  }
+
+  @Override
+  public Sort getGroupSort() {
+    return groupSort;
+  }
+
+  @Override
+  public Sort getWithinGroupSort() {
+    return withinGroupSort;
+  }
+}
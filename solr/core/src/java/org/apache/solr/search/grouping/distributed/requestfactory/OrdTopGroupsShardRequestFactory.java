@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.grouping.distributed.requestfactory;
+
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.GroupParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.handler.component.ResponseBuilder;
+import org.apache.solr.handler.component.ShardRequest;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.search.Grouping;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.search.grouping.distributed.ShardRequestFactory;
+
+/**
+ * Concrete implementation of {@link ShardRequestFactory} that creates {@link ShardRequest}
+ * instances for getting the top groups and their documents from all shards in a single request,
+ * when grouping by the {@link Grouping.Method#ords} method. It replaces the requests of both the
+ * {@link SearchGroupsRequestFactory} and the {@link TopGroupsShardRequestFactory}.
+ */
+public class OrdTopGroupsShardRequestFactory implements ShardRequestFactory {
+
+  @Override
+  public ShardRequest[] constructRequest(ResponseBuilder rb) {
+    ShardRequest sreq = new ShardRequest();
+    sreq.shards = ShardRequest.ALL_SHARDS;
+    // both the search groups and the top groups are retrieved by this request
+    sreq.purpose = ShardRequest.PURPOSE_GET_TOP_GROUPS | ShardRequest.PURPOSE_GET_TOP_IDS;
+    sreq.params = new ModifiableSolrParams(rb.req.getParams());
+
+    // If group.format=simple group.offset doesn't make sense
+    Grouping.Format responseFormat = rb.getGroupingSpec().getResponseFormat();
+    if (responseFormat == Grouping.Format.simple || rb.getGroupingSpec().isMain()) {
+      sreq.params.remove(GroupParams.GROUP_OFFSET);
+    }
+
+    sreq.params.remove(ShardParams.SHARDS);
+
+    // set the start (offset) to 0 for each shard request so we can properly merge
+    // results from the start.
+    if (rb.shards_start > -1) {
+      // if the client set shards.start set this explicitly
+      sreq.params.set(CommonParams.START, rb.shards_start);
+    } else {
+      sreq.params.set(CommonParams.START, "0");
+    }
+    if (rb.shards_rows > -1) {
+      // if the client set shards.rows set this explicitly
+      sreq.params.set(CommonParams.ROWS, rb.shards_rows);
+    } else {
+      sreq.params.set(
+          CommonParams.ROWS, rb.getSortSpec().getOffset() + rb.getSortSpec().getCount());
+    }
+
+    sreq.params.set(GroupParams.GROUP_DISTRIBUTED_SINGLE, "true");
+
+    final IndexSchema schema = rb.req.getSearcher().getSchema();
+    if ((rb.getFieldFlags() & SolrIndexSearcher.GET_SCORES) != 0
+        || rb.getSortSpec().includesScore()) {
+      sreq.params.set(CommonParams.FL, schema.getUniqueKeyField().getName() + ",score");
+    } else {
+      sreq.params.set(CommonParams.FL, schema.getUniqueKeyField().getName());
+    }
+
+    return new ShardRequest[] {sreq};
+  }
+}
@@ -20,17 +20,21 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.grouping.GroupDocs;
 import org.apache.lucene.search.grouping.TopGroups;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.params.GroupParams;
 import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
@@ -71,6 +75,8 @@ public class TopGroupsShardResponseProcessor implements ShardResponseProcessor {
       groupOffsetDefault = withinGroupSortSpec.getOffset();
     }
     int docsPerGroupDefault = withinGroupSortSpec.getCount();
+    boolean ordsGrouping =
+        shardRequest.params.getBool(GroupParams.GROUP_DISTRIBUTED_SINGLE, false);
 
     Map<String, List<TopGroups<BytesRef>>> commandTopGroups = new HashMap<>();
     for (String field : fields) {
@@ -173,6 +179,24 @@ public class TopGroupsShardResponseProcessor implements ShardResponseProcessor {
           docsPerGroup += subTopGroups.totalGroupedHitCount;
         }
       }
+      if (ordsGrouping) {
+        // there was no first phase to count the hits and the groups
+        TopGroups<BytesRef> merged =
+            mergeOrdTopGroups(
+                topGroups,
+                groupSort,
+                withinGroupSort,
+                rb.getGroupingSpec().getGroupSortSpec(),
+                groupOffsetDefault,
+                docsPerGroup,
+                rb.getGroupingSpec().isNeedScore());
+        rb.totalHitCount = merged.totalHitCount;
+        if (merged.totalGroupCount != null) {
+          rb.mergedGroupCounts.put(entry.getKey(), merged.totalGroupCount);
+        }
+        rb.mergedTopGroups.put(entry.getKey(), merged);
+        continue;
+      }
       rb.mergedTopGroups.put(
           entry.getKey(),
           TopGroups.merge(
@@ -225,6 +249,98 @@ public class TopGroupsShardResponseProcessor implements ShardResponseProcessor {
     fillResultIds(rb);
   }
 
+  /**
+   * Merges the top groups that the shards retrieved in a single request, see {@link
+   * org.apache.solr.search.grouping.distributed.requestfactory.OrdTopGroupsShardRequestFactory}.
+   * Unlike {@link TopGroups#merge}, the shards return their own top groups, which are sorted by
+   * their max score. Like the group counts, the documents and the hit counts of a group are only
+   * accurate if all the documents of the group are on the same shard.
+   */
+  @SuppressWarnings("unchecked")
+  static TopGroups<BytesRef> mergeOrdTopGroups(
+      List<TopGroups<BytesRef>> shardTopGroups,
+      Sort groupSort,
+      Sort withinGroupSort,
+      SortSpec groupSortSpec,
+      int docOffset,
+      int docsPerGroup,
+      boolean needMaxScore) {
+    int totalHitCount = 0;
+    Integer totalGroupCount = 0;
+    Map<BytesRef, List<GroupDocs<BytesRef>>> groupsByValue = new LinkedHashMap<>();
+    for (TopGroups<BytesRef> topGroups : shardTopGroups) {
+      totalHitCount += topGroups.totalHitCount;
+      if (totalGroupCount != null && topGroups.totalGroupCount != null) {
+        totalGroupCount += topGroups.totalGroupCount;
+      } else {
+        totalGroupCount = null;
+      }
+      for (GroupDocs<BytesRef> group : topGroups.groups) {
+        groupsByValue.computeIfAbsent(group.groupValue, k -> new ArrayList<>()).add(group);
+      }
+    }
+
+    List<GroupDocs<BytesRef>> mergedGroups = new ArrayList<>(groupsByValue.size());
+    for (Map.Entry<BytesRef, List<GroupDocs<BytesRef>>> entry : groupsByValue.entrySet()) {
+      long totalHits = 0;
+      float maxScore = Float.NaN;
+      List<ScoreDoc> scoreDocs = new ArrayList<>();
+      for (GroupDocs<BytesRef> group : entry.getValue()) {
+        totalHits += group.totalHits.value;
+        if (Float.isNaN(maxScore) || group.maxScore > maxScore) {
+          maxScore = group.maxScore;
+        }
+        scoreDocs.addAll(Arrays.asList(group.scoreDocs));
+      }
+      // stable, so documents with the same score stay in shard order
+      scoreDocs.sort((a, b) -> Float.compare(b.score, a.score));
+      int end = docsPerGroup < 0 ? scoreDocs.size() : docOffset + docsPerGroup;
+      end = Math.min(end, scoreDocs.size());
+      int start = Math.min(docOffset, end);
+      mergedGroups.add(
+          new GroupDocs<>(
+              Float.NaN,
+              maxScore,
+              new TotalHits(totalHits, TotalHits.Relation.EQUAL_TO),
+              scoreDocs.subList(start, end).toArray(new ScoreDoc[0]),
+              entry.getKey(),
+              null));
+    }
+    mergedGroups.sort((a, b) -> Float.compare(b.maxScore, a.maxScore));
+
+    int count = groupSortSpec.getCount();
+    int end = count < 0 ? mergedGroups.size() : groupSortSpec.getOffset() + count;
+    end = Math.min(end, mergedGroups.size());
+    int start = Math.min(groupSortSpec.getOffset(), end);
+    GroupDocs<BytesRef>[] groups =
+        (GroupDocs<BytesRef>[]) Array.newInstance(GroupDocs.class, end - start);
+    int totalGroupedHitCount = 0;
+    for (int i = start; i < end; i++) {
+      GroupDocs<BytesRef> group = mergedGroups.get(i);
+      totalGroupedHitCount += (int) group.totalHits.value;
+      groups[i - start] =
+          needMaxScore
+              ? group
+              : new GroupDocs<>(
+                  Float.NaN,
+                  Float.NaN,
+                  group.totalHits,
+                  group.scoreDocs,
+                  group.groupValue,
+                  group.groupSortValues);
+    }
+
+    TopGroups<BytesRef> merged =
+        new TopGroups<>(
+            groupSort.getSort(),
+            withinGroupSort.getSort(),
+            totalHitCount,
+            totalGroupedHitCount,
+            groups,
+            Float.NaN);
+    return totalGroupCount == null ? merged : new TopGroups<>(merged, totalGroupCount);
+  }
+
   /**
    * Fill the {@link ResponseBuilder}'s <code>resultIds</code> field.
    *
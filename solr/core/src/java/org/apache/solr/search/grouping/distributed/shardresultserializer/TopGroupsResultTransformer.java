@@ -44,6 +44,7 @@ import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.grouping.Command;
+import org.apache.solr.search.grouping.distributed.command.OrdTopGroupsFieldCommand;
 import org.apache.solr.search.grouping.distributed.command.QueryCommand;
 import org.apache.solr.search.grouping.distributed.command.QueryCommandResult;
 import org.apache.solr.search.grouping.distributed.command.TopGroupsFieldCommand;
@@ -75,6 +76,10 @@ public class TopGroupsResultTransformer
         TopGroupsFieldCommand fieldCommand = (TopGroupsFieldCommand) command;
         SchemaField groupField = schema.getField(fieldCommand.getKey());
         commandResult = serializeTopGroups(fieldCommand.result(), groupField);
+      } else if (command instanceof OrdTopGroupsFieldCommand) {
+        OrdTopGroupsFieldCommand fieldCommand = (OrdTopGroupsFieldCommand) command;
+        SchemaField groupField = schema.getField(fieldCommand.getKey());
+        commandResult = serializeTopGroups(fieldCommand.result(), groupField);
       } else if (command instanceof QueryCommand) {
         QueryCommand queryCommand = (QueryCommand) command;
         commandResult = serializeTopDocs(queryCommand.result());
@@ -127,9 +132,10 @@ public class TopGroupsResultTransformer
       }
 
       Integer totalHitCount = (Integer) commandResult.get("totalHitCount");
+      Integer totalGroupCount = (Integer) commandResult.get("totalGroupCount");
 
       List<GroupDocs<BytesRef>> groupDocs = new ArrayList<>();
-      for (int i = 2; i < commandResult.size(); i++) {
+      for (int i = totalGroupCount == null ? 2 : 3; i < commandResult.size(); i++) {
         String groupValue = commandResult.getName(i);
         @SuppressWarnings("unchecked")
         NamedList<Object> groupResult = (NamedList<Object>) commandResult.getVal(i);
@@ -164,6 +170,9 @@ public class TopGroupsResultTransformer
               totalGroupedHitCount,
               groupDocsArr,
               Float.NaN);
+      if (totalGroupCount != null) {
+        topGroups = new TopGroups<>(topGroups, totalGroupCount);
+      }
 
       result.put(key, topGroups);
     }
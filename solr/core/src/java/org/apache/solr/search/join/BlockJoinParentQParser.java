@@ -104,6 +104,26 @@ public class BlockJoinParentQParser extends FiltersQParser {
     }
   }
 
+  /**
+   * Returns the {@link RootBlockBitSetProducer}, from the same cache as the parent filters so that
+   * the blocks of a segment are only computed once.
+   */
+  public static RootBlockBitSetProducer getCachedRootBlockProducer(final SolrQueryRequest request) {
+    @SuppressWarnings("unchecked")
+    SolrCache<Object, BitSetProducer> parentCache = request.getSearcher().getCache(CACHE_NAME);
+    RootBlockBitSetProducer producer = new RootBlockBitSetProducer();
+    if (parentCache != null) {
+      try {
+        // all the instances are equal, so the producer is its own key
+        return (RootBlockBitSetProducer) parentCache.computeIfAbsent(producer, k -> producer);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e); // Shouldn't happen because creating it doesn't throw
+      }
+    } else {
+      return producer;
+    }
+  }
+
   static final class AllParentsAware extends ToParentBlockJoinQuery {
     private final Query parentQuery;
 
@@ -22,6 +22,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 import org.apache.lucene.search.Query;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.request.SolrQueryRequest;
@@ -39,6 +40,7 @@ public class CrossCollectionJoinQParser extends QParser {
   public static final String TO = "to";
   public static final String ROUTED_BY_JOIN_KEY = "routed";
   public static final String TTL = "ttl";
+  public static final String SEMI_JOIN = "semiJoin";
 
   public static final int TTL_DEFAULT = 60 * 60; // in seconds
 
@@ -53,7 +55,10 @@ public class CrossCollectionJoinQParser extends QParser {
               FROM,
               TO,
               ROUTED_BY_JOIN_KEY,
-              TTL));
+              TTL,
+              SEMI_JOIN,
+              CommonParams.CACHE,
+              CommonParams.COST));
 
   private final String routerField;
   private final Set<String> allowSolrUrls;
@@ -102,6 +107,14 @@ public class CrossCollectionJoinQParser extends QParser {
       }
     }
 
+    if (localParams.getBool(SEMI_JOIN, false)) {
+      if (zkHost != null || solrUrl != null) {
+        throw new SyntaxError("semiJoin is only supported on collections of the local cluster.");
+      }
+      return new CrossCollectionSemiJoinQuery(
+          query, collection, fromField, toField, routedByJoinKey, ttl, otherParams);
+    }
+
     return new CrossCollectionJoinQuery(
         query, zkHost, solrUrl, collection, fromField, toField, routedByJoinKey, ttl, otherParams);
   }
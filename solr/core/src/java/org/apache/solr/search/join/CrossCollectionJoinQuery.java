@@ -106,6 +106,32 @@ public class CrossCollectionJoinQuery extends Query {
     }
   }
 
+  /**
+   * Returns a filter on the documents of the from collection whose join key hashes to the range of
+   * the local shard, or null if the local collection isn't routed by the join key.
+   */
+  protected String createHashRangeFq(SolrIndexSearcher searcher) {
+    if (routedByJoinKey) {
+      ClusterState clusterState =
+          searcher.getCore().getCoreContainer().getZkController().getClusterState();
+      CloudDescriptor desc = searcher.getCore().getCoreDescriptor().getCloudDescriptor();
+      Slice slice =
+          clusterState
+              .getCollection(desc.getCollectionName())
+              .getSlicesMap()
+              .get(desc.getShardId());
+      DocRouter.Range range = slice.getRange();
+
+      // In CompositeIdRouter, the routing prefix only affects the top 16 bits
+      int min = range.min & 0xffff0000;
+      int max = range.max | 0x0000ffff;
+
+      return String.format(Locale.ROOT, "{!hash_range f=%s l=%d u=%d}", fromField, min, max);
+    } else {
+      return null;
+    }
+  }
+
   private interface JoinKeyCollector {
     void collect(Object value) throws IOException;
 
@@ -193,28 +219,6 @@ public class CrossCollectionJoinQuery extends Query {
       this.searcher = searcher;
     }
 
-    private String createHashRangeFq() {
-      if (routedByJoinKey) {
-        ClusterState clusterState =
-            searcher.getCore().getCoreContainer().getZkController().getClusterState();
-        CloudDescriptor desc = searcher.getCore().getCoreDescriptor().getCloudDescriptor();
-        Slice slice =
-            clusterState
-                .getCollection(desc.getCollectionName())
-                .getSlicesMap()
-                .get(desc.getShardId());
-        DocRouter.Range range = slice.getRange();
-
-        // In CompositeIdRouter, the routing prefix only affects the top 16 bits
-        int min = range.min & 0xffff0000;
-        int max = range.max | 0x0000ffff;
-
-        return String.format(Locale.ROOT, "{!hash_range f=%s l=%d u=%d}", fromField, min, max);
-      } else {
-        return null;
-      }
-    }
-
     private TupleStream createCloudSolrStream(SolrClientCache solrClientCache) throws IOException {
       String streamZkHost;
       if (zkHost != null) {
@@ -225,7 +229,7 @@ public class CrossCollectionJoinQuery extends Query {
 
       ModifiableSolrParams params = new ModifiableSolrParams(otherParams);
       params.set(CommonParams.Q, query);
-      String fq = createHashRangeFq();
+      String fq = createHashRangeFq(searcher);
       if (fq != null) {
         params.add(CommonParams.FQ, fq);
       }
@@ -248,7 +252,7 @@ public class CrossCollectionJoinQuery extends Query {
           new StreamExpression("search")
               .withParameter(collection)
               .withParameter(new StreamExpressionNamedParameter(CommonParams.Q, query));
-      String fq = createHashRangeFq();
+      String fq = createHashRangeFq(searcher);
       if (fq != null) {
         searchExpr.withParameter(new StreamExpressionNamedParameter(CommonParams.FQ, fq));
       }
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.search.join;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.CoreContainer;
+import org.apache.solr.handler.JoinKeysHandler;
+import org.apache.solr.handler.component.ShardHandler;
+import org.apache.solr.handler.component.ShardRequest;
+import org.apache.solr.handler.component.ShardResponse;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.DelegatingCollector;
+import org.apache.solr.search.ExtendedQueryBase;
+import org.apache.solr.search.PostFilter;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * The semi-join mode of the cross collection join. Instead of streaming every join key to this
+ * node, each shard of the from collection sends back the {@link JoinKeyHashes} of its join keys,
+ * restricted to the hash range of the local shard when the local collection is routed by the join
+ * key. The union of those sets is then checked against the join key of the local documents, by
+ * default as a post filter.
+ */
+public class CrossCollectionSemiJoinQuery extends CrossCollectionJoinQuery implements PostFilter {
+
+  private boolean cache = false;
+  private int cost = 100; // post filter by default
+
+  private JoinKeyHashes hashes;
+
+  public CrossCollectionSemiJoinQuery(
+      String query,
+      String collection,
+      String fromField,
+      String toField,
+      boolean routedByJoinKey,
+      int ttl,
+      SolrParams otherParams) {
+    super(query, null, null, collection, fromField, toField, routedByJoinKey, ttl, otherParams);
+  }
+
+  @Override
+  public boolean getCache() {
+    return cache;
+  }
+
+  @Override
+  public void setCache(boolean cache) {
+    this.cache = cache;
+  }
+
+  @Override
+  public int getCost() {
+    return cost;
+  }
+
+  @Override
+  public void setCost(int cost) {
+    this.cost = cost;
+  }
+
+  /** Fetches the join key hashes from every shard of the from collection, only once. */
+  private synchronized JoinKeyHashes getHashes(SolrIndexSearcher searcher) {
+    if (hashes == null) {
+      hashes = fetchHashes(searcher);
+    }
+    return hashes;
+  }
+
+  private JoinKeyHashes fetchHashes(SolrIndexSearcher searcher) {
+    boolean numeric = JoinKeyHashes.isNumeric(searcher.getSchema().getField(toField));
+    CoreContainer cc = searcher.getCore().getCoreContainer();
+    if (!cc.isZooKeeperAware()) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST, "Semi-joins are only supported in SolrCloud mode");
+    }
+    ClusterState clusterState = cc.getZkController().getClusterState();
+    DocCollection fromCollection = clusterState.getCollectionOrNull(collection, true);
+    if (fromCollection == null) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST, "Collection not found: " + collection);
+    }
+
+    ModifiableSolrParams params = new ModifiableSolrParams(otherParams);
+    params.set(CommonParams.QT, "/joinKeys");
+    params.set(CommonParams.DISTRIB, false);
+    params.set(CommonParams.Q, query);
+    String fq = createHashRangeFq(searcher);
+    if (fq != null) {
+      params.add(CommonParams.FQ, fq);
+    }
+    params.set(JoinKeysHandler.FIELD, fromField);
+
+    Set<String> liveNodes = clusterState.getLiveNodes();
+    ShardHandler shardHandler = cc.getShardHandlerFactory().getShardHandler();
+    for (Slice slice : fromCollection.getActiveSlices()) {
+      List<String> replicaUrls = new ArrayList<>();
+      for (Replica replica : slice.getReplicas()) {
+        if (replica.isActive(liveNodes)) {
+          replicaUrls.add(replica.getCoreUrl());
+        }
+      }
+      if (replicaUrls.isEmpty()) {
+        throw new SolrException(
+            SolrException.ErrorCode.SERVICE_UNAVAILABLE,
+            "No active replica of " + collection + " for shard " + slice.getName());
+      }
+      String shard = String.join("|", replicaUrls);
+      ShardRequest sreq = new ShardRequest();
+      sreq.purpose = ShardRequest.PURPOSE_PRIVATE;
+      sreq.shards = new String[] {shard};
+      sreq.actualShards = sreq.shards;
+      sreq.params = new ModifiableSolrParams(params);
+      shardHandler.submit(sreq, shard, sreq.params);
+    }
+
+    List<JoinKeyHashes> shardHashes = new ArrayList<>();
+    ShardResponse srsp;
+    while ((srsp = shardHandler.takeCompletedOrError()) != null) {
+      if (srsp.getException() != null) {
+        shardHandler.cancelAll();
+        throw new SolrException(
+            SolrException.ErrorCode.SERVER_ERROR,
+            "Error fetching join keys from " + srsp.getShard(),
+            srsp.getException());
+      }
+      NamedList<Object> response = srsp.getSolrResponse().getResponse();
+      if (numeric != (Boolean) response.get(JoinKeysHandler.NUMERIC)) {
+        throw new SolrException(
+            SolrException.ErrorCode.BAD_REQUEST,
+            "Join fields "
+                + fromField
+                + " and "
+                + toField
+                + " must both be point fields, or both be string fields");
+      }
+      shardHashes.add(JoinKeyHashes.fromBytes((byte[]) response.get(JoinKeysHandler.HASHES)));
+    }
+    return JoinKeyHashes.union(shardHashes);
+  }
+
+  @Override
+  public DelegatingCollector getFilterCollector(IndexSearcher searcher) {
+    SolrIndexSearcher solrSearcher = (SolrIndexSearcher) searcher;
+    return new SemiJoinCollector(
+        getHashes(solrSearcher), solrSearcher.getSchema().getField(toField));
+  }
+
+  private static class SemiJoinCollector extends DelegatingCollector {
+    private final JoinKeyHashes hashes;
+    private final SchemaField toField;
+    private JoinKeyHashes.LeafMatcher matcher;
+
+    SemiJoinCollector(JoinKeyHashes hashes, SchemaField toField) {
+      this.hashes = hashes;
+      this.toField = toField;
+    }
+
+    @Override
+    protected void doSetNextReader(LeafReaderContext context) throws IOException {
+      super.doSetNextReader(context);
+      matcher = hashes.getLeafMatcher(context.reader(), toField);
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+      if (matcher.advanceExact(doc) && matcher.matches()) {
+        leafDelegate.collect(doc);
+      }
+    }
+  }
+
+  @Override
+  public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost)
+      throws IOException {
+    SolrIndexSearcher solrSearcher = (SolrIndexSearcher) searcher;
+    JoinKeyHashes keyHashes = getHashes(solrSearcher);
+    SchemaField field = solrSearcher.getSchema().getField(toField);
+    return new ConstantScoreWeight(this, boost) {
+      @Override
+      public Scorer scorer(LeafReaderContext context) throws IOException {
+        if (keyHashes.size() == 0) {
+          return null;
+        }
+        JoinKeyHashes.LeafMatcher matcher = keyHashes.getLeafMatcher(context.reader(), field);
+        TwoPhaseIterator twoPhase =
+            new TwoPhaseIterator(matcher.iterator()) {
+              @Override
+              public boolean matches() throws IOException {
+                return matcher.matches();
+              }
+
+              @Override
+              public float matchCost() {
+                return 10;
+              }
+            };
+        return new ConstantScoreScorer(this, score(), scoreMode, twoPhase);
+      }
+
+      @Override
+      public boolean isCacheable(LeafReaderContext ctx) {
+        return false;
+      }
+    };
+  }
+
+  @Override
+  public String toString(String field) {
+    return String.format(
+        Locale.ROOT,
+        "%s{!xcjf collection=%s from=%s to=%s routed=%b semiJoin=true ttl=%d}%s",
+        ExtendedQueryBase.getOptionsString(this),
+        collection,
+        fromField,
+        toField,
+        routedByJoinKey,
+        ttl,
+        query);
+  }
+}
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.TreeSet;
+import java.util.concurrent.Executor;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
@@ -42,6 +43,7 @@ import org.apache.lucene.util.BytesRefHash;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.automaton.Automaton;
 import org.apache.lucene.util.automaton.DaciukMihovAutomatonBuilder;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.BitDocSet;
 import org.apache.solr.search.DocSet;
@@ -54,7 +56,10 @@ import org.apache.solr.search.SolrIndexSearcher;
  * edge ids traversalFilter = a query that can be applied for each hop in the graph. maxDepth = the
  * max depth to traverse. (start nodes is depth=1) onlyLeafNodes = only return documents that have
  * no edge id values. returnRoot = if false, the documents matching the initial query will not be
- * returned.
+ * returned. target = a query for the documents to find paths to, in which case only the documents
+ * on the shortest paths from the start nodes to the target nodes are returned. useOrds = traverse
+ * the graph over the global ordinals of the fields, see {@link GraphTraversal}. threads = the max
+ * number of segments traversed at once by the ordinals traversal.
  *
  * @lucene.experimental
  */
@@ -70,6 +75,13 @@ public class GraphQuery extends Query {
   private Query traversalFilter;
   /** The max depth to traverse the graph, -1 means no limit. */
   private int maxDepth = -1;
+  /** If not null, only the nodes on the shortest paths to the nodes matching this are returned */
+  private Query target;
+
+  /** Traverse the graph over the ordinals of the node and edge fields */
+  private boolean useOrds = false;
+  /** The max number of segments traversed at once, 0 for the calling thread only */
+  private int threads = 0;
 
   /** Use automaton compilation for graph query traversal (experimental + expert use only) */
   private boolean useAutn = true;
@@ -126,10 +138,15 @@ public class GraphQuery extends Query {
     if (traversalFilter != null) {
       sb.append(" [TraversalFilter: ").append(traversalFilter.toString()).append(']');
     }
+    if (target != null) {
+      sb.append(" [Target: ").append(target.toString()).append(']');
+    }
     sb.append("[maxDepth=").append(maxDepth).append(']');
     sb.append("[returnRoot=").append(returnRoot).append(']');
     sb.append("[onlyLeafNodes=").append(onlyLeafNodes).append(']');
     sb.append("[useAutn=").append(useAutn).append(']');
+    sb.append("[useOrds=").append(useOrds).append(']');
+    sb.append("[threads=").append(threads).append(']');
     return sb.toString();
   }
 
@@ -174,6 +191,9 @@ public class GraphQuery extends Query {
      * @throws IOException - if a sub search fails... maybe other cases too! :)
      */
     private DocSet getDocSet() throws IOException {
+      if (useOrds || target != null) {
+        return getDocSetByOrds();
+      }
       // Size that the bit set needs to be.
       int capacity = fromSearcher.getRawReader().maxDoc();
       // The bit set to contain the results that match the query.
@@ -247,6 +267,58 @@ public class GraphQuery extends Query {
       }
     }
 
+    /**
+     * This computes the matching doc set by traversing the ordinals of the node and edge fields,
+     * which is the only way to find the paths to the target nodes.
+     */
+    private DocSet getDocSetByOrds() throws IOException {
+      if (!GraphTraversal.supportsField(matchSchemaField)
+          || !GraphTraversal.supportsField(collectSchemaField)) {
+        throw new SolrException(
+            SolrException.ErrorCode.BAD_REQUEST,
+            "Traversing a graph by ords requires string fields with docValues, but got "
+                + fromField
+                + " and "
+                + toField);
+      }
+      DocSet traversalFilterSet =
+          traversalFilter == null ? null : fromSearcher.getDocSet(traversalFilter);
+      Executor executor =
+          threads == 0
+              ? null
+              : fromSearcher
+                  .getCore()
+                  .getCoreContainer()
+                  .getUpdateShardHandler()
+                  .getUpdateExecutor();
+      GraphTraversal traversal =
+          new GraphTraversal(
+              fromSearcher,
+              matchSchemaField,
+              collectSchemaField,
+              traversalFilterSet,
+              executor,
+              threads);
+
+      FixedBitSet rootBits = fromSearcher.getDocSetBits(q).getBits();
+      FixedBitSet resultBits;
+      if (target == null) {
+        resultBits = traversal.traverse(rootBits, maxDepth);
+      } else {
+        FixedBitSet targetBits = fromSearcher.getDocSetBits(target).getBits();
+        resultBits = traversal.shortestPaths(rootBits, targetBits, maxDepth);
+      }
+      if (!returnRoot) {
+        resultBits.andNot(rootBits);
+      }
+      BitDocSet resultSet = new BitDocSet(resultBits);
+      if (onlyLeafNodes) {
+        return resultSet.intersection(resolveLeafNodes());
+      } else {
+        return resultSet;
+      }
+    }
+
     private DocSet resolveLeafNodes() throws IOException {
       String field = collectSchemaField.getName();
       BooleanQuery.Builder leafNodeQuery = new BooleanQuery.Builder();
@@ -334,6 +406,18 @@ public class GraphQuery extends Query {
     this.traversalFilter = traversalFilter;
   }
 
+  /**
+   * @return The query for the nodes to find the shortest paths to, or null to traverse the whole
+   *     graph.
+   */
+  public Query getTarget() {
+    return target;
+  }
+
+  public void setTarget(Query target) {
+    this.target = target;
+  }
+
   public Query getQ() {
     return q;
   }
@@ -387,6 +471,30 @@ public class GraphQuery extends Query {
     this.useAutn = useAutn;
   }
 
+  /**
+   * @return If true, the graph is traversed over the ordinals of the node and edge fields, which
+   *     must be string fields with docValues.
+   */
+  public boolean isUseOrds() {
+    return useOrds;
+  }
+
+  public void setUseOrds(boolean useOrds) {
+    this.useOrds = useOrds;
+  }
+
+  /**
+   * @return The max number of segments traversed at once when traversing over ordinals, 0 to
+   *     traverse them in the calling thread, or negative for no limit.
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
   /**
    * @return if true only documents that do not have a value in the edge id field will be returned.
    */
@@ -422,6 +530,9 @@ public class GraphQuery extends Query {
     result = prime * result + Objects.hashCode(toField);
     result = prime * result + Objects.hashCode(traversalFilter);
     result = prime * result + (useAutn ? 1231 : 1237);
+    result = prime * result + Objects.hashCode(target);
+    result = prime * result + (useOrds ? 1231 : 1237);
+    result = prime * result + threads;
     return result;
   }
 
@@ -436,6 +547,9 @@ public class GraphQuery extends Query {
         && onlyLeafNodes == other.onlyLeafNodes
         && returnRoot == other.returnRoot
         && useAutn == other.useAutn
+        && useOrds == other.useOrds
+        && threads == other.threads
+        && Objects.equals(target, other.target)
         && Objects.equals(q, other.q)
         && Objects.equals(toField, other.toField)
         && Objects.equals(traversalFilter, other.traversalFilter);
@@ -41,6 +41,9 @@ public class GraphQueryParser extends QParser {
     String traversalFilterS = localParams.get("traversalFilter");
     Query traversalFilter =
         traversalFilterS == null ? null : subQuery(traversalFilterS, null).getQuery();
+    // find the shortest paths to the nodes matching this query, instead of every reachable node
+    String targetS = localParams.get("target");
+    Query target = targetS == null ? null : subQuery(targetS, null).getQuery();
 
     // NOTE: the from/to are reversed from {!join}
     String fromField = localParams.get("from", "node_id");
@@ -58,6 +61,15 @@ public class GraphQueryParser extends QParser {
     // if true, an automaton will be compiled to issue the next graph hop
     // this avoid having a large number of boolean clauses. (and it's faster too!)
     boolean useAutn = localParams.getBool("useAutn", false);
+    // traverse the graph over the ordinals of the fields, which is always done with a target
+    boolean useOrds = localParams.getBool("useOrds", false);
+    // the max number of segments traversed at once by the ordinals traversal
+    int threads = localParams.getInt("threads", 0);
+
+    if (useOrds || target != null) {
+      validateOrdsField(fromField);
+      validateOrdsField(toField);
+    }
 
     // Construct a graph query object based on parameters passed in.
     GraphQuery gq = new GraphQuery(rootNodeQuery, fromField, toField, traversalFilter);
@@ -66,6 +78,9 @@ public class GraphQueryParser extends QParser {
     gq.setOnlyLeafNodes(onlyLeafNodes);
     gq.setReturnRoot(returnRootNodes);
     gq.setUseAutn(useAutn);
+    gq.setTarget(target);
+    gq.setUseOrds(useOrds);
+    gq.setThreads(threads);
     // return the parsed graph query.
     return gq;
   }
@@ -96,4 +111,11 @@ public class GraphQueryParser extends QParser {
 
     throw new SyntaxError("FieldType for field=" + field + " not supported");
   }
+
+  private void validateOrdsField(String field) throws SyntaxError {
+    if (!GraphTraversal.supportsField(req.getSchema().getField(field))) {
+      throw new SyntaxError(
+          "field " + field + " must be a string field with docValues=true to traverse by ords");
+    }
+  }
 }
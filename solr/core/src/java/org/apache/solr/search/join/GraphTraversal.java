@@ -0,0 +1,474 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.join;
+
+import com.carrotsearch.hppc.LongArrayList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.LongBitSet;
+import org.apache.lucene.util.LongValues;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.StrField;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.ParallelTasks;
+
+/**
+ * Traverses the graph of a {@link GraphQuery} over the global ordinals of its node and edge fields,
+ * which must be string fields with docValues. The ids that were already followed are tracked in bit
+ * sets of ordinals rather than in sets of terms, and every hop is expanded one segment per task, on
+ * up to <code>threads</code> threads of the given executor.
+ *
+ * <p>Besides the breadth first traversal from the root documents, it finds the documents on the
+ * shortest paths from the root documents to a set of target documents, by expanding a search from
+ * each end, always the one with the smaller frontier, until they meet.
+ *
+ * @lucene.internal
+ */
+final class GraphTraversal {
+
+  /**
+   * Matching a frontier by seeking its terms is only done if it has fewer terms than the number of
+   * docs divided by this, since seeking a term costs about as much as checking the values of this
+   * many docs.
+   */
+  private static final int SEEK_RATIO = 32;
+
+  private final SolrIndexSearcher searcher;
+  private final List<LeafReaderContext> leaves;
+  private final Executor executor;
+  private final int threads;
+  private final Bits traversalFilter; // null if every doc may be traversed
+
+  private final FieldOrds nodeOrds;
+  private final FieldOrds edgeOrds;
+
+  /**
+   * @param traversalFilter the docs that may be reached by a hop, or null for all of them
+   * @param threads the max number of segments expanded at once, 0 to expand them all in the calling
+   *     thread, or negative for no limit
+   */
+  GraphTraversal(
+      SolrIndexSearcher searcher,
+      SchemaField nodeField,
+      SchemaField edgeField,
+      DocSet traversalFilter,
+      Executor executor,
+      int threads)
+      throws IOException {
+    this.searcher = searcher;
+    this.leaves = searcher.getTopReaderContext().leaves();
+    this.executor = executor;
+    this.threads = threads;
+    this.traversalFilter = traversalFilter == null ? null : traversalFilter.getBits();
+    this.nodeOrds = new FieldOrds(nodeField);
+    this.edgeOrds = new FieldOrds(edgeField);
+  }
+
+  /** Returns true if the given field can be traversed by its ordinals. */
+  static boolean supportsField(SchemaField field) {
+    return field.getType() instanceof StrField && field.hasDocValues();
+  }
+
+  /**
+   * Returns the docs that can be reached from the roots in at most <code>maxDepth</code> hops, or
+   * any number of hops if it is -1, including the roots. The given set is not modified.
+   */
+  FixedBitSet traverse(FixedBitSet roots, int maxDepth) throws IOException {
+    Hop forward = new Hop(edgeOrds, nodeOrds, true);
+    FixedBitSet visited = roots.clone();
+    FixedBitSet frontier = roots;
+    for (int depth = 0; maxDepth == -1 || depth < maxDepth; depth++) {
+      frontier = forward.expand(frontier, traversalFilter, visited);
+      if (frontier == null) {
+        break;
+      }
+      visited.or(frontier);
+    }
+    return visited;
+  }
+
+  /**
+   * Returns the docs on the shortest paths from the roots to the targets, or an empty set if no
+   * target can be reached from the roots in at most <code>maxDepth</code> hops, or any number of
+   * hops if it is -1. The given sets are not modified.
+   */
+  FixedBitSet shortestPaths(FixedBitSet roots, FixedBitSet targets, int maxDepth)
+      throws IOException {
+    Hop forward = new Hop(edgeOrds, nodeOrds, true);
+    Hop backward = new Hop(nodeOrds, edgeOrds, true);
+
+    // the docs first reached at each depth, from each end
+    List<FixedBitSet> fromRoots = new ArrayList<>();
+    List<FixedBitSet> fromTargets = new ArrayList<>();
+    fromRoots.add(roots);
+    fromTargets.add(targets);
+    FixedBitSet visitedFromRoots = roots.clone();
+    FixedBitSet visitedFromTargets = targets.clone();
+    long rootsFrontierSize = roots.cardinality();
+    long targetsFrontierSize = targets.cardinality();
+
+    FixedBitSet meet = null;
+    int rootsDepth = 0;
+    int targetsDepth = 0;
+    if (roots.intersects(targets)) {
+      meet = roots.clone();
+      meet.and(targets);
+    }
+    while (meet == null) {
+      if (maxDepth != -1 && fromRoots.size() + fromTargets.size() - 2 >= maxDepth) {
+        return new FixedBitSet(searcher.maxDoc());
+      }
+      if (rootsFrontierSize <= targetsFrontierSize) {
+        FixedBitSet next =
+            forward.expand(fromRoots.get(fromRoots.size() - 1), traversalFilter, visitedFromRoots);
+        if (next == null) {
+          return new FixedBitSet(searcher.maxDoc());
+        }
+        visitedFromRoots.or(next);
+        fromRoots.add(next);
+        rootsFrontierSize = next.cardinality();
+        for (int depth = 0; depth < fromTargets.size(); depth++) {
+          if (next.intersects(fromTargets.get(depth))) {
+            meet = next.clone();
+            meet.and(fromTargets.get(depth));
+            rootsDepth = fromRoots.size() - 1;
+            targetsDepth = depth;
+            break;
+          }
+        }
+      } else {
+        FixedBitSet next =
+            backward.expand(
+                fromTargets.get(fromTargets.size() - 1), traversalFilter, visitedFromTargets);
+        if (next == null) {
+          return new FixedBitSet(searcher.maxDoc());
+        }
+        visitedFromTargets.or(next);
+        fromTargets.add(next);
+        targetsFrontierSize = next.cardinality();
+        for (int depth = 0; depth < fromRoots.size(); depth++) {
+          if (next.intersects(fromRoots.get(depth))) {
+            meet = next.clone();
+            meet.and(fromRoots.get(depth));
+            rootsDepth = depth;
+            targetsDepth = fromTargets.size() - 1;
+            break;
+          }
+        }
+      }
+    }
+
+    // Every shortest path goes through the docs where both searches met. Walk back from them
+    // through the docs reached from each end, keeping at each depth the docs with an edge to the
+    // docs kept at the previous one.
+    FixedBitSet result = meet.clone();
+    Hop towardRoots = new Hop(nodeOrds, edgeOrds, false);
+    FixedBitSet onPaths = meet;
+    for (int depth = rootsDepth - 1; depth >= 0 && onPaths != null; depth--) {
+      onPaths = towardRoots.expand(onPaths, fromRoots.get(depth), null);
+      if (onPaths != null) {
+        result.or(onPaths);
+      }
+    }
+    Hop towardTargets = new Hop(edgeOrds, nodeOrds, false);
+    onPaths = meet;
+    for (int depth = targetsDepth - 1; depth >= 0 && onPaths != null; depth--) {
+      onPaths = towardTargets.expand(onPaths, fromTargets.get(depth), null);
+      if (onPaths != null) {
+        result.or(onPaths);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * One hop of the traversal, from the values of the collect field of the frontier docs to the docs
+   * with one of those values in the match field.
+   */
+  private final class Hop {
+    private final FieldOrds collect;
+    private final FieldOrds match;
+    // if not null, the ords already followed, which are skipped by the next hops
+    private final LongBitSet collected;
+    private final LongBitSet matched;
+    private LongBitSet frontierOrds; // the match ords of the current hop, cleared after it
+
+    Hop(FieldOrds collect, FieldOrds match, boolean skipFollowed) {
+      this.collect = collect;
+      this.match = match;
+      this.collected = skipFollowed ? new LongBitSet(collect.valueCount) : null;
+      this.matched = skipFollowed ? new LongBitSet(match.valueCount) : null;
+    }
+
+    /**
+     * Returns the live docs reached by this hop from the frontier, which are in the included docs
+     * if not null, and not in the excluded docs if not null. Returns null if there is none.
+     */
+    FixedBitSet expand(FixedBitSet frontier, Bits include, Bits exclude) throws IOException {
+      long[] ords = nextOrds(frontier);
+      if (ords.length == 0) {
+        return null;
+      }
+
+      if (frontierOrds == null) {
+        frontierOrds = new LongBitSet(match.valueCount);
+      }
+      for (long ord : ords) {
+        frontierOrds.set(ord);
+      }
+      List<FixedBitSet> segmentDocs;
+      if (match.indexed && ords.length < searcher.maxDoc() / SEEK_RATIO) {
+        BytesRef[] terms = lookupTerms(ords);
+        segmentDocs = forEachLeaf(leaf -> seekDocs(leaf, terms, include, exclude));
+      } else {
+        segmentDocs = forEachLeaf(leaf -> scanDocs(leaf, include, exclude));
+      }
+      for (long ord : ords) {
+        frontierOrds.clear(ord);
+      }
+
+      FixedBitSet docs = null;
+      for (LeafReaderContext leaf : leaves) {
+        FixedBitSet leafDocs = segmentDocs.get(leaf.ord);
+        if (leafDocs == null) {
+          continue;
+        }
+        if (docs == null) {
+          docs = new FixedBitSet(searcher.maxDoc());
+        }
+        BitSetIterator it = new BitSetIterator(leafDocs, 0);
+        for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+          docs.set(leaf.docBase + doc);
+        }
+      }
+      return docs;
+    }
+
+    /** Returns the sorted match ords of the collect values of the frontier docs. */
+    private long[] nextOrds(FixedBitSet frontier) throws IOException {
+      List<FixedBitSet> segmentOrds = forEachLeaf(leaf -> collectOrds(leaf, frontier));
+      LongArrayList collectOrds = new LongArrayList();
+      for (LeafReaderContext leaf : leaves) {
+        FixedBitSet ords = segmentOrds.get(leaf.ord);
+        if (ords == null) {
+          continue;
+        }
+        LongValues globalOrds = collect.globalOrds(leaf.ord);
+        BitSetIterator it = new BitSetIterator(ords, 0);
+        for (int ord = it.nextDoc(); ord != DocIdSetIterator.NO_MORE_DOCS; ord = it.nextDoc()) {
+          long globalOrd = globalOrds.get(ord);
+          if (collected == null || !collected.getAndSet(globalOrd)) {
+            collectOrds.add(globalOrd);
+          }
+        }
+      }
+
+      // the collect terms are looked up in ascending order, which keeps the match ords sorted
+      long[] ords = collectOrds.toArray();
+      Arrays.sort(ords);
+      SortedSetDocValues collectValues = collect.topLevel();
+      SortedSetDocValues matchValues = match.topLevel();
+      LongArrayList matchOrds = new LongArrayList();
+      long previous = -1;
+      for (long ord : ords) {
+        if (ord == previous) {
+          continue; // collected in more than one segment
+        }
+        previous = ord;
+        long matchOrd = matchValues.lookupTerm(collectValues.lookupOrd(ord));
+        if (matchOrd >= 0 && (matched == null || !matched.getAndSet(matchOrd))) {
+          matchOrds.add(matchOrd);
+        }
+      }
+      return matchOrds.toArray();
+    }
+
+    /** Returns the segment ords of the collect values of the frontier docs in the segment. */
+    private FixedBitSet collectOrds(LeafReaderContext leaf, FixedBitSet frontier)
+        throws IOException {
+      int base = leaf.docBase;
+      int end = base + leaf.reader().maxDoc();
+      if (base == end) {
+        return null;
+      }
+      int doc = frontier.nextSetBit(base);
+      if (doc >= end) {
+        return null;
+      }
+      SortedSetDocValues values = DocValues.getSortedSet(leaf.reader(), collect.field);
+      FixedBitSet ords = null;
+      while (doc < end) {
+        if (values.advanceExact(doc - base)) {
+          if (ords == null) {
+            ords = new FixedBitSet(Math.toIntExact(values.getValueCount()));
+          }
+          long ord;
+          while ((ord = values.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS) {
+            ords.set((int) ord);
+          }
+        }
+        doc = doc + 1 < frontier.length() ? frontier.nextSetBit(doc + 1) : end;
+      }
+      return ords;
+    }
+
+    private BytesRef[] lookupTerms(long[] ords) throws IOException {
+      SortedSetDocValues matchValues = match.topLevel();
+      BytesRef[] terms = new BytesRef[ords.length];
+      for (int i = 0; i < ords.length; i++) {
+        terms[i] = BytesRef.deepCopyOf(matchValues.lookupOrd(ords[i]));
+      }
+      return terms;
+    }
+
+    /** Finds the docs of the segment with a frontier value through the postings of its terms. */
+    private FixedBitSet seekDocs(
+        LeafReaderContext leaf, BytesRef[] terms, Bits include, Bits exclude) throws IOException {
+      Terms segmentTerms = leaf.reader().terms(match.field);
+      if (segmentTerms == null) {
+        return null;
+      }
+      Bits liveDocs = leaf.reader().getLiveDocs();
+      TermsEnum termsEnum = segmentTerms.iterator();
+      PostingsEnum postings = null;
+      FixedBitSet docs = null;
+      for (BytesRef term : terms) {
+        if (!termsEnum.seekExact(term)) {
+          continue;
+        }
+        postings = termsEnum.postings(postings, PostingsEnum.NONE);
+        for (int doc = postings.nextDoc();
+            doc != DocIdSetIterator.NO_MORE_DOCS;
+            doc = postings.nextDoc()) {
+          if (accept(leaf.docBase + doc, doc, liveDocs, include, exclude)) {
+            if (docs == null) {
+              docs = new FixedBitSet(leaf.reader().maxDoc());
+            }
+            docs.set(doc);
+          }
+        }
+      }
+      return docs;
+    }
+
+    /** Finds the docs of the segment with a frontier value by checking the values of every doc. */
+    private FixedBitSet scanDocs(LeafReaderContext leaf, Bits include, Bits exclude)
+        throws IOException {
+      SortedSetDocValues values = DocValues.getSortedSet(leaf.reader(), match.field);
+      LongValues globalOrds = match.globalOrds(leaf.ord);
+      Bits liveDocs = leaf.reader().getLiveDocs();
+      FixedBitSet docs = null;
+      for (int doc = values.nextDoc();
+          doc != DocIdSetIterator.NO_MORE_DOCS;
+          doc = values.nextDoc()) {
+        if (!accept(leaf.docBase + doc, doc, liveDocs, include, exclude)) {
+          continue;
+        }
+        long ord;
+        while ((ord = values.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS) {
+          if (frontierOrds.get(globalOrds.get(ord))) {
+            if (docs == null) {
+              docs = new FixedBitSet(leaf.reader().maxDoc());
+            }
+            docs.set(doc);
+            break;
+          }
+        }
+      }
+      return docs;
+    }
+  }
+
+  private static boolean accept(
+      int globalDoc, int segmentDoc, Bits liveDocs, Bits include, Bits exclude) {
+    return (liveDocs == null || liveDocs.get(segmentDoc))
+        && (include == null || include.get(globalDoc))
+        && (exclude == null || !exclude.get(globalDoc));
+  }
+
+  @FunctionalInterface
+  private interface LeafTask<T> {
+    T apply(LeafReaderContext leaf) throws IOException;
+  }
+
+  /** Runs the task on every segment, and returns the results in the order of the segments. */
+  private <T> List<T> forEachLeaf(LeafTask<T> task) throws IOException {
+    List<T> results = new ArrayList<>(Collections.nCopies(leaves.size(), null));
+    List<Callable<Void>> tasks = new ArrayList<>(leaves.size());
+    for (LeafReaderContext leaf : leaves) {
+      tasks.add(
+          () -> {
+            results.set(leaf.ord, task.apply(leaf));
+            return null;
+          });
+    }
+    ParallelTasks.run(executor, threads, tasks, "Error in graph traversal");
+    return results;
+  }
+
+  /** The ords of a string field across all the segments. */
+  private final class FieldOrds {
+    final String field;
+    final boolean indexed;
+    final long valueCount;
+    private final OrdinalMap ordinalMap; // null if the segment ords are the global ords
+
+    FieldOrds(SchemaField schemaField) throws IOException {
+      this.field = schemaField.getName();
+      this.indexed = schemaField.indexed();
+      SortedSetDocValues values = topLevel();
+      this.valueCount = values.getValueCount();
+      SortedDocValues single = DocValues.unwrapSingleton(values);
+      if (values instanceof MultiDocValues.MultiSortedSetDocValues) {
+        ordinalMap = ((MultiDocValues.MultiSortedSetDocValues) values).mapping;
+      } else if (single instanceof MultiDocValues.MultiSortedDocValues) {
+        ordinalMap = ((MultiDocValues.MultiSortedDocValues) single).mapping;
+      } else {
+        ordinalMap = null;
+      }
+    }
+
+    /** Returns new top level values, since they can't be shared between threads. */
+    SortedSetDocValues topLevel() throws IOException {
+      return DocValues.getSortedSet(searcher.getSlowAtomicReader(), field);
+    }
+
+    LongValues globalOrds(int segment) {
+      return ordinalMap == null ? LongValues.IDENTITY : ordinalMap.getGlobalOrds(segment);
+    }
+  }
+}
@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.search.join;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongHashSet;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.Hash;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.NumberType;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.StrField;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * A compact set of join keys, held as the sorted 64-bit hashes of the keys. Used by the semi-join
+ * mode of the cross collection join, where every shard of the from collection hashes the join keys
+ * of its matching documents, and the local shard keeps the documents whose join key is in the union
+ * of those sets.
+ *
+ * <p>Point fields of type int or long are hashed with a bijective mix of their value, so they never
+ * collide. String keys are hashed with murmur3, so a key might falsely match another one with
+ * probability of about <code>n / 2^64</code> for <code>n</code> keys.
+ */
+public final class JoinKeyHashes {
+
+  private static final JoinKeyHashes EMPTY = new JoinKeyHashes(new long[0]);
+
+  private final long[] hashes; // sorted, unique
+
+  private JoinKeyHashes(long[] hashes) {
+    this.hashes = hashes;
+  }
+
+  public static JoinKeyHashes empty() {
+    return EMPTY;
+  }
+
+  public int size() {
+    return hashes.length;
+  }
+
+  public boolean contains(long hash) {
+    return Arrays.binarySearch(hashes, hash) >= 0;
+  }
+
+  public static long hash(BytesRef key) {
+    Hash.LongPair pair = new Hash.LongPair();
+    Hash.murmurhash3_x64_128(key.bytes, key.offset, key.length, 0, pair);
+    return pair.val1;
+  }
+
+  public static long hash(long key) {
+    return Hash.fmix64(key);
+  }
+
+  /**
+   * Returns true if the keys of the given field are hashed as numbers, false if they are hashed as
+   * strings. Throws an exception if the field can't be used as a join key.
+   */
+  public static boolean isNumeric(SchemaField field) {
+    if (!field.hasDocValues()) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "Join key field " + field.getName() + " must have docValues");
+    }
+    FieldType fieldType = field.getType();
+    if (fieldType.isPointField()
+        && (fieldType.getNumberType() == NumberType.INTEGER
+            || fieldType.getNumberType() == NumberType.LONG)) {
+      return true;
+    }
+    if (fieldType instanceof StrField) {
+      return false;
+    }
+    throw new SolrException(
+        SolrException.ErrorCode.BAD_REQUEST,
+        "Join key field "
+            + field.getName()
+            + " must be a string, int point or long point field, not "
+            + fieldType.getTypeName());
+  }
+
+  /** Hashes the keys of the given field for every document in the set. */
+  public static JoinKeyHashes collect(SolrIndexSearcher searcher, SchemaField field, DocSet docs)
+      throws IOException {
+    boolean numeric = isNumeric(field);
+    Builder builder = new Builder();
+    for (LeafReaderContext context : searcher.getTopReaderContext().leaves()) {
+      DocIdSetIterator disi = docs.iterator(context);
+      if (disi == null) {
+        continue;
+      }
+      LeafReader reader = context.reader();
+      if (numeric) {
+        SortedNumericDocValues values = DocValues.getSortedNumeric(reader, field.getName());
+        for (int doc = disi.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = disi.nextDoc()) {
+          if (values.advanceExact(doc)) {
+            for (int i = 0, count = values.docValueCount(); i < count; i++) {
+              builder.add(hash(values.nextValue()));
+            }
+          }
+        }
+      } else {
+        // hash every distinct term of the segment once
+        SortedSetDocValues values = DocValues.getSortedSet(reader, field.getName());
+        FixedBitSet ords = new FixedBitSet(Math.toIntExact(values.getValueCount()));
+        for (int doc = disi.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = disi.nextDoc()) {
+          if (values.advanceExact(doc)) {
+            long ord;
+            while ((ord = values.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS) {
+              ords.set((int) ord);
+            }
+          }
+        }
+        BitSetIterator it = new BitSetIterator(ords, 0);
+        for (int ord = it.nextDoc(); ord != DocIdSetIterator.NO_MORE_DOCS; ord = it.nextDoc()) {
+          builder.add(hash(values.lookupOrd(ord)));
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  /** Returns a matcher of the documents of one segment that have a key of the field in the set. */
+  public LeafMatcher getLeafMatcher(LeafReader reader, SchemaField field) throws IOException {
+    if (isNumeric(field)) {
+      return new NumericLeafMatcher(DocValues.getSortedNumeric(reader, field.getName()));
+    } else {
+      return new OrdLeafMatcher(DocValues.getSortedSet(reader, field.getName()));
+    }
+  }
+
+  /**
+   * Matches the documents of one segment against the set. Either call {@link #advanceExact(int)}
+   * with increasing doc ids, or use the {@link #iterator()} as the approximation of a two phase
+   * iterator, then check the current document with {@link #matches()}.
+   */
+  public abstract static class LeafMatcher {
+
+    /** An iterator over the documents that have a key */
+    public abstract DocIdSetIterator iterator();
+
+    /** Positions the matcher on the given document, returns false if it has no key */
+    public abstract boolean advanceExact(int doc) throws IOException;
+
+    /** Returns true if one of the keys of the current document is in the set */
+    public abstract boolean matches() throws IOException;
+  }
+
+  private final class NumericLeafMatcher extends LeafMatcher {
+    private final SortedNumericDocValues values;
+
+    NumericLeafMatcher(SortedNumericDocValues values) {
+      this.values = values;
+    }
+
+    @Override
+    public DocIdSetIterator iterator() {
+      return values;
+    }
+
+    @Override
+    public boolean advanceExact(int doc) throws IOException {
+      return values.advanceExact(doc);
+    }
+
+    @Override
+    public boolean matches() throws IOException {
+      for (int i = 0, count = values.docValueCount(); i < count; i++) {
+        if (contains(hash(values.nextValue()))) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private final class OrdLeafMatcher extends LeafMatcher {
+    private final SortedSetDocValues values;
+    // every term is looked up at most once per segment
+    private final FixedBitSet checked;
+    private final FixedBitSet matched;
+
+    OrdLeafMatcher(SortedSetDocValues values) {
+      this.values = values;
+      int valueCount = Math.toIntExact(values.getValueCount());
+      this.checked = new FixedBitSet(valueCount);
+      this.matched = new FixedBitSet(valueCount);
+    }
+
+    @Override
+    public DocIdSetIterator iterator() {
+      return values;
+    }
+
+    @Override
+    public boolean advanceExact(int doc) throws IOException {
+      return values.advanceExact(doc);
+    }
+
+    @Override
+    public boolean matches() throws IOException {
+      long ord;
+      while ((ord = values.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS) {
+        int o = (int) ord;
+        if (!checked.getAndSet(o) && contains(hash(values.lookupOrd(ord)))) {
+          matched.set(o);
+        }
+        if (matched.get(o)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Encodes the set as the deltas between the sorted hashes, each written as an unsigned variable
+   * length long.
+   */
+  public byte[] toBytes() {
+    byte[] bytes = new byte[hashes.length * 10];
+    int pos = 0;
+    long previous = 0;
+    for (long hash : hashes) {
+      long delta = hash - previous;
+      while ((delta & ~0x7FL) != 0) {
+        bytes[pos++] = (byte) ((delta & 0x7F) | 0x80);
+        delta >>>= 7;
+      }
+      bytes[pos++] = (byte) delta;
+      previous = hash;
+    }
+    return Arrays.copyOf(bytes, pos);
+  }
+
+  public static JoinKeyHashes fromBytes(byte[] bytes) {
+    LongArrayList hashes = new LongArrayList();
+    int pos = 0;
+    long previous = 0;
+    while (pos < bytes.length) {
+      long delta = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = bytes[pos++];
+        delta |= (b & 0x7FL) << shift;
+        shift += 7;
+      } while (b < 0);
+      previous += delta;
+      hashes.add(previous);
+    }
+    return hashes.isEmpty() ? EMPTY : new JoinKeyHashes(hashes.toArray());
+  }
+
+  /** Returns the union of the given sets. */
+  public static JoinKeyHashes union(List<JoinKeyHashes> sets) {
+    if (sets.isEmpty()) {
+      return EMPTY;
+    }
+    if (sets.size() == 1) {
+      return sets.get(0);
+    }
+    int size = 0;
+    for (JoinKeyHashes set : sets) {
+      size += set.hashes.length;
+    }
+    long[] all = new long[size];
+    int pos = 0;
+    for (JoinKeyHashes set : sets) {
+      System.arraycopy(set.hashes, 0, all, pos, set.hashes.length);
+      pos += set.hashes.length;
+    }
+    return new JoinKeyHashes(sortedUnique(all));
+  }
+
+  private static long[] sortedUnique(long[] hashes) {
+    Arrays.sort(hashes);
+    int size = 0;
+    for (int i = 0; i < hashes.length; i++) {
+      if (size == 0 || hashes[size - 1] != hashes[i]) {
+        hashes[size++] = hashes[i];
+      }
+    }
+    return size == hashes.length ? hashes : Arrays.copyOf(hashes, size);
+  }
+
+  public static class Builder {
+    private final LongHashSet hashes = new LongHashSet();
+
+    public Builder add(long hash) {
+      hashes.add(hash);
+      return this;
+    }
+
+    public JoinKeyHashes build() {
+      if (hashes.isEmpty()) {
+        return EMPTY;
+      }
+      long[] array = hashes.toArray();
+      Arrays.sort(array);
+      return new JoinKeyHashes(array);
+    }
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.search.join;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.join.BitSetProducer;
+import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.solr.schema.IndexSchema;
+
+/**
+ * Produces the root documents of the blocks of nested documents, found in each segment as the last
+ * document of every run of documents sharing a value of the {@value IndexSchema#ROOT_FIELD_NAME}
+ * field. The root of any document of a block is then its next set bit, without reading the field.
+ *
+ * <p>The blocks of a segment are only computed once per segment core. Get the instance from {@link
+ * BlockJoinParentQParser#getCachedRootBlockProducer} so they are shared by all the requests, and by
+ * the following searchers when the cache is configured with the <code>NoOpRegenerator</code>.
+ */
+public final class RootBlockBitSetProducer implements BitSetProducer {
+
+  /** The blocks of one segment. */
+  public static final class Blocks {
+    private final FixedBitSet roots;
+    private final FixedBitSet docsInBlocks; // null if every doc has a root
+
+    private Blocks(FixedBitSet roots, FixedBitSet docsInBlocks) {
+      this.roots = roots;
+      this.docsInBlocks = docsInBlocks;
+    }
+
+    /** The root documents, which are the last document of each block. */
+    public FixedBitSet getRoots() {
+      return roots;
+    }
+
+    /**
+     * Returns the root document of the block of the given document, or {@link
+     * DocIdSetIterator#NO_MORE_DOCS} if it has no {@value IndexSchema#ROOT_FIELD_NAME} value.
+     */
+    public int rootOf(int doc) {
+      if (docsInBlocks != null && !docsInBlocks.get(doc)) {
+        return DocIdSetIterator.NO_MORE_DOCS;
+      }
+      return roots.nextSetBit(doc);
+    }
+  }
+
+  private final Map<IndexReader.CacheKey, Blocks> cache =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  /** Returns the blocks of the segment, or null if none of its documents has a root. */
+  public Blocks getBlocks(LeafReaderContext context) throws IOException {
+    IndexReader.CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+    if (cacheHelper == null) {
+      return build(context.reader());
+    }
+    IndexReader.CacheKey key = cacheHelper.getKey();
+    Blocks blocks = cache.get(key);
+    if (blocks == null && !cache.containsKey(key)) {
+      blocks = build(context.reader());
+      cache.put(key, blocks);
+    }
+    return blocks;
+  }
+
+  @Override
+  public BitSet getBitSet(LeafReaderContext context) throws IOException {
+    Blocks blocks = getBlocks(context);
+    return blocks == null ? null : blocks.roots;
+  }
+
+  private static Blocks build(LeafReader reader) throws IOException {
+    FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(IndexSchema.ROOT_FIELD_NAME);
+    if (fieldInfo == null) {
+      return null;
+    }
+    int maxDoc = reader.maxDoc();
+    FixedBitSet roots = new FixedBitSet(maxDoc);
+    FixedBitSet docsInBlocks = new FixedBitSet(maxDoc);
+
+    if (fieldInfo.getIndexOptions() != IndexOptions.NONE) {
+      Terms terms = reader.terms(IndexSchema.ROOT_FIELD_NAME);
+      if (terms == null) {
+        return null;
+      }
+      TermsEnum termsEnum = terms.iterator();
+      PostingsEnum postings = null;
+      while (termsEnum.next() != null) {
+        // a root id can have several runs, of which all but the last one are deleted
+        postings = termsEnum.postings(postings, PostingsEnum.NONE);
+        int previous = -1;
+        for (int doc = postings.nextDoc();
+            doc != DocIdSetIterator.NO_MORE_DOCS;
+            doc = postings.nextDoc()) {
+          if (previous != -1 && doc != previous + 1) {
+            roots.set(previous);
+          }
+          docsInBlocks.set(doc);
+          previous = doc;
+        }
+        if (previous != -1) {
+          roots.set(previous);
+        }
+      }
+    } else if (fieldInfo.getDocValuesType() == DocValuesType.SORTED) {
+      SortedDocValues values = reader.getSortedDocValues(IndexSchema.ROOT_FIELD_NAME);
+      int previous = -1;
+      int previousOrd = -1;
+      for (int doc = values.nextDoc();
+          doc != DocIdSetIterator.NO_MORE_DOCS;
+          doc = values.nextDoc()) {
+        int ord = values.ordValue();
+        if (previous != -1 && (doc != previous + 1 || ord != previousOrd)) {
+          roots.set(previous);
+        }
+        docsInBlocks.set(doc);
+        previous = doc;
+        previousOrd = ord;
+      }
+      if (previous != -1) {
+        roots.set(previous);
+      }
+    } else {
+      return null;
+    }
+    return new Blocks(roots, docsInBlocks.cardinality() == maxDoc ? null : docsInBlocks);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other != null && getClass() == other.getClass();
+  }
+
+  @Override
+  public int hashCode() {
+    return getClass().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "(" + IndexSchema.ROOT_FIELD_NAME + ")";
+  }
+}
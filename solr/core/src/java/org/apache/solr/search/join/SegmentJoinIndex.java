@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.search.join;
+
+import com.carrotsearch.hppc.IntArrayList;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.StringHelper;
+import org.apache.solr.search.SolrCache;
+
+/**
+ * The terms of a join field in one segment, each with the docs containing it, so that a join can
+ * check the from terms and union the docs of the to terms without seeking in the terms dictionary
+ * nor decoding postings.
+ *
+ * <p>Instances are kept in a user cache named {@link #CACHE_NAME_PREFIX} followed by the field
+ * name, keyed by the segment core, so they are only built once per segment. Configure the cache
+ * with the <code>NoOpRegenerator</code> to carry the indexes of unchanged segments over to new
+ * searchers. The docs include deleted docs, so the live docs must be applied when reading them.
+ */
+public final class SegmentJoinIndex implements Accountable {
+
+  public static final String CACHE_NAME_PREFIX = "perSegJoinIndex_"; // then field name
+
+  private static final long BASE_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(SegmentJoinIndex.class);
+
+  private final BytesRefHash terms; // term ids are the ords of the terms in the segment
+  private final int[] offsets; // the docs of term ord are docs[offsets[ord]..offsets[ord + 1]]
+  private final int[] docs;
+  private final long ramBytesUsed;
+
+  private SegmentJoinIndex(BytesRefHash terms, long termBytes, int[] offsets, int[] docs) {
+    this.terms = terms;
+    this.offsets = offsets;
+    this.docs = docs;
+    this.ramBytesUsed =
+        BASE_RAM_BYTES_USED
+            + termBytes
+            // the ids and the hash table of the terms
+            + 3L * terms.size() * Integer.BYTES
+            + RamUsageEstimator.sizeOf(offsets)
+            + RamUsageEstimator.sizeOf(docs);
+  }
+
+  /**
+   * Returns the index of the field in the given segment, from the cache.
+   *
+   * @param prefix if not null, only the terms starting with it are indexed
+   */
+  public static SegmentJoinIndex get(
+      SolrCache<Object, SegmentJoinIndex> cache,
+      LeafReaderContext context,
+      String field,
+      BytesRef prefix)
+      throws IOException {
+    IndexReader.CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+    if (cacheHelper == null) {
+      return build(context, field, prefix);
+    }
+    return cache.computeIfAbsent(
+        new SegmentKey(cacheHelper.getKey()), k -> build(context, field, prefix));
+  }
+
+  static SegmentJoinIndex build(LeafReaderContext context, String field, BytesRef prefix)
+      throws IOException {
+    BytesRefHash terms = new BytesRefHash();
+    long termBytes = 0;
+    IntArrayList offsets = new IntArrayList();
+    IntArrayList docs = new IntArrayList();
+    offsets.add(0);
+
+    Terms segmentTerms = context.reader().terms(field);
+    if (segmentTerms != null) {
+      TermsEnum termsEnum = segmentTerms.iterator();
+      PostingsEnum postingsEnum = null;
+      BytesRef term;
+      if (prefix == null) {
+        term = termsEnum.next();
+      } else {
+        term = termsEnum.seekCeil(prefix) == TermsEnum.SeekStatus.END ? null : termsEnum.term();
+      }
+      while (term != null) {
+        if (prefix != null && !StringHelper.startsWith(term, prefix)) break;
+        terms.add(term);
+        termBytes += term.length;
+        // deleted docs are skipped at query time, since the index outlives the live docs
+        postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.NONE);
+        int doc;
+        while ((doc = postingsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          docs.add(doc);
+        }
+        offsets.add(docs.size());
+        term = termsEnum.next();
+      }
+    }
+    return new SegmentJoinIndex(terms, termBytes, offsets.toArray(), docs.toArray());
+  }
+
+  /** The number of terms, whose ords go from 0 to size - 1. */
+  public int size() {
+    return terms.size();
+  }
+
+  public BytesRef term(int ord, BytesRef scratch) {
+    return terms.get(ord, scratch);
+  }
+
+  /** Returns the ord of the given term, or -1 if the segment doesn't have it. */
+  public int ord(BytesRef term) {
+    return terms.find(term);
+  }
+
+  /** Returns true if one of the docs of the term is set in the given top level bits. */
+  public boolean intersects(int ord, Bits bits, int docBase) {
+    for (int i = offsets[ord], end = offsets[ord + 1]; i < end; i++) {
+      if (bits.get(docBase + docs[i])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Sets the live docs of the term in the given top level bit set.
+   *
+   * @param liveDocs the live docs of the segment, or null if it has no deletions
+   * @return the number of docs set
+   */
+  public int addDocs(int ord, Bits liveDocs, FixedBitSet result, int docBase) {
+    int count = 0;
+    for (int i = offsets[ord], end = offsets[ord + 1]; i < end; i++) {
+      int doc = docs[i];
+      if (liveDocs == null || liveDocs.get(doc)) {
+        result.set(docBase + doc);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return ramBytesUsed;
+  }
+
+  // Used in a SolrCache for the key
+  private static class SegmentKey {
+    final WeakReference<Object> segCoreKeyRef;
+    final int hashCode; // cached because we can't necessarily compute after construction
+
+    private SegmentKey(Object segCoreKey) {
+      this.segCoreKeyRef = new WeakReference<>(segCoreKey);
+      this.hashCode = segCoreKey.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof SegmentKey)) return false;
+
+      // compare by referent not reference
+      Object segCoreKey = segCoreKeyRef.get();
+      if (segCoreKey == null) {
+        return false;
+      }
+      return segCoreKey.equals(((SegmentKey) o).segCoreKeyRef.get());
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public String toString() {
+      return "Key{seg=" + segCoreKeyRef.get() + '}';
+    }
+  }
+}
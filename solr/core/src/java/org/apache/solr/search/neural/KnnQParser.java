@@ -26,17 +26,30 @@ import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.schema.DenseVectorField;
 import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.DocSetProducer;
 import org.apache.solr.search.QParser;
 import org.apache.solr.search.QueryParsing;
 import org.apache.solr.search.QueryUtils;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SyntaxError;
+import org.apache.solr.util.vector.DenseVectorParser;
+import org.apache.solr.util.vector.VectorQuantization;
 
 public class KnnQParser extends QParser {
 
   // retrieve the top K results based on the distance similarity function
   static final String TOP_K = "topK";
   static final int DEFAULT_TOP_K = 10;
+  // the number of candidates collected from the HNSW graph of each segment, defaults to topK
+  static final String EF_SEARCH = "efSearch";
+  // search a segment by brute force when the filter accepts at most this fraction of its vectors
+  static final String EXACT_SEARCH_THRESHOLD = "exactSearchThreshold";
+  static final float DEFAULT_EXACT_SEARCH_THRESHOLD = 0f;
+  // stop the graph search of a segment after visiting this many nodes
+  static final String MAX_VISITED = "maxVisited";
+  // the default efSearch of quantized fields, as a multiple of topK, so that enough candidates are
+  // rescored with their full precision vectors
+  static final int DEFAULT_QUANTIZED_OVERSAMPLE = 4;
 
   /**
    * Constructor for the QParser
@@ -56,6 +69,10 @@ public class KnnQParser extends QParser {
     String denseVectorField = localParams.get(QueryParsing.F);
     String vectorToSearch = localParams.get(QueryParsing.V);
     int topK = localParams.getInt(TOP_K, DEFAULT_TOP_K);
+    Integer efSearch = localParams.getInt(EF_SEARCH);
+    float exactSearchThreshold =
+        localParams.getFloat(EXACT_SEARCH_THRESHOLD, DEFAULT_EXACT_SEARCH_THRESHOLD);
+    Integer maxVisited = localParams.getInt(MAX_VISITED);
 
     if (denseVectorField == null || denseVectorField.isEmpty()) {
       throw new SolrException(
@@ -77,8 +94,61 @@ public class KnnQParser extends QParser {
 
     DenseVectorField denseVectorType = (DenseVectorField) fieldType;
 
-    return denseVectorType.getKnnVectorQuery(
-        schemaField.getName(), vectorToSearch, topK, getFilterQuery());
+    VectorQuantization quantization = denseVectorType.getVectorQuantization();
+    Query filterQuery = getFilterQuery();
+    if (filterQuery == null
+        && efSearch == null
+        && maxVisited == null
+        && quantization == VectorQuantization.NONE) {
+      return denseVectorType.getKnnVectorQuery(
+          schemaField.getName(), vectorToSearch, topK, filterQuery);
+    }
+
+    DenseVectorParser vectorBuilder =
+        denseVectorType.getVectorBuilder(vectorToSearch, DenseVectorParser.BuilderPhase.QUERY);
+    SolrKnnVectorQuery knnQuery;
+    switch (denseVectorType.getVectorEncoding()) {
+      case FLOAT32:
+        knnQuery =
+            new SolrKnnVectorQuery(
+                schemaField.getName(), vectorBuilder.getFloatVector(), topK, filterQuery);
+        break;
+      case BYTE:
+        knnQuery =
+            new SolrKnnVectorQuery(
+                schemaField.getName(), vectorBuilder.getByteVector(), topK, filterQuery);
+        break;
+      default:
+        throw new SolrException(
+            SolrException.ErrorCode.SERVER_ERROR,
+            "Unexpected state. Vector Encoding: " + denseVectorType.getVectorEncoding());
+    }
+    if (quantization != VectorQuantization.NONE) {
+      knnQuery.setQuantization(
+          quantization,
+          denseVectorType.getQuantizationRange(),
+          denseVectorType.getSimilarityFunction(),
+          schemaField.getName() + DenseVectorField.FULL_PRECISION_SUFFIX);
+      if (efSearch == null) {
+        efSearch = topK * DEFAULT_QUANTIZED_OVERSAMPLE;
+      }
+    }
+    if (efSearch != null) {
+      knnQuery.setEfSearch(efSearch);
+    }
+    if (maxVisited != null) {
+      knnQuery.setMaxVisited(maxVisited);
+    }
+    knnQuery.setExactSearchThreshold(exactSearchThreshold);
+    if (filterQuery instanceof DocSetProducer) {
+      // the cached filters were already intersected into a DocSet, use its bits as is
+      try {
+        knnQuery.setFilterSet(((DocSetProducer) filterQuery).createDocSet(req.getSearcher()));
+      } catch (IOException e) {
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
+      }
+    }
+    return knnQuery;
   }
 
   private Query getFilterQuery() throws SolrException, SyntaxError {
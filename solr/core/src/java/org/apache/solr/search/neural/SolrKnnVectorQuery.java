@@ -0,0 +1,698 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.neural;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.ByteVectorValues;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.VectorEncoding;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.FilteredDocIdSetIterator;
+import org.apache.lucene.search.HitQueue;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.util.vector.VectorQuantization;
+
+/**
+ * K nearest neighbors search on a dense vector field, with the tuning knobs of the {@link
+ * KnnQParser}. Like Lucene's {@link org.apache.lucene.search.KnnFloatVectorQuery}, the search runs
+ * when the query is rewritten, and the top K documents are rewritten into a query that matches
+ * them with their similarity as the score.
+ *
+ * <ul>
+ *   <li>efSearch = the number of candidates collected from the HNSW graph of each segment, at least
+ *       topK. Larger values give a better recall at the cost of visiting more of the graph.
+ *   <li>filterSet = the pre-filter as a {@link DocSet}, usually from the filterCache. Its bits are
+ *       used as the accepted documents as is, instead of evaluating a filter query per segment.
+ *   <li>exactSearchThreshold = when the filter accepts at most this fraction of the vectors of a
+ *       segment, the segment is searched by brute force instead of through the graph.
+ *   <li>maxVisited = the max number of graph nodes visited per segment. The search of a segment
+ *       stops early when it is reached, with the best documents found so far.
+ *   <li>quantization = how the vectors of the field were quantized at index time, see {@link
+ *       VectorQuantization}. The efSearch candidates of each segment are found with the quantized
+ *       vectors, and then rescored with their full precision vectors.
+ * </ul>
+ *
+ * <p>Like Lucene, a segment is also searched by brute force when the filter accepts at most
+ * efSearch documents, or when the graph search visits more nodes than the filter accepts.
+ *
+ * @lucene.experimental
+ */
+public class SolrKnnVectorQuery extends Query {
+
+  private static final TopDocs NO_RESULTS =
+      new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+
+  private final String field;
+  private final float[] floatTarget; // null when searching byte vectors
+  private byte[] byteTarget; // null when searching float vectors
+  private final int topK;
+  private final Query filter; // maybe null
+  private DocSet filterSet; // maybe null, takes precedence over the filter
+  private int efSearch;
+  private float exactSearchThreshold = 0f;
+  private int maxVisited = Integer.MAX_VALUE;
+  private VectorQuantization quantization = VectorQuantization.NONE;
+  private float quantizationRange;
+  private VectorSimilarityFunction similarity; // of the full precision vectors
+  private String fullPrecisionField;
+  private byte[] binaryTarget; // the target of the BINARY quantization
+
+  public SolrKnnVectorQuery(String field, float[] target, int topK, Query filter) {
+    this(field, Objects.requireNonNull(target), null, topK, filter);
+  }
+
+  public SolrKnnVectorQuery(String field, byte[] target, int topK, Query filter) {
+    this(field, null, Objects.requireNonNull(target), topK, filter);
+  }
+
+  private SolrKnnVectorQuery(
+      String field, float[] floatTarget, byte[] byteTarget, int topK, Query filter) {
+    if (topK < 1) {
+      throw new IllegalArgumentException("topK must be at least 1, got: " + topK);
+    }
+    this.field = Objects.requireNonNull(field);
+    this.floatTarget = floatTarget;
+    this.byteTarget = byteTarget;
+    this.topK = topK;
+    this.filter = filter;
+    this.efSearch = topK;
+  }
+
+  public String getField() {
+    return field;
+  }
+
+  public int getTopK() {
+    return topK;
+  }
+
+  public Query getFilter() {
+    return filter;
+  }
+
+  public DocSet getFilterSet() {
+    return filterSet;
+  }
+
+  /**
+   * Sets the pre-filter as a {@link DocSet} of the searcher the query runs on, which replaces the
+   * filter query for the search.
+   */
+  public void setFilterSet(DocSet filterSet) {
+    this.filterSet = filterSet;
+  }
+
+  public int getEfSearch() {
+    return efSearch;
+  }
+
+  public void setEfSearch(int efSearch) {
+    this.efSearch = Math.max(topK, efSearch);
+  }
+
+  public float getExactSearchThreshold() {
+    return exactSearchThreshold;
+  }
+
+  public void setExactSearchThreshold(float exactSearchThreshold) {
+    this.exactSearchThreshold = exactSearchThreshold;
+  }
+
+  public int getMaxVisited() {
+    return maxVisited;
+  }
+
+  public void setMaxVisited(int maxVisited) {
+    this.maxVisited = maxVisited;
+  }
+
+  public VectorQuantization getQuantization() {
+    return quantization;
+  }
+
+  /**
+   * Searches the float target in the quantized vectors of the field, and rescores the candidates
+   * with the full precision vectors of the <code>fullPrecisionField</code>.
+   */
+  public void setQuantization(
+      VectorQuantization quantization,
+      float quantizationRange,
+      VectorSimilarityFunction similarity,
+      String fullPrecisionField) {
+    if (floatTarget == null) {
+      throw new IllegalStateException("Only float vectors can be quantized");
+    }
+    this.quantization = quantization;
+    this.quantizationRange = quantizationRange;
+    this.similarity = similarity;
+    this.fullPrecisionField = fullPrecisionField;
+    this.byteTarget = null;
+    this.binaryTarget = null;
+    switch (quantization) {
+      case INT8:
+        this.byteTarget = VectorQuantization.toInt8(floatTarget, quantizationRange);
+        break;
+      case BINARY:
+        this.binaryTarget = VectorQuantization.toBinary(floatTarget);
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Override
+  public Query rewrite(IndexReader reader) throws IOException {
+    Weight filterWeight = null;
+    if (filterSet == null && filter != null) {
+      IndexSearcher indexSearcher = new IndexSearcher(reader);
+      indexSearcher.setQueryCache(null);
+      filterWeight =
+          indexSearcher.createWeight(
+              indexSearcher.rewrite(filter), ScoreMode.COMPLETE_NO_SCORES, 1f);
+    }
+    Bits filterBits = filterSet == null ? null : filterSet.getBits();
+
+    List<LeafReaderContext> leaves = reader.leaves();
+    TopDocs[] perLeafResults = new TopDocs[leaves.size()];
+    for (LeafReaderContext ctx : leaves) {
+      TopDocs results = searchLeaf(ctx, filterWeight, filterBits);
+      if (ctx.docBase > 0) {
+        for (ScoreDoc scoreDoc : results.scoreDocs) {
+          scoreDoc.doc += ctx.docBase;
+        }
+      }
+      perLeafResults[ctx.ord] = results;
+    }
+    TopDocs topDocs = TopDocs.merge(topK, perLeafResults);
+    if (topDocs.scoreDocs.length == 0) {
+      return new MatchNoDocsQuery();
+    }
+    return new DocAndScoreQuery(topDocs.scoreDocs, reader);
+  }
+
+  private TopDocs searchLeaf(LeafReaderContext ctx, Weight filterWeight, Bits filterBits)
+      throws IOException {
+    switch (quantization) {
+      case INT8:
+        return rescore(ctx, searchGraph(ctx, filterWeight, filterBits));
+      case BINARY:
+        return rescore(ctx, binarySearch(ctx, filterWeight, filterBits));
+      default:
+        return searchGraph(ctx, filterWeight, filterBits);
+    }
+  }
+
+  private TopDocs searchGraph(LeafReaderContext ctx, Weight filterWeight, Bits filterBits)
+      throws IOException {
+    LeafReader leafReader = ctx.reader();
+    FieldInfo fieldInfo = leafReader.getFieldInfos().fieldInfo(field);
+    if (fieldInfo == null || fieldInfo.getVectorDimension() == 0) {
+      return NO_RESULTS;
+    }
+    if (filterBits == null && filterWeight == null) {
+      return approximateSearch(leafReader, leafReader.getLiveDocs(), maxVisited);
+    }
+
+    Bits acceptDocs;
+    int cost;
+    if (filterBits != null) {
+      // the DocSet only has live docs
+      DocIdSetIterator iterator = filterSet.iterator(ctx);
+      if (iterator == null) {
+        return NO_RESULTS;
+      }
+      cost = 0;
+      while (iterator.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+        cost++;
+      }
+      acceptDocs = new LeafBits(filterBits, ctx.docBase, leafReader.maxDoc());
+    } else {
+      Scorer scorer = filterWeight.scorer(ctx);
+      if (scorer == null) {
+        return NO_RESULTS;
+      }
+      Bits liveDocs = leafReader.getLiveDocs();
+      DocIdSetIterator iterator =
+          liveDocs == null
+              ? scorer.iterator()
+              : new FilteredDocIdSetIterator(scorer.iterator()) {
+                @Override
+                protected boolean match(int doc) {
+                  return liveDocs.get(doc);
+                }
+              };
+      BitSet bits = BitSet.of(iterator, leafReader.maxDoc());
+      cost = bits.cardinality();
+      acceptDocs = bits;
+    }
+    if (cost == 0) {
+      return NO_RESULTS;
+    }
+
+    if (cost <= efSearch || cost <= exactSearchThreshold * vectorCount(leafReader, fieldInfo)) {
+      return exactSearch(ctx, fieldInfo, acceptIterator(ctx, acceptDocs, cost));
+    }
+    int visitedLimit = Math.min(cost, maxVisited);
+    TopDocs results = approximateSearch(leafReader, acceptDocs, visitedLimit);
+    if (results.totalHits.relation == TotalHits.Relation.EQUAL_TO || visitedLimit < cost) {
+      return results;
+    }
+    // the graph search visited more nodes than the filter accepts
+    return exactSearch(ctx, fieldInfo, acceptIterator(ctx, acceptDocs, cost));
+  }
+
+  private TopDocs approximateSearch(LeafReader leafReader, Bits acceptDocs, int visitedLimit)
+      throws IOException {
+    if (byteTarget == null) {
+      return leafReader.searchNearestVectors(
+          field, floatTarget, efSearch, acceptDocs, visitedLimit);
+    } else {
+      return leafReader.searchNearestVectors(field, byteTarget, efSearch, acceptDocs, visitedLimit);
+    }
+  }
+
+  private DocIdSetIterator acceptIterator(LeafReaderContext ctx, Bits acceptDocs, int cost) {
+    if (acceptDocs instanceof BitSet) {
+      return new BitSetIterator((BitSet) acceptDocs, cost);
+    }
+    return filterSet.iterator(ctx);
+  }
+
+  private int vectorCount(LeafReader leafReader, FieldInfo fieldInfo) throws IOException {
+    if (fieldInfo.getVectorEncoding() == VectorEncoding.BYTE) {
+      ByteVectorValues values = leafReader.getByteVectorValues(field);
+      return values == null ? 0 : values.size();
+    } else {
+      FloatVectorValues values = leafReader.getFloatVectorValues(field);
+      return values == null ? 0 : values.size();
+    }
+  }
+
+  /** Scores every accepted document of the segment, and keeps the top efSearch. */
+  private TopDocs exactSearch(LeafReaderContext ctx, FieldInfo fieldInfo, DocIdSetIterator accepted)
+      throws IOException {
+    VectorSimilarityFunction similarity = fieldInfo.getVectorSimilarityFunction();
+    FloatVectorValues floatValues = null;
+    ByteVectorValues byteValues = null;
+    DocIdSetIterator values;
+    if (byteTarget == null) {
+      values = floatValues = ctx.reader().getFloatVectorValues(field);
+    } else {
+      values = byteValues = ctx.reader().getByteVectorValues(field);
+    }
+    if (values == null) {
+      return NO_RESULTS;
+    }
+
+    HitQueue queue = new HitQueue(efSearch, true);
+    ScoreDoc topDoc = queue.top();
+    int visited = 0;
+    int doc;
+    while ((doc = accepted.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+      if (values.docID() < doc) {
+        values.advance(doc);
+      }
+      if (values.docID() != doc) {
+        continue;
+      }
+      visited++;
+      float score =
+          floatValues != null
+              ? similarity.compare(floatTarget, floatValues.vectorValue())
+              : similarity.compare(byteTarget, byteValues.vectorValue());
+      if (score > topDoc.score) {
+        topDoc.score = score;
+        topDoc.doc = doc;
+        topDoc = queue.updateTop();
+      }
+    }
+
+    return topDocs(queue, visited);
+  }
+
+  /** Scans the binary quantized vectors of the accepted documents by Hamming distance. */
+  private TopDocs binarySearch(LeafReaderContext ctx, Weight filterWeight, Bits filterBits)
+      throws IOException {
+    LeafReader leafReader = ctx.reader();
+    BinaryDocValues values = leafReader.getBinaryDocValues(field);
+    if (values == null) {
+      return NO_RESULTS;
+    }
+    DocIdSetIterator accepted;
+    Bits liveDocs = leafReader.getLiveDocs();
+    if (filterBits != null) {
+      // the DocSet only has live docs
+      accepted = filterSet.iterator(ctx);
+      liveDocs = null;
+    } else if (filterWeight != null) {
+      Scorer scorer = filterWeight.scorer(ctx);
+      accepted = scorer == null ? null : scorer.iterator();
+    } else {
+      accepted = values;
+    }
+    if (accepted == null) {
+      return NO_RESULTS;
+    }
+
+    float bitCount = binaryTarget.length * Byte.SIZE;
+    HitQueue queue = new HitQueue(efSearch, true);
+    ScoreDoc topDoc = queue.top();
+    int visited = 0;
+    int doc;
+    while ((doc = accepted.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+      if (liveDocs != null && !liveDocs.get(doc)) {
+        continue;
+      }
+      if (accepted != values && !values.advanceExact(doc)) {
+        continue;
+      }
+      visited++;
+      float score =
+          1f - VectorQuantization.hammingDistance(binaryTarget, values.binaryValue()) / bitCount;
+      if (score > topDoc.score) {
+        topDoc.score = score;
+        topDoc.doc = doc;
+        topDoc = queue.updateTop();
+      }
+    }
+    return topDocs(queue, visited);
+  }
+
+  private static TopDocs topDocs(HitQueue queue, int visited) {
+    // remove the sentinels that were not replaced
+    while (queue.size() > 0 && queue.top().score == Float.NEGATIVE_INFINITY) {
+      queue.pop();
+    }
+    ScoreDoc[] topScoreDocs = new ScoreDoc[queue.size()];
+    for (int i = topScoreDocs.length - 1; i >= 0; i--) {
+      topScoreDocs[i] = queue.pop();
+    }
+    return new TopDocs(new TotalHits(visited, TotalHits.Relation.EQUAL_TO), topScoreDocs);
+  }
+
+  /** Rescores the candidates of a segment with their full precision vectors. */
+  private TopDocs rescore(LeafReaderContext ctx, TopDocs candidates) throws IOException {
+    if (candidates.scoreDocs.length == 0) {
+      return candidates;
+    }
+    ScoreDoc[] scoreDocs = candidates.scoreDocs.clone();
+    Arrays.sort(scoreDocs, Comparator.comparingInt(scoreDoc -> scoreDoc.doc));
+    BinaryDocValues values = DocValues.getBinary(ctx.reader(), fullPrecisionField);
+    float[] vector = new float[floatTarget.length];
+    for (ScoreDoc scoreDoc : scoreDocs) {
+      if (values.advanceExact(scoreDoc.doc)) {
+        VectorQuantization.decode(values.binaryValue(), vector);
+        scoreDoc.score = similarity.compare(floatTarget, vector);
+      }
+    }
+    Arrays.sort(
+        scoreDocs,
+        (a, b) -> {
+          int cmp = Float.compare(b.score, a.score);
+          return cmp != 0 ? cmp : a.doc - b.doc;
+        });
+    return new TopDocs(candidates.totalHits, scoreDocs);
+  }
+
+  @Override
+  public void visit(QueryVisitor visitor) {
+    if (visitor.acceptField(field)) {
+      visitor.visitLeaf(this);
+    }
+  }
+
+  @Override
+  public String toString(String field) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(getClass().getSimpleName()).append(':').append(this.field).append('[');
+    sb.append(floatTarget != null ? floatTarget[0] : byteTarget[0]).append(",...]");
+    sb.append('[').append(topK).append(']');
+    if (efSearch != topK) {
+      sb.append("[efSearch=").append(efSearch).append(']');
+    }
+    if (quantization != VectorQuantization.NONE) {
+      sb.append("[quantization=").append(quantization).append(']');
+    }
+    if (filter != null) {
+      sb.append("[").append(filter).append("]");
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return sameClassAs(other) && equalsTo(getClass().cast(other));
+  }
+
+  private boolean equalsTo(SolrKnnVectorQuery other) {
+    return field.equals(other.field)
+        && Arrays.equals(floatTarget, other.floatTarget)
+        && Arrays.equals(byteTarget, other.byteTarget)
+        && topK == other.topK
+        && efSearch == other.efSearch
+        && Float.compare(exactSearchThreshold, other.exactSearchThreshold) == 0
+        && maxVisited == other.maxVisited
+        && quantization == other.quantization
+        && Float.compare(quantizationRange, other.quantizationRange) == 0
+        && Objects.equals(filter, other.filter)
+        && Objects.equals(filterSet, other.filterSet);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = classHash();
+    result = 31 * result + field.hashCode();
+    result = 31 * result + Arrays.hashCode(floatTarget);
+    result = 31 * result + Arrays.hashCode(byteTarget);
+    result = 31 * result + topK;
+    result = 31 * result + efSearch;
+    result = 31 * result + Float.floatToIntBits(exactSearchThreshold);
+    result = 31 * result + maxVisited;
+    result = 31 * result + quantization.hashCode();
+    result = 31 * result + Float.floatToIntBits(quantizationRange);
+    result = 31 * result + Objects.hashCode(filter);
+    result = 31 * result + Objects.hashCode(filterSet);
+    return result;
+  }
+
+  /** A view of the top level bits of a {@link DocSet} for a segment. */
+  private static final class LeafBits implements Bits {
+    private final Bits bits;
+    private final int docBase;
+    private final int maxDoc;
+
+    LeafBits(Bits bits, int docBase, int maxDoc) {
+      this.bits = bits;
+      this.docBase = docBase;
+      this.maxDoc = maxDoc;
+    }
+
+    @Override
+    public boolean get(int index) {
+      return bits.get(docBase + index);
+    }
+
+    @Override
+    public int length() {
+      return maxDoc;
+    }
+  }
+
+  /** Matches the top K documents found by the search, scored by their similarity. */
+  static final class DocAndScoreQuery extends Query {
+    private final int[] docs;
+    private final float[] scores;
+    private final int[] segmentStarts;
+    private final Object contextIdentity;
+
+    DocAndScoreQuery(ScoreDoc[] scoreDocs, IndexReader reader) {
+      ScoreDoc[] sorted = scoreDocs.clone();
+      Arrays.sort(sorted, Comparator.comparingInt(scoreDoc -> scoreDoc.doc));
+      this.docs = new int[sorted.length];
+      this.scores = new float[sorted.length];
+      for (int i = 0; i < sorted.length; i++) {
+        docs[i] = sorted[i].doc;
+        scores[i] = sorted[i].score;
+      }
+      this.segmentStarts = findSegmentStarts(reader, docs);
+      this.contextIdentity = reader.getContext().id();
+    }
+
+    private static int[] findSegmentStarts(IndexReader reader, int[] docs) {
+      List<LeafReaderContext> leaves = reader.leaves();
+      int[] starts = new int[leaves.size() + 1];
+      starts[starts.length - 1] = docs.length;
+      int index = 0;
+      for (int i = 1; i < starts.length - 1; i++) {
+        index = Arrays.binarySearch(docs, index, docs.length, leaves.get(i).docBase);
+        if (index < 0) {
+          index = -1 - index;
+        }
+        starts[i] = index;
+      }
+      return starts;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost)
+        throws IOException {
+      if (searcher.getIndexReader().getContext().id() != contextIdentity) {
+        throw new IllegalStateException("This query was created by a different reader");
+      }
+      return new Weight(this) {
+        @Override
+        public Explanation explain(LeafReaderContext context, int doc) {
+          int found =
+              Arrays.binarySearch(
+                  docs,
+                  segmentStarts[context.ord],
+                  segmentStarts[context.ord + 1],
+                  doc + context.docBase);
+          if (found < 0) {
+            return Explanation.noMatch("not in top " + docs.length);
+          }
+          return Explanation.match(scores[found] * boost, "within top " + docs.length);
+        }
+
+        @Override
+        public Scorer scorer(LeafReaderContext context) {
+          final int lower = segmentStarts[context.ord];
+          final int upper = segmentStarts[context.ord + 1];
+          if (lower == upper) {
+            return null;
+          }
+          final int docBase = context.docBase;
+          return new Scorer(this) {
+            int upTo = -1;
+
+            @Override
+            public DocIdSetIterator iterator() {
+              return new DocIdSetIterator() {
+                @Override
+                public int docID() {
+                  return currentDoc();
+                }
+
+                @Override
+                public int nextDoc() {
+                  upTo = upTo == -1 ? lower : upTo + 1;
+                  return currentDoc();
+                }
+
+                @Override
+                public int advance(int target) throws IOException {
+                  return slowAdvance(target);
+                }
+
+                @Override
+                public long cost() {
+                  return upper - lower;
+                }
+              };
+            }
+
+            private int currentDoc() {
+              if (upTo == -1) {
+                return -1;
+              }
+              if (upTo >= upper) {
+                return DocIdSetIterator.NO_MORE_DOCS;
+              }
+              return docs[upTo] - docBase;
+            }
+
+            @Override
+            public float getMaxScore(int docId) {
+              float maxScore = 0;
+              for (int i = Math.max(lower, upTo); i < upper && docs[i] - docBase <= docId; i++) {
+                maxScore = Math.max(maxScore, scores[i]);
+              }
+              return maxScore * boost;
+            }
+
+            @Override
+            public float score() {
+              return scores[upTo] * boost;
+            }
+
+            @Override
+            public int docID() {
+              return currentDoc();
+            }
+          };
+        }
+
+        @Override
+        public boolean isCacheable(LeafReaderContext ctx) {
+          return true;
+        }
+      };
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+      visitor.visitLeaf(this);
+    }
+
+    @Override
+    public String toString(String field) {
+      return "DocAndScoreQuery[" + docs.length + " docs]";
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return sameClassAs(other) && equalsTo(getClass().cast(other));
+    }
+
+    private boolean equalsTo(DocAndScoreQuery other) {
+      return contextIdentity == other.contextIdentity
+          && Arrays.equals(docs, other.docs)
+          && Arrays.equals(scores, other.scores);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(
+          classHash(), contextIdentity, Arrays.hashCode(docs), Arrays.hashCode(scores));
+    }
+  }
+}
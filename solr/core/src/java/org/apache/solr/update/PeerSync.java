@@ -275,8 +275,26 @@ public class PeerSync implements SolrMetricProducer {
     }
   }
 
+  /**
+   * Checks whether every replica returns the same index fingerprint as ours. Unlike the check done
+   * by {@link #sync()} before exchanging versions, which is satisfied by any single replica, this
+   * fails if any replica does not answer or has a different fingerprint.
+   *
+   * @return true if all the replicas are known to be in sync with us
+   */
+  public boolean isInSyncWithAll() {
+    if (!doFingerprint || ulog == null) {
+      return false;
+    }
+    return alreadyInSync(true);
+  }
+
   /** Check if we are already in sync. Simple fingerprint comparison should do */
   private boolean alreadyInSync() {
+    return alreadyInSync(false);
+  }
+
+  private boolean alreadyInSync(boolean all) {
     for (String replica : replicas) {
       requestFingerprint(replica);
     }
@@ -289,6 +307,9 @@ public class PeerSync implements SolrMetricProducer {
       ourFingerprint = IndexFingerprint.getFingerprint(core, Long.MAX_VALUE);
     } catch (IOException e) {
       log.warn("Could not confirm if we are already in sync. Continue with PeerSync");
+      if (all) {
+        shardHandler.cancelAll();
+      }
       return false;
     }
 
@@ -304,17 +325,34 @@ public class PeerSync implements SolrMetricProducer {
       if (replicaFingerprint == null) {
         log.warn(
             "Replica did not return a fingerprint - possibly an older Solr version or exception");
+        if (all) {
+          shardHandler.cancelAll();
+          return false;
+        }
         continue;
       }
 
       IndexFingerprint otherFingerprint = IndexFingerprint.fromObject(replicaFingerprint);
-      if (IndexFingerprint.compare(otherFingerprint, ourFingerprint) == 0) {
+      boolean inSync = IndexFingerprint.compare(otherFingerprint, ourFingerprint) == 0;
+      if (all && !inSync) {
+        if (log.isInfoEnabled()) {
+          log.info(
+              "{} is not in sync with {}: other fingerprint {}, our fingerprint {}",
+              msg(),
+              srsp.getShardAddress(),
+              otherFingerprint,
+              ourFingerprint);
+        }
+        shardHandler.cancelAll();
+        return false;
+      }
+      if (!all && inSync) {
         log.info("We are already in sync. No need to do a PeerSync ");
         return true;
       }
     }
 
-    return false;
+    return all;
   }
 
   private void requestFingerprint(String replica) {
@@ -30,6 +30,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.lucene.index.CodecReader;
 import org.apache.lucene.index.FilterCodecReader;
+import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
@@ -84,7 +85,13 @@ public class SolrIndexSplitter {
 
   public enum SplitMethod {
     REWRITE,
-    LINK;
+    LINK,
+    /**
+     * Like {@link #LINK}, but hard-links the files of the parent's latest commit while its
+     * IndexWriter keeps running, and merges away the deleted documents of the sub-indexes in the
+     * background once they are in use.
+     */
+    ONLINE;
 
     public static SplitMethod get(String p) {
       if (p != null) {
@@ -111,6 +118,8 @@ public class SolrIndexSplitter {
   final int numPieces;
   final String splitKey;
   SplitMethod splitMethod;
+  // the parent commit whose files are linked into the sub-indexes with SplitMethod.ONLINE
+  IndexCommit parentCommit;
   final RTimerTree timings = new RTimerTree();
 
   public SolrIndexSplitter(SplitIndexCommand cmd) {
@@ -183,6 +192,18 @@ public class SolrIndexSplitter {
             "Error closing current IndexWriter, aborting 'link' split...",
             e);
       }
+    } else if (splitMethod == SplitMethod.ONLINE) {
+      // the parent was committed before splitting, so its latest commit has all the documents that
+      // were indexed before the sub-shards started receiving updates; protect its files from being
+      // deleted by merges until they have been linked
+      parentCommit = parentCore.getDeletionPolicy().getAndSaveLatestCommit();
+      if (parentCommit == null) {
+        throw new SolrException(
+            SolrException.ErrorCode.SERVER_ERROR,
+            "No commit point in parent core, aborting 'online' split...");
+      }
+      log.info(
+          "Splitting in 'online' mode: using parent commit {}", parentCommit.getSegmentsFileName());
     }
     boolean success = false;
     try {
@@ -194,6 +215,9 @@ public class SolrIndexSplitter {
       results.add("failed", e.toString());
       throw e;
     } finally {
+      if (parentCommit != null) {
+        parentCore.getDeletionPolicy().releaseCommitPoint(parentCommit);
+      }
       if (splitMethod == SplitMethod.LINK) {
         IOUtils.closeWhileHandlingException(parentDirectoryLock);
         RTimerTree t = timings.sub("reopenParentIW");
@@ -228,7 +252,7 @@ public class SolrIndexSplitter {
     // this tracks round-robin assignment of docs to partitions
     AtomicInteger currentPartition = new AtomicInteger();
 
-    if (splitMethod != SplitMethod.LINK) {
+    if (!isLinking()) {
       t = timings.sub("findDocSetsPerLeaf");
       for (LeafReaderContext readerContext : leaves) {
         assert readerContext.ordInParent == segmentDocSets.size(); // make sure we're going in order
@@ -266,12 +290,12 @@ public class SolrIndexSplitter {
 
       RefCounted<IndexWriter> iwRef = null;
       IndexWriter iw;
-      if (cmd.cores != null && splitMethod != SplitMethod.LINK) {
+      if (cmd.cores != null && !isLinking()) {
         SolrCore subCore = cmd.cores.get(partitionNumber);
         iwRef = subCore.getUpdateHandler().getSolrCoreState().getIndexWriter(subCore);
         iw = iwRef.get();
       } else {
-        if (splitMethod == SplitMethod.LINK) {
+        if (isLinking()) {
           SolrCore subCore = cmd.cores.get(partitionNumber);
           String path = subCore.getDataDir() + INDEX_PREFIX + timestamp;
           t = timings.sub("hardLinkCopy");
@@ -288,14 +312,22 @@ public class SolrIndexSplitter {
           HardlinkCopyDirectoryWrapper hardLinkedDir = new HardlinkCopyDirectoryWrapper(splitDir);
           boolean copiedOk = false;
           try {
-            for (String file : parentDirectory.listAll()) {
-              // we've closed the IndexWriter, so ignore write.lock
-              // its file may be present even when IndexWriter is closed but
-              // we've already checked that the lock is not held by anyone else
-              if (file.equals(IndexWriter.WRITE_LOCK_NAME)) {
-                continue;
+            if (parentCommit != null) {
+              // the parent IndexWriter is still open, only link the files of the saved commit
+              Directory commitDirectory = parentCommit.getDirectory();
+              for (String file : parentCommit.getFileNames()) {
+                hardLinkedDir.copyFrom(commitDirectory, file, file, IOContext.DEFAULT);
+              }
+            } else {
+              for (String file : parentDirectory.listAll()) {
+                // we've closed the IndexWriter, so ignore write.lock
+                // its file may be present even when IndexWriter is closed but
+                // we've already checked that the lock is not held by anyone else
+                if (file.equals(IndexWriter.WRITE_LOCK_NAME)) {
+                  continue;
+                }
+                hardLinkedDir.copyFrom(parentDirectory, file, file, IOContext.DEFAULT);
               }
-              hardLinkedDir.copyFrom(parentDirectory, file, file, IOContext.DEFAULT);
             }
             copiedOk = true;
           } finally {
@@ -333,7 +365,7 @@ public class SolrIndexSplitter {
       }
 
       try {
-        if (splitMethod == SplitMethod.LINK) {
+        if (isLinking()) {
           t = timings.sub("deleteDocuments");
           t.resume();
           // apply deletions specific to this partition. As a side-effect on the first call this
@@ -392,7 +424,7 @@ public class SolrIndexSplitter {
           } else {
             IOUtils.closeWhileHandlingException(iw);
           }
-          if (splitMethod == SplitMethod.LINK) {
+          if (isLinking()) {
             SolrCore subCore = cmd.cores.get(partitionNumber);
             subCore.getDirectoryFactory().release(iw.getDirectory());
           }
@@ -401,7 +433,7 @@ public class SolrIndexSplitter {
     }
     // all sub-indexes created ok
     // when using hard-linking switch directories & refresh cores
-    if (splitMethod == SplitMethod.LINK && cmd.cores != null) {
+    if (isLinking() && cmd.cores != null) {
       boolean switchOk = true;
       t = timings.sub("switchSubIndexes");
       for (int partitionNumber = 0; partitionNumber < numPieces; partitionNumber++) {
@@ -493,6 +525,38 @@ public class SolrIndexSplitter {
           }
         }
         t.stop();
+        if (splitMethod == SplitMethod.ONLINE) {
+          t = timings.sub("startSubIndexCompaction");
+          for (int partitionNumber = 0; partitionNumber < numPieces; partitionNumber++) {
+            startCompaction(cmd.cores.get(partitionNumber));
+          }
+          t.stop();
+        }
+      }
+    }
+  }
+
+  private boolean isLinking() {
+    return splitMethod == SplitMethod.LINK || splitMethod == SplitMethod.ONLINE;
+  }
+
+  /**
+   * Schedules merges of the segments of a sub-index that hold documents belonging to other
+   * partitions, without waiting for them. They run on the merge scheduler's threads, which throttle
+   * their IO by default, while the sub-core is already serving, and their result becomes visible
+   * with the next commit.
+   */
+  private void startCompaction(SolrCore subCore) {
+    RefCounted<IndexWriter> iwRef = null;
+    try {
+      iwRef = subCore.getSolrCoreState().getIndexWriter(subCore);
+      iwRef.get().forceMergeDeletes(false);
+    } catch (Exception e) {
+      // the deleted documents will still be merged away eventually by regular merges
+      log.warn("Could not start merging deleted documents of {}", subCore.getName(), e);
+    } finally {
+      if (iwRef != null) {
+        iwRef.decref();
       }
     }
   }
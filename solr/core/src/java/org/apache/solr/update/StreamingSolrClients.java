@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import org.apache.lucene.util.BytesRef;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.impl.ConcurrentUpdateHttp2SolrClient;
 import org.apache.solr.client.solrj.impl.Http2SolrClient;
@@ -42,10 +43,17 @@ public class StreamingSolrClients {
   // should be less than solr.jetty.http.idleTimeout
   private final int pollQueueTimeMillis =
       Integer.getInteger("solr.cloud.client.pollQueueTime", 10000);
+  // number of update streams kept in flight per replica; 1 streams everything over one request
+  private final int pipelineDepth =
+      Math.max(1, Integer.getInteger("solr.cloud.replication.pipelineDepth", 1));
+  // number of consecutive updates without an id sent over one stream before moving on to the next
+  private final int pipelineBatchSize =
+      Math.max(1, Integer.getInteger("solr.cloud.replication.pipelineBatchSize", 100));
 
   private Http2SolrClient httpClient;
 
   private Map<String, ConcurrentUpdateHttp2SolrClient> solrClients = new HashMap<>();
+  private Map<String, Integer> pipelineCounts = new HashMap<>();
   private List<SolrError> errors = Collections.synchronizedList(new ArrayList<>());
 
   private ExecutorService updateExecutor;
@@ -63,9 +71,24 @@ public class StreamingSolrClients {
     errors.clear();
   }
 
+  /**
+   * Returns the client streaming updates to the node of the given request.
+   *
+   * <p>With a pipeline depth greater than 1, each node gets that many clients. Each client has its
+   * own HTTP/2 stream (multiplexed over the same connection), so the node processes several batches
+   * concurrently instead of one after another. Adds and deletes by id are sent over the client of
+   * their id, so that the updates of a document keep their order: an in-place update arriving
+   * before the one it depends on would make the replica wait for it, or fetch the full document
+   * from the leader. The other updates move on to the next client every {@code pipelineBatchSize}
+   * updates.
+   */
   public synchronized SolrClient getSolrClient(final SolrCmdDistributor.Req req) {
     String url = getFullUrl(req.node.getUrl());
-    ConcurrentUpdateHttp2SolrClient client = solrClients.get(url);
+    String key = url;
+    if (pipelineDepth > 1) {
+      key = url + "#" + getStream(url, req.cmd);
+    }
+    ConcurrentUpdateHttp2SolrClient client = solrClients.get(key);
     if (client == null) {
       // NOTE: increasing to more than 1 threadCount for the client could cause updates to be
       // reordered on a greater scale since the current behavior is to only increase the number of
@@ -80,12 +103,36 @@ public class StreamingSolrClients {
                   pollQueueTimeMillis, TimeUnit.MILLISECONDS) // minimize connections created
               .build();
 
-      solrClients.put(url, client);
+      solrClients.put(key, client);
     }
 
     return client;
   }
 
+  private int getStream(String url, UpdateCommand cmd) {
+    BytesRef id = getIndexedId(cmd);
+    if (id != null) {
+      return Math.floorMod(id.hashCode(), pipelineDepth);
+    }
+    int count = pipelineCounts.merge(url, 1, Integer::sum) - 1;
+    return Math.floorMod(count / pipelineBatchSize, pipelineDepth);
+  }
+
+  /** Returns the indexed id of an add or a delete by id, or null for the other updates. */
+  private static BytesRef getIndexedId(UpdateCommand cmd) {
+    // the ids need the schema of the request, which is only missing in tests
+    if (cmd == null || cmd.getReq() == null) {
+      return null;
+    }
+    if (cmd instanceof AddUpdateCommand) {
+      return ((AddUpdateCommand) cmd).getIndexedId();
+    }
+    if (cmd instanceof DeleteUpdateCommand && ((DeleteUpdateCommand) cmd).isDeleteById()) {
+      return ((DeleteUpdateCommand) cmd).getIndexedId();
+    }
+    return null;
+  }
+
   public synchronized void blockUntilFinished() throws IOException {
     for (ConcurrentUpdateHttp2SolrClient client : solrClients.values()) {
       client.blockUntilFinished();
@@ -21,6 +21,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import org.apache.lucene.util.BytesRef;
 import org.apache.solr.common.SolrException;
 
 /**
@@ -51,6 +52,22 @@ public class TimedVersionBucket extends VersionBucket {
     }
   }
 
+  /**
+   * Unlike the default implementation, all ids of the bucket share the lock, so that the timeout
+   * applies to the whole bucket.
+   */
+  @Override
+  public <T, R> R runWithLock(int lockTimeoutMs, BytesRef id, CheckedFunction<T, R> function)
+      throws IOException {
+    return runWithLock(
+        lockTimeoutMs,
+        () -> {
+          // just in case anyone is waiting let them know that we have a new update
+          signalAll();
+          return function.apply();
+        });
+  }
+
   @Override
   public void unlock() {
     lock.unlock();
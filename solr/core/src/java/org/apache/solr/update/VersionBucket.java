@@ -18,6 +18,8 @@ package org.apache.solr.update;
 
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import org.apache.lucene.util.BytesRef;
 
 // TODO: make inner?
 // TODO: store the highest possible in the index on a commit (but how to not block adds?)
@@ -31,12 +33,26 @@ import java.util.concurrent.TimeUnit;
  * ignores the <code>lockTimeoutMs</code>.
  */
 public class VersionBucket {
-  public long highest;
+  private static final AtomicLongFieldUpdater<VersionBucket> HIGHEST =
+      AtomicLongFieldUpdater.newUpdater(VersionBucket.class, "highest");
+
+  // updated without holding the bucket lock by the updates of different ids, see runWithLock(id)
+  public volatile long highest;
+
+  // the ids of this bucket being updated right now, almost always none or just one
+  private IdLock lockedIds;
 
   public void updateHighest(long val) {
-    if (highest != 0) {
-      highest = Math.max(highest, Math.abs(val));
-    }
+    long abs = Math.abs(val);
+    long current;
+    do {
+      current = highest;
+    } while (current != 0 && current < abs && !HIGHEST.compareAndSet(this, current, abs));
+  }
+
+  /** Raises the highest version to the given one, even if it wasn't known yet. */
+  void seedHighest(long val) {
+    HIGHEST.accumulateAndGet(this, val, Math::max);
   }
 
   @FunctionalInterface
@@ -52,6 +68,61 @@ public class VersionBucket {
     }
   }
 
+  /**
+   * This will run the function holding a lock of the given id only, so that the updates of other
+   * ids hashing to this bucket don't wait for it. The updates waiting in {@link #awaitNanos(long)}
+   * are signalled once the function returns.
+   */
+  public <T, R> R runWithLock(int lockTimeoutMs, BytesRef id, CheckedFunction<T, R> function)
+      throws IOException {
+    IdLock idLock = lockId(id);
+    try {
+      synchronized (idLock) {
+        return function.apply();
+      }
+    } finally {
+      unlockId(idLock);
+    }
+  }
+
+  private synchronized IdLock lockId(BytesRef id) {
+    for (IdLock idLock = lockedIds; idLock != null; idLock = idLock.next) {
+      if (idLock.id.bytesEquals(id)) {
+        idLock.users++;
+        return idLock;
+      }
+    }
+    lockedIds = new IdLock(BytesRef.deepCopyOf(id), lockedIds);
+    return lockedIds;
+  }
+
+  private synchronized void unlockId(IdLock idLock) {
+    if (--idLock.users == 0) {
+      if (lockedIds == idLock) {
+        lockedIds = idLock.next;
+      } else {
+        IdLock prev = lockedIds;
+        while (prev.next != idLock) {
+          prev = prev.next;
+        }
+        prev.next = idLock.next;
+      }
+    }
+    // the update is applied, let the dependent updates waiting in this bucket check again
+    notifyAll();
+  }
+
+  private static final class IdLock {
+    final BytesRef id;
+    IdLock next;
+    int users = 1;
+
+    IdLock(BytesRef id, IdLock next) {
+      this.id = id;
+      this.next = next;
+    }
+  }
+
   /** Nothing to do for the intrinsic object monitor. */
   public void unlock() {}
 
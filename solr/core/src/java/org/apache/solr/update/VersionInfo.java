@@ -21,6 +21,7 @@ import static org.apache.solr.common.params.CommonParams.VERSION_FIELD;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.lucene.index.LeafReader;
@@ -169,35 +170,24 @@ public class VersionInfo {
   // Good if we want to relax some constraints to scale down to where only one node may be
   // up at a time.  Possibly harder to detect missing messages (because versions are not
   // contiguous).
-  private long vclock;
-
-  private final Object clockSync = new Object();
+  // Updated with CAS instead of a monitor, since every add and delete on a leader takes a new
+  // clock and that would otherwise serialize all indexing threads, whatever their bucket.
+  private final AtomicLong vclock = new AtomicLong();
 
   @SuppressForbidden(
       reason =
           "need currentTimeMillis just for getting realistic version stamps, does not assume monotonicity")
   public long getNewClock() {
-    synchronized (clockSync) {
-      long time = System.currentTimeMillis();
-      long result = time << 20;
-      if (result <= vclock) {
-        result = vclock + 1;
-      }
-      vclock = result;
-      return vclock;
-    }
+    final long time = System.currentTimeMillis() << 20;
+    return vclock.updateAndGet(prev -> time > prev ? time : prev + 1);
   }
 
   public long getOldClock() {
-    synchronized (clockSync) {
-      return vclock;
-    }
+    return vclock.get();
   }
 
   public void updateClock(long clock) {
-    synchronized (clockSync) {
-      vclock = Math.max(vclock, clock);
-    }
+    vclock.accumulateAndGet(clock, Math::max);
   }
 
   public VersionBucket bucket(int hash) {
@@ -285,11 +275,8 @@ public class VersionInfo {
 
   public void seedBucketsWithHighestVersion(long highestVersion) {
     for (int i = 0; i < buckets.length; i++) {
-      // should not happen, but in case other threads are calling updateHighest on the version
-      // bucket
-      synchronized (buckets[i]) {
-        if (buckets[i].highest < highestVersion) buckets[i].highest = highestVersion;
-      }
+      // should not happen, but other threads may be calling updateHighest on the version bucket
+      buckets[i].seedHighest(highestVersion);
     }
   }
 
@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update.processor;
+
+import static org.apache.solr.common.SolrException.ErrorCode.SERVER_ERROR;
+import static org.apache.solr.update.processor.DistributingUpdateProcessorFactory.DISTRIB_UPDATE_PARAM;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.handler.component.RealTimeGetComponent;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.CommitUpdateCommand;
+import org.apache.solr.update.DeleteUpdateCommand;
+import org.apache.solr.update.MergeIndexesCommand;
+import org.apache.solr.update.RollbackUpdateCommand;
+import org.apache.solr.update.UpdateCommand;
+import org.apache.solr.update.UpdateLog;
+import org.apache.solr.util.RefCounted;
+import org.apache.solr.util.plugin.SolrCoreAware;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Speeds up bulk atomic (partial) updates by fetching the documents they apply to in batches rather
+ * than one at a time. Atomic updates for which this core is the leader are buffered, up to <code>
+ * batchSize</code> of them. When the buffer is flushed, the ids of those that have no entry in the
+ * update log are sorted and looked up in a single pass over the realtime searcher (see {@link
+ * RealTimeGetComponent#getInputDocumentsFromIndex}); the updates are then passed down the chain in
+ * their original order, and {@link DistributedUpdateProcessor} merges each one with the prefetched
+ * document instead of doing its own lookup. A prefetched document is only used if the id still has
+ * no update log entry and the realtime searcher hasn't changed since it was fetched; otherwise the
+ * usual lookup is done.
+ *
+ * <p>Any other command, or an add that isn't an atomic update, flushes the buffer first, so the
+ * order of the updates is preserved. Note that an error in a buffered update is reported when the
+ * buffer is flushed, i.e. while processing a later command; this processor therefore should not be
+ * used together with {@link TolerantUpdateProcessorFactory}.
+ *
+ * <pre class="prettyprint">
+ * &lt;updateRequestProcessorChain name="batch-atomic"&gt;
+ *   &lt;processor class="solr.BatchAtomicUpdateProcessorFactory"&gt;
+ *     &lt;int name="batchSize"&gt;1000&lt;/int&gt;
+ *   &lt;/processor&gt;
+ *   &lt;processor class="solr.DistributedUpdateProcessorFactory" /&gt;
+ *   &lt;processor class="solr.RunUpdateProcessorFactory" /&gt;
+ * &lt;/updateRequestProcessorChain&gt;
+ * </pre>
+ *
+ * @lucene.experimental
+ */
+public class BatchAtomicUpdateProcessorFactory extends UpdateRequestProcessorFactory
+    implements SolrCoreAware, UpdateRequestProcessorFactory.RunAlways {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final String BATCH_SIZE_PARAM = "batchSize";
+
+  private static final String PREFETCHED_CONTEXT_KEY =
+      BatchAtomicUpdateProcessorFactory.class.getName() + ".prefetched";
+
+  private int batchSize = 1000;
+
+  @Override
+  public void init(NamedList<?> args) {
+    final SolrParams params = args.toSolrParams();
+    batchSize = params.getInt(BATCH_SIZE_PARAM, batchSize);
+    args.remove(BATCH_SIZE_PARAM);
+    if (batchSize < 1) {
+      throw new SolrException(SERVER_ERROR, "'" + BATCH_SIZE_PARAM + "' must be at least 1");
+    }
+
+    super.init(args);
+  }
+
+  @Override
+  public void inform(SolrCore core) {
+    if (core.getUpdateHandler().getUpdateLog() == null) {
+      throw new SolrException(SERVER_ERROR, "updateLog must be enabled.");
+    }
+
+    if (core.getLatestSchema().getUniqueKeyField() == null) {
+      throw new SolrException(SERVER_ERROR, "schema must have uniqueKey defined.");
+    }
+  }
+
+  @Override
+  public UpdateRequestProcessor getInstance(
+      SolrQueryRequest req, SolrQueryResponse rsp, UpdateRequestProcessor next) {
+    return new BatchAtomicUpdateProcessor(req, next, batchSize);
+  }
+
+  /**
+   * Returns the document prefetched for the given root id by this processor, if there is one and
+   * it is still current. Each document is handed out at most once.
+   *
+   * @return null if the caller needs to look the document up itself
+   */
+  static SolrInputDocument takePrefetchedDocument(SolrQueryRequest req, BytesRef rootIdBytes) {
+    final Prefetched prefetched = (Prefetched) req.getContext().get(PREFETCHED_CONTEXT_KEY);
+    if (prefetched == null) {
+      return null;
+    }
+    final SolrInputDocument doc = prefetched.docs.remove(rootIdBytes);
+    if (doc == null) {
+      return null;
+    }
+
+    // The order of these checks matters: entries only leave the update log maps once a newer
+    // realtime searcher has been opened, so if the searcher is unchanged after the update log
+    // check, nothing has happened to this id since it was fetched.
+    final SolrCore core = req.getCore();
+    final UpdateLog ulog = core.getUpdateHandler().getUpdateLog();
+    if (ulog != null && ulog.lookup(rootIdBytes) != null) {
+      return null;
+    }
+    final RefCounted<SolrIndexSearcher> holder = core.getRealtimeSearcher();
+    try {
+      if (holder.get() != prefetched.searcher) {
+        return null;
+      }
+    } finally {
+      holder.decref();
+    }
+    return doc;
+  }
+
+  /** Documents fetched ahead of a batch of updates, and the searcher they were fetched from. */
+  private static class Prefetched {
+    final SolrIndexSearcher searcher;
+    final Map<BytesRef, SolrInputDocument> docs;
+
+    Prefetched(SolrIndexSearcher searcher, Map<BytesRef, SolrInputDocument> docs) {
+      this.searcher = searcher;
+      this.docs = docs;
+    }
+  }
+
+  static class BatchAtomicUpdateProcessor extends UpdateRequestProcessor {
+
+    private final SolrQueryRequest req;
+    private final int batchSize;
+    private final List<AddUpdateCommand> buffer = new ArrayList<>();
+
+    private DistributedUpdateProcessor distribProc; // the distributed update processor following us
+    private DistributedUpdateProcessor.DistribPhase phase;
+
+    BatchAtomicUpdateProcessor(SolrQueryRequest req, UpdateRequestProcessor next, int batchSize) {
+      super(next);
+      this.req = req;
+      this.batchSize = batchSize;
+
+      for (UpdateRequestProcessor proc = next; proc != null; proc = proc.next) {
+        if (proc instanceof DistributedUpdateProcessor) {
+          distribProc = (DistributedUpdateProcessor) proc;
+          break;
+        }
+      }
+
+      if (distribProc == null) {
+        throw new SolrException(
+            SolrException.ErrorCode.SERVER_ERROR,
+            "DistributedUpdateProcessor must follow BatchAtomicUpdateProcessor");
+      }
+
+      phase =
+          DistributedUpdateProcessor.DistribPhase.parseParam(
+              req.getParams().get(DISTRIB_UPDATE_PARAM));
+    }
+
+    private boolean isLeader(UpdateCommand cmd) {
+      if ((cmd.getFlags() & (UpdateCommand.REPLAY | UpdateCommand.PEER_SYNC)) != 0) {
+        return false;
+      }
+      if (phase == DistributedUpdateProcessor.DistribPhase.FROMLEADER) {
+        return false;
+      }
+      distribProc.setupRequest(cmd);
+      return distribProc.isLeader();
+    }
+
+    @Override
+    public void processAdd(AddUpdateCommand cmd) throws IOException {
+      if (!AtomicUpdateDocumentMerger.isAtomicUpdate(cmd) || !isLeader(cmd)) {
+        flush();
+        super.processAdd(cmd);
+        return;
+      }
+
+      // the caller may reuse the command (e.g. JavabinLoader) once we return
+      buffer.add((AddUpdateCommand) cmd.clone());
+      if (buffer.size() >= batchSize) {
+        flush();
+      }
+    }
+
+    @Override
+    public void processDelete(DeleteUpdateCommand cmd) throws IOException {
+      flush();
+      super.processDelete(cmd);
+    }
+
+    @Override
+    public void processMergeIndexes(MergeIndexesCommand cmd) throws IOException {
+      flush();
+      super.processMergeIndexes(cmd);
+    }
+
+    @Override
+    public void processCommit(CommitUpdateCommand cmd) throws IOException {
+      flush();
+      super.processCommit(cmd);
+    }
+
+    @Override
+    public void processRollback(RollbackUpdateCommand cmd) throws IOException {
+      flush();
+      super.processRollback(cmd);
+    }
+
+    @Override
+    public void finish() throws IOException {
+      flush();
+      super.finish();
+    }
+
+    private void flush() throws IOException {
+      if (buffer.isEmpty()) {
+        return;
+      }
+      final List<AddUpdateCommand> cmds = new ArrayList<>(buffer);
+      buffer.clear();
+
+      final SolrCore core = req.getCore();
+      final UpdateLog ulog = core.getUpdateHandler().getUpdateLog();
+      final Set<BytesRef> ids = new HashSet<>();
+      for (AddUpdateCommand cmd : cmds) {
+        final BytesRef id = cmd.getIndexedId();
+        if (ulog == null || ulog.lookup(id) == null) {
+          ids.add(id);
+        }
+      }
+
+      final RefCounted<SolrIndexSearcher> holder = core.getRealtimeSearcher();
+      try {
+        final SolrIndexSearcher searcher = holder.get();
+        final Map<BytesRef, SolrInputDocument> docs =
+            RealTimeGetComponent.getInputDocumentsFromIndex(core, searcher, ids);
+        if (log.isDebugEnabled()) {
+          log.debug(
+              "Prefetched {} of {} documents for {} atomic updates",
+              docs.size(),
+              ids.size(),
+              cmds.size());
+        }
+        req.getContext().put(PREFETCHED_CONTEXT_KEY, new Prefetched(searcher, docs));
+        for (AddUpdateCommand cmd : cmds) {
+          super.processAdd(cmd);
+        }
+      } finally {
+        req.getContext().remove(PREFETCHED_CONTEXT_KEY);
+        holder.decref();
+      }
+    }
+  }
+}
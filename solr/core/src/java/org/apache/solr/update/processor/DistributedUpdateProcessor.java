@@ -352,6 +352,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
       long finalVersionOnUpdate = versionOnUpdate;
       return bucket.runWithLock(
           vinfo.getVersionBucketLockTimeoutMs(),
+          idBytes,
           () ->
               doVersionAdd(
                   cmd,
@@ -375,12 +376,11 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
       throws IOException {
     try {
       BytesRef idBytes = cmd.getIndexedId();
-      bucket.signalAll();
-      // just in case anyone is waiting let them know that we have a new update
+      // anyone waiting for a previous update of this id is signalled by the bucket
       // we obtain the version when synchronized and then do the add so we can ensure that
       // if version1 < version2 then version1 is actually added before version2.
 
-      // even if we don't store the version field, synchronizing on the bucket
+      // even if we don't store the version field, synchronizing on the id
       // will enable us to know what version happened first, and thus enable
       // realtime-get to work reliably.
       // TODO: if versions aren't stored, do we need to set on the cmd anyway for some reason?
@@ -784,15 +784,19 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
 
     // full (non-inplace) atomic update
 
-    final SolrInputDocument oldRootDocWithChildren =
-        RealTimeGetComponent.getInputDocument(
-            req.getCore(),
-            rootIdBytes,
-            rootIdBytes,
-            null,
-            null,
-            RealTimeGetComponent.Resolution
-                .ROOT_WITH_CHILDREN); // when no children, just fetches the doc
+    SolrInputDocument oldRootDocWithChildren =
+        BatchAtomicUpdateProcessorFactory.takePrefetchedDocument(req, rootIdBytes);
+    if (oldRootDocWithChildren == null) {
+      oldRootDocWithChildren =
+          RealTimeGetComponent.getInputDocument(
+              req.getCore(),
+              rootIdBytes,
+              rootIdBytes,
+              null,
+              null,
+              RealTimeGetComponent.Resolution
+                  .ROOT_WITH_CHILDREN); // when no children, just fetches the doc
+    }
 
     SolrInputDocument sdoc = cmd.getSolrInputDocument();
     SolrInputDocument mergedDoc;
@@ -1079,6 +1083,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
       long finalVersionOnUpdate = versionOnUpdate;
       return bucket.runWithLock(
           vinfo.getVersionBucketLockTimeoutMs(),
+          idBytes,
           () ->
               doVersionDelete(
                   cmd,
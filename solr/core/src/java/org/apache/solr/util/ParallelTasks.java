@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.util;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import org.apache.solr.common.SolrException;
+
+/**
+ * Runs independent tasks on an executor, with at most a given number of them running at the same
+ * time, the same way as the per segment faceting of <code>facet.threads</code>.
+ */
+public final class ParallelTasks {
+
+  private ParallelTasks() {}
+
+  /**
+   * Runs all the tasks and waits for them to complete.
+   *
+   * @param executor the executor to run the tasks on, if null they run in the calling thread
+   * @param threads the maximum number of tasks running at the same time, 0 runs them in the calling
+   *     thread and a negative value doesn't limit them
+   * @param tasks the tasks to run
+   * @param errorMessage the message of the {@link SolrException} wrapping checked exceptions other
+   *     than {@link IOException}
+   * @throws IOException if a task threw one, other exceptions are rethrown as unchecked
+   */
+  public static void run(
+      Executor executor, int threads, List<? extends Callable<?>> tasks, String errorMessage)
+      throws IOException {
+    if (executor == null || threads == 0 || tasks.size() <= 1) {
+      for (Callable<?> task : tasks) {
+        try {
+          task.call();
+        } catch (Exception e) {
+          rethrow(e, errorMessage);
+        }
+      }
+      return;
+    }
+
+    CompletionService<Object> completionService = new ExecutorCompletionService<>(executor);
+    // The list of pending tasks that aren't immediately submitted
+    Deque<Callable<?>> pending = new ArrayDeque<>();
+    int available = threads < 0 ? Integer.MAX_VALUE : threads;
+    for (Callable<?> task : tasks) {
+      if (--available >= 0) {
+        submit(completionService, task);
+      } else {
+        pending.add(task);
+      }
+    }
+
+    for (int i = 0; i < tasks.size(); i++) {
+      try {
+        completionService.take().get();
+        if (!pending.isEmpty()) {
+          submit(completionService, pending.removeFirst());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
+      } catch (ExecutionException e) {
+        rethrow(e.getCause(), errorMessage);
+      }
+    }
+  }
+
+  private static void submit(CompletionService<Object> completionService, Callable<?> task) {
+    completionService.submit(task::call);
+  }
+
+  private static void rethrow(Throwable cause, String errorMessage) throws IOException {
+    if (cause instanceof IOException) {
+      throw (IOException) cause;
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    } else {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, errorMessage, cause);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.util.vector;
+
+import org.apache.lucene.util.BitUtil;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Server side quantization of float vectors, to index them in less space than their full precision.
+ *
+ * <ul>
+ *   <li>{@link #INT8} scales each dimension from <code>[-range, range]</code> to a signed byte, and
+ *       is searched through an HNSW graph of byte vectors (4x smaller).
+ *   <li>{@link #BINARY} keeps the sign of each dimension as one bit, and is searched by Hamming
+ *       distance (32x smaller).
+ * </ul>
+ *
+ * <p>The full precision vectors are also indexed, as doc values, to rescore the top candidates.
+ */
+public enum VectorQuantization {
+  NONE,
+  INT8,
+  BINARY;
+
+  /** Returns the vector scaled from [-range, range] to bytes, out of range values are clamped. */
+  public static byte[] toInt8(float[] vector, float range) {
+    byte[] quantized = new byte[vector.length];
+    float scale = Byte.MAX_VALUE / range;
+    for (int i = 0; i < vector.length; i++) {
+      int value = Math.round(vector[i] * scale);
+      quantized[i] = (byte) Math.max(-Byte.MAX_VALUE, Math.min(Byte.MAX_VALUE, value));
+    }
+    return quantized;
+  }
+
+  /** Returns the sign bits of the vector, a set bit for a positive dimension. */
+  public static byte[] toBinary(float[] vector) {
+    byte[] bits = new byte[binarySize(vector.length)];
+    for (int i = 0; i < vector.length; i++) {
+      if (vector[i] > 0) {
+        bits[i >> 3] |= (byte) (1 << (i & 7));
+      }
+    }
+    return bits;
+  }
+
+  /** The number of bytes of a binary quantized vector, padded to a multiple of 8 bytes. */
+  public static int binarySize(int dimension) {
+    return ((dimension + 63) >>> 6) << 3;
+  }
+
+  /** Returns the number of different bits of two binary quantized vectors. */
+  public static int hammingDistance(byte[] bits, BytesRef other) {
+    int distance = 0;
+    for (int i = 0; i < bits.length; i += Long.BYTES) {
+      long a = (long) BitUtil.VH_LE_LONG.get(bits, i);
+      long b = (long) BitUtil.VH_LE_LONG.get(other.bytes, other.offset + i);
+      distance += Long.bitCount(a ^ b);
+    }
+    return distance;
+  }
+
+  /** Encodes the full precision vector as little endian floats. */
+  public static byte[] encode(float[] vector) {
+    byte[] bytes = new byte[vector.length * Float.BYTES];
+    for (int i = 0; i < vector.length; i++) {
+      BitUtil.VH_LE_FLOAT.set(bytes, i * Float.BYTES, vector[i]);
+    }
+    return bytes;
+  }
+
+  /** Decodes a full precision vector encoded by {@link #encode(float[])}. */
+  public static void decode(BytesRef bytes, float[] vector) {
+    for (int i = 0; i < vector.length; i++) {
+      vector[i] = (float) BitUtil.VH_LE_FLOAT.get(bytes.bytes, bytes.offset + i * Float.BYTES);
+    }
+  }
+}
@@ -102,6 +102,7 @@ public class MinimalSchemaTest extends SolrTestCaseJ4 {
             || handler.startsWith("/mlt")
             || handler.startsWith("/export")
             || handler.startsWith("/graph")
+            || handler.startsWith("/joinKeys")
             || handler.startsWith("/sql")
             || handler.startsWith("/stream")
             || handler.startsWith("/terms")
@@ -1028,6 +1028,49 @@ public class TestDistributedGrouping extends BaseDistributedSearchTestCase {
         "sort",
         i1 + " asc, id asc");
 
+    // group.method=ords gets the top groups with their documents in a single request. The scores
+    // are distinct, and every shard returns all of its groups, so the merge is exact
+    for (String format : new String[] {"grouped", "simple"}) {
+      query(
+          "q",
+          "{!func}" + tlong,
+          "fq",
+          "{!frange l=100}" + tlong,
+          "rows",
+          100,
+          "fl",
+          "id,score," + s1dv,
+          "group",
+          "true",
+          "group.field",
+          s1dv,
+          "group.limit",
+          2,
+          "group.format",
+          format,
+          "group.method",
+          "ords");
+    }
+    query(
+        "q",
+        "{!func}" + tlong,
+        "fq",
+        "{!frange l=100}" + tlong,
+        "rows",
+        100,
+        "fl",
+        "id",
+        "group",
+        "true",
+        "group.field",
+        s1dv,
+        "group.offset",
+        1,
+        "group.limit",
+        -1,
+        "group.method",
+        "ords");
+
     // In order to validate this we need to make sure that during indexing that all documents of one
     // group only occur on the same shard
     query(
@@ -1547,6 +1547,113 @@ public class TestGroupingSearch extends SolrTestCaseJ4 {
             + "}");
   }
 
+  @Test
+  public void testGroupingByOrds() throws Exception {
+    assertU(add(doc("id", "1", "id_i", "1", FOO_STRING_DOCVAL_FIELD, "a")));
+    assertU(add(doc("id", "2", "id_i", "2", FOO_STRING_DOCVAL_FIELD, "b")));
+    assertU(commit());
+    assertU(add(doc("id", "3", "id_i", "3", FOO_STRING_DOCVAL_FIELD, "a")));
+    assertU(add(doc("id", "4", "id_i", "4")));
+    assertU(commit());
+    assertU(add(doc("id", "5", "id_i", "5", FOO_STRING_DOCVAL_FIELD, "c")));
+    assertU(add(doc("id", "6", "id_i", "6", FOO_STRING_DOCVAL_FIELD, "b")));
+    assertU(commit());
+
+    // both methods must give the same groups, spanning several segments
+    for (String method : new String[] {"twopass", "ords"}) {
+      assertJQ(
+          req(
+              "q",
+              "{!func}id_i",
+              "fl",
+              "id",
+              "group",
+              "true",
+              "group.field",
+              FOO_STRING_DOCVAL_FIELD,
+              "group.limit",
+              "2",
+              "group.ngroups",
+              "true",
+              "group.method",
+              method),
+          "/grouped=={'"
+              + FOO_STRING_DOCVAL_FIELD
+              + "':{'matches':6,'ngroups':4,'groups':["
+              + "{'groupValue':'b','doclist':{'numFound':2,'start':0,numFoundExact:true,"
+              + "'docs':[{'id':'6'},{'id':'2'}]}},"
+              + "{'groupValue':'c','doclist':{'numFound':1,'start':0,numFoundExact:true,"
+              + "'docs':[{'id':'5'}]}},"
+              + "{'groupValue':null,'doclist':{'numFound':1,'start':0,numFoundExact:true,"
+              + "'docs':[{'id':'4'}]}},"
+              + "{'groupValue':'a','doclist':{'numFound':2,'start':0,numFoundExact:true,"
+              + "'docs':[{'id':'3'},{'id':'1'}]}}]}}");
+
+      assertJQ(
+          req(
+              "q",
+              "{!func}id_i",
+              "fl",
+              "id",
+              "start",
+              "1",
+              "rows",
+              "2",
+              "group",
+              "true",
+              "group.field",
+              FOO_STRING_DOCVAL_FIELD,
+              "group.method",
+              method),
+          "/grouped=={'"
+              + FOO_STRING_DOCVAL_FIELD
+              + "':{'matches':6,'groups':["
+              + "{'groupValue':'c','doclist':{'numFound':1,'start':0,numFoundExact:true,"
+              + "'docs':[{'id':'5'}]}},"
+              + "{'groupValue':null,'doclist':{'numFound':1,'start':0,numFoundExact:true,"
+              + "'docs':[{'id':'4'}]}}]}}");
+
+      assertJQ(
+          req(
+              "q",
+              "{!func}id_i",
+              "fl",
+              "id",
+              "rows",
+              "3",
+              "group",
+              "true",
+              "group.field",
+              FOO_STRING_DOCVAL_FIELD,
+              "group.limit",
+              "2",
+              "group.format",
+              "simple",
+              "group.method",
+              method),
+          "/grouped=={'"
+              + FOO_STRING_DOCVAL_FIELD
+              + "':{'matches':6,'doclist':{'numFound':6,'start':0,numFoundExact:true,"
+              + "'docs':[{'id':'6'},{'id':'2'},{'id':'5'}]}}}");
+    }
+
+    SolrException exception =
+        expectThrows(
+            SolrException.class,
+            () ->
+                h.query(
+                    req(
+                        "q",
+                        "*:*",
+                        "group",
+                        "true",
+                        "group.field",
+                        FOO_STRING_DOCVAL_FIELD,
+                        "group.method",
+                        "unknown")));
+    assertEquals(SolrException.ErrorCode.BAD_REQUEST.code, exception.code());
+  }
+
   @Test
   public void testGroupingOnDateField() throws Exception {
     assertU(add(doc("id", "1", "date_dt", "2012-11-20T00:00:00Z")));
@@ -53,9 +53,9 @@ public class TestJoin extends SolrTestCaseJ4 {
 
   private static final String PRIMARY_DEPT_FIELD = "primary_dept_indexed_sdv";
   private static final String DEPT_FIELD = "dept_ss_dv";
-  private static final String DEPT_ID_FIELD = "dept_id_indexed_sdv";
+  static final String DEPT_ID_FIELD = "dept_id_indexed_sdv";
 
-  private void indexEmployeeDocs() {
+  void indexEmployeeDocs() {
     assertU(
         add(
             doc(
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.join.SegmentJoinIndex;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs the tests of {@link TestJoin}, including the random join, with the per segment join indexes
+ * of {@link SegmentJoinIndex}, while {@link TestJoin} itself covers the join that seeks each term.
+ */
+public class TestJoinIndex extends TestJoin {
+
+  @BeforeClass
+  public static void beforeTests() throws Exception {
+    System.setProperty("solr.tests.joinIndexCache.enabled", "true");
+    TestJoin.beforeTests();
+  }
+
+  @Test
+  public void testSegmentJoinIndex() throws Exception {
+    clearIndex();
+    indexEmployeeDocs();
+    ModifiableSolrParams p = params("sort", "id asc");
+
+    assertJQ(
+        req(p, "q", "{!join from=dept_ss_dv to=dept_id_indexed_sdv}title:MTS", "fl", "id"),
+        "/response=={'numFound':3,'start':0,'numFoundExact':true,'docs':[{'id':'10'},{'id':'12'},{'id':'13'}]}");
+
+    // the index of a segment is built once, and survives reopening the searcher
+    Map<Object, SegmentJoinIndex> indexes = getSegmentJoinIndexes(DEPT_ID_FIELD);
+    assertFalse(indexes.isEmpty());
+    assertU(add(doc("id", "14", DEPT_ID_FIELD, "Engineering", "text", "These guys test stuff")));
+    assertU(commit());
+    for (Map.Entry<Object, SegmentJoinIndex> entry :
+        getSegmentJoinIndexes(DEPT_ID_FIELD).entrySet()) {
+      if (indexes.containsKey(entry.getKey())) {
+        assertSame(indexes.get(entry.getKey()), entry.getValue());
+      }
+    }
+
+    assertJQ(
+        req(p, "q", "{!join from=dept_ss_dv to=dept_id_indexed_sdv}name:dave", "fl", "id"),
+        "/response=={'numFound':3,'start':0,'numFoundExact':true,'docs':[{'id':'10'},{'id':'13'},{'id':'14'}]}");
+
+    // deleted docs are skipped
+    assertU(delI("10"));
+    assertU(commit());
+    assertJQ(
+        req(p, "q", "{!join from=dept_ss_dv to=dept_id_indexed_sdv}name:dave", "fl", "id"),
+        "/response=={'numFound':2,'start':0,'numFoundExact':true,'docs':[{'id':'13'},{'id':'14'}]}");
+
+    clearIndex();
+    assertU(commit());
+  }
+
+  /** Returns the cached join index of each segment of the current searcher, by segment core. */
+  private Map<Object, SegmentJoinIndex> getSegmentJoinIndexes(String field) throws Exception {
+    return h.getCore()
+        .withSearcher(
+            searcher -> {
+              @SuppressWarnings("unchecked")
+              SolrCache<Object, SegmentJoinIndex> cache =
+                  searcher.getCache(SegmentJoinIndex.CACHE_NAME_PREFIX + field);
+              assertNotNull(cache);
+              Map<Object, SegmentJoinIndex> indexes = new HashMap<>();
+              for (LeafReaderContext context : searcher.getTopReaderContext().leaves()) {
+                indexes.put(
+                    context.reader().getCoreCacheHelper().getKey(),
+                    SegmentJoinIndex.get(cache, context, field, null));
+              }
+              return indexes;
+            });
+  }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.solr.cloud;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -108,4 +109,50 @@ public class ClusterStateTest extends SolrTestCaseJ4 {
         "Provided liveNodes not used properly", 2, loadedClusterState.getLiveNodes().size());
     assertEquals("Should not have collections", 0, loadedClusterState.getCollectionsMap().size());
   }
+
+  @Test
+  public void testJavabinState() {
+    Map<String, Object> props = new HashMap<>();
+    props.put(ZkStateReader.NODE_NAME_PROP, "node1:10000_solr");
+    props.put(ZkStateReader.CORE_NAME_PROP, "core1");
+    props.put(ZkStateReader.STATE_PROP, Replica.State.ACTIVE.toString());
+    Replica replica = new Replica("core_node1", props, "collection1", "shard1");
+    Map<String, Object> sliceProps = new HashMap<>();
+    sliceProps.put(Slice.SliceStateProps.RANGE, DocRouter.DEFAULT.fullRange());
+    Slice slice =
+        new Slice(
+            "shard1", Collections.singletonMap("core_node1", replica), sliceProps, "collection1");
+    DocCollection collection =
+        DocCollection.create(
+            "collection1",
+            Collections.singletonMap("shard1", slice),
+            Collections.singletonMap(ZkStateReader.CONFIGNAME_PROP, "conf1"),
+            DocRouter.DEFAULT,
+            0,
+            null);
+    Map<String, DocCollection> state = Collections.singletonMap("collection1", collection);
+
+    byte[] json = ClusterState.toStateBytes(state);
+    assertEquals('{', json[0]);
+    byte[] javabin;
+    System.setProperty(ClusterState.JAVABIN_STATE_PROP, "true");
+    try {
+      javabin = ClusterState.toStateBytes(state);
+    } finally {
+      System.clearProperty(ClusterState.JAVABIN_STATE_PROP);
+    }
+    assertTrue(javabin.length < json.length);
+
+    // both formats are read, and lead to the same state
+    DocCollection fromJson =
+        ClusterState.createFromJson(0, json, Collections.emptySet(), null)
+            .getCollection("collection1");
+    DocCollection fromJavabin =
+        ClusterState.createFromJson(0, javabin, Collections.emptySet(), null)
+            .getCollection("collection1");
+    assertEquals(Utils.toJSONString(fromJson), Utils.toJSONString(fromJavabin));
+    assertEquals(DocRouter.DEFAULT.fullRange(), fromJavabin.getSlice("shard1").getRange());
+    assertEquals("conf1", fromJavabin.getConfigName());
+    assertEquals("node1:10000_solr", fromJavabin.getReplica("core_node1").getNodeName());
+  }
 }
@@ -44,4 +44,20 @@ public class ShardTermsTest extends SolrTestCase {
     assertEquals(2L, terms.getTerm("leader").longValue());
     assertEquals(1L, terms.getTerm("dead-replica").longValue());
   }
+
+  @Test
+  public void testHaveAllEqualTerms() {
+    Map<String, Long> map = new HashMap<>();
+    map.put("leader", 2L);
+    map.put("replica", 1L);
+    ShardTerms terms = new ShardTerms(map, 0);
+    assertFalse(terms.haveAllEqualTerms());
+
+    terms = terms.startRecovering("replica");
+    assertEquals(2L, terms.getTerm("replica").longValue());
+    assertFalse(terms.haveAllEqualTerms());
+
+    terms = terms.doneRecovering("replica");
+    assertTrue(terms.haveAllEqualTerms());
+  }
 }
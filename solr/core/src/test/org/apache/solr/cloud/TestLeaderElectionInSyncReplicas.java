@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.embedded.JettySolrRunner;
+import org.apache.solr.update.processor.DistributedUpdateProcessor;
+import org.apache.solr.update.processor.DistributingUpdateProcessorFactory;
+import org.apache.solr.util.LogListener;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that a new leader skips the sync with the replicas when all of them have the same term
+ * and index fingerprint, and still syncs them otherwise.
+ */
+public class TestLeaderElectionInSyncReplicas extends SolrCloudTestCase {
+  private static final String SKIPPED_SYNC =
+      "All replicas have the same term and index fingerprint, skipping sync";
+  private static final int NUM_DOCS = 10;
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    useFactory(null);
+    configureCluster(3)
+        .addConfig(
+            "config", TEST_PATH().resolve("configsets").resolve("cloud-minimal").resolve("conf"))
+        .configure();
+  }
+
+  @Test
+  public void testSyncSkippedWhenReplicasInSync() throws Exception {
+    String collection = "in_sync";
+    createCollectionWithDocs(collection);
+
+    try (LogListener listener = LogListener.info(SyncStrategy.class).substring(SKIPPED_SYNC)) {
+      restartLeader(collection);
+
+      assertEquals(1, listener.getCount());
+      assertNotNull(listener.pollMessage());
+    }
+    assertConsistentReplicas(collection, NUM_DOCS);
+  }
+
+  @Test
+  public void testSyncWhenReplicaDiverged() throws Exception {
+    String collection = "diverged";
+    createCollectionWithDocs(collection);
+
+    // add a document to one of the replicas only, as if the leader died while forwarding it
+    Replica leader = getCollectionState(collection).getLeader("shard1");
+    Replica replica =
+        getCollectionState(collection).getReplicas().stream()
+            .filter(r -> !r.getName().equals(leader.getName()))
+            .findAny()
+            .orElseThrow();
+    try (SolrClient client = getHttpSolrClient(replica.getCoreUrl())) {
+      long maxVersion =
+          (Long)
+              client
+                  .query(
+                      new SolrQuery("*:*")
+                          .setFields("_version_")
+                          .setSort("_version_", SolrQuery.ORDER.desc)
+                          .setRows(1)
+                          .setParam("distrib", "false"))
+                  .getResults()
+                  .get(0)
+                  .getFieldValue("_version_");
+      SolrInputDocument doc = sdoc("id", Integer.toString(NUM_DOCS), "_version_", maxVersion + 1);
+      UpdateRequest update = new UpdateRequest().add(doc);
+      update.setParam(
+          DistributingUpdateProcessorFactory.DISTRIB_UPDATE_PARAM,
+          DistributedUpdateProcessor.DistribPhase.FROMLEADER.toString());
+      update.setParam(DistributedUpdateProcessor.DISTRIB_FROM, leader.getCoreUrl());
+      update.process(client);
+
+      UpdateRequest commit = new UpdateRequest();
+      commit.setAction(UpdateRequest.ACTION.COMMIT, true, true);
+      commit.setParam(DistributedUpdateProcessor.COMMIT_END_POINT, "replicas");
+      commit.process(client);
+    }
+
+    try (LogListener listener = LogListener.info(SyncStrategy.class).substring(SKIPPED_SYNC)) {
+      restartLeader(collection);
+
+      assertEquals(0, listener.getCount());
+    }
+    assertConsistentReplicas(collection, NUM_DOCS + 1);
+  }
+
+  private void createCollectionWithDocs(String collection) throws Exception {
+    CollectionAdminRequest.createCollection(collection, "config", 1, 3)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(collection, 1, 3);
+
+    UpdateRequest update = new UpdateRequest();
+    for (int i = 0; i < NUM_DOCS; i++) {
+      update.add(sdoc("id", Integer.toString(i)));
+    }
+    update.commit(cluster.getSolrClient(), collection);
+  }
+
+  /** Stops the node of the leader, waits for a new leader to be elected, and restarts it. */
+  private void restartLeader(String collection) throws Exception {
+    Replica leader = getCollectionState(collection).getLeader("shard1");
+    JettySolrRunner jetty = cluster.getReplicaJetty(leader);
+    jetty.stop();
+    cluster.waitForJettyToStop(jetty);
+
+    cluster
+        .getZkStateReader()
+        .waitForState(
+            collection,
+            DEFAULT_TIMEOUT,
+            TimeUnit.SECONDS,
+            (DocCollection c) -> {
+              Replica newLeader = c == null ? null : c.getLeader("shard1");
+              return newLeader != null && !newLeader.getName().equals(leader.getName());
+            });
+
+    jetty.start();
+    cluster.waitForAllNodes(DEFAULT_TIMEOUT);
+    cluster.waitForActiveCollection(collection, 1, 3);
+  }
+
+  private void assertConsistentReplicas(String collection, long numDocs) throws Exception {
+    cluster.getSolrClient().commit(collection);
+    for (Replica replica : getCollectionState(collection).getReplicas()) {
+      try (SolrClient client = getHttpSolrClient(replica.getCoreUrl())) {
+        assertEquals(
+            replica.getName() + " does not have all the documents",
+            numDocs,
+            client
+                .query(new SolrQuery("*:*").setParam("distrib", "false"))
+                .getResults()
+                .getNumFound());
+      }
+    }
+  }
+}
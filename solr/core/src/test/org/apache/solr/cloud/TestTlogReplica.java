@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -38,7 +39,9 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
+import org.apache.logging.log4j.core.LogEvent;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.tests.util.TestUtil;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
@@ -65,7 +68,9 @@ import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.TimeSource;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.embedded.JettySolrRunner;
+import org.apache.solr.handler.ReplicationHandler;
 import org.apache.solr.update.SolrIndexWriter;
+import org.apache.solr.util.LogListener;
 import org.apache.solr.util.RefCounted;
 import org.apache.solr.util.TestInjection;
 import org.apache.solr.util.TimeOut;
@@ -332,6 +337,59 @@ public class TestTlogReplica extends SolrCloudTestCase {
     assertNumberOfReplicas(0, 3, 0, true, true);
   }
 
+  public void testAddTlogReplicaFetchingFromPeers() throws Exception {
+    createAndWaitForCollection(1, 0, 2, 0);
+    int numDocs = 200;
+    for (int i = 0; i < numDocs; i++) {
+      cluster
+          .getSolrClient()
+          .add(
+              collectionName,
+              new SolrInputDocument(
+                  "id", String.valueOf(i), "foo_s", TestUtil.randomSimpleString(random(), 10000)));
+    }
+    cluster.getSolrClient().commit(collectionName);
+    waitForNumDocsInAllActiveReplicas(numDocs);
+
+    // the new replica fetches the stored fields in ranges, from the leader and the other replica
+    List<SolrCore> peers = getSolrCore(false);
+    assertEquals(1, peers.size());
+    SolrCore peer = peers.get(0);
+    System.setProperty("solr.indexfetcher.parallelism", "4");
+    System.setProperty("solr.indexfetcher.chunkSizeMB", "1");
+    try (LogListener fileRequests =
+        LogListener.info(SolrCore.class.getName() + ".Request")
+            .substring("command=" + ReplicationHandler.CMD_GET_FILE)
+            .setQueue(new LinkedBlockingQueue<>())) {
+      CollectionAdminRequest.addReplicaToShard(collectionName, "shard1", Replica.Type.TLOG)
+          .process(cluster.getSolrClient());
+      waitForState("Expected a third replica", collectionName, clusterShape(1, 3));
+      waitForNumDocsInAllActiveReplicas(numDocs);
+
+      // the peer only served file contents if some of the files were fetched from it
+      int peerFileRequests = 0;
+      int otherFileRequests = 0;
+      for (LogEvent event; (event = fileRequests.getQueue().poll()) != null; ) {
+        if (peer.getName().equals(event.getContextData().getValue(ZkStateReader.CORE_NAME_PROP))) {
+          peerFileRequests++;
+        } else {
+          otherFileRequests++;
+        }
+      }
+      assertTrue(
+          "Expected the new replica to fetch files from "
+              + peer.getName()
+              + ", file requests to it: "
+              + peerFileRequests
+              + ", to the leader: "
+              + otherFileRequests,
+          peerFileRequests > 0);
+    } finally {
+      System.clearProperty("solr.indexfetcher.parallelism");
+      System.clearProperty("solr.indexfetcher.chunkSizeMB");
+    }
+  }
+
   private void addReplicaToShard(String shardName, Replica.Type type)
       throws ClientProtocolException, IOException, SolrServerException {
     switch (random().nextInt(3)) {
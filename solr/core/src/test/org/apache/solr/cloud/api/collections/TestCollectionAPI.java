@@ -22,6 +22,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
@@ -45,12 +47,16 @@ import org.apache.solr.common.cloud.Replica;
 import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.cloud.SolrZkClient;
 import org.apache.solr.common.cloud.ZkStateReader;
+import org.apache.solr.common.params.CollectionAdminParams;
 import org.apache.solr.common.params.CollectionParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.embedded.JettySolrRunner;
+import org.apache.solr.handler.admin.ClusterStatus;
 import org.apache.solr.schema.IndexSchemaFactory;
 import org.apache.zookeeper.KeeperException;
 import org.junit.Test;
@@ -103,6 +109,8 @@ public class TestCollectionAPI extends ReplicaPropertiesBase {
     clusterStatusBadCollectionTest();
     replicaPropTest();
     clusterStatusZNodeVersion();
+    clusterStatusStateVersions();
+    clusterStatusConcurrentWaiters();
     testCollectionCreationCollectionNameValidation();
     testReplicationFactorValidaton();
     testCollectionCreationShardNameValidation();
@@ -538,6 +546,104 @@ public class TestCollectionAPI extends ReplicaPropertiesBase {
     }
   }
 
+  @SuppressWarnings({"unchecked"})
+  private void clusterStatusStateVersions() throws Exception {
+    String cname = "clusterStatusStateVersions";
+    try (CloudSolrClient client = createCloudClient(null)) {
+      CollectionAdminRequest.createCollection(cname, "conf1", 1, 1)
+          .setPerReplicaState(false)
+          .process(client);
+      waitForRecoveriesToFinish(cname, true);
+      int znodeVersion = client.getClusterState().getCollection(cname).getZNodeVersion();
+
+      ModifiableSolrParams params = new ModifiableSolrParams();
+      params.set("action", CollectionParams.CollectionAction.CLUSTERSTATUS.toString());
+      params.set(
+          CollectionAdminParams.STATE_VERSIONS,
+          cname + ":" + znodeVersion + ":0," + COLLECTION_NAME1 + ":-1:0,missing:0:0");
+      params.set(CollectionAdminParams.WAIT_FOR_CHANGE, 1);
+      QueryRequest request = new QueryRequest(params);
+      request.setPath("/admin/collections");
+
+      // only the collection whose version differs is returned, deleted ones are in neither list
+      NamedList<Object> cluster = (NamedList<Object>) client.request(request).get("cluster");
+      NamedList<Object> collections = (NamedList<Object>) cluster.get("collections");
+      assertEquals(1, collections.size());
+      assertNotNull(collections.get(COLLECTION_NAME1));
+      assertEquals(List.of(cname), cluster.get("unchanged"));
+      assertNotNull(cluster.get("live_nodes"));
+
+      // nothing changes, the request waits and returns no collection
+      params.set(CollectionAdminParams.STATE_VERSIONS, cname + ":" + znodeVersion + ":0");
+      cluster = (NamedList<Object>) client.request(request).get("cluster");
+      assertEquals(0, ((NamedList<Object>) cluster.get("collections")).size());
+      assertEquals(List.of(cname), cluster.get("unchanged"));
+
+      CollectionAdminRequest.addReplicaToShard(cname, "shard1").process(client);
+      waitForRecoveriesToFinish(cname, true);
+
+      cluster = (NamedList<Object>) client.request(request).get("cluster");
+      collections = (NamedList<Object>) cluster.get("collections");
+      Map<String, Object> collection = (Map<String, Object>) collections.get(cname);
+      assertNotNull(collection);
+      assertTrue((Integer) collection.get("znodeVersion") > znodeVersion);
+      assertEquals(List.of(), cluster.get("unchanged"));
+    }
+  }
+
+  @SuppressWarnings({"unchecked"})
+  private void clusterStatusConcurrentWaiters() throws Exception {
+    String cname = "clusterStatusConcurrentWaiters";
+    int numWaiters = 50;
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareCachedThreadPool(new SolrNamedThreadFactory("waitForChange"));
+    try (CloudSolrClient client = createCloudClient(null)) {
+      CollectionAdminRequest.createCollection(cname, "conf1", 1, 1)
+          .setPerReplicaState(false)
+          .process(client);
+      waitForRecoveriesToFinish(cname, true);
+      int znodeVersion = client.getClusterState().getCollection(cname).getZNodeVersion();
+
+      ModifiableSolrParams params = new ModifiableSolrParams();
+      params.set("action", CollectionParams.CollectionAction.CLUSTERSTATUS.toString());
+      params.set(CollectionAdminParams.STATE_VERSIONS, cname + ":" + znodeVersion + ":0");
+      params.set(CollectionAdminParams.WAIT_FOR_CHANGE, ClusterStatus.MAX_WAIT_FOR_CHANGE_SECS);
+
+      List<Future<NamedList<Object>>> waiters = new ArrayList<>();
+      for (int i = 0; i < numWaiters; i++) {
+        QueryRequest request = new QueryRequest(params);
+        request.setPath("/admin/collections");
+        waiters.add(
+            executor.submit(() -> (NamedList<Object>) client.request(request).get("cluster")));
+      }
+      // nothing changed, all of them keep waiting
+      Thread.sleep(1000);
+      for (Future<NamedList<Object>> waiter : waiters) {
+        assertFalse(waiter.isDone());
+      }
+
+      long start = System.nanoTime();
+      CollectionAdminRequest.addReplicaToShard(cname, "shard1").process(client);
+
+      // a single change wakes all of them, well before they time out
+      for (Future<NamedList<Object>> waiter : waiters) {
+        NamedList<Object> cluster =
+            waiter.get(ClusterStatus.MAX_WAIT_FOR_CHANGE_SECS, TimeUnit.SECONDS);
+        Map<String, Object> collection =
+            (Map<String, Object>) ((NamedList<Object>) cluster.get("collections")).get(cname);
+        assertNotNull(collection);
+        assertTrue((Integer) collection.get("znodeVersion") > znodeVersion);
+      }
+      assertTrue(
+          "The waiters were not woken by the change",
+          TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)
+              < ClusterStatus.MAX_WAIT_FOR_CHANGE_SECS);
+      waitForRecoveriesToFinish(cname, true);
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
   private static long totalexpectedV2Calls;
 
   public static <T extends SolrResponse> SolrRequest<T> setV2(SolrRequest<T> req) {
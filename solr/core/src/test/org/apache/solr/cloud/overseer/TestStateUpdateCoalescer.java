@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud.overseer;
+
+import java.util.List;
+import java.util.Set;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.cloud.Overseer;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.ZkNodeProps;
+import org.apache.solr.common.cloud.ZkStateReader;
+
+public class TestStateUpdateCoalescer extends SolrTestCaseJ4 {
+
+  private static ZkNodeProps state(String collection, String coreNodeName, Replica.State state) {
+    return new ZkNodeProps(
+        Overseer.QUEUE_OPERATION,
+        OverseerAction.STATE.toLower(),
+        ZkStateReader.COLLECTION_PROP,
+        collection,
+        ZkStateReader.SHARD_ID_PROP,
+        "shard1",
+        ZkStateReader.CORE_NODE_NAME_PROP,
+        coreNodeName,
+        ZkStateReader.NODE_NAME_PROP,
+        "node1:8983_solr",
+        ZkStateReader.STATE_PROP,
+        state.toString());
+  }
+
+  public void testSupersededStates() {
+    List<ZkNodeProps> messages =
+        List.of(
+            state("c1", "core_node1", Replica.State.DOWN),
+            state("c1", "core_node2", Replica.State.DOWN),
+            state("c2", "core_node1", Replica.State.DOWN),
+            state("c1", "core_node1", Replica.State.RECOVERING),
+            state("c1", "core_node1", Replica.State.ACTIVE),
+            state("c1", "core_node2", Replica.State.ACTIVE));
+    assertEquals(Set.of(0, 1, 3), StateUpdateCoalescer.findSuperseded(messages));
+  }
+
+  public void testActiveIsNotSuperseded() {
+    List<ZkNodeProps> messages =
+        List.of(
+            state("c1", "core_node1", Replica.State.ACTIVE),
+            state("c1", "core_node1", Replica.State.DOWN));
+    assertEquals(Set.of(), StateUpdateCoalescer.findSuperseded(messages));
+  }
+
+  public void testOtherMessagesAreBarriers() {
+    ZkNodeProps deleteCore =
+        new ZkNodeProps(
+            Overseer.QUEUE_OPERATION,
+            OverseerAction.DELETECORE.toLower(),
+            ZkStateReader.COLLECTION_PROP,
+            "c1",
+            ZkStateReader.CORE_NODE_NAME_PROP,
+            "core_node2");
+    ZkNodeProps downNode =
+        new ZkNodeProps(
+            Overseer.QUEUE_OPERATION,
+            OverseerAction.DOWNNODE.toLower(),
+            ZkStateReader.NODE_NAME_PROP,
+            "node1:8983_solr");
+    List<ZkNodeProps> messages =
+        List.of(
+            state("c1", "core_node1", Replica.State.DOWN),
+            state("c2", "core_node1", Replica.State.DOWN),
+            deleteCore,
+            state("c1", "core_node1", Replica.State.RECOVERING),
+            state("c2", "core_node1", Replica.State.RECOVERING),
+            downNode,
+            state("c1", "core_node1", Replica.State.ACTIVE));
+    // only the update of c2 across the delete in c1 is superseded
+    assertEquals(Set.of(1), StateUpdateCoalescer.findSuperseded(messages));
+  }
+
+  public void testForcedStateNotSupersededByUnforced() {
+    ZkNodeProps forced = state("c1", "core_node1", Replica.State.DOWN);
+    ZkNodeProps unforced =
+        state("c1", "core_node1", Replica.State.RECOVERING)
+            .plus(ZkStateReader.FORCE_SET_STATE_PROP, "false");
+    assertEquals(Set.of(), StateUpdateCoalescer.findSuperseded(List.of(forced, unforced)));
+    assertEquals(Set.of(0), StateUpdateCoalescer.findSuperseded(List.of(unforced, forced)));
+  }
+}
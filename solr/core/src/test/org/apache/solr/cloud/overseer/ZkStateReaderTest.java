@@ -23,6 +23,8 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
@@ -37,6 +39,7 @@ import org.apache.solr.cloud.Stats;
 import org.apache.solr.cloud.ZkController;
 import org.apache.solr.cloud.ZkTestServer;
 import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.CollectionStateDelta;
 import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.DocCollectionWatcher;
 import org.apache.solr.common.cloud.DocRouter;
@@ -44,6 +47,7 @@ import org.apache.solr.common.cloud.PerReplicaStates;
 import org.apache.solr.common.cloud.PerReplicaStatesFetcher;
 import org.apache.solr.common.cloud.PerReplicaStatesOps;
 import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.cloud.SolrZkClient;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.util.CommonTestInjection;
@@ -532,6 +536,106 @@ public class ZkStateReaderTest extends SolrTestCaseJ4 {
     assertEquals(0, ref.get().getZNodeVersion());
   }
 
+  /** Verifies that watched collections are updated from the state deltas written with them */
+  public void testCollectionStateDeltas() throws Exception {
+    System.setProperty(CollectionStateDelta.ENABLED_PROP, "true");
+    try {
+      fixture.close();
+      fixture = setupTestFixture(getTestName(), -1);
+    } finally {
+      System.clearProperty(CollectionStateDelta.ENABLED_PROP);
+    }
+    ZkStateWriter writer = fixture.writer;
+    ZkStateReader reader = fixture.reader;
+
+    fixture.zkClient.makePath(ZkStateReader.COLLECTIONS_ZKNODE + "/c1", true);
+    Map<String, Slice> slices = new LinkedHashMap<>();
+    for (int i = 1; i <= 2; i++) {
+      Replica replica = newReplica("r" + i, "shard" + i, Replica.State.ACTIVE);
+      slices.put(
+          "shard" + i,
+          new Slice("shard" + i, Map.of(replica.getName(), replica), null, "c1"));
+    }
+    DocCollection state =
+        DocCollection.create(
+            "c1",
+            slices,
+            Map.of(ZkStateReader.CONFIGNAME_PROP, ConfigSetsHandler.DEFAULT_CONFIGSET_NAME),
+            DocRouter.DEFAULT,
+            0,
+            PerReplicaStatesFetcher.getZkClientPrsSupplier(
+                fixture.zkClient, DocCollection.getCollectionPath("c1")));
+    writer.enqueueUpdate(reader.getClusterState(), List.of(new ZkWriteCommand("c1", state)), null);
+    ClusterState clusterState = writer.writePendingUpdates();
+
+    reader.registerCore("c1");
+    reader.waitForState("c1", TIMEOUT, TimeUnit.SECONDS, (n, c) -> c != null);
+    DocCollection before = reader.getCollection("c1");
+
+    // change the state of one replica, only its shard should be in the delta
+    DocCollection written = clusterState.getCollection("c1");
+    Map<String, Slice> newSlices = new LinkedHashMap<>(written.getSlicesMap());
+    newSlices.put(
+        "shard2",
+        written.getSlice("shard2").copyWith(newReplica("r2", "shard2", Replica.State.DOWN)));
+    writer.enqueueUpdate(
+        clusterState, List.of(new ZkWriteCommand("c1", written.copyWithSlices(newSlices))), null);
+    clusterState = writer.writePendingUpdates();
+    assertTrue(fixture.zkClient.exists(DocCollection.getCollectionDeltaPath("c1"), true));
+
+    reader.waitForState(
+        "c1",
+        TIMEOUT,
+        TimeUnit.SECONDS,
+        (n, c) -> c != null && c.getReplica("r2").getState() == Replica.State.DOWN);
+    DocCollection after = reader.getCollection("c1");
+    assertEquals(1, after.getZNodeVersion());
+    assertSame(
+        "unchanged shard should have been reused",
+        before.getSlice("shard1"),
+        after.getSlice("shard1"));
+    assertNotSame(before.getSlice("shard2"), after.getSlice("shard2"));
+    assertEquals(Replica.State.ACTIVE, after.getReplica("r1").getState());
+
+    // a change of the collection's properties is written without a delta, and read in full
+    Map<String, Object> props = new HashMap<>(written.getProperties());
+    props.put("x", "y");
+    written = clusterState.getCollection("c1");
+    state =
+        DocCollection.create(
+            "c1",
+            written.getSlicesMap(),
+            props,
+            DocRouter.DEFAULT,
+            written.getZNodeVersion(),
+            PerReplicaStatesFetcher.getZkClientPrsSupplier(
+                fixture.zkClient, DocCollection.getCollectionPath("c1")));
+    writer.enqueueUpdate(clusterState, List.of(new ZkWriteCommand("c1", state)), null);
+    writer.writePendingUpdates();
+
+    reader.waitForState(
+        "c1", TIMEOUT, TimeUnit.SECONDS, (n, c) -> c != null && "y".equals(c.getStr("x")));
+    after = reader.getCollection("c1");
+    assertEquals(2, after.getZNodeVersion());
+    assertEquals(Replica.State.DOWN, after.getReplica("r2").getState());
+  }
+
+  private static Replica newReplica(String name, String shard, Replica.State state) {
+    return new Replica(
+        name,
+        Map.of(
+            ZkStateReader.CORE_NAME_PROP,
+            "c1_" + shard + "_" + name,
+            ZkStateReader.NODE_NAME_PROP,
+            "node1:8983_solr",
+            ZkStateReader.BASE_URL_PROP,
+            "http://node1:8983/solr",
+            ZkStateReader.STATE_PROP,
+            state.toString()),
+        "c1",
+        shard);
+  }
+
   public void testGetCurrentCollections() throws Exception {
     ZkStateWriter writer = fixture.writer;
     ZkStateReader reader = fixture.reader;
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.cluster.placement.plugins;
+
+import java.util.HashSet;
+import java.util.List;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.cluster.Node;
+import org.apache.solr.cluster.SolrCollection;
+import org.apache.solr.cluster.placement.Builders;
+import org.apache.solr.cluster.placement.PlacementContext;
+import org.apache.solr.cluster.placement.PlacementPlan;
+import org.apache.solr.cluster.placement.impl.BuiltInMetrics;
+import org.apache.solr.cluster.placement.impl.CollectionMetricsBuilder;
+import org.apache.solr.cluster.placement.impl.PlacementRequestImpl;
+import org.junit.Test;
+
+/** Unit test for {@link LoadAwarePlacementFactory} */
+public class LoadAwarePlacementFactoryTest extends SolrTestCaseJ4 {
+
+  private static LoadAwarePlacementFactory.LoadAwarePlacementPlugin createPlugin() {
+    LoadAwarePlacementFactory factory = new LoadAwarePlacementFactory();
+    factory.configure(new LoadAwarePlacementConfig(10L, 0.1, 10));
+    return (LoadAwarePlacementFactory.LoadAwarePlacementPlugin) factory.createPluginInstance();
+  }
+
+  private static Builders.ClusterBuilder newCluster(int numNodes) {
+    Builders.ClusterBuilder clusterBuilder =
+        Builders.newClusterBuilder().initializeLiveNodes(numNodes);
+    for (Builders.NodeBuilder nodeBuilder : clusterBuilder.getLiveNodeBuilders()) {
+      nodeBuilder
+          .setCoreCount(0)
+          .setFreeDiskGB(100.0)
+          .setMetric(BuiltInMetrics.NODE_AVAILABLE_PROCESSORS, 4);
+    }
+    return clusterBuilder;
+  }
+
+  /** Gives every replica of the collection a load of one busy core. */
+  private static void setQueryLoad(Builders.CollectionBuilder collectionBuilder) {
+    for (CollectionMetricsBuilder.ShardMetricsBuilder shardMetrics :
+        collectionBuilder.getCollectionMetricsBuilder().getShardMetricsBuilders().values()) {
+      for (CollectionMetricsBuilder.ReplicaMetricsBuilder replicaMetrics :
+          shardMetrics.getReplicaMetricsBuilders().values()) {
+        replicaMetrics
+            .addMetric(BuiltInMetrics.REPLICA_QUERY_RATE_1MIN, 10.0)
+            .addMetric(BuiltInMetrics.REPLICA_QUERY_TIME_P95_MS, 100.0);
+      }
+    }
+  }
+
+  @Test
+  public void testPlacesOnLeastLoadedNode() throws Exception {
+    Builders.ClusterBuilder clusterBuilder = newCluster(3);
+    List<Builders.NodeBuilder> nodeBuilders = clusterBuilder.getLiveNodeBuilders();
+    // the idle node has the most cores, so placing by core count would avoid it
+    nodeBuilders.get(2).setCoreCount(10);
+
+    Builders.CollectionBuilder busyCollection = Builders.newCollectionBuilder("busy");
+    busyCollection.initializeShardsReplicas(2, 1, 0, 0, nodeBuilders.subList(0, 2));
+    setQueryLoad(busyCollection);
+    clusterBuilder.addCollection(busyCollection);
+
+    Builders.CollectionBuilder newCollection = Builders.newCollectionBuilder("new");
+    newCollection.initializeShardsReplicas(1, 0, 0, 0, List.of());
+    SolrCollection solrCollection = newCollection.build();
+
+    PlacementContext placementContext = clusterBuilder.buildPlacementContext();
+    List<Node> liveNodes = clusterBuilder.buildLiveNodes();
+    PlacementRequestImpl placementRequest =
+        new PlacementRequestImpl(
+            solrCollection, solrCollection.getShardNames(), new HashSet<>(liveNodes), 1, 0, 0);
+    PlacementPlan pp = createPlugin().computePlacement(placementRequest, placementContext);
+
+    assertEquals(1, pp.getReplicaPlacements().size());
+    assertEquals(liveNodes.get(2), pp.getReplicaPlacements().iterator().next().getNode());
+  }
+
+  @Test
+  public void testRebalance() throws Exception {
+    Builders.ClusterBuilder clusterBuilder = newCluster(2);
+    List<Builders.NodeBuilder> nodeBuilders = clusterBuilder.getLiveNodeBuilders();
+
+    // both shards on the first node, with a load of half its processors
+    Builders.CollectionBuilder busyCollection = Builders.newCollectionBuilder("busy");
+    busyCollection.initializeShardsReplicas(2, 1, 0, 0, nodeBuilders.subList(0, 1));
+    setQueryLoad(busyCollection);
+    clusterBuilder.addCollection(busyCollection);
+
+    PlacementContext placementContext = clusterBuilder.buildPlacementContext();
+    List<Node> liveNodes = clusterBuilder.buildLiveNodes();
+    List<LoadAwarePlacementFactory.ReplicaMove> moves =
+        createPlugin().computeRebalance(placementContext);
+
+    // a single move balances the load
+    assertEquals(moves.toString(), 1, moves.size());
+    LoadAwarePlacementFactory.ReplicaMove move = moves.get(0);
+    assertEquals(liveNodes.get(0), move.getReplica().getNode());
+    assertEquals(liveNodes.get(1), move.getTargetNode());
+    assertEquals(1.0, move.getLoad(), 0.0001);
+  }
+
+  @Test
+  public void testNoRebalanceWhenBalanced() throws Exception {
+    Builders.ClusterBuilder clusterBuilder = newCluster(2);
+    Builders.CollectionBuilder busyCollection = Builders.newCollectionBuilder("busy");
+    busyCollection.initializeShardsReplicas(2, 1, 0, 0, clusterBuilder.getLiveNodeBuilders());
+    setQueryLoad(busyCollection);
+    clusterBuilder.addCollection(busyCollection);
+
+    List<LoadAwarePlacementFactory.ReplicaMove> moves =
+        createPlugin().computeRebalance(clusterBuilder.buildPlacementContext());
+    assertTrue(moves.toString(), moves.isEmpty());
+  }
+}
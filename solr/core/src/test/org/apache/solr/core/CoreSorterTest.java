@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -201,6 +202,70 @@ public class CoreSorterTest extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testLeadersFirst() {
+    assumeWorkingMockito();
+
+    String thisNode = "192.168.0.1:8983_";
+    String otherNode = "192.168.0.2:8983_";
+    Map<String, Slice> sliceMap = new HashMap<>();
+    List<CoreDescriptor> myDescs = new ArrayList<>();
+    for (String slice : List.of("s1", "s2", "s3")) {
+      List<Replica> replicas = new ArrayList<>();
+      Replica mine = addNewReplica(replicas, "col1", slice, List.of(thisNode));
+      addNewReplica(replicas, "col1", slice, List.of(otherNode));
+      if (slice.equals("s2")) {
+        Map<String, Object> props = mine.shallowCopy();
+        props.put(ZkStateReader.LEADER_PROP, "true");
+        mine = new Replica(mine.getName(), props, "col1", slice);
+        replicas.set(0, mine);
+      }
+      sliceMap.put(
+          slice,
+          new Slice(
+              slice,
+              replicas.stream().collect(Collectors.toMap(Replica::getName, Function.identity())),
+              Collections.emptyMap(),
+              "col1"));
+      myDescs.add(
+          new CoreDescriptor(
+              "col1_" + slice,
+              TEST_PATH(),
+              Map.of(
+                  CoreDescriptor.CORE_SHARD, slice,
+                  CoreDescriptor.CORE_COLLECTION, "col1",
+                  CoreDescriptor.CORE_NODE_NAME, mine.getName()),
+              null,
+              mock(ZkController.class)));
+    }
+    DocCollection col =
+        new DocCollection(
+            "col1",
+            sliceMap,
+            Collections.singletonMap(
+                ZkStateReader.CONFIGNAME_PROP, ConfigSetsHandler.DEFAULT_CONFIGSET_NAME),
+            DocRouter.DEFAULT);
+
+    CoreContainer mockCC = mock(CoreContainer.class);
+    when(mockCC.isZooKeeperAware()).thenReturn(true);
+    ZkController mockZKC = mock(ZkController.class);
+    when(mockCC.getZkController()).thenReturn(mockZKC);
+    ClusterState mockClusterState = mock(ClusterState.class);
+    when(mockZKC.getClusterState()).thenReturn(mockClusterState);
+    when(mockClusterState.getLiveNodes()).thenReturn(Set.of(thisNode, otherNode));
+    when(mockClusterState.getCollectionOrNull("col1")).thenReturn(col);
+    NodeConfig mockNodeConfig = mock(NodeConfig.class);
+    when(mockNodeConfig.getNodeName()).thenReturn(thisNode);
+    when(mockCC.getNodeConfig()).thenReturn(mockNodeConfig);
+
+    Collections.shuffle(myDescs, random());
+    List<String> sorted =
+        CoreSorter.sortCores(mockCC, myDescs).stream()
+            .map(CoreDescriptor::getName)
+            .collect(Collectors.toList());
+    assertEquals(List.of("col1_s2", "col1_s1", "col1_s3"), sorted);
+  }
+
   private CoreDescriptor newCoreDescriptor(Replica r) {
     Map<String, String> props =
         Map.of(
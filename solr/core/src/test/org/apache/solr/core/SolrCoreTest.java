@@ -121,6 +121,8 @@ public class SolrCoreTest extends SolrTestCaseJ4 {
       ++ihCount;
       assertEquals(pathToClassMap.get("/graph"), "solr.GraphHandler");
       ++ihCount;
+      assertEquals(pathToClassMap.get("/joinKeys"), "solr.JoinKeysHandler");
+      ++ihCount;
       assertEquals(pathToClassMap.get("/update"), "solr.UpdateRequestHandler");
       ++ihCount;
       assertEquals(pathToClassMap.get("/update/csv"), "solr.UpdateRequestHandler");
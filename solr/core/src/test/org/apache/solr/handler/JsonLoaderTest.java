@@ -322,6 +322,43 @@ public class JsonLoaderTest extends SolrTestCaseJ4 {
         p.addCommands.get(0).solrDoc.toString());
   }
 
+  public void testDefaultDocsModeMatchesExplicitMapping() throws Exception {
+    String json =
+        "[{\"id\":\"1\", \"a\":{\"b\":\"x\", \"c\":[1, 2]},"
+            + " \"arr\":[{\"k\":\"v1\"}, {\"k\":\"v2\"}],"
+            + " \"n\":null, \"e\":[], \"t\":[\"p\", \"q\"], \"d\":1.5, \"bool\":true},"
+            + " {\"id\":\"2\", \"a\":{\"b\":{\"c\":\"deep\"}}}]";
+
+    // no split/f params: documents are built straight from the parser events
+    SolrQueryRequest req = req();
+    req.getContext().put("path", "/update/json/docs");
+    BufferingRequestProcessor streamed = new BufferingRequestProcessor(null);
+    new JsonLoader()
+        .load(req, new SolrQueryResponse(), new ContentStreamBase.StringStream(json), streamed);
+
+    // the same mapping spelled out explicitly goes through JsonRecordReader
+    req = req("split", "/", "f", "$FQN:/**");
+    req.getContext().put("path", "/update/json/docs");
+    BufferingRequestProcessor mapped = new BufferingRequestProcessor(null);
+    new JsonLoader()
+        .load(req, new SolrQueryResponse(), new ContentStreamBase.StringStream(json), mapped);
+
+    assertEquals(2, streamed.addCommands.size());
+    assertEquals(mapped.addCommands.size(), streamed.addCommands.size());
+    for (int i = 0; i < streamed.addCommands.size(); i++) {
+      assertEquals(
+          mapped.addCommands.get(i).solrDoc.toString(),
+          streamed.addCommands.get(i).solrDoc.toString());
+    }
+    SolrInputDocument doc = streamed.addCommands.get(0).solrDoc;
+    assertEquals("x", doc.getFieldValue("a.b"));
+    assertEquals(List.of(1L, 2L), doc.getFieldValues("a.c"));
+    assertEquals(List.of("v1", "v2"), doc.getFieldValues("arr.k"));
+    assertNull(doc.getField("n"));
+    assertNull(doc.getField("e"));
+    assertEquals("deep", streamed.addCommands.get(1).solrDoc.getFieldValue("a.b.c"));
+  }
+
   public void testSrcAndUniqueDocs() throws Exception {
     BufferingRequestProcessor p;
     JsonLoader loader;
@@ -1519,6 +1519,38 @@ public class TestReplicationHandler extends SolrTestCaseJ4 {
     assertTrue(timeTakenInSeconds - approximateTimeInSeconds > 0);
   }
 
+  @Test
+  public void testParallelReplication() throws Exception {
+    clearIndexWithReplication();
+    invokeReplicationCommand(
+        buildUrl(followerJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME, "disablepoll");
+
+    // big enough for the stored fields to be split into several ranges
+    final int totalDocs = TestUtil.nextInt(random(), 300, 400);
+    for (int i = 0; i < totalDocs; i++) {
+      index(leaderClient, "id", i, "name", TestUtil.randomSimpleString(random(), 10000, 20000));
+    }
+    leaderClient.commit();
+
+    System.setProperty("solr.indexfetcher.parallelism", "4");
+    System.setProperty("solr.indexfetcher.chunkSizeMB", "1");
+    try {
+      pullFromTo(leaderJetty, followerJetty);
+    } finally {
+      System.clearProperty("solr.indexfetcher.parallelism");
+      System.clearProperty("solr.indexfetcher.chunkSizeMB");
+    }
+
+    SolrDocumentList leaderResult =
+        (SolrDocumentList) rQuery(totalDocs, "*:*", leaderClient).get("response");
+    SolrDocumentList followerResult =
+        (SolrDocumentList) rQuery(totalDocs, "*:*", followerClient).get("response");
+    assertEquals(totalDocs, followerResult.getNumFound());
+    assertEquals(
+        leaderResult.get(0).getFieldValue("name"), followerResult.get(0).getFieldValue("name"));
+    assertVersions(leaderClient, followerClient);
+  }
+
   @Test
   public void doTestIllegalFilePaths() {
     // Loop through the file=, cf=, tlogFile= params and prove that it throws exception for path
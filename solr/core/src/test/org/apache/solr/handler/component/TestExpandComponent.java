@@ -21,6 +21,7 @@ import java.util.Collections;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.search.CollapsingQParserPlugin;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -933,6 +934,47 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
             + "']/doc[2]/str[@name='id'][.='2']");
   }
 
+  @Test
+  public void testExpandFromRecordedGroupMembers() {
+    String[][] docs = {
+      {"id", "1", "group_s", "a", "test_i", "5"},
+      {"id", "2", "group_s", "a", "test_i", "50"},
+      {"id", "3", "group_s", "a", "test_i", "10"},
+      {"id", "4", "group_s", "b", "test_i", "20"},
+      {"id", "5", "group_s", "b", "test_i", "1"},
+      {"id", "6", "test_i", "100"}
+    };
+    createIndex(docs);
+
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.add("q", "*:*");
+    params.add("fq", "{!collapse field=group_s}");
+    params.add("defType", "edismax");
+    params.add("bf", "field(test_i)");
+    params.add("expand", "true");
+    params.add("expand.rows", "1");
+
+    final String[] tests = {
+      "*[count(/response/result/doc)=2]",
+      "*[count(/response/lst[@name='expanded']/result)=2]",
+      "/response/lst[@name='expanded']/result[@name='a'][@numFound='2']",
+      "/response/lst[@name='expanded']/result[@name='a']/doc[1]/str[@name='id'][.='3']",
+      "*[count(/response/lst[@name='expanded']/result[@name='a']/doc)=1]",
+      "/response/lst[@name='expanded']/result[@name='b'][@numFound='1']",
+      "/response/lst[@name='expanded']/result[@name='b']/doc[1]/str[@name='id'][.='5']"
+    };
+
+    // the groups are expanded from the members recorded by the collapse filter...
+    SolrQueryRequest req = req(params);
+    assertQ(req, tests);
+    assertNotNull(req.getContext().get(CollapsingQParserPlugin.GROUP_MEMBERS));
+
+    // ...unless the expand params change which members are wanted
+    req = req(params, "expand.sort", "score desc");
+    assertQ(req, tests);
+    assertNull(req.getContext().get(CollapsingQParserPlugin.GROUP_MEMBERS));
+  }
+
   @Test
   public void testExpandWithEmptyIndexReturnsZeroResults() {
 
@@ -26,6 +26,7 @@ import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.core.AbstractBadConfigTestBase;
 import org.apache.solr.util.vector.DenseVectorParser;
+import org.apache.solr.util.vector.VectorQuantization;
 import org.hamcrest.MatcherAssert;
 import org.junit.Before;
 import org.junit.Test;
@@ -73,6 +74,15 @@ public class DenseVectorFieldTest extends AbstractBadConfigTestBase {
         "DenseVectorField fields can not have docValues: vector");
   }
 
+  @Test
+  public void fieldTypeDefinition_quantizationWithByteEncoding_shouldThrowException()
+      throws Exception {
+    assertConfigs(
+        "solrconfig-basic.xml",
+        "bad-schema-densevector-quantization.xml",
+        "the vector quantization requires the FLOAT32 vector encoding");
+  }
+
   @Test
   public void fieldDefinition_multiValued_shouldThrowException() throws Exception {
     assertConfigs(
@@ -123,6 +133,26 @@ public class DenseVectorFieldTest extends AbstractBadConfigTestBase {
     }
   }
 
+  @Test
+  public void fieldDefinition_quantization_shouldLoadSchemaField() throws Exception {
+    try {
+      initCore("solrconfig-basic.xml", "schema-densevector.xml");
+      IndexSchema schema = h.getCore().getLatestSchema();
+
+      DenseVectorField type = (DenseVectorField) schema.getField("vector").getType();
+      MatcherAssert.assertThat(type.getVectorQuantization(), is(VectorQuantization.NONE));
+
+      type = (DenseVectorField) schema.getField("vector_int8_quantization").getType();
+      MatcherAssert.assertThat(type.getVectorQuantization(), is(VectorQuantization.INT8));
+      MatcherAssert.assertThat(type.getQuantizationRange(), is(200f));
+
+      type = (DenseVectorField) schema.getField("vector_binary_quantization").getType();
+      MatcherAssert.assertThat(type.getVectorQuantization(), is(VectorQuantization.BINARY));
+    } finally {
+      deleteCore();
+    }
+  }
+
   @Test
   public void fieldDefinition_advancedCodecHyperParameter_shouldLoadSchemaField() throws Exception {
     try {
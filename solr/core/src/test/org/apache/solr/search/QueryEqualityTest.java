@@ -222,7 +222,19 @@ public class QueryEqualityTest extends SolrTestCaseJ4 {
               + ReRankQParserPlugin.RERANK_DOCS
               + "=20 "
               + ReRankQParserPlugin.RERANK_WEIGHT
-              + "=2}");
+              + "=2}",
+          // the number of threads doesn't change the results
+          "{!"
+              + defType
+              + " mainQuery=$qq "
+              + ReRankQParserPlugin.RERANK_QUERY
+              + "=$rqq "
+              + ReRankQParserPlugin.RERANK_DOCS
+              + "=20 "
+              + ReRankQParserPlugin.RERANK_WEIGHT
+              + "=2 "
+              + ReRankQParserPlugin.RERANK_THREADS
+              + "=4}");
 
     } finally {
       req.close();
@@ -220,7 +220,12 @@ public class TestCollapseQParserPlugin extends SolrTestCaseJ4 {
 
   @Test
   public void testStringCollapse() {
-    for (final String hint : new String[] {"", " hint=" + CollapsingQParserPlugin.HINT_TOP_FC}) {
+    for (final String hint :
+        new String[] {
+          "",
+          " hint=" + CollapsingQParserPlugin.HINT_TOP_FC,
+          " hint=" + CollapsingQParserPlugin.HINT_SPARSE
+        }) {
       testCollapseQueries("group_s", hint, false);
       testCollapseQueries("group_s_dv", hint, false);
     }
@@ -1027,7 +1032,7 @@ public class TestCollapseQParserPlugin extends SolrTestCaseJ4 {
     // if a field is uninvertible=false, it should behave the same as a field that is indexed=false
     // this is currently ok on fields that don't exist on any docs in the index
     for (String f : Arrays.asList("not_indexed_sS", "indexed_s_not_uninvert")) {
-      for (String hint : Arrays.asList("", " hint=top_fc")) {
+      for (String hint : Arrays.asList("", " hint=top_fc", " hint=sparse")) {
         SolrException e =
             expectThrows(
                 SolrException.class,
@@ -61,6 +61,76 @@ public class TestReRankQParserPlugin extends SolrTestCaseJ4 {
     assertEquals(ReRankQParserPlugin.RERANK_WEIGHT_DEFAULT, 2.0d, 0.0d);
 
     assertEquals(ReRankQParserPlugin.RERANK_OPERATOR, "reRankOperator");
+
+    assertEquals(ReRankQParserPlugin.RERANK_THREADS, "reRankThreads");
+    assertEquals(ReRankQParserPlugin.RERANK_THREADS_DEFAULT, 0);
+  }
+
+  @Test
+  public void testReRankThreads() {
+    // one document per segment for the first segments, two for the last one
+    assertU(adoc("id", "1", "term_s", "YYYY", "test_ti", "5", "test_tl", "1"));
+    assertU(commit());
+    assertU(adoc("id", "2", "term_s", "YYYY", "test_ti", "50", "test_tl", "2"));
+    assertU(commit());
+    assertU(adoc("id", "3", "term_s", "YYYY", "test_ti", "5000", "test_tl", "3"));
+    assertU(commit());
+    assertU(adoc("id", "4", "term_s", "YYYY", "test_ti", "500", "test_tl", "4"));
+    assertU(adoc("id", "5", "term_s", "YYYY", "test_ti", "4", "test_tl", "5"));
+    assertU(commit());
+
+    for (String threads : new String[] {"0", "1", "2", "-1"}) {
+      ModifiableSolrParams params = new ModifiableSolrParams();
+      params.add(
+          "rq",
+          "{!"
+              + ReRankQParserPlugin.NAME
+              + " "
+              + ReRankQParserPlugin.RERANK_QUERY
+              + "=$rqq "
+              + ReRankQParserPlugin.RERANK_DOCS
+              + "=200 "
+              + ReRankQParserPlugin.RERANK_THREADS
+              + "="
+              + threads
+              + "}");
+      params.add("q", "term_s:YYYY");
+      params.add("rqq", "{!edismax bf=$bff}*:*");
+      params.add("bff", "field(test_ti)");
+      params.add("fl", "id");
+      params.add("df", "text");
+      assertQ(
+          req(params),
+          "*[count(//doc)=5]",
+          "//result/doc[1]/str[@name='id'][.='3']",
+          "//result/doc[2]/str[@name='id'][.='4']",
+          "//result/doc[3]/str[@name='id'][.='2']",
+          "//result/doc[4]/str[@name='id'][.='1']",
+          "//result/doc[5]/str[@name='id'][.='5']");
+
+      // only the first three documents are re-ranked, the rest keep their order
+      params.set(
+          "rq",
+          "{!"
+              + ReRankQParserPlugin.NAME
+              + " "
+              + ReRankQParserPlugin.RERANK_QUERY
+              + "=$rqq "
+              + ReRankQParserPlugin.RERANK_DOCS
+              + "=3 "
+              + ReRankQParserPlugin.RERANK_THREADS
+              + "="
+              + threads
+              + "}");
+      params.set("q", "{!func}sub(10,test_tl)");
+      params.set("rows", "3");
+      assertQ(
+          req(params),
+          "*[count(//doc)=3]",
+          "//result/doc[1]/str[@name='id'][.='3']",
+          "//result/doc[2]/str[@name='id'][.='2']",
+          "//result/doc[3]/str[@name='id'][.='1']");
+    }
   }
 
   @Test
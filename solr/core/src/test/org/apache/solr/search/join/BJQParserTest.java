@@ -26,9 +26,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import javax.xml.xpath.XPathConstants;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.join.BitSetProducer;
 import org.apache.lucene.search.join.ScoreMode;
+import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.Bits;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.metrics.MetricsMap;
@@ -652,6 +657,51 @@ public class BJQParserTest extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testRootBlocks() throws Exception {
+    try (SolrQueryRequest req = req()) {
+      RootBlockBitSetProducer rootBlocks = BlockJoinParentQParser.getCachedRootBlockProducer(req);
+      assertSame(rootBlocks, BlockJoinParentQParser.getCachedRootBlockProducer(req));
+      BitSetProducer parents =
+          BlockJoinParentQParser.getCachedBitSetProducer(
+              req, QParser.getParser("parent_s:[* TO *]", req).getQuery());
+      for (LeafReaderContext leaf : req.getSearcher().getTopReaderContext().leaves()) {
+        RootBlockBitSetProducer.Blocks blocks = rootBlocks.getBlocks(leaf);
+        assertSame("built once per segment", blocks, rootBlocks.getBlocks(leaf));
+        BitSet parentBits = parents.getBitSet(leaf);
+        Bits liveDocs = leaf.reader().getLiveDocs();
+        for (int doc = 0; doc < leaf.reader().maxDoc(); doc++) {
+          if (liveDocs == null || liveDocs.get(doc)) {
+            int parent =
+                parentBits == null ? DocIdSetIterator.NO_MORE_DOCS : parentBits.nextSetBit(doc);
+            assertEquals(parent, blocks == null ? parent : blocks.rootOf(doc));
+          }
+        }
+      }
+    }
+
+    // the block join domains and uniqueBlock(_root_) use the same per segment structures
+    assertJQ(
+        req(
+            "q",
+            "child_s:l",
+            "rows",
+            "0",
+            "json.facet",
+            "{via_field:'uniqueBlock(_root_)', via_query:'uniqueBlock({!v=parent_s:*})',"
+                + " parents:{type:query, q:'*:*', domain:{blockParent:'parent_s:*'}}}"),
+        "/facets=={count:6, via_field:6, via_query:6, parents:{count:6}}");
+    assertJQ(
+        req(
+            "q",
+            "parent_s:(a b)",
+            "rows",
+            "0",
+            "json.facet",
+            "{kids:{type:query, q:'child_s:l', domain:{blockChildren:'parent_s:*'}}}"),
+        "/facets=={count:2, kids:{count:2}}");
+  }
+
   @After
   public void cleanAfterTestFiltersCache() {
     assertU("should be noop", delI("12275"));
@@ -29,6 +29,7 @@ import org.apache.solr.client.solrj.request.CollectionAdminRequest;
 import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.cloud.SolrCloudTestCase;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.embedded.JettySolrRunner;
@@ -248,6 +249,73 @@ public class CrossCollectionJoinQueryTest extends SolrCloudTestCase {
         false);
   }
 
+  @Test
+  public void testCcSemiJoin() throws Exception {
+    setupIndexes(true);
+    testCcJoinQuery(
+        "{!join method=crossCollection semiJoin=true fromIndex=products from=product_id_i to=product_id_i}size_s:M",
+        true);
+    testCcJoinQuery(
+        "{!join method=crossCollection semiJoin=true fromIndex=products from=product_id_l to=product_id_l}size_s:M",
+        true);
+    testCcJoinQuery(
+        "{!join method=crossCollection semiJoin=true fromIndex=products from=product_id_s to=product_id_s}size_s:M",
+        true);
+
+    // as a post filter, and as a cached filter
+    assertFilterResultCount(
+        "{!join method=crossCollection semiJoin=true fromIndex=products from=product_id_s to=product_id_s}size_s:M",
+        NUM_PRODUCTS / 2);
+    assertFilterResultCount(
+        "{!join method=crossCollection semiJoin=true cache=true fromIndex=products from=product_id_i to=product_id_i}size_s:M",
+        NUM_PRODUCTS / 2);
+
+    // other parameters are passed through to the from collection
+    assertResultCount(
+        "parts",
+        "{!join method=crossCollection semiJoin=true fromIndex=products from=product_id_s to=product_id_s fq=product_id_s:1}size_s:M",
+        2,
+        true);
+
+    // the semi-join only joins from the local cluster
+    SolrException e =
+        expectThrows(
+            SolrException.class,
+            () ->
+                testCcJoinQuery(
+                    String.format(
+                        Locale.ROOT,
+                        "{!join method=crossCollection semiJoin=true solrUrl=\"%s\" fromIndex=products from=product_id_s to=product_id_s}size_s:M",
+                        getSolrUrl()),
+                    true));
+    assertTrue(e.getMessage(), e.getMessage().contains("semiJoin"));
+
+    // the join keys must be of the same kind
+    e =
+        expectThrows(
+            SolrException.class,
+            () ->
+                testCcJoinQuery(
+                    "{!join method=crossCollection semiJoin=true fromIndex=products from=product_id_s to=product_id_i}size_s:M",
+                    true));
+    assertTrue(e.getMessage(), e.getMessage().contains("must both be"));
+  }
+
+  @Test
+  public void testCcSemiJoinNonroutedCollection() throws Exception {
+    setupIndexes(false);
+
+    testCcJoinQuery(
+        "{!join method=crossCollection semiJoin=true fromIndex=products from=product_id_s to=product_id_s}size_s:M",
+        false);
+    testCcJoinQuery(
+        "{!join method=crossCollection semiJoin=true fromIndex=products from=product_id_s to=product_id_s routed=false}size_s:M",
+        true);
+    assertFilterResultCount(
+        "{!join method=crossCollection semiJoin=true fromIndex=products from=product_id_l to=product_id_l routed=false}size_s:M",
+        NUM_PRODUCTS / 2);
+  }
+
   @Test
   public void testAllowSolrUrlsList() throws Exception {
     setupIndexes(false);
@@ -311,6 +379,17 @@ public class CrossCollectionJoinQueryTest extends SolrCloudTestCase {
     assertResultCount("parts", query, NUM_PRODUCTS / 2, expectFullResults);
   }
 
+  private static void assertFilterResultCount(String filter, long expectedCount)
+      throws IOException, SolrServerException {
+    final ModifiableSolrParams params = new ModifiableSolrParams();
+    params.add("q", "*:*");
+    params.add("fq", filter);
+    params.add("rows", "0");
+
+    QueryResponse resp = cluster.getSolrClient().query("parts", params);
+    assertEquals(expectedCount, resp.getResults().getNumFound());
+  }
+
   private static void assertResultCount(
       String collection, String query, long expectedCount, boolean expectFullResults)
       throws IOException, SolrServerException {
@@ -84,64 +84,120 @@ public class GraphQueryTest extends SolrTestCaseJ4 {
 
     // TODO: assert which documents actually come back
     assertJQ(
-        req(p, "q", "{!graph from=${node_id} to=${edge_id}}id:doc_1"), "/response/numFound==7");
+        req(p, "q", "{!graph from=${node_id} to=${edge_id} ${graph_opts}}id:doc_1"),
+        "/response/numFound==7");
 
     // reverse the order to test single/multi-valued on the opposite fields
     // start with doc1, look up node_id (1) and match to edge_id (docs 7 and 8)
     assertJQ(
-        req(p, "q", "{!graph from=${edge_id} to=${node_id} maxDepth=1}id:doc_1"),
+        req(p, "q", "{!graph from=${edge_id} to=${node_id} ${graph_opts} maxDepth=1}id:doc_1"),
         "/response/numFound==3");
 
     assertJQ(
         req(
             p,
             "q",
-            "{!graph from=${node_id} to=${edge_id} returnRoot=true returnOnlyLeaf=false}id:doc_8"),
+            "{!graph from=${node_id} to=${edge_id} ${graph_opts} returnRoot=true returnOnlyLeaf=false}id:doc_8"),
         "/response/numFound==8");
     assertJQ(
         req(
             p,
             "q",
-            "{!graph from=${node_id} to=${edge_id} returnRoot=false returnOnlyLeaf=false}id:doc_8"),
+            "{!graph from=${node_id} to=${edge_id} ${graph_opts} returnRoot=false returnOnlyLeaf=false}id:doc_8"),
         "/response/numFound==7");
     assertJQ(
         req(
             p,
             "q",
-            "{!graph from=${node_id} to=${edge_id} returnRoot=true returnOnlyLeaf=false traversalFilter='text:foo11'}id:doc_8"),
+            "{!graph from=${node_id} to=${edge_id} ${graph_opts} returnRoot=true returnOnlyLeaf=false traversalFilter='text:foo11'}id:doc_8"),
         "/response/numFound==2");
     assertJQ(
         req(
             p,
             "q",
-            "{!graph from=${node_id} to=${edge_id} returnRoot=true returnOnlyLeaf=false maxDepth=0}id:doc_8"),
+            "{!graph from=${node_id} to=${edge_id} ${graph_opts} returnRoot=true returnOnlyLeaf=false maxDepth=0}id:doc_8"),
         "/response/numFound==1");
     assertJQ(
         req(
             p,
             "q",
-            "{!graph from=${node_id} to=${edge_id} returnRoot=true returnOnlyLeaf=false maxDepth=1}id:doc_8"),
+            "{!graph from=${node_id} to=${edge_id} ${graph_opts} returnRoot=true returnOnlyLeaf=false maxDepth=1}id:doc_8"),
         "/response/numFound==3");
     assertJQ(
         req(
             p,
             "q",
-            "{!graph from=${node_id} to=${edge_id} returnRoot=false returnOnlyLeaf=false maxDepth=1}id:doc_8"),
+            "{!graph from=${node_id} to=${edge_id} ${graph_opts} returnRoot=false returnOnlyLeaf=false maxDepth=1}id:doc_8"),
         "/response/numFound==2");
     assertJQ(
         req(
             p,
             "q",
-            "{!graph from=${node_id} to=${edge_id} returnRoot=false returnOnlyLeaf=true maxDepth=2}id:doc_8"),
+            "{!graph from=${node_id} to=${edge_id} ${graph_opts} returnRoot=false returnOnlyLeaf=true maxDepth=2}id:doc_8"),
         "/response/numFound==1");
     assertJQ(
-        req(p, "q", "{!graph from=${node_id} to=${edge_id} maxDepth=1}id:doc_1"),
+        req(p, "q", "{!graph from=${node_id} to=${edge_id} ${graph_opts} maxDepth=1}id:doc_1"),
         "/response/numFound==2");
     assertJQ(
-        req(p, "q", "{!graph from=${node_id} to=${edge_id} returnRoot=false maxDepth=1}id:doc_1"),
+        req(
+            p,
+            "q",
+            "{!graph from=${node_id} to=${edge_id} ${graph_opts} returnRoot=false maxDepth=1}id:doc_1"),
         "/response/numFound==1");
   }
 
+  @Test
+  public void testGraphByOrds() throws Exception {
+    // the same traversals over the ordinals of string fields with docValues
+    doGraph(params("node_id", "node_sd", "edge_id", "edge_sds", "graph_opts", "useOrds=true"));
+    doGraph(
+        params(
+            "node_id", "node_sds", "edge_id", "edge_sds", "graph_opts", "useOrds=true threads=-1"));
+    doGraph(
+        params(
+            "node_id", "node_sdN", "edge_id", "edge_sdsN", "graph_opts", "useOrds=true threads=2"));
+  }
+
+  @Test
+  public void testGraphShortestPaths() throws Exception {
+    doGraph(params("node_id", "node_sd", "edge_id", "edge_sds"));
+    String graph = "{!graph from=node_sd to=edge_sds threads=2 ";
+
+    // 8->-2->3->5->7 is shorter than 8->1->-2->3->5->7
+    assertJQ(
+        req("q", graph + "target=id:doc_7}id:doc_8", "fl", "id", "sort", "id asc"),
+        "/response/docs==[{'id':'doc_2'},{'id':'doc_3'},{'id':'doc_5'},{'id':'doc_7'},{'id':'doc_8'}]");
+    assertJQ(req("q", graph + "target=id:doc_7 maxDepth=3}id:doc_8"), "/response/numFound==0");
+    assertJQ(req("q", graph + "target=id:doc_7 maxDepth=4}id:doc_8"), "/response/numFound==5");
+    assertJQ(
+        req("q", graph + "target=id:doc_7 returnRoot=false}id:doc_8"), "/response/numFound==4");
+
+    // both targets are 3 hops away
+    assertJQ(
+        req("q", graph + "target='id:(doc_4 doc_5)'}id:doc_1", "fl", "id", "sort", "id asc"),
+        "/response/docs==[{'id':'doc_1'},{'id':'doc_2'},{'id':'doc_3'},{'id':'doc_4'},{'id':'doc_5'}]");
+    assertJQ(
+        req("q", graph + "target='id:(doc_4 doc_5)' returnOnlyLeaf=true}id:doc_1", "fl", "id"),
+        "/response/docs==[{'id':'doc_4'}]");
+
+    // 10->11->12 is shorter than 10->11->13->12, unless 11 is filtered out
+    assertJQ(
+        req("q", graph + "target=id:doc_12}id:doc_10", "fl", "id", "sort", "id asc"),
+        "/response/docs==[{'id':'doc_10'},{'id':'doc_11'},{'id':'doc_12'}]");
+    assertJQ(
+        req("q", graph + "target=id:doc_12 traversalFilter='text:foo10'}id:doc_10"),
+        "/response/numFound==0");
+
+    // no path, or a root that is a target
+    assertJQ(req("q", graph + "target=id:doc_10}id:doc_8"), "/response/numFound==0");
+    assertJQ(req("q", graph + "target=id:doc_1}id:doc_1"), "/response/numFound==1");
+
+    assertQEx(
+        "string field with docValues",
+        req("q", "{!graph from=node_ip to=edge_ips target=id:doc_7}id:doc_8"),
+        SolrException.ErrorCode.BAD_REQUEST);
+  }
+
   @Test
   public void testGraphQueryParserValidation() {
     // from schema field existence
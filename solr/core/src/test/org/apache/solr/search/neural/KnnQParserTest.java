@@ -34,6 +34,8 @@ public class KnnQParserTest extends SolrTestCaseJ4 {
   String vectorField = "vector";
   String vectorField2 = "vector2";
   String vectorFieldByteEncoding = "vector_byte_encoding";
+  String vectorFieldInt8Quantization = "vector_int8_quantization";
+  String vectorFieldBinaryQuantization = "vector_binary_quantization";
 
   @Before
   public void prepareIndex() throws Exception {
@@ -94,6 +96,12 @@ public class KnnQParserTest extends SolrTestCaseJ4 {
         .addField(
             vectorField2, Arrays.asList(1.5f, 2.5f, 3.5f, 4.5f)); // cosine distance vector2= 0.998
 
+    // the quantized fields have the same vectors as vectorField
+    for (int i = 0; i < 10; i++) {
+      docs.get(i).addField(vectorFieldInt8Quantization, docs.get(i).getFieldValues(vectorField));
+      docs.get(i).addField(vectorFieldBinaryQuantization, docs.get(i).getFieldValues(vectorField));
+    }
+
     docs.get(0).addField(vectorFieldByteEncoding, Arrays.asList(1, 2, 3, 4));
     docs.get(1).addField(vectorFieldByteEncoding, Arrays.asList(2, 2, 1, 4));
     docs.get(2).addField(vectorFieldByteEncoding, Arrays.asList(1, 2, 1, 2));
@@ -463,6 +471,238 @@ public class KnnQParserTest extends SolrTestCaseJ4 {
         "//result/doc[4]/str[@name='id'][.='3']");
   }
 
+  @Test
+  public void knnQueryWithSearchTuning_shouldReturnTheSameResults() {
+    String vectorToSearch = "[1.0, 2.0, 3.0, 4.0]";
+
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=vector topK=3 efSearch=10 maxVisited=1000}" + vectorToSearch,
+            "fl",
+            "id"),
+        "//result[@numFound='3']",
+        "//result/doc[1]/str[@name='id'][.='1']",
+        "//result/doc[2]/str[@name='id'][.='4']",
+        "//result/doc[3]/str[@name='id'][.='2']");
+
+    // the filter accepts fewer documents than efSearch, so they are searched by brute force
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=vector topK=4 efSearch=6}" + vectorToSearch,
+            "fq",
+            "id:(3 4 9 2)",
+            "fl",
+            "id"),
+        "//result[@numFound='4']",
+        "//result/doc[1]/str[@name='id'][.='4']",
+        "//result/doc[2]/str[@name='id'][.='2']",
+        "//result/doc[3]/str[@name='id'][.='3']",
+        "//result/doc[4]/str[@name='id'][.='9']");
+
+    // a filter that is not cached is evaluated per segment
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=vector topK=3}" + vectorToSearch,
+            "fq",
+            "{!cache=false}id:(3 4 9 2)",
+            "fl",
+            "id"),
+        "//result[@numFound='3']",
+        "//result/doc[1]/str[@name='id'][.='4']",
+        "//result/doc[2]/str[@name='id'][.='2']",
+        "//result/doc[3]/str[@name='id'][.='3']");
+  }
+
+  @Test
+  public void knnQueryWithWideFilter_shouldSearchTheGraphWithTheFilterBits() {
+    // 100 more documents, all less similar to the target than the original ones, so that a filter
+    // can accept more documents than efSearch
+    for (int i = 0; i < 100; i++) {
+      SolrInputDocument doc = new SolrInputDocument();
+      doc.addField(IDField, 100 + i);
+      doc.addField(
+          vectorField,
+          Arrays.asList(-(1f + i % 10), -(1f + i % 7), 1f + i % 5, -(1f + i % 3)));
+      assertU(adoc(doc));
+    }
+    assertU(commit());
+    // a single segment, so that the number of results of an early terminated search is known
+    assertU(optimize());
+    String vectorToSearch = "[1.0, 2.0, 3.0, 4.0]";
+
+    // 'id:1*' accepts 105 documents, more than efSearch, so the graph is searched with the cached
+    // filter bits, or with the bits of the filter evaluated on the segment
+    for (String fq : new String[] {"id:1*", "{!cache=false}id:1*"}) {
+      assertQ(
+          req(
+              CommonParams.Q,
+              "{!knn f=vector topK=2 efSearch=10 exactSearchThreshold=0}" + vectorToSearch,
+              "fq",
+              fq,
+              "fl",
+              "id"),
+          "//result[@numFound='2']",
+          "//result/doc[1]/str[@name='id'][.='1']",
+          "//result/doc[2]/str[@name='id'][.='10']");
+    }
+
+    // the graph search visits more nodes than the 6 accepted ones, and falls back to brute force
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=vector topK=2 exactSearchThreshold=0}" + vectorToSearch,
+            "fq",
+            "id:(1 10 150 160 170 180)",
+            "fl",
+            "id"),
+        "//result[@numFound='2']",
+        "//result/doc[1]/str[@name='id'][.='1']",
+        "//result/doc[2]/str[@name='id'][.='10']");
+
+    // maxVisited stops the graph search after the first node, with at most one result
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=vector topK=5 efSearch=10 exactSearchThreshold=0}" + vectorToSearch,
+            "fq",
+            "id:1*",
+            "fl",
+            "id"),
+        "//result[@numFound='5']");
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=vector topK=5 efSearch=10 exactSearchThreshold=0 maxVisited=1}"
+                + vectorToSearch,
+            "fq",
+            "id:1*",
+            "fl",
+            "id"),
+        "//result[@numFound < 2]");
+  }
+
+  @Test
+  public void quantizedVectorFields_shouldRankByFullPrecisionSimilarity() {
+    String vectorToSearch = "[1.0, 2.0, 3.0, 4.0]";
+
+    String[] quantizedFields = {vectorFieldInt8Quantization, vectorFieldBinaryQuantization};
+    for (String field : quantizedFields) {
+      assertQ(
+          req(CommonParams.Q, "{!knn f=" + field + " topK=5}" + vectorToSearch, "fl", "id,score"),
+          "//result[@numFound='5']",
+          "//result/doc[1]/str[@name='id'][.='1']",
+          "//result/doc[1]/float[@name='score'][.='1.0']",
+          "//result/doc[2]/str[@name='id'][.='4']",
+          "//result/doc[3]/str[@name='id'][.='2']",
+          "//result/doc[4]/str[@name='id'][.='10']",
+          "//result/doc[5]/str[@name='id'][.='3']");
+
+      assertQ(
+          req(
+              CommonParams.Q,
+              "{!knn f=" + field + " topK=4}" + vectorToSearch,
+              "fq",
+              "id:(3 4 9 2)",
+              "fl",
+              "id"),
+          "//result[@numFound='4']",
+          "//result/doc[1]/str[@name='id'][.='4']",
+          "//result/doc[2]/str[@name='id'][.='2']",
+          "//result/doc[3]/str[@name='id'][.='3']",
+          "//result/doc[4]/str[@name='id'][.='9']");
+
+      assertQ(
+          req(
+              CommonParams.Q,
+              "{!knn f=" + field + " topK=3}" + vectorToSearch,
+              "fq",
+              "{!cache=false}id:(3 4 9 2)",
+              "fl",
+              "id"),
+          "//result[@numFound='3']",
+          "//result/doc[1]/str[@name='id'][.='4']",
+          "//result/doc[2]/str[@name='id'][.='2']",
+          "//result/doc[3]/str[@name='id'][.='3']");
+    }
+  }
+
+  @Test
+  public void quantizedVectorFields_withSmallEfSearch_shouldSelectCandidatesByQuantizedVectors() {
+    // the sign bits of 20 are the ones of the target, the bits of 21 differ by the last one
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField(IDField, 20);
+    doc.addField(vectorFieldBinaryQuantization, Arrays.asList(0.1f, 0.1f, 0.1f, -3f));
+    assertU(adoc(doc));
+    doc = new SolrInputDocument();
+    doc.addField(IDField, 21);
+    doc.addField(vectorFieldBinaryQuantization, Arrays.asList(5f, 5f, 5f, 0.1f));
+    assertU(adoc(doc));
+    assertU(commit());
+    // a single segment, so that the candidates are the efSearch best ones of the whole index
+    assertU(optimize());
+
+    // with a quantization range of 200, [1, 2, 3, 4] is quantized as [1, 1, 2, 3], to which 7 is
+    // more similar than 4, 2 and 10
+    String vectorToSearch = "[1.0, 2.0, 3.0, 4.0]";
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=" + vectorFieldInt8Quantization + " topK=2 efSearch=2}" + vectorToSearch,
+            "fl",
+            "id"),
+        "//result[@numFound='2']",
+        "//result/doc[1]/str[@name='id'][.='1']",
+        "//result/doc[2]/str[@name='id'][.='7']");
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=" + vectorFieldInt8Quantization + " topK=2 efSearch=10}" + vectorToSearch,
+            "fl",
+            "id"),
+        "//result[@numFound='2']",
+        "//result/doc[1]/str[@name='id'][.='1']",
+        "//result/doc[2]/str[@name='id'][.='4']");
+
+    // 20 is the only document at a Hamming distance of 0, 21 is the most similar one
+    vectorToSearch = "[1.0, 1.0, 1.0, -1.0]";
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=" + vectorFieldBinaryQuantization + " topK=1 efSearch=1}" + vectorToSearch,
+            "fl",
+            "id"),
+        "//result[@numFound='1']",
+        "//result/doc[1]/str[@name='id'][.='20']");
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=" + vectorFieldBinaryQuantization + " topK=1 efSearch=12}" + vectorToSearch,
+            "fl",
+            "id"),
+        "//result[@numFound='1']",
+        "//result/doc[1]/str[@name='id'][.='21']");
+  }
+
+  @Test
+  public void vectorByteEncodingFieldWithFilterQuery_shouldSearchInPreFilteredResults() {
+    String vectorToSearch = "[8, 3, 2, 4]";
+
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=vector_byte_encoding topK=2 exactSearchThreshold=0.5}" + vectorToSearch,
+            "fq",
+            "-id:8",
+            "fl",
+            "id"),
+        "//result[@numFound='2']",
+        "//result/doc[1]/str[@name='id'][.='4']",
+        "//result/doc[2]/str[@name='id'][.='7']");
+  }
+
   /**
    * See {@link org.apache.solr.search.ReRankQParserPlugin.ReRankQueryRescorer#combine(float,
    * boolean, float)}} for more details.
@@ -38,6 +38,7 @@ import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.StrUtils;
+import org.apache.solr.core.SolrCore;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.update.PeerSync.MissedUpdatesRequest;
 import org.apache.solr.update.processor.DistributedUpdateProcessor;
@@ -406,6 +407,46 @@ public class PeerSyncTest extends BaseDistributedSearchTestCase {
     validateDocs(docsAdded, client0, client1);
   }
 
+  @Test
+  @ShardsFixed(num = 3)
+  public void testInSyncWithAll() throws Exception {
+    int v = 0;
+    for (int i = 0; i < 3; i++) {
+      ++v;
+      for (SolrClient client : clients) {
+        add(client, seenLeader, sdoc("id", Integer.toString(i), "_version_", v));
+      }
+    }
+    for (SolrClient client : clients) {
+      client.commit();
+    }
+
+    String missingCore = shardsArr[2].substring(0, shardsArr[2].lastIndexOf('/')) + "/missing";
+    try (SolrCore core = jettys.get(0).getCoreContainer().getCore(DEFAULT_TEST_CORENAME)) {
+      assertTrue(isInSyncWithAll(core, shardsArr[1], shardsArr[2]));
+
+      // a replica that does not return a fingerprint
+      assertFalse(isInSyncWithAll(core, shardsArr[1], missingCore));
+
+      // a replica with a different fingerprint
+      add(clients.get(2), seenLeader, sdoc("id", "3", "_version_", ++v));
+      clients.get(2).commit();
+      assertFalse(isInSyncWithAll(core, shardsArr[1], shardsArr[2]));
+      assertFalse(isInSyncWithAll(core, shardsArr[2], shardsArr[1]));
+
+      // whereas the check before syncing is satisfied by any replica with the same fingerprint
+      assertSync(clients.get(0), numVersions, true, shardsArr[1], shardsArr[2]);
+      clients.get(0).commit();
+      assertEquals(3, clients.get(0).query(params("q", "*:*")).getResults().getNumFound());
+    }
+  }
+
+  private static boolean isInSyncWithAll(SolrCore core, String... replicas) throws IOException {
+    try (PeerSync peerSync = new PeerSync(core, Arrays.asList(replicas), numVersions, false)) {
+      return peerSync.isInSyncWithAll();
+    }
+  }
+
   protected void validateDocs(Set<Integer> docsAdded, SolrClient client0, SolrClient client1)
       throws SolrServerException, IOException {
     client0.commit();
@@ -23,7 +23,11 @@ import java.net.SocketException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -47,6 +51,8 @@ import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrEventListener;
 import org.apache.solr.embedded.JettySolrRunner;
 import org.apache.solr.index.LogDocMergePolicyFactory;
+import org.apache.solr.request.LocalSolrQueryRequest;
+import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.update.MockStreamingSolrClients.Exp;
 import org.apache.solr.update.SolrCmdDistributor.ForwardNode;
@@ -372,6 +378,7 @@ public class SolrCmdDistributorTest extends BaseDistributedSearchTestCase {
     testDeletes(true, true);
     testDeletes(true, false);
     getRfFromResponseShouldNotCloseTheInputStream();
+    testPipelinedUpdates();
     testStuckUpdates();
   }
 
@@ -914,6 +921,83 @@ public class SolrCmdDistributorTest extends BaseDistributedSearchTestCase {
     }
   }
 
+  private void testPipelinedUpdates() throws Exception {
+    final HttpSolrClient solrclient = (HttpSolrClient) clients.get(0);
+    solrclient.commit(true, true);
+    long numFoundBefore = solrclient.query(new SolrQuery("*:*")).getResults().getNumFound();
+
+    System.setProperty("solr.cloud.replication.pipelineDepth", "3");
+    System.setProperty("solr.cloud.replication.pipelineBatchSize", "7");
+    // the streaming clients used for the updates of each id
+    final Map<String, Set<SolrClient>> clientsById = new HashMap<>();
+    final StreamingSolrClients streamingClients =
+        new StreamingSolrClients(updateShardHandler) {
+          @Override
+          public synchronized SolrClient getSolrClient(SolrCmdDistributor.Req req) {
+            SolrClient client = super.getSolrClient(req);
+            String id =
+                req.cmd instanceof AddUpdateCommand
+                    ? ((AddUpdateCommand) req.cmd).getIndexedIdStr()
+                    : ((DeleteUpdateCommand) req.cmd).getId();
+            clientsById.computeIfAbsent(id, k -> new HashSet<>()).add(client);
+            return client;
+          }
+        };
+    // the ids of the updates are read with the schema of their request
+    try (SolrCore core = jettys.get(0).getCoreContainer().getCore("collection1");
+        SolrQueryRequest req = new LocalSolrQueryRequest(core, new ModifiableSolrParams());
+        SolrCmdDistributor cmdDistrib = new SolrCmdDistributor(streamingClients, 0)) {
+      ZkNodeProps nodeProps =
+          new ZkNodeProps(
+              ZkStateReader.BASE_URL_PROP,
+              solrclient.getBaseURL(),
+              ZkStateReader.CORE_NAME_PROP,
+              "");
+      List<Node> nodes = Collections.singletonList(new StdNode(new ZkCoreNodeProps(nodeProps)));
+      int numDocs = atLeast(50);
+      List<String> ids = new ArrayList<>();
+      for (int i = 0; i < numDocs; i++) {
+        ids.add(String.valueOf(uniqueId.incrementAndGet()));
+      }
+      // every document is added twice, and every fifth one is deleted after that
+      for (int round = 0; round < 2; round++) {
+        for (String id : ids) {
+          AddUpdateCommand cmd = new AddUpdateCommand(req);
+          cmd.solrDoc = sdoc("id", id, "round_i", round);
+          cmdDistrib.distribAdd(cmd, nodes, new ModifiableSolrParams());
+        }
+      }
+      int numDeleted = 0;
+      for (int i = 0; i < numDocs; i += 5) {
+        DeleteUpdateCommand dcmd = new DeleteUpdateCommand(req);
+        dcmd.setId(ids.get(i));
+        cmdDistrib.distribDelete(dcmd, nodes, new ModifiableSolrParams());
+        numDeleted++;
+      }
+      ModifiableSolrParams params = new ModifiableSolrParams();
+      params.set(DistributedUpdateProcessor.COMMIT_END_POINT, true);
+      cmdDistrib.distribCommit(new CommitUpdateCommand(null, false), nodes, params);
+      cmdDistrib.finish();
+
+      assertEquals(cmdDistrib.getErrors().toString(), 0, cmdDistrib.getErrors().size());
+      assertEquals(
+          numFoundBefore + numDocs - numDeleted,
+          solrclient.query(new SolrQuery("*:*")).getResults().getNumFound());
+
+      // the updates of a document are sent over one stream, and the documents over several ones
+      Set<SolrClient> usedClients = new HashSet<>();
+      for (String id : ids) {
+        assertEquals(id, 1, clientsById.get(id).size());
+        usedClients.addAll(clientsById.get(id));
+      }
+      assertTrue(usedClients.toString(), usedClients.size() > 1);
+      assertTrue(usedClients.size() <= 3);
+    } finally {
+      System.clearProperty("solr.cloud.replication.pipelineDepth");
+      System.clearProperty("solr.cloud.replication.pipelineBatchSize");
+    }
+  }
+
   private void testStuckUpdates() {
     TestInjection.directUpdateLatch = new CountDownLatch(1);
     List<Node> nodes = new ArrayList<>();
@@ -245,6 +245,11 @@ public class SolrIndexSplitterTest extends SolrTestCaseJ4 {
     doTestSplitByCores(SolrIndexSplitter.SplitMethod.LINK);
   }
 
+  @Test
+  public void testSplitByCoresOnline() throws Exception {
+    doTestSplitByCores(SolrIndexSplitter.SplitMethod.ONLINE);
+  }
+
   private void doTestSplitByCores(SolrIndexSplitter.SplitMethod splitMethod) throws Exception {
     // add three docs and 1 delete
     String id1 = "dorothy";
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.junit.Test;
+
+public class VersionBucketTest extends SolrTestCase {
+
+  @Test
+  public void testIdsOfABucketAreLockedSeparately() throws Exception {
+    VersionBucket bucket = new VersionBucket();
+    ExecutorService executor = ExecutorUtil.newMDCAwareCachedThreadPool("versionBucketTest");
+    try {
+      CountDownLatch locked = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      Future<Boolean> first =
+          executor.submit(
+              () ->
+                  bucket.runWithLock(
+                      0,
+                      new BytesRef("a"),
+                      () -> {
+                        locked.countDown();
+                        return await(release);
+                      }));
+      assertTrue(locked.await(30, TimeUnit.SECONDS));
+
+      // another id of the same bucket doesn't wait for the first one
+      Future<String> other =
+          executor.submit(() -> bucket.runWithLock(0, new BytesRef("b"), () -> "b"));
+      assertEquals("b", other.get(30, TimeUnit.SECONDS));
+
+      // whereas the same id does, also when its bytes are at another offset
+      Future<String> same =
+          executor.submit(
+              () -> bucket.runWithLock(0, new BytesRef(new byte[] {'x', 'a'}, 1, 1), () -> "a"));
+      expectThrows(TimeoutException.class, () -> same.get(100, TimeUnit.MILLISECONDS));
+
+      release.countDown();
+      assertTrue(first.get(30, TimeUnit.SECONDS));
+      assertEquals("a", same.get(30, TimeUnit.SECONDS));
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
+  @Test
+  public void testSameIdIsReentrant() throws Exception {
+    VersionBucket bucket = new VersionBucket();
+    BytesRef id = new BytesRef("a");
+    assertEquals(
+        "inner", bucket.runWithLock(0, id, () -> bucket.runWithLock(0, id, () -> "inner")));
+    // the id is unlocked again
+    assertEquals("again", bucket.runWithLock(0, id, () -> "again"));
+  }
+
+  @Test
+  public void testWaitersAreSignalledAfterTheUpdate() throws Exception {
+    VersionBucket bucket = new VersionBucket();
+    ExecutorService executor = ExecutorUtil.newMDCAwareCachedThreadPool("versionBucketTest");
+    try {
+      boolean[] applied = new boolean[1];
+      CountDownLatch waiting = new CountDownLatch(1);
+      Future<Boolean> waiter =
+          executor.submit(
+              () ->
+                  bucket.runWithLock(
+                      0,
+                      () -> {
+                        try {
+                          waiting.countDown();
+                          long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+                          while (!applied[0] && System.nanoTime() < deadline) {
+                            bucket.awaitNanos(deadline - System.nanoTime());
+                          }
+                          return applied[0];
+                        } finally {
+                          bucket.unlock();
+                        }
+                      }));
+      assertTrue(waiting.await(30, TimeUnit.SECONDS));
+
+      bucket.runWithLock(
+          0,
+          new BytesRef("a"),
+          () -> {
+            synchronized (bucket) {
+              applied[0] = true;
+            }
+            return null;
+          });
+      assertTrue(waiter.get(30, TimeUnit.SECONDS));
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
+  @Test
+  public void testHighest() {
+    VersionBucket bucket = new VersionBucket();
+    // not known yet
+    bucket.updateHighest(10);
+    assertEquals(0, bucket.highest);
+
+    bucket.seedHighest(5);
+    assertEquals(5, bucket.highest);
+    bucket.updateHighest(-20);
+    assertEquals(20, bucket.highest);
+    bucket.updateHighest(15);
+    assertEquals(20, bucket.highest);
+    bucket.seedHighest(12);
+    assertEquals(20, bucket.highest);
+  }
+
+  private static boolean await(CountDownLatch latch) {
+    try {
+      return latch.await(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.solr.update;
 
+import java.util.HashSet;
+import java.util.Set;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.util.Hash;
@@ -58,6 +60,48 @@ public class VersionInfoTest extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testConcurrentNewClock() throws Exception {
+    initCore("solrconfig-tlog.xml", "schema-version-dv.xml");
+    try (SolrQueryRequest r = req()) {
+      VersionInfo vInfo = r.getCore().getUpdateHandler().getUpdateLog().getVersionInfo();
+      final int numThreads = 4;
+      final int perThread = 10000;
+      final long[][] clocks = new long[numThreads][perThread];
+      Thread[] threads = new Thread[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+        final long[] mine = clocks[t];
+        threads[t] =
+            new Thread(
+                () -> {
+                  for (int i = 0; i < perThread; i++) {
+                    mine[i] = vInfo.getNewClock();
+                  }
+                });
+        threads[t].start();
+      }
+      Set<Long> seen = new HashSet<>();
+      for (int t = 0; t < numThreads; t++) {
+        threads[t].join();
+        for (int i = 0; i < perThread; i++) {
+          if (i > 0) {
+            assertTrue("clock must increase within a thread", clocks[t][i] > clocks[t][i - 1]);
+          }
+          assertTrue("clock must be unique", seen.add(clocks[t][i]));
+        }
+      }
+
+      long old = vInfo.getOldClock();
+      vInfo.updateClock(old - 1);
+      assertEquals(old, vInfo.getOldClock());
+      vInfo.updateClock(old + (1L << 40));
+      assertEquals(old + (1L << 40), vInfo.getOldClock());
+      assertEquals(old + (1L << 40) + 1, vInfo.getNewClock());
+    } finally {
+      deleteCore();
+    }
+  }
+
   protected void testMaxVersionLogic(SolrQueryRequest req) throws Exception {
     UpdateHandler uhandler = req.getCore().getUpdateHandler();
     UpdateLog ulog = uhandler.getUpdateLog();
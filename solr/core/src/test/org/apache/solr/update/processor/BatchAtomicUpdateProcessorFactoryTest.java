@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.update.processor;
+
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.handler.component.RealTimeGetComponent;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BatchAtomicUpdateProcessorFactoryTest extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeTests() throws Exception {
+    initCore("solrconfig-tlog.xml", "schema.xml");
+  }
+
+  @Before
+  public void before() {
+    clearIndex();
+    assertU(commit());
+  }
+
+  @Test
+  public void testGetInputDocumentsFromIndex() throws Exception {
+    assertU(adoc("id", "1", "val_i", "1", "name_s", "one"));
+    assertU(adoc("id", "2", "val_i", "2", "name_s", "two"));
+    assertU(adoc("id", "3", "val_i", "3", "name_s", "three"));
+    assertU(commit());
+    assertU(delI("3"));
+    assertU(commit());
+
+    SolrCore core = h.getCore();
+    RefCounted<SolrIndexSearcher> holder = core.getRealtimeSearcher();
+    try {
+      Map<BytesRef, SolrInputDocument> docs =
+          RealTimeGetComponent.getInputDocumentsFromIndex(
+              core,
+              holder.get(),
+              List.of(new BytesRef("2"), new BytesRef("3"), new BytesRef("1"), new BytesRef("4")));
+      assertEquals(2, docs.size());
+      assertEquals("one", docs.get(new BytesRef("1")).getFieldValue("name_s"));
+      assertEquals(2, docs.get(new BytesRef("2")).getFieldValue("val_i"));
+    } finally {
+      holder.decref();
+    }
+  }
+
+  @Test
+  public void testBatchedAtomicUpdates() throws Exception {
+    int numDocs = 35;
+    for (int i = 0; i < numDocs; i++) {
+      assertU(adoc("id", Integer.toString(i), "val_i", Integer.toString(i), "name_s", "doc" + i));
+    }
+    assertU(commit());
+    // the last few are only in the update log
+    for (int i = numDocs; i < numDocs + 5; i++) {
+      assertU(adoc("id", Integer.toString(i), "val_i", Integer.toString(i), "name_s", "doc" + i));
+    }
+
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < numDocs + 5; i++) {
+      json.append("{\"id\":\"").append(i).append("\",\"val_i\":{\"inc\":100}},");
+      if (i == 20) {
+        // a plain add in the middle of the batch, and a second update of a buffered doc after it
+        json.append("{\"id\":\"100\",\"val_i\":100,\"name_s\":\"doc100\"},");
+        json.append("{\"id\":\"0\",\"val_i\":{\"inc\":1000}},");
+      }
+    }
+    // an update of a doc that doesn't exist yet
+    json.append("{\"id\":\"200\",\"val_i\":{\"set\":200}}]");
+    updateJ(json.toString(), params("update.chain", "batch-atomic"));
+    assertU(commit());
+
+    assertQ(req("q", "*:*"), "//*[@numFound='" + (numDocs + 7) + "']");
+    assertQ(req("q", "id:0"), "//int[@name='val_i'][.='1100']", "//str[@name='name_s'][.='doc0']");
+    for (int i = 1; i < numDocs + 5; i++) {
+      assertQ(
+          req("q", "id:" + i),
+          "//int[@name='val_i'][.='" + (i + 100) + "']",
+          "//str[@name='name_s'][.='doc" + i + "']");
+    }
+    assertQ(req("q", "id:100"), "//int[@name='val_i'][.='100']");
+    assertQ(req("q", "id:200"), "//int[@name='val_i'][.='200']");
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.junit.Test;
+
+public class ParallelTasksTest extends SolrTestCase {
+
+  @Test
+  public void testAtMostThreadsTasksRunning() throws Exception {
+    ExecutorService executor = ExecutorUtil.newMDCAwareCachedThreadPool("parallelTasksTest");
+    try {
+      for (int threads : new int[] {-1, 0, 1, 3}) {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+          tasks.add(
+              () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(1);
+                running.decrementAndGet();
+                done.incrementAndGet();
+                return null;
+              });
+        }
+        ParallelTasks.run(executor, threads, tasks, "error");
+        assertEquals(20, done.get());
+        if (threads >= 0) {
+          assertTrue(maxRunning.get() <= Math.max(1, threads));
+        }
+      }
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
+  @Test
+  public void testExceptionsAreRethrown() throws Exception {
+    ExecutorService executor = ExecutorUtil.newMDCAwareCachedThreadPool("parallelTasksTest");
+    try {
+      for (int threads : new int[] {0, 2}) {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(() -> null);
+        tasks.add(
+            () -> {
+              throw new IOException("io");
+            });
+        IOException io =
+            expectThrows(
+                IOException.class, () -> ParallelTasks.run(executor, threads, tasks, "error"));
+        assertEquals("io", io.getMessage());
+
+        tasks.set(
+            1,
+            () -> {
+              throw new Exception("checked");
+            });
+        SolrException e =
+            expectThrows(
+                SolrException.class, () -> ParallelTasks.run(executor, threads, tasks, "error"));
+        assertEquals("error", e.getMessage());
+        assertEquals("checked", e.getCause().getMessage());
+      }
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+}
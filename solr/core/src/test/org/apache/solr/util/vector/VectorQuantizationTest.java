@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.util.vector;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class VectorQuantizationTest extends SolrTestCase {
+
+  @Test
+  public void toInt8_shouldScaleTheRangeAndClampOutOfRangeValues() {
+    float[] vector = {0f, 1f, -1f, 2f, -2f, 3f, -300f, 0.5f};
+
+    byte[] quantized = VectorQuantization.toInt8(vector, 2f);
+
+    assertArrayEquals(new byte[] {0, 64, -63, 127, -127, 127, -127, 32}, quantized);
+  }
+
+  @Test
+  public void toBinary_shouldSetTheBitOfEachPositiveDimension() {
+    byte[] bits = VectorQuantization.toBinary(new float[] {1f, -1f, 2f, 0f, 0.1f});
+
+    // padded to a long
+    assertEquals(8, bits.length);
+    assertEquals(0b10101, bits[0]);
+    for (int i = 1; i < bits.length; i++) {
+      assertEquals(0, bits[i]);
+    }
+
+    float[] vector = new float[65];
+    vector[7] = 1f;
+    vector[64] = 1f;
+    bits = VectorQuantization.toBinary(vector);
+    assertEquals(16, bits.length);
+    assertEquals((byte) 0x80, bits[0]);
+    assertEquals(1, bits[8]);
+  }
+
+  @Test
+  public void binarySize_shouldPadToMultiplesOfEightBytes() {
+    assertEquals(8, VectorQuantization.binarySize(1));
+    assertEquals(8, VectorQuantization.binarySize(64));
+    assertEquals(16, VectorQuantization.binarySize(65));
+    assertEquals(16, VectorQuantization.binarySize(128));
+    assertEquals(48, VectorQuantization.binarySize(384));
+  }
+
+  @Test
+  public void hammingDistance_shouldCountTheDifferentBits() {
+    float[] a = new float[100];
+    float[] b = new float[100];
+    for (int i = 0; i < a.length; i++) {
+      a[i] = 1f;
+      b[i] = i % 3 == 0 ? -1f : 1f;
+    }
+    byte[] bitsA = VectorQuantization.toBinary(a);
+    byte[] bitsB = VectorQuantization.toBinary(b);
+
+    assertEquals(0, VectorQuantization.hammingDistance(bitsA, new BytesRef(bitsA)));
+    assertEquals(34, VectorQuantization.hammingDistance(bitsA, new BytesRef(bitsB)));
+
+    // doc values may be read from an offset of a larger array
+    byte[] shifted = new byte[bitsB.length + 5];
+    System.arraycopy(bitsB, 0, shifted, 3, bitsB.length);
+    assertEquals(
+        34, VectorQuantization.hammingDistance(bitsA, new BytesRef(shifted, 3, bitsB.length)));
+  }
+
+  @Test
+  public void encode_shouldBeDecodedToTheSameVector() {
+    float[] vector = {1.5f, -2.25f, 0f, Float.MAX_VALUE, -Float.MIN_VALUE};
+
+    byte[] encoded = VectorQuantization.encode(vector);
+    assertEquals(vector.length * Float.BYTES, encoded.length);
+
+    byte[] shifted = new byte[encoded.length + 7];
+    System.arraycopy(encoded, 0, shifted, 7, encoded.length);
+    float[] decoded = new float[vector.length];
+    VectorQuantization.decode(new BytesRef(shifted, 7, encoded.length), decoded);
+    assertArrayEquals(vector, decoded, 0f);
+  }
+}
@@ -389,6 +389,9 @@ public class ZkStateReader implements SolrCloseable {
 
   private final boolean closeClient;
 
+  /** Whether watched collections are updated from their state deltas where possible */
+  private final boolean applyStateDeltas = CollectionStateDelta.isEnabled();
+
   private volatile boolean closed = false;
 
   private Set<CountDownLatch> waitLatches = ConcurrentHashMap.newKeySet();
@@ -503,7 +506,13 @@ public class ZkStateReader implements SolrCloseable {
           return;
         }
       } else if (collectionWatches.watchedCollections().contains(collection)) {
-        // Exists as a watched collection, force a refresh.
+        // Exists as a watched collection, force a refresh unless it's up-to-date. Many cores of
+        // the same collection may be registering at once, checking the version is much cheaper
+        // than fetching the state.
+        if (isUpToDate(ref.get())) {
+          log.debug("Watched collection state for {} is up-to-date", collection);
+          return;
+        }
         log.debug("Forcing refresh of watched collection state for {}", collection);
         DocCollection newState = fetchCollectionState(collection, null);
         if (collectionWatches.updateDocCollection(collection, newState)) {
@@ -515,6 +524,17 @@ public class ZkStateReader implements SolrCloseable {
     }
   }
 
+  /** Whether the given state is the one currently in ZK, including its per-replica states */
+  private boolean isUpToDate(DocCollection state) throws KeeperException, InterruptedException {
+    if (state == null) {
+      return false;
+    }
+    Stat stat = zkClient.exists(DocCollection.getCollectionPath(state.getName()), null, true);
+    return stat != null
+        && stat.getVersion() == state.getZNodeVersion()
+        && (!state.isPerReplicaState() || stat.getCversion() == state.getChildNodesVersion());
+  }
+
   /** Refresh the set of live nodes. */
   public void updateLiveNodes() throws KeeperException, InterruptedException {
     refreshLiveNodes(null);
@@ -1368,7 +1388,13 @@ public class ZkStateReader implements SolrCloseable {
           }
         }
 
-        DocCollection newState = fetchCollectionState(coll, this);
+        DocCollection newState = null;
+        if (eventType == EventType.NodeDataChanged && applyStateDeltas) {
+          newState = fetchCollectionStateDelta(coll, this);
+        }
+        if (newState == null) {
+          newState = fetchCollectionState(coll, this);
+        }
         collectionWatches.updateDocCollection(coll, newState);
         synchronized (getUpdateLock()) {
           constructState(Collections.singleton(coll));
@@ -1631,6 +1657,33 @@ public class ZkStateReader implements SolrCloseable {
     }
   }
 
+  /**
+   * Tries to bring the watched state of a collection up to date by applying the {@link
+   * CollectionStateDelta} written along with its state.json, and leaves a watch on the state.json.
+   *
+   * @return the new state, or null if the delta can't be used and the full state must be fetched
+   */
+  private DocCollection fetchCollectionStateDelta(String coll, Watcher watcher)
+      throws KeeperException, InterruptedException {
+    DocCollection oldState = collectionWatches.getDocCollection(coll);
+    if (oldState == null || oldState.isPerReplicaState()) {
+      return null;
+    }
+    Stat stat = zkClient.exists(DocCollection.getCollectionPath(coll), watcher, true);
+    if (stat == null) {
+      return null;
+    }
+    if (stat.getVersion() == oldState.getZNodeVersion()) {
+      return oldState;
+    }
+    try {
+      byte[] data = zkClient.getData(DocCollection.getCollectionDeltaPath(coll), null, null, true);
+      return CollectionStateDelta.apply(oldState, data, stat.getVersion());
+    } catch (KeeperException.NoNodeException e) {
+      return null;
+    }
+  }
+
   @Deprecated // see DocCollection
   public static String getCollectionPathRoot(String coll) {
     return DocCollection.getCollectionPathRoot(coll);
@@ -75,6 +75,20 @@ public class ShardTerms implements MapWriter {
     return values.getOrDefault(coreNodeName, 0L) == maxTerm;
   }
 
+  /**
+   * Do all the registered replicas have the same term, with none of them recovering?
+   *
+   * @return true if no replica has a term lower than the highest one and no replica is recovering
+   */
+  public boolean haveAllEqualTerms() {
+    for (Map.Entry<String, Long> entry : values.entrySet()) {
+      if (entry.getKey().endsWith(RECOVERING_TERM_SUFFIX) || entry.getValue() != maxTerm) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public Long getTerm(String coreNodeName) {
     return values.get(coreNodeName);
   }
@@ -21,13 +21,20 @@ import static org.apache.solr.client.solrj.impl.BaseHttpSolrClient.RemoteSolrExc
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.request.CollectionAdminRequest;
@@ -37,15 +44,20 @@ import org.apache.solr.common.cloud.Aliases;
 import org.apache.solr.common.cloud.ClusterState;
 import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.PerReplicaStates;
+import org.apache.solr.common.params.CollectionAdminParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.common.util.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public abstract class BaseHttpClusterStateProvider implements ClusterStateProvider {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  // the most a watch is renewed after, so that the clients woken by a change don't renew at once
+  private static final int MAX_STATE_WATCH_RENEW_DELAY_MS = 1000;
 
   private String urlScheme;
   volatile Set<String> liveNodes;
@@ -56,6 +68,14 @@ public abstract class BaseHttpClusterStateProvider implements ClusterStateProvid
 
   private int cacheTimeout = 5; // the liveNodes and aliases cache will be invalidated after 5 secs
 
+  private volatile boolean watchStates = false;
+  private int stateWatchTimeout = 30;
+  // the states of the collections fetched so far, kept current by watchStatesLoop() if watchStates
+  private final Map<String, DocCollection> watchedStates = new ConcurrentHashMap<>();
+  private final AtomicBoolean stateWatcherRunning = new AtomicBoolean();
+  private ExecutorService stateWatcherExecutor;
+  private volatile boolean closed = false;
+
   public void init(List<String> solrUrls) throws Exception {
     for (String solrUrl : solrUrls) {
       urlScheme = solrUrl.startsWith("https") ? "https" : "http";
@@ -84,11 +104,21 @@ public abstract class BaseHttpClusterStateProvider implements ClusterStateProvid
 
   @Override
   public ClusterState.CollectionRef getState(String collection) {
+    if (watchStates) {
+      DocCollection watched = watchedStates.get(collection);
+      if (watched != null) {
+        return new ClusterState.CollectionRef(watched);
+      }
+    }
     for (String nodeName : liveNodes) {
       String baseUrl = Utils.getBaseUrlForNodeName(nodeName, urlScheme);
       try (SolrClient client = getSolrClient(baseUrl)) {
         ClusterState cs = fetchClusterState(client, collection, null);
-        return cs.getCollectionRef(collection);
+        ClusterState.CollectionRef ref = cs.getCollectionRef(collection);
+        if (watchStates && ref != null) {
+          watchState(ref.get());
+        }
+        return ref;
       } catch (SolrServerException | IOException e) {
         log.warn(
             "Attempt to fetch cluster state from {} failed.",
@@ -166,6 +196,149 @@ public abstract class BaseHttpClusterStateProvider implements ClusterStateProvid
     return cs;
   }
 
+  /**
+   * Adds the collection to those whose state is kept current, and starts the background watch if
+   * it isn't running.
+   */
+  private void watchState(DocCollection coll) {
+    updateWatchedState(coll);
+    startStateWatcher();
+  }
+
+  private void startStateWatcher() {
+    if (!closed && stateWatcherRunning.compareAndSet(false, true)) {
+      synchronized (this) {
+        // closeStateWatcher() may have shut the executor down since we checked
+        if (closed) {
+          stateWatcherRunning.set(false);
+          return;
+        }
+        if (stateWatcherExecutor == null) {
+          stateWatcherExecutor =
+              ExecutorUtil.newMDCAwareSingleThreadExecutor(
+                  new SolrNamedThreadFactory("httpClusterStateWatcher"));
+        }
+        try {
+          stateWatcherExecutor.submit(this::watchStatesLoop);
+        } catch (RejectedExecutionException e) {
+          stateWatcherRunning.set(false);
+        }
+      }
+    }
+  }
+
+  private void updateWatchedState(DocCollection coll) {
+    watchedStates.merge(
+        coll.getName(),
+        coll,
+        (old, c) ->
+            c.getZNodeVersion() > old.getZNodeVersion()
+                    || (c.getZNodeVersion() == old.getZNodeVersion()
+                        && c.getChildNodesVersion() >= old.getChildNodesVersion())
+                ? c
+                : old);
+  }
+
+  /**
+   * Keeps the watched collection states current by always having a CLUSTERSTATUS request pending
+   * with the versions we know of. The node only responds once one of them changes, or the live
+   * nodes change, or {@link #getStateWatchTimeout()} expires, and then only with the collections
+   * that changed. With HTTP/2 all these requests share the connection of the other requests to the
+   * node, and the state is updated as soon as it changes without any polling.
+   *
+   * <p>Each pending request holds a thread of the node, and a change wakes all the clients watching
+   * it. So the requests go to a random node, wait for a random part of the timeout, and are renewed
+   * after a random delay.
+   */
+  private void watchStatesLoop() {
+    try {
+      while (!closed && !watchedStates.isEmpty()) {
+        Map<String, DocCollection> known = new HashMap<>(watchedStates);
+        if (!fetchStateChanges(known)) {
+          // without a node to watch with, fall back to fetching the states on demand
+          log.warn("Could not watch the cluster state from any of the nodes {}", liveNodes);
+          watchedStates.clear();
+          return;
+        }
+        // any change made meanwhile is returned at once, as our versions are then outdated
+        Thread.sleep(ThreadLocalRandom.current().nextInt(MAX_STATE_WATCH_RENEW_DELAY_MS));
+      }
+    } catch (InterruptedException e) {
+      // closed
+      Thread.currentThread().interrupt();
+    } finally {
+      stateWatcherRunning.set(false);
+    }
+    // a collection watched after the loop found none couldn't start the watcher
+    if (!watchedStates.isEmpty()) {
+      startStateWatcher();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private boolean fetchStateChanges(Map<String, DocCollection> known) {
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.set("action", "CLUSTERSTATUS");
+    params.set("prs", "true");
+    params.set(
+        CollectionAdminParams.STATE_VERSIONS,
+        known.values().stream()
+            .map(c -> c.getName() + ":" + c.getZNodeVersion() + ":" + c.getChildNodesVersion())
+            .collect(Collectors.joining(",")));
+    params.set(
+        CollectionAdminParams.WAIT_FOR_CHANGE,
+        stateWatchTimeout - ThreadLocalRandom.current().nextInt(stateWatchTimeout / 2 + 1));
+    QueryRequest request = new QueryRequest(params);
+    request.setPath("/admin/collections");
+    List<String> nodeNames = new ArrayList<>(liveNodes);
+    Collections.shuffle(nodeNames);
+    for (String nodeName : nodeNames) {
+      if (closed) {
+        return true;
+      }
+      String baseUrl = Utils.getBaseUrlForNodeName(nodeName, urlScheme);
+      try (SolrClient client = getSolrClient(baseUrl)) {
+        SimpleOrderedMap<?> cluster = (SimpleOrderedMap<?>) client.request(request).get("cluster");
+        NamedList<?> collections = (NamedList<?>) cluster.get("collections");
+        List<String> unchanged = (List<String>) cluster.get("unchanged");
+        if (unchanged == null) {
+          log.warn("{} does not support watching the cluster state, disabling it", baseUrl);
+          setWatchStates(false);
+          return true;
+        }
+        Set<String> deleted = new HashSet<>(known.keySet());
+        deleted.removeAll(unchanged);
+        for (Map.Entry<String, ?> e : collections) {
+          deleted.remove(e.getKey());
+          Map<String, Object> m = (Map<String, Object>) e.getValue();
+          updateWatchedState(
+              fillPrs((int) m.get("znodeVersion"), Map.entry(e.getKey(), (Object) m), m));
+        }
+        for (String name : deleted) {
+          watchedStates.remove(name, known.get(name));
+        }
+        this.liveNodes = new HashSet<>((List<String>) cluster.get("live_nodes"));
+        liveNodesTimestamp = System.nanoTime();
+        return true;
+      } catch (SolrServerException | RemoteSolrException | IOException e) {
+        if (!closed) {
+          log.warn("Attempt to watch the cluster state from {} failed.", baseUrl, e);
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Stops keeping the collection states current; to be called when closing the provider. */
+  protected void closeStateWatcher() {
+    closed = true;
+    synchronized (this) {
+      if (stateWatcherExecutor != null) {
+        ExecutorUtil.shutdownNowAndAwaitTermination(stateWatcherExecutor);
+      }
+    }
+  }
+
   @SuppressWarnings({"rawtypes", "unchecked"})
   private DocCollection fillPrs(int znodeVersion, Map.Entry<String, Object> e, Map m) {
     DocCollection.PrsSupplier prsSupplier = null;
@@ -380,6 +553,40 @@ public abstract class BaseHttpClusterStateProvider implements ClusterStateProvid
     this.cacheTimeout = cacheTimeout;
   }
 
+  public boolean isWatchStates() {
+    return watchStates;
+  }
+
+  /**
+   * If true, the states of the collections fetched by {@link #getState(String)} are cached and
+   * kept current by a background thread, which waits for their changes on one of the nodes. This
+   * avoids fetching the state for every request, or polling for it.
+   */
+  public void setWatchStates(boolean watchStates) {
+    this.watchStates = watchStates;
+    if (!watchStates) {
+      watchedStates.clear();
+    }
+  }
+
+  /** The state of the collection kept current by the background watch, for tests. */
+  DocCollection getWatchedState(String collection) {
+    return watchedStates.get(collection);
+  }
+
+  public int getStateWatchTimeout() {
+    return stateWatchTimeout;
+  }
+
+  /**
+   * Sets the number of seconds a node waits for a change of the watched collections before
+   * responding that nothing changed, after which the watch is renewed. Each request waits between
+   * half of it and all of it, and nodes wait 30 seconds at most.
+   */
+  public void setStateWatchTimeout(int stateWatchTimeout) {
+    this.stateWatchTimeout = stateWatchTimeout;
+  }
+
   // This exception is not meant to escape this class it should be caught and wrapped.
   private static class NotACollectionException extends Exception {}
 
@@ -0,0 +1,361 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.impl;
+
+import static org.apache.solr.common.params.CommonParams.ID;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.DocRouter;
+import org.apache.solr.common.cloud.ImplicitDocRouter;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.IOUtils;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cloud-aware bulk indexing client. Documents and delete-by-ids are routed on the client side to
+ * the leader of the shard they belong to (using the collection's {@link DocRouter}), and each
+ * leader is fed through its own {@link ConcurrentUpdateHttp2SolrClient}, which streams the queued
+ * updates in javabin format over a single HTTP/2 connection. This avoids the extra hop a non-leader
+ * would need to forward the update to its leader, so bulk indexing throughput scales with the
+ * number of shards.
+ *
+ * <p>Requests that cannot be routed (commits, delete-by-query, documents without a route key,
+ * collections using the implicit router or shards without a leader) first wait for all queued
+ * updates to be sent and are then executed synchronously through the wrapped {@link
+ * CloudHttp2SolrClient}.
+ *
+ * @lucene.experimental
+ */
+public class CloudConcurrentUpdateHttp2SolrClient extends SolrClient {
+  private static final long serialVersionUID = 1L;
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final CloudHttp2SolrClient cloudClient;
+  private final boolean closeCloudClient;
+  private final Http2SolrClient httpClient;
+  private final ExecutorService scheduler;
+  private final boolean shutdownExecutor;
+  private final int queueSize;
+  private final int threadCount;
+  private final long pollQueueTimeMillis;
+
+  /** Per shard leader core URL */
+  private final Map<String, ConcurrentUpdateHttp2SolrClient> leaderClients =
+      new ConcurrentHashMap<>();
+
+  private volatile boolean closed;
+
+  protected CloudConcurrentUpdateHttp2SolrClient(Builder builder) {
+    this.cloudClient = builder.cloudClient;
+    this.closeCloudClient = builder.closeCloudClient;
+    this.httpClient = cloudClient.getHttpClient();
+    this.queueSize = builder.queueSize;
+    this.threadCount = builder.threadCount;
+    this.pollQueueTimeMillis = builder.pollQueueTimeMillis;
+    if (builder.executorService != null) {
+      this.scheduler = builder.executorService;
+      this.shutdownExecutor = false;
+    } else {
+      this.scheduler =
+          ExecutorUtil.newMDCAwareCachedThreadPool(
+              new SolrNamedThreadFactory("cloudConcurrentUpdateScheduler"));
+      this.shutdownExecutor = true;
+    }
+  }
+
+  public CloudHttp2SolrClient getCloudClient() {
+    return cloudClient;
+  }
+
+  @Override
+  public NamedList<Object> request(SolrRequest<?> request, String collection)
+      throws SolrServerException, IOException {
+    if (closed) {
+      throw new IllegalStateException("This client has been closed");
+    }
+    if (collection == null) {
+      collection = request.getCollection();
+    }
+    if (collection == null) {
+      collection = cloudClient.getDefaultCollection();
+    }
+    if (!(request instanceof UpdateRequest) || collection == null) {
+      blockUntilFinished();
+      return cloudClient.request(request, collection);
+    }
+
+    UpdateRequest req = (UpdateRequest) request;
+    SolrParams params = req.getParams();
+    if (params != null && params.getBool(UpdateParams.WAIT_SEARCHER, false)) {
+      log.info("blocking for commit/optimize");
+      blockUntilFinished();
+      return cloudClient.request(request, collection);
+    }
+
+    Map<String, LBSolrClient.Req> routes = getRoutes(req, collection);
+    if (routes == null) {
+      // this happens for commits, deleteByQuery and anything else we can't route to a leader
+      blockUntilFinished();
+      return cloudClient.request(request, collection);
+    }
+
+    for (Map.Entry<String, LBSolrClient.Req> entry : routes.entrySet()) {
+      getLeaderClient(entry.getKey()).request(entry.getValue().getRequest(), null);
+    }
+
+    List<String> deleteQuery = req.getDeleteQuery();
+    boolean hasDeleteQuery = deleteQuery != null && !deleteQuery.isEmpty();
+    boolean hasCommit =
+        params != null
+            && (params.get(UpdateParams.COMMIT) != null
+                || params.get(UpdateParams.OPTIMIZE) != null);
+    if (hasDeleteQuery || hasCommit) {
+      // the routed parts are queued; apply the non-routable parts once they have been sent
+      blockUntilFinished();
+      UpdateRequest nonRoutableRequest = new UpdateRequest();
+      nonRoutableRequest.setParams(params == null ? null : new ModifiableSolrParams(params));
+      nonRoutableRequest.setDeleteQuery(deleteQuery);
+      nonRoutableRequest.setBasicAuthCredentials(
+          req.getBasicAuthUser(), req.getBasicAuthPassword());
+      return cloudClient.request(nonRoutableRequest, collection);
+    }
+
+    // RETURN A DUMMY result
+    NamedList<Object> dummy = new NamedList<>();
+    dummy.add("NOTE", "the request is processed in a background stream");
+    return dummy;
+  }
+
+  /**
+   * Splits the documents and delete-by-ids of the request by the leader of their target shard.
+   *
+   * @return the per-leader requests keyed by the leader's core URL, or null if the request can't
+   *     be routed to leaders
+   */
+  private Map<String, LBSolrClient.Req> getRoutes(UpdateRequest req, String collection) {
+    ClusterStateProvider stateProvider = cloudClient.getClusterStateProvider();
+    List<String> aliasedCollections = stateProvider.resolveAlias(collection);
+    if (stateProvider.isRoutedAlias(collection)) {
+      // routed aliases pick the target collection server side
+      return null;
+    }
+    if (aliasedCollections.size() != 1) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "Update request to non-routed multi-collection alias not supported: "
+              + collection
+              + " -> "
+              + aliasedCollections);
+    }
+
+    DocCollection col = cloudClient.getDocCollection(aliasedCollections.get(0), null);
+    if (col == null) {
+      return null;
+    }
+    DocRouter router = col.getRouter();
+    if (router instanceof ImplicitDocRouter) {
+      return null;
+    }
+
+    Map<String, List<String>> urlMap = new HashMap<>();
+    for (Slice slice : col.getActiveSlicesArr()) {
+      Replica leader = slice.getLeader();
+      if (leader == null) {
+        return null;
+      }
+      urlMap.put(slice.getName(), List.of(leader.getCoreUrl()));
+    }
+
+    ModifiableSolrParams routableParams = new ModifiableSolrParams();
+    if (req.getParams() != null) {
+      routableParams.add(req.getParams());
+      routableParams.remove(UpdateParams.COMMIT);
+      routableParams.remove(UpdateParams.WAIT_SEARCHER);
+      routableParams.remove(UpdateParams.OPTIMIZE);
+      routableParams.remove(UpdateParams.SOFT_COMMIT);
+      routableParams.remove(UpdateParams.PREPARE_COMMIT);
+      routableParams.remove(UpdateParams.ROLLBACK);
+      routableParams.remove(UpdateParams.EXPUNGE_DELETES);
+    }
+    String routeField = router.getRouteField(col) == null ? ID : router.getRouteField(col);
+    return req.getRoutesToCollection(router, col, urlMap, routableParams, routeField);
+  }
+
+  private ConcurrentUpdateHttp2SolrClient getLeaderClient(String leaderUrl) {
+    return leaderClients.computeIfAbsent(
+        leaderUrl,
+        url -> {
+          ConcurrentUpdateHttp2SolrClient.Builder builder =
+              new ConcurrentUpdateHttp2SolrClient.Builder(url, httpClient)
+                  .withQueueSize(queueSize)
+                  .withThreadCount(threadCount)
+                  .withExecutorService(scheduler)
+                  .setPollQueueTime(pollQueueTimeMillis, TimeUnit.MILLISECONDS);
+          return new ConcurrentUpdateHttp2SolrClient(builder) {
+            @Override
+            public void handleError(Throwable ex) {
+              CloudConcurrentUpdateHttp2SolrClient.this.handleError(ex, url);
+            }
+          };
+        });
+  }
+
+  /** The core URLs of the shard leaders that updates were streamed to, for tests. */
+  Set<String> getLeaderUrls() {
+    return Collections.unmodifiableSet(leaderClients.keySet());
+  }
+
+  /** Blocks until the queues of all shard leaders have been sent. */
+  public void blockUntilFinished() throws IOException {
+    for (ConcurrentUpdateHttp2SolrClient leaderClient : leaderClients.values()) {
+      leaderClient.blockUntilFinished();
+    }
+  }
+
+  /**
+   * Called when sending queued updates to a shard leader failed. The default implementation only
+   * logs the error.
+   *
+   * @param ex the error
+   * @param leaderUrl the core URL of the shard leader the updates were sent to
+   */
+  public void handleError(Throwable ex, String leaderUrl) {
+    log.error("error sending updates to {}", leaderUrl, ex);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      for (ConcurrentUpdateHttp2SolrClient leaderClient : leaderClients.values()) {
+        IOUtils.closeQuietly(leaderClient);
+      }
+      leaderClients.clear();
+      if (shutdownExecutor) {
+        ExecutorUtil.shutdownAndAwaitTermination(scheduler);
+      }
+    } finally {
+      if (closeCloudClient) {
+        cloudClient.close();
+      }
+    }
+  }
+
+  /**
+   * Constructs {@link CloudConcurrentUpdateHttp2SolrClient} instances from provided configuration.
+   */
+  public static class Builder {
+    protected CloudHttp2SolrClient cloudClient;
+    protected boolean closeCloudClient;
+    protected int queueSize = 10;
+    protected int threadCount = 1;
+    protected ExecutorService executorService;
+    protected long pollQueueTimeMillis;
+
+    /**
+     * @param cloudClient used to look up the cluster state and for requests that can't be routed to
+     *     shard leaders. Its internal {@link Http2SolrClient} is used to stream the updates.
+     */
+    public Builder(CloudHttp2SolrClient cloudClient) {
+      this(cloudClient, false);
+    }
+
+    public Builder(CloudHttp2SolrClient cloudClient, boolean closeCloudClient) {
+      this.cloudClient = cloudClient;
+      this.closeCloudClient = closeCloudClient;
+    }
+
+    /**
+     * The maximum number of requests buffered per shard leader before {@link
+     * CloudConcurrentUpdateHttp2SolrClient#request(SolrRequest)} blocks.
+     *
+     * <p>If not set, this defaults to 10.
+     */
+    public Builder withQueueSize(int queueSize) {
+      if (queueSize <= 0) {
+        throw new IllegalArgumentException("queueSize must be a positive integer.");
+      }
+      this.queueSize = queueSize;
+      return this;
+    }
+
+    /**
+     * The maximum number of threads (and thus concurrent connections) used per shard leader.
+     *
+     * <p>If not set, this defaults to 1.
+     */
+    public Builder withThreadCount(int threadCount) {
+      if (threadCount <= 0) {
+        throw new IllegalArgumentException("threadCount must be a positive integer.");
+      }
+      this.threadCount = threadCount;
+      return this;
+    }
+
+    /**
+     * Provides the {@link ExecutorService} shared by the queues of all shard leaders. If not set,
+     * the client creates and shuts down its own.
+     */
+    public Builder withExecutorService(ExecutorService executorService) {
+      this.executorService = executorService;
+      return this;
+    }
+
+    /**
+     * @param pollQueueTime time for an open connection to wait for updates when the queue is empty.
+     */
+    public Builder setPollQueueTime(long pollQueueTime, TimeUnit unit) {
+      this.pollQueueTimeMillis = TimeUnit.MILLISECONDS.convert(pollQueueTime, unit);
+      return this;
+    }
+
+    public CloudConcurrentUpdateHttp2SolrClient build() {
+      if (cloudClient == null) {
+        throw new IllegalArgumentException(
+            "Cannot create CloudConcurrentUpdateHttp2SolrClient without a CloudHttp2SolrClient");
+      }
+      return new CloudConcurrentUpdateHttp2SolrClient(this);
+    }
+  }
+}
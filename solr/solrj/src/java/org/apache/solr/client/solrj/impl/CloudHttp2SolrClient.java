@@ -83,7 +83,10 @@ public class CloudHttp2SolrClient extends CloudSolrClient {
             ClusterStateProvider.newZkClusterStateProvider(builder.zkHosts, builder.zkChroot);
       } else if (builder.solrUrls != null && !builder.solrUrls.isEmpty()) {
         try {
-          this.stateProvider = new Http2ClusterStateProvider(builder.solrUrls, builder.httpClient);
+          Http2ClusterStateProvider httpStateProvider =
+              new Http2ClusterStateProvider(builder.solrUrls, builder.httpClient);
+          httpStateProvider.setWatchStates(builder.watchStates);
+          this.stateProvider = httpStateProvider;
         } catch (Exception e) {
           throw new RuntimeException(
               "Couldn't initialize a HttpClusterStateProvider (is/are the "
@@ -159,6 +162,7 @@ public class CloudHttp2SolrClient extends CloudSolrClient {
     private String defaultCollection;
     private long timeToLiveSeconds = 60;
     private int parallelCacheRefreshesLocks = 3;
+    private boolean watchStates = false;
 
     /**
      * Provide a series of Solr URLs to be used when configuring {@link CloudHttp2SolrClient}
@@ -363,6 +367,19 @@ public class CloudHttp2SolrClient extends CloudSolrClient {
       return this;
     }
 
+    /**
+     * When the client is configured with Solr URLs, tells it to cache the state of the collections
+     * it uses and to keep it current by waiting on one of the nodes for their changes, instead of
+     * fetching the state from the nodes again and again. The updates are received over the
+     * existing HTTP/2 connection, without polling and without connecting to ZooKeeper.
+     *
+     * @see BaseHttpClusterStateProvider#setWatchStates(boolean)
+     */
+    public Builder withStateWatching(boolean watchStates) {
+      this.watchStates = watchStates;
+      return this;
+    }
+
     public Builder withHttpClient(Http2SolrClient httpClient) {
       if (this.internalClientBuilder != null) {
         throw new IllegalStateException(
@@ -397,7 +414,10 @@ public class CloudHttp2SolrClient extends CloudSolrClient {
               ClusterStateProvider.newZkClusterStateProvider(zkHosts, Builder.this.zkChroot);
         } else if (!this.solrUrls.isEmpty()) {
           try {
-            stateProvider = new Http2ClusterStateProvider(solrUrls, httpClient);
+            Http2ClusterStateProvider httpStateProvider =
+                new Http2ClusterStateProvider(solrUrls, httpClient);
+            httpStateProvider.setWatchStates(watchStates);
+            stateProvider = httpStateProvider;
           } catch (Exception e) {
             throw new RuntimeException(
                 "Couldn't initialize a HttpClusterStateProvider (is/are the "
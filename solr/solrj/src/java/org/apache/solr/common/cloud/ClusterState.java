@@ -18,6 +18,8 @@ package org.apache.solr.common.cloud;
 
 import static org.apache.solr.common.util.Utils.STANDARDOBJBUILDER;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.Collection;
 import java.util.Collections;
@@ -35,6 +37,8 @@ import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.cloud.DocCollection.CollectionStateProps;
 import org.apache.solr.common.cloud.Replica.ReplicaStateProps;
 import org.apache.solr.common.util.CollectionUtil;
+import org.apache.solr.common.util.DataInputInputStream;
+import org.apache.solr.common.util.JavaBinCodec;
 import org.apache.solr.common.util.Utils;
 import org.noggit.JSONParser;
 import org.noggit.JSONWriter;
@@ -53,6 +57,19 @@ public class ClusterState implements JSONWriter.Writable {
   /** Cluster Prop that is http or https. */
   public static final String URL_SCHEME = "urlScheme";
 
+  /**
+   * System property which, if true, makes collection states be written to ZooKeeper in the javabin
+   * format rather than as JSON. The javabin form is several times smaller and faster to parse,
+   * which matters for collections with many replicas, as every node and every client reads the
+   * whole <code>state.json</code> of a watched collection whenever it changes. Readers detect the
+   * format of the data, so this must only be set once all the nodes and clients reading the state
+   * are able to read it.
+   */
+  public static final String JAVABIN_STATE_PROP = "solr.cloud.javabinState";
+
+  /** The first byte of javabin data, which can't start a JSON document. */
+  private static final byte JAVABIN_VERSION = 2;
+
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   private final Map<String, CollectionRef> collectionStates, immutableCollectionStates;
@@ -220,8 +237,9 @@ public class ClusterState implements JSONWriter.Writable {
    * thus don't call it where that's important
    *
    * @param bytes a byte array of a Json representation of a mapping from collection name to the
-   *     Json representation of a {@link DocCollection} as written by {@link #write(JSONWriter)}. It
-   *     can represent one or more collections.
+   *     Json representation of a {@link DocCollection} as written by {@link #write(JSONWriter)}, or
+   *     its javabin equivalent written by {@link #toStateBytes(Map)}. It can represent one or more
+   *     collections.
    * @param liveNodes list of live nodes
    * @return the ClusterState
    */
@@ -230,12 +248,82 @@ public class ClusterState implements JSONWriter.Writable {
     if (bytes == null || bytes.length == 0) {
       return new ClusterState(liveNodes, Collections.<String, DocCollection>emptyMap());
     }
-    @SuppressWarnings({"unchecked"})
-    Map<String, Object> stateMap =
-        (Map<String, Object>) Utils.fromJSON(bytes, 0, bytes.length, STR_INTERNER_OBJ_BUILDER);
+    Map<String, Object> stateMap = parseStateBytes(bytes);
     return createFromCollectionMap(version, stateMap, liveNodes, prsSupplier);
   }
 
+  /**
+   * Parses collection state data as read from ZooKeeper, which may have been written either as JSON
+   * or, if {@link #JAVABIN_STATE_PROP} is set, in the javabin format.
+   *
+   * @return a mutable map of collection names (or other top level keys) to their properties
+   */
+  @SuppressWarnings({"unchecked"})
+  public static Map<String, Object> parseStateBytes(byte[] bytes) {
+    if (bytes == null || bytes.length == 0) {
+      return new LinkedHashMap<>();
+    }
+    if (bytes[0] != JAVABIN_VERSION) {
+      return (Map<String, Object>) Utils.fromJSON(bytes, 0, bytes.length, STR_INTERNER_OBJ_BUILDER);
+    }
+    final Function<String, String> interner = STR_INTERNER;
+    try (JavaBinCodec jbc =
+        new JavaBinCodec() {
+          @Override
+          public CharSequence readStr(
+              DataInputInputStream dis, StringCache stringCache, boolean readStringAsCharSeq)
+              throws IOException {
+            return interner.apply(super.readStr(dis, stringCache, false).toString());
+          }
+        }) {
+      return (Map<String, Object>) jbc.unmarshal(bytes);
+    } catch (IOException e) {
+      throw new SolrException(ErrorCode.SERVER_ERROR, "Unable to parse javabin state", e);
+    }
+  }
+
+  /**
+   * Serializes collection state data to be written to ZooKeeper, as JSON or, if {@link
+   * #JAVABIN_STATE_PROP} is set, in the javabin format.
+   *
+   * @param state typically a map of a collection name to its {@link DocCollection}
+   */
+  public static byte[] toStateBytes(Map<String, ?> state) {
+    if (!Boolean.getBoolean(JAVABIN_STATE_PROP)) {
+      return Utils.toJSON(state);
+    }
+    Map<String, Object> map = CollectionUtil.newLinkedHashMap(state.size());
+    for (Entry<String, ?> entry : state.entrySet()) {
+      Object value = entry.getValue();
+      if (value instanceof DocCollection) {
+        // as a MapWriter, DocCollection only writes its properties and not its shards
+        DocCollection coll = (DocCollection) value;
+        Map<String, Object> all = CollectionUtil.newLinkedHashMap(coll.getProperties().size() + 1);
+        all.putAll(coll.getProperties());
+        all.put(CollectionStateProps.SHARDS, coll.getSlicesMap());
+        value = all;
+      }
+      map.put(entry.getKey(), value);
+    }
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (JavaBinCodec jbc = new JavaBinCodec(ClusterState::resolveStateValue)) {
+      jbc.marshal(map, baos);
+    } catch (IOException e) {
+      throw new SolrException(ErrorCode.SERVER_ERROR, "Unable to write javabin state", e);
+    }
+    return baos.toByteArray();
+  }
+
+  /** Writes the values javabin doesn't know, such as shard ranges, as they are written to JSON. */
+  private static Object resolveStateValue(Object o, JavaBinCodec codec) {
+    if (o instanceof DocRouter.Range) {
+      return o.toString();
+    } else if (o instanceof JSONWriter.Writable) {
+      return Utils.fromJSON(Utils.toJSON(o));
+    }
+    return o;
+  }
+
   @Deprecated
   public static ClusterState createFromJson(int version, byte[] bytes, Set<String> liveNodes) {
     return createFromJson(version, bytes, liveNodes, null);
@@ -444,4 +532,12 @@ public class ClusterState implements JSONWriter.Writable {
     if (fun == null) return;
     STR_INTERNER_OBJ_BUILDER = fun;
   }
+
+  private static volatile Function<String, String> STR_INTERNER = Function.identity();
+
+  /** Sets the function interning the strings read from javabin collection states. */
+  public static void setStrInterner(Function<String, String> fun) {
+    if (fun == null) return;
+    STR_INTERNER = fun;
+  }
 }
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.common.cloud;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.common.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The difference between two consecutive versions of a collection's <code>state.json</code>, as
+ * the shards that were added or modified and the names of those that were removed. The Overseer
+ * writes it to {@link DocCollection#getCollectionDeltaPath(String)} in the same transaction as the
+ * new <code>state.json</code>, so that nodes watching the collection can update the state they
+ * already have instead of fetching and parsing the whole of it. Slices that are not in the delta,
+ * and replicas whose properties did not change, are reused from the previous state.
+ *
+ * <p>A delta records the znode version of <code>state.json</code> it applies to and the version it
+ * produces; it is only ever applied to exactly that version, in every other case the full state is
+ * read. Collections with per-replica states are not handled, nor are changes to the collection's
+ * own properties.
+ *
+ * @lucene.internal
+ */
+public class CollectionStateDelta {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * System property which, if true, makes the Overseer write deltas and nodes apply them. It must
+   * be set the same way on all nodes.
+   */
+  public static final String ENABLED_PROP = "solr.cloud.collectionStateDeltas";
+
+  public static final String BASE_VERSION = "baseVersion";
+  public static final String VERSION = "version";
+  public static final String SHARDS = DocCollection.CollectionStateProps.SHARDS;
+  public static final String REMOVED_SHARDS = "removedShards";
+
+  public static boolean isEnabled() {
+    return Boolean.getBoolean(ENABLED_PROP);
+  }
+
+  /**
+   * Computes the delta which turns <code>prev</code>, the state last written to ZooKeeper, into
+   * <code>next</code>. Slices are compared by identity, as the Overseer creates new {@link Slice}
+   * instances for the slices it modifies and keeps the others.
+   *
+   * @return the serialized delta, or null if <code>next</code> cannot be expressed as a delta of
+   *     <code>prev</code>
+   */
+  public static byte[] toBytes(DocCollection prev, DocCollection next) {
+    if (prev == null
+        || next == null
+        || prev.isPerReplicaState()
+        || next.isPerReplicaState()
+        || prev.getZNodeVersion() != next.getZNodeVersion()
+        || !prev.getName().equals(next.getName())
+        || !prev.getProperties().equals(next.getProperties())) {
+      return null;
+    }
+
+    Map<String, Slice> changed = new LinkedHashMap<>();
+    for (Slice slice : next.getSlices()) {
+      if (prev.getSlice(slice.getName()) != slice) {
+        changed.put(slice.getName(), slice);
+      }
+    }
+    List<String> removed = new ArrayList<>();
+    for (String name : prev.getSlicesMap().keySet()) {
+      if (next.getSlice(name) == null) {
+        removed.add(name);
+      }
+    }
+
+    // setData() on base version V results in version V + 1
+    return ClusterState.toStateBytes(
+        Utils.makeMap(
+            BASE_VERSION,
+            prev.getZNodeVersion(),
+            VERSION,
+            prev.getZNodeVersion() + 1,
+            SHARDS,
+            changed,
+            REMOVED_SHARDS,
+            removed));
+  }
+
+  /**
+   * Applies a delta read from ZooKeeper to the previous state of the collection.
+   *
+   * @param prev the state the delta should be applied to
+   * @param data the delta, as written by {@link #toBytes(DocCollection, DocCollection)}
+   * @param version the current znode version of the collection's <code>state.json</code>
+   * @return the new state, or null if the delta does not lead from <code>prev</code> to <code>
+   *     version</code> and the full state must be read instead
+   */
+  @SuppressWarnings("unchecked")
+  public static DocCollection apply(DocCollection prev, byte[] data, int version) {
+    if (prev == null || prev.isPerReplicaState() || data == null || data.length == 0) {
+      return null;
+    }
+    Map<String, Object> delta = ClusterState.parseStateBytes(data);
+    Number baseVersion = (Number) delta.get(BASE_VERSION);
+    Number deltaVersion = (Number) delta.get(VERSION);
+    if (baseVersion == null
+        || deltaVersion == null
+        || baseVersion.intValue() != prev.getZNodeVersion()
+        || deltaVersion.intValue() != version) {
+      if (log.isDebugEnabled()) {
+        log.debug(
+            "State delta of {} from version {} to {} does not apply to version {} -> {}",
+            prev.getName(),
+            baseVersion,
+            deltaVersion,
+            prev.getZNodeVersion(),
+            version);
+      }
+      return null;
+    }
+
+    Map<String, Object> changed = (Map<String, Object>) delta.get(SHARDS);
+    if (changed == null) {
+      changed = Collections.emptyMap();
+    }
+    Collection<String> removed = (Collection<String>) delta.get(REMOVED_SHARDS);
+    if (removed == null) {
+      removed = Collections.emptyList();
+    }
+
+    Map<String, Slice> slices = new LinkedHashMap<>();
+    for (Slice slice : prev.getSlices()) {
+      if (!removed.contains(slice.getName()) && !changed.containsKey(slice.getName())) {
+        slices.put(slice.getName(), slice);
+      }
+    }
+    for (Map.Entry<String, Object> entry : changed.entrySet()) {
+      slices.put(
+          entry.getKey(),
+          makeSlice(
+              prev.getName(),
+              entry.getKey(),
+              (Map<String, Object>) entry.getValue(),
+              prev.getSlice(entry.getKey())));
+    }
+    if (log.isDebugEnabled()) {
+      log.debug(
+          "Applied state delta of {} to version {}: modified shards {}, removed shards {}",
+          prev.getName(),
+          version,
+          changed.keySet(),
+          removed);
+    }
+    return prev.copyWithSlices(slices, version);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Slice makeSlice(
+      String collection, String name, Map<String, Object> props, Slice prevSlice) {
+    Map<String, Object> replicas =
+        (Map<String, Object>) props.get(Slice.SliceStateProps.REPLICAS);
+    if (prevSlice != null && replicas != null) {
+      Map<String, Object> reused = new LinkedHashMap<>(replicas.size());
+      for (Map.Entry<String, Object> entry : replicas.entrySet()) {
+        Replica prevReplica = prevSlice.getReplica(entry.getKey());
+        Object replica = entry.getValue();
+        if (prevReplica != null && replica instanceof Map) {
+          Replica newReplica =
+              new Replica(entry.getKey(), (Map<String, Object>) replica, collection, name);
+          replica = newReplica.equals(prevReplica) ? prevReplica : newReplica;
+        }
+        reused.put(entry.getKey(), replica);
+      }
+      props = new LinkedHashMap<>(props);
+      props.put(Slice.SliceStateProps.REPLICAS, reused);
+    }
+    return new Slice(name, null, props, collection);
+  }
+}
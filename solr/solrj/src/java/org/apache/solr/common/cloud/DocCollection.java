@@ -217,6 +217,15 @@ public class DocCollection extends ZkNodeProps implements Iterable<Slice> {
     return getCollectionPathRoot(coll) + "/state.json";
   }
 
+  /**
+   * The znode next to a collection's state.json holding its last change.
+   *
+   * @see CollectionStateDelta
+   */
+  public static String getCollectionDeltaPath(String coll) {
+    return getCollectionPathRoot(coll) + "/state_delta.json";
+  }
+
   public static String getCollectionPathRoot(String coll) {
     return COLLECTIONS_ZKNODE + "/" + coll;
   }
@@ -291,6 +300,19 @@ public class DocCollection extends ZkNodeProps implements Iterable<Slice> {
         new DocCollection(getName(), slices, propMap, router, znodeVersion, perReplicaStatesRef);
     return result;
   }
+
+  /**
+   * Like {@link #copyWithSlices(Map)}, for a newer version of the collection's znode in which only
+   * the slices changed.
+   *
+   * @param slices the new set of Slices
+   * @param zkVersion the version of the Collection node in Zookeeper
+   * @return the resulting DocCollection
+   */
+  public DocCollection copyWithSlices(Map<String, Slice> slices, int zkVersion) {
+    return new DocCollection(getName(), slices, propMap, router, zkVersion, perReplicaStatesRef);
+  }
+
   /** Return collection name. */
   public String getName() {
     return name;
@@ -124,4 +124,19 @@ public interface CollectionAdminParams {
   String PROPERTY_PREFIX = "property.";
 
   String PER_REPLICA_STATE = CollectionStateProps.PER_REPLICA_STATE;
+
+  /**
+   * CLUSTERSTATUS parameter listing the collections, and their state versions, that the caller
+   * already knows of, as comma separated <code>name:znodeVersion:childNodesVersion</code> entries.
+   * Only these collections are returned, and only if their state differs from these versions. The
+   * names of the others are returned in the <code>unchanged</code> list.
+   */
+  String STATE_VERSIONS = "stateVersions";
+
+  /**
+   * Number of seconds for which a CLUSTERSTATUS request with {@link #STATE_VERSIONS} waits for the
+   * state of one of the collections, or the live nodes, to change before responding. Nodes wait 30
+   * seconds at most, as the request holds one of their threads meanwhile.
+   */
+  String WAIT_FOR_CHANGE = "waitForChange";
 }
@@ -36,6 +36,12 @@ public interface GroupParams {
   /** treat the first group result as the main result. true/false */
   public static final String GROUP_FORMAT = GROUP + ".format";
 
+  /**
+   * The grouping method, <code>twopass</code> (the default) or <code>ords</code> to group single
+   * valued string fields with docValues in a single pass over their ordinals.
+   */
+  public static final String GROUP_METHOD = GROUP + ".method";
+
   /**
    * Whether to cache the first pass search (doc ids and score) for the second pass search. Also
    * defines the maximum size of the group cache relative to maxdoc in a percentage. Values can be a
@@ -68,4 +74,10 @@ public interface GroupParams {
   public static final String GROUP_DISTRIBUTED_SECOND = GROUP + ".distributed.second";
 
   public static final String GROUP_DISTRIBUTED_TOPGROUPS_PREFIX = GROUP + ".topgroups.";
+
+  /**
+   * Retrieve the top groups and their documents from the shards being queried in a single request,
+   * when grouping by the {@link #GROUP_METHOD} <code>ords</code>.
+   */
+  public static final String GROUP_DISTRIBUTED_SINGLE = GROUP + ".distributed.single";
 }
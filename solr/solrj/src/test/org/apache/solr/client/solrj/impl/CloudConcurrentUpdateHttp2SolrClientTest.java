@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.cloud.SolrCloudTestCase;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.util.ExternalPaths;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CloudConcurrentUpdateHttp2SolrClientTest extends SolrCloudTestCase {
+
+  private static final String COLLECTION = "bulk_collection";
+  private static final int NUM_SHARDS = 3;
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    configureCluster(2)
+        .addConfig("conf", new File(ExternalPaths.TECHPRODUCTS_CONFIGSET).toPath())
+        .configure();
+  }
+
+  @Before
+  public void createCollection() throws Exception {
+    CollectionAdminRequest.createCollection(COLLECTION, "conf", NUM_SHARDS, 2)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(COLLECTION, NUM_SHARDS, NUM_SHARDS * 2);
+  }
+
+  @After
+  public void deleteCollections() throws Exception {
+    cluster.deleteAllCollections();
+  }
+
+  @Test
+  public void testDocumentsRoutedToLeaders() throws Exception {
+    int numDocs = 500;
+    try (CloudHttp2SolrClient cloudClient =
+            new CloudHttp2SolrClient.Builder(
+                    Collections.singletonList(cluster.getZkServer().getZkAddress()),
+                    Optional.empty())
+                .build();
+        CloudConcurrentUpdateHttp2SolrClient client =
+            new CloudConcurrentUpdateHttp2SolrClient.Builder(cloudClient)
+                .withQueueSize(50)
+                .build()) {
+      List<SolrInputDocument> batch = new ArrayList<>();
+      for (int i = 0; i < numDocs; i++) {
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.setField("id", "doc" + i);
+        batch.add(doc);
+        if (batch.size() == 20) {
+          client.add(COLLECTION, batch);
+          batch = new ArrayList<>();
+        }
+      }
+      client.deleteById(COLLECTION, "doc0");
+      client.commit(COLLECTION);
+
+      // the updates were only streamed to the shard leaders, and to all of them
+      Set<String> leaderUrls = new HashSet<>();
+      Set<String> nonLeaderUrls = new HashSet<>();
+      for (Slice slice : cluster.getSolrClient().getClusterState().getCollection(COLLECTION)) {
+        for (Replica replica : slice) {
+          if (replica.getName().equals(slice.getLeader().getName())) {
+            leaderUrls.add(replica.getCoreUrl());
+          } else {
+            nonLeaderUrls.add(replica.getCoreUrl());
+          }
+        }
+      }
+      assertEquals(NUM_SHARDS, leaderUrls.size());
+      assertEquals(NUM_SHARDS, nonLeaderUrls.size());
+      assertEquals(leaderUrls, client.getLeaderUrls());
+
+      assertEquals(
+          numDocs - 1,
+          client.query(COLLECTION, new SolrQuery("*:*")).getResults().getNumFound());
+
+      client.deleteByQuery(COLLECTION, "id:doc1*");
+      client.commit(COLLECTION);
+      // doc1, doc10-doc19 and doc100-doc199
+      assertEquals(
+          numDocs - 1 - 111,
+          client.query(COLLECTION, new SolrQuery("*:*")).getResults().getNumFound());
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.impl;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.cloud.SolrCloudTestCase;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.util.TimeSource;
+import org.apache.solr.util.TimeOut;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the collection states kept current by {@link
+ * CloudHttp2SolrClient.Builder#withStateWatching(boolean)}.
+ */
+public class HttpClusterStateWatchTest extends SolrCloudTestCase {
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    configureCluster(2)
+        .addConfig(
+            "conf",
+            getFile("solrj")
+                .toPath()
+                .resolve("solr")
+                .resolve("configsets")
+                .resolve("streaming")
+                .resolve("conf"))
+        .configure();
+  }
+
+  private static CloudHttp2SolrClient newStateWatchingClient() {
+    return new CloudHttp2SolrClient.Builder(
+            Collections.singletonList(cluster.getJettySolrRunner(0).getBaseUrl().toString()))
+        .withStateWatching(true)
+        .build();
+  }
+
+  private static void createCollection(String collection) throws Exception {
+    CollectionAdminRequest.createCollection(collection, "conf", 1, 1)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(collection, 1, 1);
+  }
+
+  private static void addReplica(String collection) throws Exception {
+    CollectionAdminRequest.addReplicaToShard(collection, "shard1").process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(collection, 1, 2);
+  }
+
+  private static void waitFor(String message, Supplier<Boolean> condition) throws Exception {
+    new TimeOut(DEFAULT_TIMEOUT, TimeUnit.SECONDS, TimeSource.NANO_TIME)
+        .waitFor(message, condition);
+  }
+
+  @Test
+  public void testStateChangesAreWatched() throws Exception {
+    String collection = "watchedChanges";
+    createCollection(collection);
+
+    try (CloudHttp2SolrClient client = newStateWatchingClient()) {
+      BaseHttpClusterStateProvider provider =
+          (BaseHttpClusterStateProvider) client.getClusterStateProvider();
+      assertEquals(1, provider.getState(collection).get().getReplicas().size());
+      assertNotNull(provider.getWatchedState(collection));
+
+      addReplica(collection);
+
+      waitFor(
+          "The watched state was not updated with the new replica",
+          () -> provider.getWatchedState(collection).getReplicas().size() == 2);
+      // the watched state is returned without fetching it again
+      assertSame(provider.getWatchedState(collection), provider.getState(collection).get());
+
+      CollectionAdminRequest.deleteCollection(collection).process(cluster.getSolrClient());
+      waitFor(
+          "The deleted collection is still watched",
+          () -> provider.getWatchedState(collection) == null);
+    }
+  }
+
+  @Test
+  public void testFallbackWhenNoNodeCanBeWatched() throws Exception {
+    String collection = "watchFallback";
+    createCollection(collection);
+
+    AtomicBoolean unreachable = new AtomicBoolean();
+    try (Http2ClusterStateProvider provider =
+        new Http2ClusterStateProvider(
+            Collections.singletonList(cluster.getJettySolrRunner(0).getBaseUrl().toString()),
+            null) {
+          @Override
+          protected SolrClient getSolrClient(String baseUrl) {
+            return super.getSolrClient(unreachable.get() ? "http://127.0.0.1:1/solr" : baseUrl);
+          }
+        }) {
+      provider.setWatchStates(true);
+      // renew the pending watch quickly so that the next one doesn't reach any node
+      provider.setStateWatchTimeout(1);
+      assertNotNull(provider.getState(collection));
+      assertNotNull(provider.getWatchedState(collection));
+
+      unreachable.set(true);
+      waitFor(
+          "The state is still watched without any reachable node",
+          () -> provider.getWatchedState(collection) == null);
+
+      // the states are fetched on demand again, and watched once a node can be reached
+      unreachable.set(false);
+      assertEquals(1, provider.getState(collection).get().getReplicas().size());
+      assertNotNull(provider.getWatchedState(collection));
+    }
+  }
+
+  @Test
+  public void testStateWatchingDisabled() throws Exception {
+    String collection = "watchDisabled";
+    createCollection(collection);
+
+    try (CloudHttp2SolrClient client = newStateWatchingClient()) {
+      BaseHttpClusterStateProvider provider =
+          (BaseHttpClusterStateProvider) client.getClusterStateProvider();
+      assertNotNull(provider.getState(collection));
+      assertNotNull(provider.getWatchedState(collection));
+
+      // as done when a node does not support watching the states
+      provider.setWatchStates(false);
+      assertNull(provider.getWatchedState(collection));
+
+      addReplica(collection);
+
+      DocCollection state = provider.getState(collection).get();
+      assertEquals(2, state.getReplicas().size());
+      assertNull(provider.getWatchedState(collection));
+    }
+  }
+}